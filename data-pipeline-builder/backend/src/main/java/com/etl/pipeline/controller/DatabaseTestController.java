@@ -1,27 +1,42 @@
 package com.etl.pipeline.controller;
 
+import com.etl.pipeline.service.ConnectionProfileRegistry;
+import com.etl.pipeline.service.ExecutionThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controller for testing database connections
  */
 @RestController
 @RequestMapping("/api/database")
-@CrossOrigin(origins = "http://localhost:3000", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.OPTIONS})
+@CrossOrigin(origins = "http://localhost:3000", methods = {RequestMethod.GET, RequestMethod.POST, RequestMethod.PUT, RequestMethod.DELETE, RequestMethod.OPTIONS})
 public class DatabaseTestController {
     
     private static final Logger logger = LoggerFactory.getLogger(DatabaseTestController.class);
     
+    @Autowired
+    private ExecutionThreads threads;
+    
+    @Autowired
+    private ConnectionProfileRegistry connections;
+    
+    @Value("${pipeline.threads.connection-test-timeout-ms:15000}")
+    private long connectionTestTimeoutMs;
+    
     @PostMapping("/test-connection")
     public ResponseEntity<Map<String, Object>> testConnection(@RequestBody Map<String, Object> connectionData) {
         Map<String, Object> response = new HashMap<>();
@@ -33,21 +48,14 @@ public class DatabaseTestController {
             
             logger.info("Testing database connection to: {}", connectionString);
             
-            // Test the connection
-            try (Connection connection = DriverManager.getConnection(connectionString, username, password)) {
-                // Simple test query to verify connection works
-                try (Statement stmt = connection.createStatement()) {
-                    // Try a simple query that should work on most databases
-                    ResultSet rs = stmt.executeQuery("SELECT 1");
-                    if (rs.next()) {
-                        response.put("success", true);
-                        response.put("message", "Connection successful!");
-                        response.put("databaseProduct", connection.getMetaData().getDatabaseProductName());
-                        response.put("databaseVersion", connection.getMetaData().getDatabaseProductVersion());
-                    }
-                }
-            }
+            // Connecting blocks on the network, so run it on an I/O (virtual) thread with a deadline
+            response.putAll(threads.io(() -> runConnectionTest(connectionString, username, password), connectionTestTimeoutMs));
             
+        } catch (TimeoutException e) {
+            logger.warn("Database connection test timed out after {} ms", connectionTestTimeoutMs);
+            response.put("success", false);
+            response.put("message", "Connection failed: timed out after " + connectionTestTimeoutMs + " ms");
+            response.put("error", e.getClass().getSimpleName());
         } catch (Exception e) {
             logger.error("Database connection test failed: {}", e.getMessage(), e);
             response.put("success", false);
@@ -58,6 +66,82 @@ public class DatabaseTestController {
         return ResponseEntity.ok(response);
     }
     
+    private Map<String, Object> runConnectionTest(String connectionString, String username, String password) throws SQLException {
+        Map<String, Object> response = new HashMap<>();
+        
+        // Test a connection from the pool for these details, so repeated tests reuse it
+        try (Connection connection = connections.getConnection(connectionString, username, password)) {
+            // Simple test query to verify connection works
+            try (Statement stmt = connection.createStatement()) {
+                // Try a simple query that should work on most databases
+                ResultSet rs = stmt.executeQuery("SELECT 1");
+                if (rs.next()) {
+                    response.put("success", true);
+                    response.put("message", "Connection successful!");
+                    response.put("databaseProduct", connection.getMetaData().getDatabaseProductName());
+                    response.put("databaseVersion", connection.getMetaData().getDatabaseProductVersion());
+                }
+            }
+        }
+        
+        return response;
+    }
+    
+    /**
+     * Connection profiles and the state of their pools
+     */
+    @GetMapping("/profiles")
+    public ResponseEntity<List<Map<String, Object>>> listProfiles() {
+        return ResponseEntity.ok(connections.describe());
+    }
+    
+    /**
+     * Define (or replace) a named connection profile from the same details as a connection test;
+     * nodes then refer to it with "connectionProfile". The details are tested before anything is
+     * replaced, so the profile is saved only if it connects and a failed edit keeps the old profile.
+     */
+    @PutMapping("/profiles/{name}")
+    public ResponseEntity<Map<String, Object>> defineProfile(@PathVariable String name,
+                                                             @RequestBody Map<String, Object> connectionData) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            String connectionString = buildConnectionString(connectionData);
+            String username = (String) connectionData.get("username");
+            String password = (String) connectionData.get("password");
+            
+            String databaseProduct = threads.io(() -> {
+                try (Connection connection = connections.getConnection(connectionString, username, password)) {
+                    return connection.getMetaData().getDatabaseProductName();
+                }
+            }, connectionTestTimeoutMs);
+            connections.define(name, connectionString, username, password);
+            response.put("success", true);
+            response.put("message", "Connection profile '" + name + "' saved");
+            response.put("databaseProduct", databaseProduct);
+            return ResponseEntity.ok(response);
+            
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            logger.warn("Connection profile '{}' could not connect: {}", name, e.getMessage());
+            response.put("success", false);
+            response.put("message", "Connection failed: " + (e instanceof TimeoutException
+                    ? "timed out after " + connectionTestTimeoutMs + " ms" : e.getMessage()));
+            response.put("error", e.getClass().getSimpleName());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    @DeleteMapping("/profiles/{name}")
+    public ResponseEntity<Map<String, Object>> removeProfile(@PathVariable String name) {
+        if (!connections.remove(name)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("success", true, "message", "Connection profile '" + name + "' removed"));
+    }
+    
     @RequestMapping(value = "/test-connection", method = RequestMethod.OPTIONS)
     public ResponseEntity<?> testConnectionOptions() {
         return ResponseEntity.ok().build();
@@ -1,18 +1,29 @@
 package com.etl.pipeline.controller;
 
+import com.etl.pipeline.datasource.CsvFileSource;
+import com.etl.pipeline.model.DatasetProfile;
+import com.etl.pipeline.model.UploadSession;
+import com.etl.pipeline.service.ChunkedUploadService;
+import com.etl.pipeline.service.ConnectionProfileRegistry;
+import com.etl.pipeline.service.DatasetCatalog;
+import com.etl.pipeline.service.ExecutionThreads;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * Controller for handling file uploads
@@ -24,6 +35,19 @@ public class FileUploadController {
     
     private static final Logger logger = LoggerFactory.getLogger(FileUploadController.class);
     private static final String UPLOAD_DIR = "uploads/";
+    private static final int MAX_ROWS_PER_REQUEST = 10000;
+    
+    @Autowired
+    private DatasetCatalog catalog;
+    
+    @Autowired
+    private ChunkedUploadService chunkedUploads;
+    
+    @Autowired
+    private ExecutionThreads threads;
+    
+    @Autowired
+    private ConnectionProfileRegistry connections;
     
     @PostMapping("/upload/csv")
     public ResponseEntity<?> uploadCsvFile(@RequestParam("file") MultipartFile file) {
@@ -34,8 +58,8 @@ public class FileUploadController {
             }
             
             String originalFilename = file.getOriginalFilename();
-            if (originalFilename == null || !originalFilename.toLowerCase().endsWith(".csv")) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Only CSV files are allowed"));
+            if (originalFilename == null || !isCsvFile(originalFilename)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Only CSV files (.csv or .csv.gz) are allowed"));
             }
             
             // Create upload directory if it doesn't exist
@@ -48,8 +72,11 @@ public class FileUploadController {
             String filename = System.currentTimeMillis() + "_" + originalFilename;
             Path filePath = uploadPath.resolve(filename);
             
-            // Save file
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            // Save file, indexing and profiling it from the same bytes
+            DatasetProfile profile;
+            try (InputStream in = file.getInputStream()) {
+                profile = catalog.ingest(in, filePath);
+            }
             
             logger.info("File uploaded successfully: {}", filename);
             
@@ -60,6 +87,10 @@ public class FileUploadController {
             response.put("originalName", originalFilename);
             response.put("filePath", "uploads/" + filename);
             response.put("size", file.getSize());
+            if (profile != null) {
+                response.put("rows", profile.getRowCount());
+                response.put("profile", profile);
+            }
             response.put("message", "File uploaded successfully");
             
             return ResponseEntity.ok(response);
@@ -76,6 +107,135 @@ public class FileUploadController {
         return ResponseEntity.ok().build();
     }
     
+    /**
+     * Start a chunked upload for files too large for a multipart request.
+     * Body: {"filename": "...", "totalBytes": n, "chunkBytes": optional chunk size}
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> startChunkedUpload(@RequestBody Map<String, Object> request) {
+        try {
+            Object name = request.get("filename");
+            Object totalBytes = request.get("totalBytes");
+            if (name == null || totalBytes == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "filename and totalBytes are required"));
+            }
+            String originalFilename = Paths.get(name.toString()).getFileName().toString();
+            if (!isCsvFile(originalFilename)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Only CSV files (.csv or .csv.gz) are allowed"));
+            }
+            Object chunkBytes = request.get("chunkBytes");
+            UploadSession session = chunkedUploads.create(originalFilename,
+                    Long.parseLong(totalBytes.toString()),
+                    chunkBytes != null ? Integer.parseInt(chunkBytes.toString()) : 0);
+            return ResponseEntity.ok(session);
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error starting chunked upload", e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to start upload: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Progress of a chunked upload; a resuming client sends the chunks listed as missing
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getChunkedUpload(@PathVariable String uploadId) {
+        UploadSession session = chunkedUploads.find(uploadId);
+        if (session == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(session);
+    }
+    
+    /**
+     * One chunk of a chunked upload as the raw request body, with its SHA-256 (hex) in the
+     * X-Chunk-SHA256 header. The body is streamed to disk, so no multipart size limit applies.
+     */
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @PathVariable int index,
+                                         @RequestHeader(value = "X-Chunk-SHA256", required = false) String sha256,
+                                         HttpServletRequest request) {
+        try (InputStream in = request.getInputStream()) {
+            UploadSession session = chunkedUploads.writeChunk(uploadId, index, in, sha256);
+            return ResponseEntity.ok(Map.of(
+                "uploadId", uploadId,
+                "chunk", index,
+                "receivedChunks", session.getReceivedChunks(),
+                "chunkCount", session.getChunkCount()
+            ));
+            
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error writing chunk {} of upload {}", index, uploadId, e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to write chunk: " + e.getMessage()));
+        }
+    }
+    
+    /**
+     * Finish a chunked upload. The file is moved into the upload directory without copying;
+     * indexing and profiling read it once in the background, after which /{filename}/profile answers.
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeChunkedUpload(@PathVariable String uploadId) {
+        try {
+            UploadSession pending = chunkedUploads.find(uploadId);
+            if (pending == null) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            Path uploadPath = Paths.get(UPLOAD_DIR);
+            Files.createDirectories(uploadPath);
+            String filename = System.currentTimeMillis() + "_" + pending.getOriginalName();
+            Path filePath = uploadPath.resolve(filename);
+            UploadSession session = chunkedUploads.complete(uploadId, filePath);
+            
+            threads.getIoExecutor().submit(() -> {
+                try {
+                    catalog.register(filePath);
+                } catch (IOException e) {
+                    logger.warn("Could not profile uploaded file {}: {}", filename, e.getMessage());
+                }
+            });
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("filename", filename);
+            response.put("originalName", session.getOriginalName());
+            response.put("filePath", "uploads/" + filename);
+            response.put("size", session.getTotalBytes());
+            response.put("profiling", true);
+            response.put("message", "File uploaded successfully");
+            return ResponseEntity.ok(response);
+            
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Error completing upload {}", uploadId, e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to complete upload: " + e.getMessage()));
+        }
+    }
+    
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> abortChunkedUpload(@PathVariable String uploadId) {
+        if (!chunkedUploads.abort(uploadId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("message", "Upload cancelled"));
+    }
+    
     @GetMapping("/list")
     public ResponseEntity<?> listUploadedFiles() {
         try {
@@ -87,7 +247,7 @@ public class FileUploadController {
             String[] files = Files.list(uploadPath)
                 .filter(Files::isRegularFile)
                 .map(path -> path.getFileName().toString())
-                .filter(name -> name.toLowerCase().endsWith(".csv"))
+                .filter(this::isCsvFile)
                 .toArray(String[]::new);
             
             return ResponseEntity.ok(Map.of("files", files));
@@ -99,6 +259,14 @@ public class FileUploadController {
         }
     }
     
+    /**
+     * CSV sources decompress gzip transparently, so compressed drops can be uploaded as they are
+     */
+    private boolean isCsvFile(String filename) {
+        String name = filename.toLowerCase();
+        return name.endsWith(".csv") || name.endsWith(".csv.gz");
+    }
+    
     @DeleteMapping("/delete/{filename}")
     public ResponseEntity<?> deleteFile(@PathVariable String filename) {
         try {
@@ -109,6 +277,7 @@ public class FileUploadController {
             }
             
             Files.delete(filePath);
+            catalog.remove(filePath);
             logger.info("File deleted: {}", filename);
             
             return ResponseEntity.ok(Map.of("message", "File deleted successfully"));
@@ -120,6 +289,64 @@ public class FileUploadController {
         }
     }
     
+    /**
+     * Statistics computed when the file was uploaded; served from the catalog without reading the file
+     */
+    @GetMapping("/{filename}/profile")
+    public ResponseEntity<?> getProfile(@PathVariable String filename) {
+        Path uploadPath = Paths.get(UPLOAD_DIR).normalize();
+        Path filePath = uploadPath.resolve(filename).normalize();
+        if (!filePath.startsWith(uploadPath) || !isCsvFile(filename)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid file name: " + filename));
+        }
+        DatasetProfile profile = catalog.find(filePath);
+        if (profile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(profile);
+    }
+    
+    /**
+     * A range of data rows of an uploaded file, read with the default CSV options; indexed files
+     * are read from the nearest indexed record, so deep offsets cost the same as the first rows
+     */
+    @GetMapping("/{filename}/rows")
+    public ResponseEntity<?> readRows(@PathVariable String filename,
+                                      @RequestParam(defaultValue = "0") long offset,
+                                      @RequestParam(defaultValue = "100") int limit) {
+        try {
+            Path uploadPath = Paths.get(UPLOAD_DIR).normalize();
+            Path filePath = uploadPath.resolve(filename).normalize();
+            if (!filePath.startsWith(uploadPath) || !isCsvFile(filename)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid file name: " + filename));
+            }
+            if (!Files.exists(filePath)) {
+                return ResponseEntity.notFound().build();
+            }
+            if (offset < 0 || limit < 0) {
+                return ResponseEntity.badRequest().body(Map.of("error", "offset and limit must not be negative"));
+            }
+            
+            Map<String, Object> config = new HashMap<>();
+            config.put("filePath", UPLOAD_DIR + filename);
+            CsvFileSource source = new CsvFileSource(config);
+            long startNanos = System.nanoTime();
+            List<Map<String, Object>> rows = source.readRows(offset, Math.min(limit, MAX_ROWS_PER_REQUEST));
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("offset", offset);
+            response.put("rows", rows);
+            response.put("totalRows", source.getIndexedRowCount());
+            response.put("readMs", (System.nanoTime() - startNanos) / 1_000_000);
+            return ResponseEntity.ok(response);
+            
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error reading rows of {}", filename, e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Failed to read rows: " + e.getMessage()));
+        }
+    }
+    
     @PostMapping("/test-connection")
     public ResponseEntity<?> testDatabaseConnection(@RequestBody Map<String, Object> config) {
         try {
@@ -136,7 +363,7 @@ public class FileUploadController {
             // Create data source for testing
             com.etl.pipeline.datasource.DataSourceType type = parseDataSourceType(databaseType);
             com.etl.pipeline.datasource.SqlDatabaseSource source = 
-                new com.etl.pipeline.datasource.SqlDatabaseSource(type, config);
+                new com.etl.pipeline.datasource.SqlDatabaseSource(type, config, connections, threads.getIoExecutor());
             
             boolean connectionSuccessful = source.testConnection();
             
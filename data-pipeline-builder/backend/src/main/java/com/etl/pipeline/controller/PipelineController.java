@@ -1,9 +1,13 @@
 package com.etl.pipeline.controller;
 
+import com.etl.pipeline.model.ExecutionPlan;
 import com.etl.pipeline.model.ExecutionResult;
+import com.etl.pipeline.model.NodePreview;
 import com.etl.pipeline.model.Pipeline;
+import com.etl.pipeline.service.MemoryManager;
 import com.etl.pipeline.service.PipelineExecutionService;
 import com.etl.pipeline.service.PipelineValidationService;
+import com.etl.pipeline.service.WorkloadManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +24,7 @@ import java.util.Map;
 public class PipelineController {
     
     private static final Logger logger = LoggerFactory.getLogger(PipelineController.class);
+    private static final int MAX_PREVIEW_ROWS = 10000;
     
     @Autowired
     private PipelineExecutionService executionService;
@@ -27,8 +32,15 @@ public class PipelineController {
     @Autowired
     private PipelineValidationService validationService;
     
+    @Autowired
+    private MemoryManager memoryManager;
+    
+    @Autowired
+    private WorkloadManager workloadManager;
+    
     @PostMapping("/execute")
-    public ResponseEntity<?> executePipeline(@RequestBody Pipeline pipeline) {
+    public ResponseEntity<?> executePipeline(@RequestBody Pipeline pipeline,
+                                             @RequestParam(defaultValue = "false") boolean async) {
         try {
             logger.info("Received pipeline execution request: {}", pipeline);
             
@@ -49,6 +61,17 @@ public class PipelineController {
                 ));
             }
             
+            if (async) {
+                ExecutionResult queued = executionService.submitPipeline(pipeline);
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "Pipeline queued for execution");
+                response.put("executionId", queued.getExecutionId());
+                response.put("lane", queued.getLane());
+                response.put("statusPath", "/api/pipeline/status/" + queued.getExecutionId());
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+            }
+            
             // Execute pipeline
             ExecutionResult result = executionService.executePipeline(pipeline);
             
@@ -94,6 +117,114 @@ public class PipelineController {
         }
     }
     
+    @PostMapping("/explain")
+    public ResponseEntity<?> explainPipeline(@RequestBody Pipeline pipeline) {
+        return explain(pipeline, false);
+    }
+    
+    @PostMapping("/explain/analyze")
+    public ResponseEntity<?> explainAnalyzePipeline(@RequestBody Pipeline pipeline) {
+        return explain(pipeline, true);
+    }
+    
+    private ResponseEntity<?> explain(Pipeline pipeline, boolean analyze) {
+        try {
+            logger.info("Received pipeline explain request (analyze={}): {}", analyze, pipeline);
+            
+            var validationResult = validationService.validatePipeline(pipeline);
+            if (!validationResult.isValid()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Pipeline validation failed",
+                    "details", validationResult.getErrors()
+                ));
+            }
+            
+            ExecutionPlan plan = analyze
+                    ? executionService.analyzePipeline(pipeline)
+                    : executionService.explainPipeline(pipeline);
+            return ResponseEntity.ok(plan);
+            
+        } catch (Exception e) {
+            logger.error("Pipeline explain failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "error", "Explain failed: " + e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * First rows of one node's output, without running the rest of the pipeline
+     */
+    @PostMapping("/preview/{nodeId}")
+    public ResponseEntity<?> previewNode(@RequestBody Pipeline pipeline, @PathVariable String nodeId,
+                                         @RequestParam(defaultValue = "100") int limit) {
+        try {
+            logger.info("Received node preview request: node {}, limit {}", nodeId, limit);
+            
+            if (limit < 1 || limit > MAX_PREVIEW_ROWS) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "limit must be between 1 and " + MAX_PREVIEW_ROWS
+                ));
+            }
+            var validationResult = validationService.validatePipeline(pipeline);
+            if (!validationResult.isValid()) {
+                return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Pipeline validation failed",
+                    "details", validationResult.getErrors()
+                ));
+            }
+            
+            NodePreview preview = executionService.previewNode(pipeline, nodeId, limit);
+            return ResponseEntity.ok(preview);
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Node preview failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "error", "Preview failed: " + e.getMessage()
+            ));
+        }
+    }
+    
+    @PostMapping("/resume/{executionId}")
+    public ResponseEntity<?> resumePipeline(@PathVariable String executionId) {
+        try {
+            logger.info("Received pipeline resume request: {}", executionId);
+
+            ExecutionResult result = executionService.resumePipeline(executionId);
+            boolean succeeded = result.getStatus() == ExecutionResult.ExecutionStatus.SUCCESS;
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", succeeded);
+            response.put("message", succeeded ? "Pipeline resumed successfully" : "Resumed pipeline failed: " + result.getErrorMessage());
+            response.put("executionId", executionId);
+            response.put("status", result.getStatus());
+            response.put("recordsProcessed", result.getRecordsProcessed() != null ? result.getRecordsProcessed() : 0L);
+            response.put("outputLocation", result.getOutputLocation() != null ? result.getOutputLocation() : "unknown");
+            response.put("executionTime", result.getExecutionTimeMs() + "ms");
+
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
+        } catch (Exception e) {
+            logger.error("Pipeline resume failed for ID: " + executionId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "success", false,
+                "error", "Pipeline resume failed: " + e.getMessage()
+            ));
+        }
+    }
+
     @GetMapping("/status/{executionId}")
     public ResponseEntity<?> getExecutionStatus(@PathVariable String executionId) {
         try {
@@ -113,6 +244,16 @@ public class PipelineController {
         }
     }
     
+    @GetMapping("/memory")
+    public ResponseEntity<?> getMemoryStatus() {
+        return ResponseEntity.ok(memoryManager.getStatus());
+    }
+    
+    @GetMapping("/workload")
+    public ResponseEntity<?> getWorkloadStatus() {
+        return ResponseEntity.ok(workloadManager.getStatus());
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<?> healthCheck() {
         return ResponseEntity.ok(Map.of(
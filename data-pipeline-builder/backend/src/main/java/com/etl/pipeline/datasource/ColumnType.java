@@ -0,0 +1,230 @@
+package com.etl.pipeline.datasource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Column types inferred for text sources.
+ *
+ * Values are parsed once when a file is read and then flow through the pipeline as Long, Double,
+ * BigDecimal, Boolean, LocalDate, LocalDateTime or String. Empty values of a typed column become
+ * null; a value that does not parse (e.g. beyond the inference sample) is kept as its text.
+ */
+public enum ColumnType {
+    LONG,
+    DOUBLE,
+    DECIMAL,
+    BOOLEAN,
+    DATE,
+    TIMESTAMP,
+    STRING;
+
+    // Leading zeros (zip codes, ids) and '+' signs would not survive a round trip, so they stay text
+    private static final Pattern INTEGRAL = Pattern.compile("-?(0|[1-9][0-9]{0,17})");
+    private static final Pattern PLAIN_NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?");
+    private static final Pattern SCIENTIFIC_NUMBER = Pattern.compile("-?(0|[1-9][0-9]*)(\\.[0-9]+)?[eE][+-]?[0-9]{1,3}");
+    private static final Pattern ISO_DATE = Pattern.compile("[0-9]{4}-[0-9]{2}-[0-9]{2}");
+    private static final Pattern ISO_TIMESTAMP = Pattern.compile("[0-9]{4}-[0-9]{2}-[0-9]{2}[T ][0-9]{2}:[0-9]{2}(:[0-9]{2}(\\.[0-9]{1,9})?)?");
+
+    // Doubles hold 15 significant digits exactly; longer values are inferred as DECIMAL
+    private static final int DOUBLE_DIGITS = 15;
+
+    private static final DateTimeFormatter TIMESTAMP_PARSER = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .optionalStart().appendLiteral('T').optionalEnd()
+            .optionalStart().appendLiteral(' ').optionalEnd()
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .toFormatter();
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = new DateTimeFormatterBuilder()
+            .append(DateTimeFormatter.ISO_LOCAL_DATE)
+            .appendLiteral(' ')
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .toFormatter();
+
+    /**
+     * Parse a value of this type
+     * @return null for an empty value of a typed column
+     * @throws RuntimeException if the text is not a value of this type
+     */
+    public Object parse(String text) {
+        if (this == STRING) {
+            return text;
+        }
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        switch (this) {
+            case LONG: return Long.parseLong(text);
+            case DOUBLE: return Double.parseDouble(text);
+            case DECIMAL: return new BigDecimal(text);
+            case BOOLEAN:
+                if ("true".equalsIgnoreCase(text)) {
+                    return Boolean.TRUE;
+                }
+                if ("false".equalsIgnoreCase(text)) {
+                    return Boolean.FALSE;
+                }
+                throw new IllegalArgumentException("Not a boolean: " + text);
+            case DATE: return LocalDate.parse(text);
+            case TIMESTAMP: return LocalDateTime.parse(text, TIMESTAMP_PARSER);
+            default: return text;
+        }
+    }
+
+    /**
+     * Parse a value, keeping the original text if it does not match the column type. Values are
+     * checked with the same rules as inference, so text the sample would have kept as text (leading
+     * zeros, '+' signs, NaN, too many digits for a double) is kept as text here too.
+     */
+    public Object parseOrKeep(String text) {
+        if (this == STRING) {
+            return text;
+        }
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        if (!accepts(text)) {
+            return text;
+        }
+        try {
+            return parse(text);
+        } catch (RuntimeException e) {
+            return text;
+        }
+    }
+
+    private boolean accepts(String text) {
+        switch (this) {
+            case LONG: return INTEGRAL.matcher(text).matches();
+            case DOUBLE:
+                return (PLAIN_NUMBER.matcher(text).matches() || SCIENTIFIC_NUMBER.matcher(text).matches())
+                        && significantDigits(text) <= DOUBLE_DIGITS;
+            case DECIMAL: return PLAIN_NUMBER.matcher(text).matches();
+            case BOOLEAN: return "true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text);
+            case DATE: return ISO_DATE.matcher(text).matches() && parses(text);
+            case TIMESTAMP: return ISO_TIMESTAMP.matcher(text).matches() && parses(text);
+            default: return true;
+        }
+    }
+
+    private boolean parses(String text) {
+        try {
+            parse(text);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static int significantDigits(String number) {
+        int digits = 0;
+        boolean leading = true;
+        for (int i = 0; i < number.length(); i++) {
+            char ch = number.charAt(i);
+            if (ch == 'e' || ch == 'E') {
+                break;
+            }
+            if (ch >= '1' && ch <= '9' || ch == '0' && !leading) {
+                leading = false;
+                digits++;
+            }
+        }
+        return digits;
+    }
+
+    /**
+     * Type for a column name in a node config: the enum name or a common SQL alias
+     */
+    public static ColumnType fromName(String name) {
+        switch (name.trim().toLowerCase()) {
+            case "long": case "int": case "integer": case "bigint": return LONG;
+            case "double": case "float": case "real": return DOUBLE;
+            case "decimal": case "numeric": return DECIMAL;
+            case "boolean": case "bool": return BOOLEAN;
+            case "date": return DATE;
+            case "timestamp": case "datetime": return TIMESTAMP;
+            case "string": case "text": case "varchar": return STRING;
+            default: throw new IllegalArgumentException("Unknown column type: " + name);
+        }
+    }
+
+    /**
+     * Text form of a value for text outputs; timestamps are written as "yyyy-MM-dd HH:mm:ss[.fraction]"
+     * and doubles in plain notation without trailing zeros, so "100" read into a double column is
+     * written back as "100" rather than "100.0" or "1.0E2"
+     */
+    public static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof LocalDateTime) {
+            return TIMESTAMP_FORMAT.format((LocalDateTime) value);
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return Double.isFinite(number) ? BigDecimal.valueOf(number).stripTrailingZeros().toPlainString() : value.toString();
+        }
+        return value.toString();
+    }
+
+    /**
+     * Narrows a column's type over a sample of its values; empty values match every type
+     */
+    public static class Inference {
+        private static final ColumnType[] CANDIDATES = {LONG, DOUBLE, DECIMAL, BOOLEAN, DATE, TIMESTAMP};
+
+        private final boolean[] possible = new boolean[CANDIDATES.length];
+        private boolean sawValue;
+
+        public Inference() {
+            Arrays.fill(possible, true);
+        }
+
+        public void observe(String text) {
+            if (text == null || text.isEmpty()) {
+                return;
+            }
+            sawValue = true;
+            for (int i = 0; i < CANDIDATES.length; i++) {
+                if (possible[i] && !CANDIDATES[i].accepts(text)) {
+                    possible[i] = false;
+                }
+            }
+        }
+
+        /**
+         * Whether every value observed so far is also a value of the given type
+         */
+        public boolean allows(ColumnType type) {
+            if (type == STRING) {
+                return true;
+            }
+            int candidate = Arrays.asList(CANDIDATES).indexOf(type);
+            return candidate >= 0 && possible[candidate];
+        }
+
+        /**
+         * The most specific type that accepts every observed value, STRING if none or nothing was observed
+         */
+        public ColumnType result() {
+            if (sawValue) {
+                for (int i = 0; i < CANDIDATES.length; i++) {
+                    if (possible[i]) {
+                        return CANDIDATES[i];
+                    }
+                }
+            }
+            return STRING;
+        }
+    }
+}
@@ -0,0 +1,1301 @@
+package com.etl.pipeline.datasource;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Self-describing binary columnar file format, used for spill files, checkpoints and the
+ * columnar source/output nodes.
+ *
+ * Layout:
+ *   "ETLC", version
+ *   row groups of up to rowGroupRows rows, each stored as one chunk per column
+ *   footer: column names, then per row group its row count and, per column, the chunk's
+ *           offset, length, value type, encoding and statistics (null count, min, max)
+ *   footer length, "ETLC"
+ *
+ * A chunk starts with the rows' levels (absent key / null / value), run-length encoded and omitted
+ * when every row has a value, followed by the non-null values. Values keep their Java type
+ * (Integer, Long, Double, BigDecimal, Boolean, LocalDate, LocalDateTime, String); a chunk whose
+ * values mix types is stored as tagged VARIANT values, and other classes are stored as text.
+ * Each value stream picks its encoding per chunk: integers use PLAIN (zigzag varints), DELTA or
+ * RLE, whichever is smallest; strings and decimals use a DICTIONARY when at most half of the
+ * values are distinct; doubles and booleans use PLAIN or RLE. Chunks can optionally be deflated,
+ * and a chunk is kept uncompressed when deflate does not make it smaller.
+ *
+ * Readers only read the chunks of the columns they ask for, and decode them in parallel when
+ * given an executor; writers encode a row group's columns in parallel the same way.
+ */
+public final class ColumnarFile {
+
+    public static final int DEFAULT_ROW_GROUP_ROWS = 64 * 1024;
+
+    private static final byte[] MAGIC = {'E', 'T', 'L', 'C'};
+    private static final int VERSION = 1;
+    private static final int TRAILER_BYTES = 4 + MAGIC.length;
+
+    private static final byte LEVEL_ABSENT = 0;
+    private static final byte LEVEL_NULL = 1;
+    private static final byte LEVEL_VALUE = 2;
+    // Placeholder for rows that do not have the column at all
+    private static final Object ABSENT = new Object();
+
+    private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    private static final int MIN_DEFLATE_BYTES = 64;
+
+    /**
+     * Value type of a column chunk. The ordinal is the on-disk code, so new types go at the end.
+     */
+    public enum Type { NULL, INT, LONG, DOUBLE, DECIMAL, BOOLEAN, DATE, TIMESTAMP, STRING, VARIANT }
+
+    /**
+     * Encoding of a value stream. The ordinal is the on-disk code, so new encodings go at the end.
+     */
+    public enum Encoding { PLAIN, DICTIONARY, RLE, DELTA }
+
+    private ColumnarFile() {}
+
+    /**
+     * Write all rows to the given file, replacing it if it exists (no compression, default row groups)
+     * @return number of bytes written
+     */
+    public static long write(Path path, List<Map<String, Object>> rows) throws IOException {
+        try (Writer writer = new Writer(path)) {
+            writer.write(rows);
+            return writer.finish();
+        }
+    }
+
+    /**
+     * Read all rows of a columnar file
+     */
+    public static List<Map<String, Object>> read(Path path) throws IOException {
+        try (Reader reader = new Reader(path)) {
+            return reader.readAll(null, null);
+        }
+    }
+
+    /**
+     * Streaming writer. Rows are buffered until a row group is full; call {@link #finish()} to
+     * write the last row group and the footer before closing, otherwise the file is incomplete.
+     */
+    public static final class Writer implements Closeable {
+        private final OutputStream out;
+        private final boolean deflate;
+        private final int rowGroupRows;
+        private final ExecutorService executor;
+        private final Map<String, Integer> columnIds = new HashMap<>();
+        private final List<String> columnNames = new ArrayList<>();
+        private final List<Map<String, Object>> pending = new ArrayList<>();
+        private final List<RowGroup> rowGroups = new ArrayList<>();
+        private long position;
+        private long rowCount;
+        private boolean finished;
+
+        public Writer(Path path) throws IOException {
+            this(path, false, DEFAULT_ROW_GROUP_ROWS, null);
+        }
+
+        /**
+         * @param deflate compress each chunk with deflate
+         * @param rowGroupRows rows per row group
+         * @param executor pool to encode a row group's columns on, null to encode on the calling thread
+         */
+        public Writer(Path path, boolean deflate, int rowGroupRows, ExecutorService executor) throws IOException {
+            this.out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+            this.deflate = deflate;
+            this.rowGroupRows = Math.max(1, rowGroupRows);
+            this.executor = executor;
+            Buffer header = new Buffer(8);
+            header.writeBytes(MAGIC, 0, MAGIC.length);
+            header.writeInt(VERSION);
+            out.write(header.bytes, 0, header.length);
+            position = header.length;
+        }
+
+        /**
+         * Fix the order of (some of) the columns; columns seen later in the rows follow them
+         */
+        public void declareColumns(Collection<String> columns) {
+            for (String column : columns) {
+                columnId(column);
+            }
+        }
+
+        public void write(Map<String, Object> row) throws IOException {
+            pending.add(row);
+            if (pending.size() >= rowGroupRows) {
+                flushRowGroup();
+            }
+        }
+
+        public void write(List<Map<String, Object>> rows) throws IOException {
+            for (Map<String, Object> row : rows) {
+                write(row);
+            }
+        }
+
+        public long getRowCount() {
+            return rowCount + pending.size();
+        }
+
+        private void columnId(String column) {
+            if (!columnIds.containsKey(column)) {
+                columnIds.put(column, columnNames.size());
+                columnNames.add(column);
+            }
+        }
+
+        private void flushRowGroup() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            for (Map<String, Object> row : pending) {
+                for (String column : row.keySet()) {
+                    columnId(column);
+                }
+            }
+
+            List<Map<String, Object>> rows = pending;
+            List<Callable<EncodedChunk>> tasks = new ArrayList<>(columnNames.size());
+            for (String column : columnNames) {
+                tasks.add(() -> encodeChunk(rows, column, deflate));
+            }
+            RowGroup group = new RowGroup(rows.size());
+            for (EncodedChunk chunk : runAll(tasks, executor)) {
+                chunk.descriptor.offset = position;
+                out.write(chunk.data.bytes, 0, chunk.data.length);
+                position += chunk.data.length;
+                group.chunks.add(chunk.descriptor);
+            }
+            rowGroups.add(group);
+            rowCount += rows.size();
+            pending.clear();
+        }
+
+        /**
+         * Write the remaining rows and the footer
+         * @return size of the file in bytes
+         */
+        public long finish() throws IOException {
+            if (finished) {
+                return position;
+            }
+            flushRowGroup();
+
+            Buffer footer = new Buffer(256);
+            footer.writeVarLong(columnNames.size());
+            for (String column : columnNames) {
+                footer.writeString(column);
+            }
+            footer.writeVarLong(rowGroups.size());
+            for (RowGroup group : rowGroups) {
+                footer.writeVarLong(group.rowCount);
+                footer.writeVarLong(group.chunks.size());
+                for (ChunkDescriptor chunk : group.chunks) {
+                    chunk.writeTo(footer);
+                }
+            }
+            footer.writeInt(footer.length);
+            footer.writeBytes(MAGIC, 0, MAGIC.length);
+            out.write(footer.bytes, 0, footer.length);
+            out.flush();
+            position += footer.length;
+            finished = true;
+            return position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Random-access reader; the footer is read when the reader is opened
+     */
+    public static final class Reader implements Closeable {
+        private final Path path;
+        private final FileChannel channel;
+        private final List<String> columnNames = new ArrayList<>();
+        private final Map<String, Integer> columnIds = new HashMap<>();
+        private final List<RowGroup> rowGroups = new ArrayList<>();
+        private long rowCount;
+
+        public Reader(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                readFooter();
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e instanceof IOException ? (IOException) e : new IOException("Corrupt columnar file: " + path, e);
+            }
+        }
+
+        private void readFooter() throws IOException {
+            long size = channel.size();
+            if (size < MAGIC.length + 4 + TRAILER_BYTES) {
+                throw new IOException("Not a columnar file: " + path);
+            }
+            Input header = new Input(readFully(0, MAGIC.length + 4));
+            Input trailer = new Input(readFully(size - TRAILER_BYTES, TRAILER_BYTES));
+            int footerLength = trailer.readInt();
+            if (!header.hasMagic() || !trailer.hasMagic() || footerLength <= 0 || footerLength > size - TRAILER_BYTES) {
+                throw new IOException("Not a columnar file: " + path);
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported columnar file version " + version + ": " + path);
+            }
+
+            Input footer = new Input(readFully(size - TRAILER_BYTES - footerLength, footerLength));
+            int columnCount = (int) footer.readVarLong();
+            for (int i = 0; i < columnCount; i++) {
+                String column = footer.readString();
+                columnIds.put(column, i);
+                columnNames.add(column);
+            }
+            int groupCount = (int) footer.readVarLong();
+            for (int g = 0; g < groupCount; g++) {
+                RowGroup group = new RowGroup((int) footer.readVarLong());
+                int chunkCount = (int) footer.readVarLong();
+                for (int c = 0; c < chunkCount; c++) {
+                    group.chunks.add(ChunkDescriptor.readFrom(footer));
+                }
+                rowGroups.add(group);
+                rowCount += group.rowCount;
+            }
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public List<String> getColumnNames() {
+            return Collections.unmodifiableList(columnNames);
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public int getRowGroupCount() {
+            return rowGroups.size();
+        }
+
+        public int getRowGroupRowCount(int group) {
+            return rowGroups.get(group).rowCount;
+        }
+
+        /**
+         * Per-column type and statistics merged over all row groups
+         */
+        public List<ColumnInfo> getColumns() {
+            List<ColumnInfo> columns = new ArrayList<>();
+            for (int c = 0; c < columnNames.size(); c++) {
+                ColumnInfo info = new ColumnInfo(columnNames.get(c));
+                for (RowGroup group : rowGroups) {
+                    info.merge(c < group.chunks.size() ? group.chunks.get(c) : null, group.rowCount);
+                }
+                columns.add(info);
+            }
+            return columns;
+        }
+
+        /**
+         * Check a projection against the file's columns
+         * @param columns column names, or null for all columns
+         * @return the projected column names in file order
+         */
+        public List<String> project(Collection<String> columns) {
+            if (columns == null) {
+                return getColumnNames();
+            }
+            List<String> projected = new ArrayList<>();
+            for (String column : columns) {
+                if (!columnIds.containsKey(column)) {
+                    throw new IllegalArgumentException("Unknown column '" + column + "' in " + path);
+                }
+            }
+            for (String column : columnNames) {
+                if (columns.contains(column)) {
+                    projected.add(column);
+                }
+            }
+            return projected;
+        }
+
+        /**
+         * Decode one row group
+         * @param columns columns to read, or null for all columns
+         * @param executor pool to decode the columns on, null to decode on the calling thread
+         */
+        public List<Map<String, Object>> readRowGroup(int index, Collection<String> columns,
+                                                      ExecutorService executor) throws IOException {
+            RowGroup group = rowGroups.get(index);
+            List<String> projected = project(columns);
+            List<Callable<Object[]>> tasks = new ArrayList<>(projected.size());
+            for (String column : projected) {
+                int columnId = columnIds.get(column);
+                ChunkDescriptor chunk = columnId < group.chunks.size() ? group.chunks.get(columnId) : null;
+                tasks.add(() -> decodeChunk(chunk, group.rowCount));
+            }
+            List<Object[]> values = runAll(tasks, executor);
+
+            String[] names = projected.toArray(new String[0]);
+            int capacity = (int) (names.length / 0.75f) + 1;
+            List<Map<String, Object>> rows = new ArrayList<>(group.rowCount);
+            for (int i = 0; i < group.rowCount; i++) {
+                Map<String, Object> row = new HashMap<>(capacity);
+                for (int c = 0; c < names.length; c++) {
+                    Object value = values.get(c)[i];
+                    if (value != ABSENT) {
+                        row.put(names[c], value);
+                    }
+                }
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        public List<Map<String, Object>> readAll(Collection<String> columns, ExecutorService executor) throws IOException {
+            List<Map<String, Object>> rows = new ArrayList<>((int) Math.min(rowCount, Integer.MAX_VALUE - 8));
+            for (int g = 0; g < rowGroups.size(); g++) {
+                rows.addAll(readRowGroup(g, columns, executor));
+            }
+            return rows;
+        }
+
+        private Object[] decodeChunk(ChunkDescriptor chunk, int rows) throws IOException {
+            if (chunk == null) {
+                // The column first appeared in a later row group
+                Object[] values = new Object[rows];
+                Arrays.fill(values, ABSENT);
+                return values;
+            }
+            byte[] data = readFully(chunk.offset, chunk.length);
+            if (chunk.deflated) {
+                data = inflate(data, chunk.rawLength);
+            }
+            return ColumnarFile.decodeChunk(new Input(data), chunk.type, rows);
+        }
+
+        private byte[] readFully(long offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Truncated columnar file: " + path);
+                }
+            }
+            return buffer.array();
+        }
+
+        private byte[] inflate(byte[] data, int rawLength) throws IOException {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(data);
+                byte[] raw = new byte[rawLength];
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, length, rawLength - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != rawLength) {
+                    throw new IOException("Corrupt chunk in columnar file: " + path);
+                }
+                return raw;
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt chunk in columnar file: " + path, e);
+            } finally {
+                inflater.end();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Type and statistics of a column over the whole file
+     */
+    public static final class ColumnInfo {
+        private final String name;
+        private Type type = Type.NULL;
+        private long nullCount;
+        private Object min;
+        private Object max;
+        private final Set<Encoding> encodings = EnumSet.noneOf(Encoding.class);
+
+        ColumnInfo(String name) {
+            this.name = name;
+        }
+
+        private void merge(ChunkDescriptor chunk, int rows) {
+            if (chunk == null) {
+                nullCount += rows;
+                return;
+            }
+            nullCount += chunk.nullCount;
+            if (chunk.type == Type.NULL) {
+                return;
+            }
+            encodings.add(chunk.encoding);
+            if (type == Type.NULL) {
+                type = chunk.type;
+            } else if (type != chunk.type) {
+                type = Type.VARIANT;
+            }
+            if (type != Type.VARIANT && chunk.min != null) {
+                min = min == null || compare(chunk.min, min) < 0 ? chunk.min : min;
+                max = max == null || compare(chunk.max, max) > 0 ? chunk.max : max;
+            } else {
+                min = null;
+                max = null;
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Type of the column's values; VARIANT when row groups hold different types, NULL if it has no values
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Rows that hold null or do not have the column
+         */
+        public long getNullCount() {
+            return nullCount;
+        }
+
+        public Object getMin() {
+            return min;
+        }
+
+        public Object getMax() {
+            return max;
+        }
+
+        public Set<Encoding> getEncodings() {
+            return encodings;
+        }
+    }
+
+    private static final class RowGroup {
+        private final int rowCount;
+        private final List<ChunkDescriptor> chunks = new ArrayList<>();
+
+        RowGroup(int rowCount) {
+            this.rowCount = rowCount;
+        }
+    }
+
+    private static final class ChunkDescriptor {
+        private Type type;
+        private Encoding encoding;
+        private boolean deflated;
+        private long offset;
+        private int length;
+        private int rawLength;
+        private long nullCount;
+        private Object min;
+        private Object max;
+
+        void writeTo(Buffer out) {
+            out.writeByte(type.ordinal());
+            out.writeByte(encoding.ordinal());
+            out.writeByte((deflated ? 1 : 0) | (min != null ? 2 : 0));
+            out.writeVarLong(offset);
+            out.writeVarLong(length);
+            out.writeVarLong(rawLength);
+            out.writeVarLong(nullCount);
+            if (min != null) {
+                writeTagged(out, min);
+                writeTagged(out, max);
+            }
+        }
+
+        static ChunkDescriptor readFrom(Input in) throws IOException {
+            ChunkDescriptor chunk = new ChunkDescriptor();
+            chunk.type = typeOf(in.readByte());
+            chunk.encoding = encodingOf(in.readByte());
+            int flags = in.readByte();
+            chunk.deflated = (flags & 1) != 0;
+            chunk.offset = in.readVarLong();
+            chunk.length = (int) in.readVarLong();
+            chunk.rawLength = (int) in.readVarLong();
+            chunk.nullCount = in.readVarLong();
+            if ((flags & 2) != 0) {
+                chunk.min = readTagged(in);
+                chunk.max = readTagged(in);
+            }
+            return chunk;
+        }
+    }
+
+    private static final class EncodedChunk {
+        private final ChunkDescriptor descriptor;
+        private final Buffer data;
+
+        EncodedChunk(ChunkDescriptor descriptor, Buffer data) {
+            this.descriptor = descriptor;
+            this.data = data;
+        }
+    }
+
+    // ---- Encoding ----
+
+    private static EncodedChunk encodeChunk(List<Map<String, Object>> rows, String column, boolean deflate) {
+        int rowCount = rows.size();
+        byte[] levels = new byte[rowCount];
+        Object[] values = new Object[rowCount];
+        int valueCount = 0;
+        Type type = Type.NULL;
+
+        for (int i = 0; i < rowCount; i++) {
+            Map<String, Object> row = rows.get(i);
+            Object value = row.get(column);
+            if (value == null) {
+                levels[i] = row.containsKey(column) ? LEVEL_NULL : LEVEL_ABSENT;
+                continue;
+            }
+            Type valueType = typeOf(value);
+            if (valueType == Type.STRING && !(value instanceof String)) {
+                value = value.toString();
+            } else if (value instanceof Float) {
+                value = ((Float) value).doubleValue();
+            }
+            type = type == Type.NULL || type == valueType ? valueType : Type.VARIANT;
+            levels[i] = LEVEL_VALUE;
+            values[valueCount++] = value;
+        }
+
+        ChunkDescriptor descriptor = new ChunkDescriptor();
+        descriptor.type = type;
+        descriptor.nullCount = rowCount - valueCount;
+
+        Buffer data = new Buffer(Math.max(64, valueCount * 4));
+        if (valueCount == rowCount) {
+            data.writeByte(0);
+        } else {
+            data.writeByte(1);
+            writeLevels(data, levels);
+        }
+        descriptor.encoding = encodeValues(data, type, values, valueCount);
+
+        if (type != Type.VARIANT && valueCount > 0) {
+            Object min = values[0];
+            Object max = values[0];
+            for (int i = 1; i < valueCount; i++) {
+                if (compare(values[i], min) < 0) {
+                    min = values[i];
+                } else if (compare(values[i], max) > 0) {
+                    max = values[i];
+                }
+            }
+            descriptor.min = min;
+            descriptor.max = max;
+        }
+
+        descriptor.rawLength = data.length;
+        if (deflate && data.length >= MIN_DEFLATE_BYTES) {
+            Buffer compressed = deflate(data);
+            if (compressed.length < data.length) {
+                descriptor.deflated = true;
+                data = compressed;
+            }
+        }
+        descriptor.length = data.length;
+        return new EncodedChunk(descriptor, data);
+    }
+
+    private static Buffer deflate(Buffer data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data.bytes, 0, data.length);
+            deflater.finish();
+            Buffer compressed = new Buffer(data.length / 2 + 64);
+            while (!deflater.finished()) {
+                compressed.ensure(4096);
+                compressed.length += deflater.deflate(compressed.bytes, compressed.length, compressed.bytes.length - compressed.length);
+            }
+            return compressed;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeLevels(Buffer out, byte[] levels) {
+        int i = 0;
+        while (i < levels.length) {
+            int run = 1;
+            while (i + run < levels.length && levels[i + run] == levels[i]) {
+                run++;
+            }
+            out.writeVarLong(run);
+            out.writeByte(levels[i]);
+            i += run;
+        }
+    }
+
+    private static Encoding encodeValues(Buffer out, Type type, Object[] values, int count) {
+        switch (type) {
+            case NULL:
+                return Encoding.PLAIN;
+            case INT:
+            case LONG:
+            case DATE: {
+                long[] longs = new long[count];
+                for (int i = 0; i < count; i++) {
+                    Object value = values[i];
+                    longs[i] = type == Type.DATE ? ((LocalDate) value).toEpochDay() : ((Number) value).longValue();
+                }
+                return writeLongs(out, longs, count);
+            }
+            case TIMESTAMP: {
+                long[] seconds = new long[count];
+                long[] nanos = new long[count];
+                for (int i = 0; i < count; i++) {
+                    LocalDateTime value = (LocalDateTime) values[i];
+                    seconds[i] = value.toEpochSecond(ZoneOffset.UTC);
+                    nanos[i] = value.getNano();
+                }
+                Encoding encoding = writeLongs(out, seconds, count);
+                writeLongs(out, nanos, count);
+                return encoding;
+            }
+            case DOUBLE:
+                return writeDoubles(out, values, count);
+            case BOOLEAN:
+                return writeBooleans(out, values, count);
+            case DECIMAL: {
+                String[] strings = new String[count];
+                for (int i = 0; i < count; i++) {
+                    strings[i] = values[i].toString();
+                }
+                return writeStrings(out, strings, count);
+            }
+            case STRING: {
+                String[] strings = new String[count];
+                for (int i = 0; i < count; i++) {
+                    strings[i] = (String) values[i];
+                }
+                return writeStrings(out, strings, count);
+            }
+            default:
+                for (int i = 0; i < count; i++) {
+                    writeTagged(out, values[i]);
+                }
+                return Encoding.PLAIN;
+        }
+    }
+
+    /**
+     * Integers in the smallest of PLAIN (zigzag varints), DELTA (first value, then differences) and RLE
+     */
+    private static Encoding writeLongs(Buffer out, long[] values, int count) {
+        long plainBytes = 0;
+        long deltaBytes = 0;
+        long rleBytes = 0;
+        int run = 0;
+        for (int i = 0; i < count; i++) {
+            plainBytes += varLongSize(zigzag(values[i]));
+            deltaBytes += varLongSize(zigzag(i == 0 ? values[0] : values[i] - values[i - 1]));
+            if (i > 0 && values[i] == values[i - 1]) {
+                run++;
+            } else {
+                if (i > 0) {
+                    rleBytes += varLongSize(run) + varLongSize(zigzag(values[i - 1]));
+                }
+                run = 1;
+            }
+        }
+        if (count > 0) {
+            rleBytes += varLongSize(run) + varLongSize(zigzag(values[count - 1]));
+        }
+
+        if (rleBytes < plainBytes && rleBytes <= deltaBytes) {
+            out.writeByte(Encoding.RLE.ordinal());
+            int i = 0;
+            while (i < count) {
+                int length = 1;
+                while (i + length < count && values[i + length] == values[i]) {
+                    length++;
+                }
+                out.writeVarLong(length);
+                out.writeVarLong(zigzag(values[i]));
+                i += length;
+            }
+            return Encoding.RLE;
+        }
+        if (deltaBytes < plainBytes) {
+            out.writeByte(Encoding.DELTA.ordinal());
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                out.writeVarLong(zigzag(values[i] - previous));
+                previous = values[i];
+            }
+            return Encoding.DELTA;
+        }
+        out.writeByte(Encoding.PLAIN.ordinal());
+        for (int i = 0; i < count; i++) {
+            out.writeVarLong(zigzag(values[i]));
+        }
+        return Encoding.PLAIN;
+    }
+
+    private static Encoding writeDoubles(Buffer out, Object[] values, int count) {
+        int runs = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || !values[i].equals(values[i - 1])) {
+                runs++;
+            }
+        }
+        // An RLE run costs its value plus a varint length of at least one byte
+        if (runs * 10L < count * 8L) {
+            out.writeByte(Encoding.RLE.ordinal());
+            int i = 0;
+            while (i < count) {
+                int length = 1;
+                while (i + length < count && values[i + length].equals(values[i])) {
+                    length++;
+                }
+                out.writeVarLong(length);
+                out.writeLong(Double.doubleToRawLongBits((Double) values[i]));
+                i += length;
+            }
+            return Encoding.RLE;
+        }
+        out.writeByte(Encoding.PLAIN.ordinal());
+        for (int i = 0; i < count; i++) {
+            out.writeLong(Double.doubleToRawLongBits((Double) values[i]));
+        }
+        return Encoding.PLAIN;
+    }
+
+    /**
+     * Booleans bit-packed (PLAIN) or as runs, whichever is smaller
+     */
+    private static Encoding writeBooleans(Buffer out, Object[] values, int count) {
+        int runs = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || !values[i].equals(values[i - 1])) {
+                runs++;
+            }
+        }
+        if (runs * 2L < (count + 7) / 8) {
+            out.writeByte(Encoding.RLE.ordinal());
+            int i = 0;
+            while (i < count) {
+                int length = 1;
+                while (i + length < count && values[i + length].equals(values[i])) {
+                    length++;
+                }
+                out.writeVarLong(length);
+                out.writeByte((Boolean) values[i] ? 1 : 0);
+                i += length;
+            }
+            return Encoding.RLE;
+        }
+        out.writeByte(Encoding.PLAIN.ordinal());
+        for (int i = 0; i < count; i += 8) {
+            int bits = 0;
+            for (int bit = 0; bit < 8 && i + bit < count; bit++) {
+                if ((Boolean) values[i + bit]) {
+                    bits |= 1 << bit;
+                }
+            }
+            out.writeByte(bits);
+        }
+        return Encoding.PLAIN;
+    }
+
+    /**
+     * Strings as a DICTIONARY plus integer indices when at most half of them are distinct, else PLAIN
+     */
+    private static Encoding writeStrings(Buffer out, String[] values, int count) {
+        Map<String, Integer> dictionary = new HashMap<>();
+        long[] indices = new long[count];
+        int maxDistinct = Math.min(MAX_DICTIONARY_SIZE, count / 2);
+        for (int i = 0; i < count && dictionary != null; i++) {
+            Integer index = dictionary.get(values[i]);
+            if (index == null) {
+                if (dictionary.size() >= maxDistinct) {
+                    dictionary = null;
+                    break;
+                }
+                index = dictionary.size();
+                dictionary.put(values[i], index);
+            }
+            indices[i] = index;
+        }
+
+        if (dictionary != null && count > 0) {
+            out.writeByte(Encoding.DICTIONARY.ordinal());
+            String[] entries = new String[dictionary.size()];
+            for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+                entries[entry.getValue()] = entry.getKey();
+            }
+            out.writeVarLong(entries.length);
+            for (String entry : entries) {
+                out.writeString(entry);
+            }
+            writeLongs(out, indices, count);
+            return Encoding.DICTIONARY;
+        }
+        out.writeByte(Encoding.PLAIN.ordinal());
+        for (int i = 0; i < count; i++) {
+            out.writeString(values[i]);
+        }
+        return Encoding.PLAIN;
+    }
+
+    // ---- Decoding ----
+
+    private static Object[] decodeChunk(Input in, Type type, int rowCount) throws IOException {
+        byte[] levels = null;
+        int valueCount = rowCount;
+        if (in.readByte() != 0) {
+            levels = new byte[rowCount];
+            valueCount = 0;
+            int i = 0;
+            while (i < rowCount) {
+                int run = (int) in.readVarLong();
+                byte level = (byte) in.readByte();
+                if (run <= 0 || i + run > rowCount) {
+                    throw new IOException("Corrupt chunk levels");
+                }
+                Arrays.fill(levels, i, i + run, level);
+                if (level == LEVEL_VALUE) {
+                    valueCount += run;
+                }
+                i += run;
+            }
+        }
+
+        Object[] values = decodeValues(in, type, valueCount);
+        if (levels == null) {
+            return values;
+        }
+        Object[] column = new Object[rowCount];
+        int next = 0;
+        for (int i = 0; i < rowCount; i++) {
+            switch (levels[i]) {
+                case LEVEL_VALUE: column[i] = values[next++]; break;
+                case LEVEL_NULL: column[i] = null; break;
+                default: column[i] = ABSENT;
+            }
+        }
+        return column;
+    }
+
+    private static Object[] decodeValues(Input in, Type type, int count) throws IOException {
+        Object[] values = new Object[count];
+        switch (type) {
+            case NULL:
+                return values;
+            case INT: {
+                long[] longs = readLongs(in, count);
+                for (int i = 0; i < count; i++) {
+                    values[i] = (int) longs[i];
+                }
+                return values;
+            }
+            case LONG: {
+                long[] longs = readLongs(in, count);
+                for (int i = 0; i < count; i++) {
+                    values[i] = longs[i];
+                }
+                return values;
+            }
+            case DATE: {
+                long[] days = readLongs(in, count);
+                for (int i = 0; i < count; i++) {
+                    values[i] = LocalDate.ofEpochDay(days[i]);
+                }
+                return values;
+            }
+            case TIMESTAMP: {
+                long[] seconds = readLongs(in, count);
+                long[] nanos = readLongs(in, count);
+                for (int i = 0; i < count; i++) {
+                    values[i] = LocalDateTime.ofEpochSecond(seconds[i], (int) nanos[i], ZoneOffset.UTC);
+                }
+                return values;
+            }
+            case DOUBLE:
+                if (encodingOf(in.readByte()) == Encoding.RLE) {
+                    readRuns(in, values, count, () -> Double.longBitsToDouble(in.readLong()));
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        values[i] = Double.longBitsToDouble(in.readLong());
+                    }
+                }
+                return values;
+            case BOOLEAN:
+                if (encodingOf(in.readByte()) == Encoding.RLE) {
+                    readRuns(in, values, count, () -> in.readByte() != 0);
+                } else {
+                    for (int i = 0; i < count; i += 8) {
+                        int bits = in.readByte();
+                        for (int bit = 0; bit < 8 && i + bit < count; bit++) {
+                            values[i + bit] = (bits & (1 << bit)) != 0;
+                        }
+                    }
+                }
+                return values;
+            case DECIMAL:
+                return readStrings(in, values, count, BigDecimal::new);
+            case STRING:
+                return readStrings(in, values, count, text -> text);
+            default:
+                for (int i = 0; i < count; i++) {
+                    values[i] = readTagged(in);
+                }
+                return values;
+        }
+    }
+
+    private interface ValueReader {
+        Object read() throws IOException;
+    }
+
+    private static void readRuns(Input in, Object[] values, int count, ValueReader reader) throws IOException {
+        int i = 0;
+        while (i < count) {
+            int run = (int) in.readVarLong();
+            if (run <= 0 || i + run > count) {
+                throw new IOException("Corrupt run length");
+            }
+            Arrays.fill(values, i, i + run, reader.read());
+            i += run;
+        }
+    }
+
+    private static long[] readLongs(Input in, int count) throws IOException {
+        long[] values = new long[count];
+        Encoding encoding = encodingOf(in.readByte());
+        switch (encoding) {
+            case RLE: {
+                int i = 0;
+                while (i < count) {
+                    int run = (int) in.readVarLong();
+                    if (run <= 0 || i + run > count) {
+                        throw new IOException("Corrupt run length");
+                    }
+                    Arrays.fill(values, i, i + run, unzigzag(in.readVarLong()));
+                    i += run;
+                }
+                return values;
+            }
+            case DELTA: {
+                long previous = 0;
+                for (int i = 0; i < count; i++) {
+                    previous += unzigzag(in.readVarLong());
+                    values[i] = previous;
+                }
+                return values;
+            }
+            case PLAIN:
+                for (int i = 0; i < count; i++) {
+                    values[i] = unzigzag(in.readVarLong());
+                }
+                return values;
+            default:
+                throw new IOException("Unexpected integer encoding " + encoding);
+        }
+    }
+
+    private static Object[] readStrings(Input in, Object[] values, int count, Function<String, Object> convert) throws IOException {
+        if (encodingOf(in.readByte()) == Encoding.DICTIONARY) {
+            // Each dictionary entry is decoded once and shared by the rows that hold it
+            Object[] dictionary = new Object[(int) in.readVarLong()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = convert.apply(in.readString());
+            }
+            long[] indices = readLongs(in, count);
+            for (int i = 0; i < count; i++) {
+                values[i] = dictionary[(int) indices[i]];
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                values[i] = convert.apply(in.readString());
+            }
+        }
+        return values;
+    }
+
+    // ---- Values ----
+
+    private static Type typeOf(Object value) {
+        if (value instanceof String) return Type.STRING;
+        if (value instanceof Integer) return Type.INT;
+        if (value instanceof Long) return Type.LONG;
+        if (value instanceof Double || value instanceof Float) return Type.DOUBLE;
+        if (value instanceof BigDecimal) return Type.DECIMAL;
+        if (value instanceof Boolean) return Type.BOOLEAN;
+        if (value instanceof LocalDate) return Type.DATE;
+        if (value instanceof LocalDateTime) return Type.TIMESTAMP;
+        // Anything else (driver-specific types etc.) is kept by its string form
+        return Type.STRING;
+    }
+
+    private static Type typeOf(int code) throws IOException {
+        Type[] types = Type.values();
+        if (code < 0 || code >= types.length) {
+            throw new IOException("Unknown column type " + code);
+        }
+        return types[code];
+    }
+
+    private static Encoding encodingOf(int code) throws IOException {
+        Encoding[] encodings = Encoding.values();
+        if (code < 0 || code >= encodings.length) {
+            throw new IOException("Unknown encoding " + code);
+        }
+        return encodings[code];
+    }
+
+    /**
+     * A single value with its type code, for VARIANT chunks and statistics
+     */
+    private static void writeTagged(Buffer out, Object value) {
+        if (value == null) {
+            out.writeByte(Type.NULL.ordinal());
+            return;
+        }
+        Type type = typeOf(value);
+        out.writeByte(type.ordinal());
+        switch (type) {
+            case INT:
+            case LONG: out.writeVarLong(zigzag(((Number) value).longValue())); break;
+            case DOUBLE: out.writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue())); break;
+            case BOOLEAN: out.writeByte((Boolean) value ? 1 : 0); break;
+            case DATE: out.writeVarLong(zigzag(((LocalDate) value).toEpochDay())); break;
+            case TIMESTAMP:
+                out.writeVarLong(zigzag(((LocalDateTime) value).toEpochSecond(ZoneOffset.UTC)));
+                out.writeVarLong(((LocalDateTime) value).getNano());
+                break;
+            default: out.writeString(value.toString());
+        }
+    }
+
+    private static Object readTagged(Input in) throws IOException {
+        Type type = typeOf(in.readByte());
+        switch (type) {
+            case NULL: return null;
+            case INT: return (int) unzigzag(in.readVarLong());
+            case LONG: return unzigzag(in.readVarLong());
+            case DOUBLE: return Double.longBitsToDouble(in.readLong());
+            case BOOLEAN: return in.readByte() != 0;
+            case DATE: return LocalDate.ofEpochDay(unzigzag(in.readVarLong()));
+            case TIMESTAMP: return LocalDateTime.ofEpochSecond(unzigzag(in.readVarLong()), (int) in.readVarLong(), ZoneOffset.UTC);
+            case DECIMAL: return new BigDecimal(in.readString());
+            case STRING: return in.readString();
+            default: throw new IOException("Unexpected tagged value type " + type);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object a, Object b) {
+        return ((Comparable<Object>) a).compareTo(b);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varLongSize(long value) {
+        return (64 - Long.numberOfLeadingZeros(value | 1) + 6) / 7;
+    }
+
+    private static <T> List<T> runAll(List<Callable<T>> tasks, ExecutorService executor) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (executor == null || tasks.size() < 2) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+                return results;
+            }
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while processing columnar file", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Growable byte buffer for encoding
+     */
+    private static final class Buffer {
+        private byte[] bytes;
+        private int length;
+
+        Buffer(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+        }
+
+        void writeBytes(byte[] source, int offset, int count) {
+            ensure(count);
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(utf8.length);
+            writeBytes(utf8, 0, utf8.length);
+        }
+    }
+
+    /**
+     * Cursor over an encoded byte array
+     */
+    private static final class Input {
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void require(int count) throws IOException {
+            if (count < 0 || position + count > bytes.length) {
+                throw new IOException("Unexpected end of columnar data");
+            }
+        }
+
+        boolean hasMagic() throws IOException {
+            require(MAGIC.length);
+            for (byte b : MAGIC) {
+                if (bytes[position++] != b) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int readByte() throws IOException {
+            require(1);
+            return bytes[position++] & 0xFF;
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        String readString() throws IOException {
+            int length = (int) readVarLong();
+            require(length);
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
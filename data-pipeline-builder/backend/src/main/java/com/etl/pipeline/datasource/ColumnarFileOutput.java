@@ -0,0 +1,146 @@
+package com.etl.pipeline.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Columnar file output destination (see {@link ColumnarFile}).
+ *
+ * Node config options: compression ("none", the default, or "deflate" for per-chunk deflate) and
+ * rowGroupSize (rows per row group, default {@link ColumnarFile#DEFAULT_ROW_GROUP_ROWS}).
+ * The file is always replaced as a whole: rows go to a temporary file that is moved into place on commit.
+ */
+public class ColumnarFileOutput implements DataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarFileOutput.class);
+    private final String filePath;
+    private final boolean deflate;
+    private final int rowGroupRows;
+    private final ExecutorService encodeExecutor;
+
+    public ColumnarFileOutput(Map<String, Object> config) {
+        this(config, null);
+    }
+
+    /**
+     * @param encodeExecutor CPU pool the columns of a row group are encoded on (null to encode sequentially)
+     */
+    public ColumnarFileOutput(Map<String, Object> config, ExecutorService encodeExecutor) {
+        this.filePath = (String) config.getOrDefault("filePath", "output/output.etlc");
+        String compression = String.valueOf(config.getOrDefault("compression", "none")).trim().toLowerCase();
+        if (!compression.equals("none") && !compression.equals("deflate") && !compression.isEmpty()) {
+            throw new IllegalArgumentException("Unsupported compression for columnar output: " + compression);
+        }
+        this.deflate = compression.equals("deflate");
+        Object rowGroupSize = config.get("rowGroupSize");
+        this.rowGroupRows = rowGroupSize != null ? Integer.parseInt(rowGroupSize.toString()) : ColumnarFile.DEFAULT_ROW_GROUP_ROWS;
+        if (Boolean.parseBoolean(String.valueOf(config.getOrDefault("append", false)))) {
+            throw new IllegalArgumentException("Columnar output does not support append");
+        }
+        this.encodeExecutor = encodeExecutor;
+    }
+
+    @Override
+    public List<Map<String, Object>> read() throws Exception {
+        throw new UnsupportedOperationException("Columnar output destination is write-only");
+    }
+
+    @Override
+    public void write(List<Map<String, Object>> data) throws Exception {
+        try (RecordBatchWriter writer = openWriter()) {
+            writer.writeBatch(data);
+            writer.commit();
+        }
+    }
+
+    @Override
+    public RecordBatchWriter openWriter() throws Exception {
+        return openWriter(null);
+    }
+
+    /**
+     * @param columns column order from the upstream schema; columns that only appear in the rows follow them
+     */
+    @Override
+    public RecordBatchWriter openWriter(List<String> columns) throws Exception {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("Output file path cannot be null or empty");
+        }
+        Path target = Paths.get(filePath);
+        Path parentDir = target.toAbsolutePath().getParent();
+        if (parentDir != null) {
+            Files.createDirectories(parentDir);
+        }
+        Path tempFile = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        ColumnarFile.Writer writer = new ColumnarFile.Writer(tempFile, deflate, rowGroupRows, encodeExecutor);
+        if (columns != null) {
+            writer.declareColumns(columns);
+        }
+        long startNanos = System.nanoTime();
+
+        return new RecordBatchWriter() {
+            private boolean committed;
+
+            @Override
+            public void writeBatch(List<Map<String, Object>> batch) throws IOException {
+                writer.write(batch);
+            }
+
+            @Override
+            public void commit() throws IOException {
+                long bytes = writer.finish();
+                writer.close();
+                try {
+                    Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                committed = true;
+
+                double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+                double megabytes = bytes / (1024.0 * 1024.0);
+                logger.info("Successfully wrote {} records to columnar file: {} ({} MB in {} ms, {} MB/s)",
+                        writer.getRowCount(), filePath, String.format("%.1f", megabytes), (long) (seconds * 1000),
+                        String.format("%.1f", megabytes / seconds));
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (committed) {
+                    return;
+                }
+                writer.close();
+                Files.deleteIfExists(tempFile);
+                logger.warn("Discarded partially written columnar file: {}", filePath);
+            }
+        };
+    }
+
+    @Override
+    public boolean testConnection() {
+        try {
+            Path parentDir = Paths.get(filePath).toAbsolutePath().getParent();
+            Files.createDirectories(parentDir);
+            return Files.isWritable(parentDir);
+        } catch (Exception e) {
+            logger.error("Error testing columnar output connection", e);
+            return false;
+        }
+    }
+
+    @Override
+    public DataSourceType getType() {
+        return DataSourceType.COLUMNAR_OUTPUT;
+    }
+
+    @Override
+    public List<Map<String, Object>> getSchema() throws Exception {
+        // For output destinations, schema is determined by input data
+        return new ArrayList<>();
+    }
+}
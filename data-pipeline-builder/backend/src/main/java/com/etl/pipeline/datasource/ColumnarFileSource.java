@@ -0,0 +1,196 @@
+package com.etl.pipeline.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Columnar file data source, reading files written by a columnar output (see {@link ColumnarFile}).
+ *
+ * Values come back with the types they were written with, so nothing is parsed. Node config
+ * option columns (a list or comma-separated names) selects the columns to read; only their
+ * chunks are read from disk.
+ */
+public class ColumnarFileSource implements DataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColumnarFileSource.class);
+    private final Map<String, Object> config;
+    private final String filePath;
+    private final ExecutorService decodeExecutor;
+
+    public ColumnarFileSource(Map<String, Object> config) {
+        this(config, null);
+    }
+
+    /**
+     * @param decodeExecutor CPU pool the columns of a row group are decoded on (null to decode sequentially)
+     */
+    public ColumnarFileSource(Map<String, Object> config, ExecutorService decodeExecutor) {
+        this.config = config;
+        this.filePath = (String) config.get("filePath");
+        this.decodeExecutor = decodeExecutor;
+    }
+
+    @Override
+    public List<Map<String, Object>> read() throws Exception {
+        try (ColumnarFile.Reader reader = openFile()) {
+            return reader.readAll(projection(), decodeExecutor);
+        }
+    }
+
+    /**
+     * Stream the file one row group at a time
+     */
+    @Override
+    public RecordBatchReader openReader(int batchSize) throws Exception {
+        ColumnarFile.Reader reader = openFile();
+        Collection<String> columns;
+        try {
+            columns = reader.project(projection());
+        } catch (RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        return new RecordBatchReader() {
+            private int nextGroup;
+            private List<Map<String, Object>> rows = Collections.emptyList();
+            private int position;
+
+            @Override
+            public List<Map<String, Object>> nextBatch() throws IOException {
+                while (position >= rows.size()) {
+                    if (nextGroup >= reader.getRowGroupCount()) {
+                        return null;
+                    }
+                    rows = reader.readRowGroup(nextGroup++, columns, decodeExecutor);
+                    position = 0;
+                }
+                int end = Math.min(rows.size(), position + Math.max(1, batchSize));
+                List<Map<String, Object>> batch = rows.subList(position, end);
+                position = end;
+                return batch;
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    @Override
+    public void write(List<Map<String, Object>> data) throws Exception {
+        throw new UnsupportedOperationException("Columnar source is read-only");
+    }
+
+    @Override
+    public boolean testConnection() {
+        try (ColumnarFile.Reader reader = openFile()) {
+            return true;
+        } catch (Exception e) {
+            logger.error("Error testing columnar file connection", e);
+            return false;
+        }
+    }
+
+    @Override
+    public DataSourceType getType() {
+        return DataSourceType.COLUMNAR_FILE;
+    }
+
+    /**
+     * Column types and statistics come from the file footer, without reading any data
+     */
+    @Override
+    public List<Map<String, Object>> getSchema() throws Exception {
+        try (ColumnarFile.Reader reader = openFile()) {
+            Collection<String> columns = reader.project(projection());
+            List<Map<String, Object>> schema = new ArrayList<>();
+            for (ColumnarFile.ColumnInfo info : reader.getColumns()) {
+                if (!columns.contains(info.getName())) {
+                    continue;
+                }
+                Map<String, Object> column = new HashMap<>();
+                column.put("name", info.getName());
+                column.put("type", info.getType().name());
+                column.put("nullable", info.getNullCount() > 0);
+                column.put("nullCount", info.getNullCount());
+                column.put("min", info.getMin());
+                column.put("max", info.getMax());
+                schema.add(column);
+            }
+            return schema;
+        }
+    }
+
+    /**
+     * Selected column names in file order
+     */
+    public List<String> getColumnNames() throws IOException {
+        try (ColumnarFile.Reader reader = openFile()) {
+            return reader.project(projection());
+        }
+    }
+
+    /**
+     * Exact statistics from the footer
+     * @return fileBytes, rows, rowGroups and the rows of the largest row group (maxRowGroupRows)
+     */
+    public Map<String, Object> getStatistics() throws IOException {
+        try (ColumnarFile.Reader reader = openFile()) {
+            int maxRowGroupRows = 0;
+            for (int g = 0; g < reader.getRowGroupCount(); g++) {
+                maxRowGroupRows = Math.max(maxRowGroupRows, reader.getRowGroupRowCount(g));
+            }
+            Map<String, Object> statistics = new HashMap<>();
+            statistics.put("fileBytes", Files.size(reader.getPath()));
+            statistics.put("rows", reader.getRowCount());
+            statistics.put("rowGroups", reader.getRowGroupCount());
+            statistics.put("maxRowGroupRows", maxRowGroupRows);
+            return statistics;
+        }
+    }
+
+    private ColumnarFile.Reader openFile() throws IOException {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("File path is required for columnar source");
+        }
+        return new ColumnarFile.Reader(resolveFilePath(filePath));
+    }
+
+    private Path resolveFilePath(String filePath) {
+        Path path = Paths.get(filePath.startsWith("/uploads/") ? filePath.substring(1) : filePath);
+        if (!path.isAbsolute() && !Files.exists(path) && Files.exists(Paths.get("uploads").resolve(path))) {
+            return Paths.get("uploads").resolve(path);
+        }
+        return path;
+    }
+
+    /**
+     * columns option: a list or comma-separated names; null reads every column
+     */
+    private Set<String> projection() {
+        Object columns = config.get("columns");
+        if (columns == null || columns.toString().trim().isEmpty()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        if (columns instanceof Collection) {
+            for (Object column : (Collection<?>) columns) {
+                selected.add(String.valueOf(column).trim());
+            }
+        } else {
+            for (String column : columns.toString().split(",")) {
+                selected.add(column.trim());
+            }
+        }
+        selected.remove("");
+        return selected.isEmpty() ? null : selected;
+    }
+}
@@ -0,0 +1,99 @@
+package com.etl.pipeline.datasource;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads several independent readers at once and merges their batches as they arrive.
+ *
+ * Each part is opened and drained on the executor; at most maxConcurrent parts are open at a time
+ * (each holds a connection, so this stays within the pool) and the next part starts when one
+ * finishes. Batches are handed over through a bounded queue, so a slow consumer holds back the
+ * producers instead of letting them buffer the whole result. Batches of different parts are
+ * interleaved in arrival order; rows of one part keep their order.
+ */
+public class ConcurrentBatchReader implements RecordBatchReader {
+
+    private static final List<Map<String, Object>> PART_DONE = new ArrayList<>(0);
+
+    private final BlockingQueue<List<Map<String, Object>>> queue;
+    private final Queue<Callable<RecordBatchReader>> pending;
+    private final List<Future<?>> workers = new ArrayList<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final int workerCount;
+    private volatile Exception failure;
+    private int finishedWorkers;
+
+    /**
+     * @param parts openers of the readers to merge, each called on the executor
+     */
+    public ConcurrentBatchReader(List<Callable<RecordBatchReader>> parts, ExecutorService executor, int maxConcurrent) {
+        this.pending = new ConcurrentLinkedQueue<>(parts);
+        this.workerCount = Math.max(1, Math.min(parts.size(), maxConcurrent));
+        this.queue = new ArrayBlockingQueue<>(workerCount * 2);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(executor.submit(this::drainParts));
+        }
+    }
+
+    /**
+     * Worker loop: open the next pending part and push its batches until none are left
+     */
+    private Void drainParts() throws InterruptedException {
+        try {
+            Callable<RecordBatchReader> part;
+            while (!closed.get() && failure == null && (part = pending.poll()) != null) {
+                try (RecordBatchReader reader = part.call()) {
+                    List<Map<String, Object>> batch;
+                    while (!closed.get() && (batch = reader.nextBatch()) != null) {
+                        queue.put(batch);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            if (failure == null) {
+                failure = e;
+            }
+        } finally {
+            if (!closed.get()) {
+                queue.put(PART_DONE);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Map<String, Object>> nextBatch() throws Exception {
+        while (finishedWorkers < workerCount) {
+            List<Map<String, Object>> batch = queue.take();
+            if (batch == PART_DONE) {
+                finishedWorkers++;
+                if (failure != null) {
+                    throw failure;
+                }
+                continue;
+            }
+            return batch;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        // Workers stop after their current batch and close their readers on their own threads,
+        // which cancels the statements still running; interrupting them ends a blocked put
+        for (Future<?> worker : workers) {
+            worker.cancel(true);
+        }
+        queue.clear();
+    }
+}
@@ -3,13 +3,15 @@ package com.etl.pipeline.datasource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
 
 /**
  * CSV File output destination implementation
@@ -19,14 +21,32 @@ public class CsvFileOutput implements DataSource {
     private static final Logger logger = LoggerFactory.getLogger(CsvFileOutput.class);
     private final Map<String, Object> config;
     private final String filePath;
-    private final String delimiter;
+    private final char delimiter;
+    private final char quote;
     private final boolean includeHeaders;
+    private final boolean append;
+    private final boolean gzip;
+    private final ExecutorService executor;
+    private final int parallelism;
     
     public CsvFileOutput(Map<String, Object> config) {
+        this(config, null, 1);
+    }
+    
+    /**
+     * @param executor CPU pool used for gzip compression and partitioned writes (null to do both on the writing thread)
+     * @param parallelism number of threads in that pool
+     */
+    public CsvFileOutput(Map<String, Object> config, ExecutorService executor, int parallelism) {
         this.config = config;
         this.filePath = (String) config.getOrDefault("filePath", "output/output.csv");
-        this.delimiter = (String) config.getOrDefault("delimiter", ",");
+        this.delimiter = CsvParser.delimiterOf(config);
+        this.quote = CsvParser.quoteOf(config);
         this.includeHeaders = (Boolean) config.getOrDefault("includeHeaders", true);
+        this.append = Boolean.parseBoolean(String.valueOf(config.getOrDefault("append", false)));
+        this.gzip = GzipSupport.isRequested(config, filePath);
+        this.executor = executor;
+        this.parallelism = parallelism;
     }
     
     @Override
@@ -41,67 +61,240 @@ public class CsvFileOutput implements DataSource {
             return;
         }
         
+        try (RecordBatchWriter writer = openWriter()) {
+            writer.writeBatch(data);
+            writer.commit();
+        }
+    }
+    
+    @Override
+    public RecordBatchWriter openWriter() throws Exception {
+        return openWriter(null);
+    }
+    
+    /**
+     * Stream batches to the file. The file is only created once a non-empty batch arrives.
+     *
+     * Without append (the default) rows go to a temporary file next to the target, which replaces
+     * it atomically on commit; closing without commit deletes the temporary file and leaves any
+     * existing output untouched. With append, rows are added to the existing file (the header is
+     * only written to a new or empty file) and an uncommitted write is truncated away again.
+     * With compression "gzip" (or a .gz path) the file is compressed in parallel blocks.
+     * With partitionBy the rows are split into one file per partition (see {@link PartitionedCsvWriter}).
+     *
+     * @param columns column order from the upstream schema; when null, the order of the first batch
+     */
+    @Override
+    public RecordBatchWriter openWriter(List<String> columns) throws Exception {
         // Validate file path
         if (filePath == null || filePath.trim().isEmpty()) {
             throw new IllegalArgumentException("Output file path cannot be null or empty");
         }
+        List<String> partitionBy = partitionColumns();
+        if (!partitionBy.isEmpty()) {
+            return new PartitionedCsvWriter(this, partitionBy, columns);
+        }
+        return new CsvBatchWriter(columns);
+    }
+    
+    /**
+     * partitionBy option: a column name, a comma-separated list or a JSON array
+     */
+    private List<String> partitionColumns() {
+        Object partitionBy = config.get("partitionBy");
+        List<String> columns = new ArrayList<>();
+        if (partitionBy instanceof Collection) {
+            for (Object column : (Collection<?>) partitionBy) {
+                columns.add(String.valueOf(column).trim());
+            }
+        } else if (partitionBy != null) {
+            for (String column : partitionBy.toString().split(",")) {
+                columns.add(column.trim());
+            }
+        }
+        columns.removeIf(String::isEmpty);
+        return columns;
+    }
+    
+    /**
+     * Wrap a file stream in the configured compression and a CsvWriter
+     * @param gzipExecutor pool for parallel gzip blocks, null to compress on the writing thread
+     */
+    CsvWriter newCsvWriter(OutputStream out, ExecutorService gzipExecutor) {
+        if (gzip) {
+            // Appending adds a new gzip member, which readers treat as a continuation of the file
+            int level = Integer.parseInt(String.valueOf(config.getOrDefault("compressionLevel", Deflater.DEFAULT_COMPRESSION)));
+            out = new ParallelGzipOutputStream(out, gzipExecutor, parallelism, level);
+        }
+        // CsvWriter does its own buffering
+        return new CsvWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), delimiter, quote, System.lineSeparator());
+    }
+    
+    Map<String, Object> getConfig() {
+        return config;
+    }
+    
+    String getFilePath() {
+        return filePath;
+    }
+    
+    boolean isIncludeHeaders() {
+        return includeHeaders;
+    }
+    
+    boolean isAppend() {
+        return append;
+    }
+    
+    boolean isGzip() {
+        return gzip;
+    }
+    
+    ExecutorService getExecutor() {
+        return executor;
+    }
+    
+    private class CsvBatchWriter implements RecordBatchWriter {
+        private final Path target = Paths.get(filePath);
+        private CsvWriter writer;
+        private Path tempFile;
+        private long appendOffset = -1;
+        private String[] columnOrder;
+        private final Set<String> knownColumns = new HashSet<>();
+        private final Set<String> ignoredColumns = new HashSet<>();
+        private long records;
+        private long startNanos;
+        private boolean committed;
         
-        // Create output directory if it doesn't exist and has parent directory
-        try {
-            Path outputPath = Paths.get(filePath);
-            Path parentDir = outputPath.getParent();
-            if (parentDir != null) {
-                Files.createDirectories(parentDir);
+        CsvBatchWriter(List<String> columns) {
+            if (columns != null && !columns.isEmpty()) {
+                columnOrder = columns.toArray(new String[0]);
             }
-        } catch (IOException e) {
-            logger.warn("Could not create output directory: {}", e.getMessage());
         }
         
-        logger.info("Writing {} records to CSV file: {}", data.size(), filePath);
+        @Override
+        public void writeBatch(List<Map<String, Object>> batch) throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                if (writer == null) {
+                    open(batch);
+                }
+                
+                for (Map<String, Object> row : batch) {
+                    for (String column : columnOrder) {
+                        writer.writeValue(row.get(column));
+                    }
+                    writer.endRecord();
+                    
+                    if (row.size() > columnOrder.length) {
+                        warnAboutNewColumns(row);
+                    }
+                }
+                records += batch.size();
+            } catch (IOException e) {
+                logger.error("Error writing CSV file: {}", filePath, e);
+                throw e;
+            }
+        }
         
-        try (BufferedWriter writer = Files.newBufferedWriter(
-                Paths.get(filePath), 
-                StandardOpenOption.CREATE, 
-                StandardOpenOption.TRUNCATE_EXISTING)) {
-            
-            // Get all unique column names from data
-            Set<String> allColumns = new LinkedHashSet<>();
-            for (Map<String, Object> row : data) {
-                allColumns.addAll(row.keySet());
+        private void open(List<Map<String, Object>> firstBatch) throws IOException {
+            // Create output directory if it doesn't exist and has parent directory
+            try {
+                Path parentDir = target.toAbsolutePath().getParent();
+                if (parentDir != null) {
+                    Files.createDirectories(parentDir);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not create output directory: {}", e.getMessage());
             }
             
-            List<String> columnOrder = new ArrayList<>(allColumns);
+            if (columnOrder == null) {
+                // No upstream schema: take the columns of the first batch in order of appearance
+                Set<String> allColumns = new LinkedHashSet<>();
+                for (Map<String, Object> row : firstBatch) {
+                    allColumns.addAll(row.keySet());
+                }
+                columnOrder = allColumns.toArray(new String[0]);
+            }
+            knownColumns.addAll(Arrays.asList(columnOrder));
             
-            // Write headers if enabled
-            if (includeHeaders) {
-                writer.write(String.join(delimiter, columnOrder));
-                writer.newLine();
+            OutputStream out;
+            boolean writeHeader = includeHeaders;
+            if (append) {
+                appendOffset = Files.exists(target) ? Files.size(target) : 0;
+                writeHeader &= appendOffset == 0;
+                out = Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                logger.info("Appending records to CSV file: {}", filePath);
+            } else {
+                tempFile = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+                out = Files.newOutputStream(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                logger.info("Writing records to CSV file: {}", filePath);
             }
             
-            // Write data rows
-            for (Map<String, Object> row : data) {
-                List<String> values = new ArrayList<>();
+            writer = newCsvWriter(out, executor);
+            startNanos = System.nanoTime();
+            
+            if (writeHeader) {
                 for (String column : columnOrder) {
-                    Object value = row.get(column);
-                    String stringValue = value != null ? value.toString() : "";
-                    
-                    // Escape CSV special characters
-                    if (stringValue.contains(delimiter) || stringValue.contains("\"") || stringValue.contains("\n")) {
-                        stringValue = "\"" + stringValue.replace("\"", "\"\"") + "\"";
-                    }
-                    
-                    values.add(stringValue);
+                    writer.writeField(column);
                 }
-                
-                writer.write(String.join(delimiter, values));
-                writer.newLine();
+                writer.endRecord();
+            }
+        }
+        
+        private void warnAboutNewColumns(Map<String, Object> row) {
+            for (String column : row.keySet()) {
+                if (!knownColumns.contains(column) && ignoredColumns.add(column)) {
+                    logger.warn("Column '{}' is not part of the CSV header and is not included in {}", column, filePath);
+                }
+            }
+        }
+        
+        @Override
+        public void commit() throws IOException {
+            if (writer == null) {
+                logger.warn("No data to write to CSV file: {}", filePath);
+                committed = true;
+                return;
             }
+            writer.close();
             
-            logger.info("Successfully wrote {} records to CSV file: {}", data.size(), filePath);
+            long bytes;
+            if (tempFile != null) {
+                bytes = Files.size(tempFile);
+                try {
+                    Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                bytes = Files.size(target) - appendOffset;
+            }
+            committed = true;
             
-        } catch (IOException e) {
-            logger.error("Error writing CSV file: {}", filePath, e);
-            throw e;
+            double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+            double megabytes = bytes / (1024.0 * 1024.0);
+            logger.info("Successfully wrote {} records to CSV file: {} ({} MB in {} ms, {} MB/s)",
+                    records, filePath, String.format("%.1f", megabytes), (long) (seconds * 1000), String.format("%.1f", megabytes / seconds));
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (writer == null || committed) {
+                return;
+            }
+            writer.close();
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+                logger.warn("Discarded partially written CSV file: {}", filePath);
+            } else {
+                try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                    channel.truncate(appendOffset);
+                }
+                logger.warn("Rolled back rows appended to CSV file: {}", filePath);
+            }
         }
     }
     
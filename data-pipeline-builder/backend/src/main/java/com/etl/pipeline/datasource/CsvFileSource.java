@@ -3,24 +3,53 @@ package com.etl.pipeline.datasource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * CSV File data source implementation
+ *
+ * Column types are inferred from the first typeSampleRows records (default 1000) and values are
+ * parsed once, as they are read. Node config options: inferTypes (default true; false keeps every
+ * value as text) and columnTypes, a map of column name to type that overrides the inference.
+ * Gzip-compressed files are recognised by their content and decompressed while reading.
  */
 public class CsvFileSource implements DataSource {
     
     private static final Logger logger = LoggerFactory.getLogger(CsvFileSource.class);
+    private static final int DEFAULT_TYPE_SAMPLE_ROWS = 1000;
+    private static final int GZIP_SIZE_SAMPLE_BYTES = 4 * 1024 * 1024;
+    private static final int INFERRED_TYPES_ENTRIES = 256;
+    /** Inferred types by file and read options, reused while the file's size and modification time are unchanged */
+    private static final Map<String, InferredTypes> INFERRED_TYPES = Collections.synchronizedMap(
+            new LinkedHashMap<String, InferredTypes>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, InferredTypes> eldest) {
+                    return size() > INFERRED_TYPES_ENTRIES;
+                }
+            });
     private final Map<String, Object> config;
     private final String filePath;
+    private final ExecutorService parseExecutor;
+    private final int parallelism;
     
     public CsvFileSource(Map<String, Object> config) {
+        this(config, null, 1);
+    }
+    
+    /**
+     * @param parseExecutor CPU pool used to parse large files in parallel (null to always read sequentially)
+     * @param parallelism number of threads in that pool
+     */
+    public CsvFileSource(Map<String, Object> config, ExecutorService parseExecutor, int parallelism) {
         this.config = config;
         this.filePath = (String) config.get("filePath");
+        this.parseExecutor = parseExecutor;
+        this.parallelism = parallelism;
     }
     
     @Override
@@ -55,21 +84,21 @@ public class CsvFileSource implements DataSource {
     
     @Override
     public List<Map<String, Object>> getSchema() throws Exception {
-        String resolvedPath = resolveFilePath(filePath);
+        Path path = Paths.get(resolveFilePath(filePath));
         
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(resolvedPath))) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
+        try (CsvParser parser = CsvParser.open(path, config)) {
+            String[] headers = readHeaders(parser);
+            if (headers == null) {
                 return new ArrayList<>();
             }
+            ColumnType[] types = resolveColumnTypes(path);
             
-            String[] headers = parseCsvLine(headerLine);
             List<Map<String, Object>> schema = new ArrayList<>();
             
-            for (String header : headers) {
+            for (int i = 0; i < headers.length; i++) {
                 Map<String, Object> column = new HashMap<>();
-                column.put("name", header.trim());
-                column.put("type", "STRING"); // Default type for CSV
+                column.put("name", headers[i]);
+                column.put("type", types[i].name());
                 column.put("nullable", true);
                 schema.add(column);
             }
@@ -78,6 +107,138 @@ public class CsvFileSource implements DataSource {
         }
     }
     
+    /**
+     * Column names in file order, read from the header alone
+     */
+    public List<String> getColumnNames() throws IOException {
+        try (CsvParser parser = CsvParser.open(Paths.get(resolveFilePath(filePath)), config)) {
+            String[] headers = readHeaders(parser);
+            return headers != null ? Arrays.asList(headers) : new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Sample the start of the file to estimate its row count without reading all of it
+     * @param maxSampleRows number of data rows to sample
+     * @return fileBytes, columns, estimatedRows, exactRowCount and the sampled rows (sampleRows)
+     */
+    public Map<String, Object> getStatistics(int maxSampleRows) throws IOException {
+        Path path = Paths.get(resolveFilePath(filePath));
+        long fileBytes = Files.size(path);
+        boolean compressed = GzipSupport.isGzip(path);
+        List<Map<String, Object>> sampleRows = new ArrayList<>();
+        long headerBytes = 0;
+        long sampledBytes = 0;
+        boolean exactRowCount = true;
+        String[] headers = new String[0];
+        ColumnType[] types = resolveColumnTypes(path);
+
+        try (CsvParser parser = CsvParser.open(path, config)) {
+            String[] parsedHeaders = readHeaders(parser);
+            if (parsedHeaders != null) {
+                headers = parsedHeaders;
+                if (hasHeaders()) {
+                    headerBytes = parser.getCharsConsumed();
+                } else {
+                    sampleRows.add(toRow(parser, headers, types));
+                    sampledBytes = parser.getCharsConsumed();
+                }
+
+                while (parser.next()) {
+                    if (sampleRows.size() >= maxSampleRows) {
+                        exactRowCount = false;
+                        break;
+                    }
+                    sampleRows.add(toRow(parser, headers, types));
+                    sampledBytes = parser.getCharsConsumed() - headerBytes;
+                }
+            }
+        }
+
+        long estimatedRows = sampleRows.size();
+        Long indexedRows = exactRowCount || compressed ? null : getIndexedRowCount();
+        if (indexedRows != null) {
+            estimatedRows = indexedRows;
+            exactRowCount = true;
+        } else if (!exactRowCount && sampledBytes > 0) {
+            // Row sizes are measured on decompressed text, so scale by the decompressed size
+            long contentBytes = compressed ? GzipSupport.estimateUncompressedSize(path, GZIP_SIZE_SAMPLE_BYTES) : fileBytes;
+            double averageRowBytes = (double) sampledBytes / sampleRows.size();
+            estimatedRows = (long) ((contentBytes - headerBytes) / averageRowBytes);
+        }
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("fileBytes", fileBytes);
+        statistics.put("compressed", compressed);
+        statistics.put("columns", headers.length);
+        statistics.put("estimatedRows", estimatedRows);
+        statistics.put("exactRowCount", exactRowCount);
+        statistics.put("sampleRows", sampleRows);
+        return statistics;
+    }
+
+    /**
+     * Path of the file this source reads, after resolving upload-relative paths
+     */
+    public Path getResolvedPath() {
+        return Paths.get(resolveFilePath(filePath));
+    }
+    
+    /**
+     * Exact data row count from the file's row index (see {@link CsvRowIndex})
+     * @return null when the file has no current index
+     */
+    public Long getIndexedRowCount() throws IOException {
+        Path path = Paths.get(resolveFilePath(filePath));
+        CsvRowIndex index = CsvRowIndex.loadFor(path, config);
+        if (index == null) {
+            return null;
+        }
+        return Math.max(0, index.getRecordCount() - (hasHeaders() ? 1 : 0));
+    }
+    
+    /**
+     * Read a range of data rows. With a current row index the parser starts at the indexed record
+     * nearest before the first row, so the cost does not grow with the offset; otherwise the file is
+     * parsed from the start up to the range.
+     * @param firstRow 0-based data row to start from
+     * @param count maximum number of rows to return
+     */
+    public List<Map<String, Object>> readRows(long firstRow, int count) throws IOException {
+        Path path = Paths.get(resolveFilePath(filePath));
+        List<Map<String, Object>> rows = new ArrayList<>();
+        ColumnType[] types = resolveColumnTypes(path);
+        if (types == null || count <= 0 || firstRow < 0) {
+            return rows;
+        }
+        String[] headers;
+        try (CsvParser parser = CsvParser.open(path, config)) {
+            headers = readHeaders(parser);
+        }
+        
+        long record = firstRow + (hasHeaders() ? 1 : 0);
+        CsvRowIndex index = GzipSupport.isGzip(path) ? null : CsvRowIndex.loadFor(path, config);
+        long offset = 0;
+        long skip = record;
+        if (index != null) {
+            long[] position = index.seek(record);
+            offset = position[0];
+            skip = position[1];
+        }
+        
+        try (CsvParser parser = offset == 0 ? CsvParser.open(path, config) : CsvParser.openAt(path, offset, config)) {
+            for (long skipped = 0; skipped < skip; skipped++) {
+                if (!parser.next()) {
+                    return rows;
+                }
+            }
+            while (rows.size() < count && parser.next()) {
+                rows.add(toRow(parser, headers, types));
+            }
+        }
+        return rows;
+    }
+    
     private String resolveFilePath(String filePath) {
         // Handle different path formats
         String resolvedPath = filePath;
@@ -108,66 +269,273 @@ public class CsvFileSource implements DataSource {
         return resolvedPath;
     }
     
-    private List<Map<String, Object>> readCsvFile(String resolvedPath) throws IOException {
-        List<Map<String, Object>> data = new ArrayList<>();
+    private List<Map<String, Object>> readCsvFile(String resolvedPath) throws Exception {
+        Path path = Paths.get(resolvedPath);
+        if (useParallelReader(path)) {
+            logger.info("Reading CSV file in parallel: {}", resolvedPath);
+            return new ParallelCsvReader(path, config, parseExecutor, parallelism, resolveColumnTypes(path)).read(hasHeaders());
+        }
         
+        return RecordBatchReader.readAll(openReader(DEFAULT_BATCH_SIZE));
+    }
+    
+    /**
+     * Stream the file in batches with the shared parser; only one batch is held at a time
+     * (large files are parsed a few ranges ahead on the CPU pool)
+     */
+    @Override
+    public RecordBatchReader openReader(int batchSize) throws Exception {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("File path is required for CSV source");
+        }
+        String resolvedPath = resolveFilePath(filePath);
+        Path path = Paths.get(resolvedPath);
+        if (useParallelReader(path)) {
+            logger.info("Streaming CSV file in parallel: {}", resolvedPath);
+            return new ParallelCsvReader(path, config, parseExecutor, parallelism, resolveColumnTypes(path)).openReader(hasHeaders(), batchSize);
+        }
         logger.info("Reading CSV file: {}", resolvedPath);
         
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(resolvedPath))) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
+        ColumnType[] types = resolveColumnTypes(path);
+        CsvParser parser = CsvParser.open(path, config);
+        try {
+            return new CsvBatchReader(parser, resolvedPath, batchSize, types);
+        } catch (IOException e) {
+            parser.close();
+            logger.error("Error reading CSV file: {}", resolvedPath, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Read only the first {@code limit} rows. The sequential parser is used even for large files, so
+     * no ranges are parsed ahead, and nothing past the last returned row is read beyond its buffer.
+     * That also makes it the right reader when the caller may stop at any point (limit Long.MAX_VALUE).
+     */
+    @Override
+    public RecordBatchReader openReader(int batchSize, long limit) throws Exception {
+        if (filePath == null || filePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("File path is required for CSV source");
+        }
+        String resolvedPath = resolveFilePath(filePath);
+        Path path = Paths.get(resolvedPath);
+        if (limit < Long.MAX_VALUE) {
+            logger.info("Reading first {} rows of CSV file: {}", limit, resolvedPath);
+        } else {
+            logger.info("Reading CSV file: {}", resolvedPath);
+        }
+        
+        ColumnType[] types = resolveColumnTypes(path);
+        CsvParser parser = CsvParser.open(path, config);
+        try {
+            int limitedBatchSize = (int) Math.max(1, Math.min(batchSize, limit));
+            return RecordBatchReader.limit(new CsvBatchReader(parser, resolvedPath, limitedBatchSize, types), limit);
+        } catch (IOException e) {
+            parser.close();
+            logger.error("Error reading CSV file: {}", resolvedPath, e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Large uncompressed files are split and parsed on the CPU pool; gzip streams can only be read in order
+     */
+    private boolean useParallelReader(Path path) throws IOException {
+        return parseExecutor != null
+                && ParallelCsvReader.isApplicable(Files.size(path), config, parallelism)
+                && !GzipSupport.isGzip(path);
+    }
+    
+    private class CsvBatchReader implements RecordBatchReader {
+        private final CsvParser parser;
+        private final String resolvedPath;
+        private final int batchSize;
+        private final String[] headers;
+        private final ColumnType[] types;
+        private final long startNanos = System.nanoTime();
+        private boolean pendingFirstRecord;
+        private long records;
+        
+        CsvBatchReader(CsvParser parser, String resolvedPath, int batchSize, ColumnType[] types) throws IOException {
+            this.parser = parser;
+            this.types = types;
+            this.resolvedPath = resolvedPath;
+            this.batchSize = Math.max(1, batchSize);
+            this.headers = readHeaders(parser);
+            if (headers == null) {
                 logger.warn("CSV file is empty: {}", resolvedPath);
-                return data;
+            } else {
+                logger.info("CSV headers: {}", Arrays.toString(headers));
+                // Without a header line the first record is already data
+                pendingFirstRecord = !hasHeaders();
             }
-            
-            String[] headers = parseCsvLine(headerLine);
-            logger.info("CSV headers: {}", Arrays.toString(headers));
-            String line;
-            
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue; // Skip empty lines
+        }
+        
+        @Override
+        public List<Map<String, Object>> nextBatch() throws IOException {
+            if (headers == null) {
+                return null;
+            }
+            List<Map<String, Object>> batch = new ArrayList<>(batchSize);
+            try {
+                if (pendingFirstRecord) {
+                    batch.add(toRow(parser, headers, types));
+                    pendingFirstRecord = false;
                 }
-                
-                String[] values = parseCsvLine(line);
-                Map<String, Object> row = new HashMap<>();
-                
-                for (int i = 0; i < headers.length && i < values.length; i++) {
-                    row.put(headers[i].trim(), values[i].trim());
+                while (batch.size() < batchSize && parser.next()) {
+                    batch.add(toRow(parser, headers, types));
                 }
-                
-                data.add(row);
+            } catch (IOException e) {
+                logger.error("Error reading CSV file: {}", resolvedPath, e);
+                throw e;
             }
-            
-            logger.info("Successfully read {} records from CSV file", data.size());
-        } catch (IOException e) {
-            logger.error("Error reading CSV file: {}", resolvedPath, e);
-            throw e;
+            records += batch.size();
+            return batch.isEmpty() ? null : batch;
         }
         
-        return data;
+        @Override
+        public void close() throws IOException {
+            parser.close();
+            if (headers != null) {
+                logThroughput(records, parser.getCharsConsumed(), startNanos);
+            }
+        }
+    }
+    
+    /**
+     * Read the header record, or name the columns column_1..column_n when the file has none
+     * (the parser is then left positioned on the first data record)
+     * @return null for an empty file
+     */
+    private String[] readHeaders(CsvParser parser) throws IOException {
+        if (!parser.next()) {
+            return null;
+        }
+        String[] headers = new String[parser.getFieldCount()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = hasHeaders() ? parser.getField(i) : "column_" + (i + 1);
+        }
+        return headers;
     }
     
-    private String[] parseCsvLine(String line) {
-        // Simple CSV parser that handles basic quoted fields
-        List<String> fields = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder currentField = new StringBuilder();
+    private boolean hasHeaders() {
+        Object hasHeaders = config.get("hasHeaders");
+        return hasHeaders == null || Boolean.parseBoolean(hasHeaders.toString());
+    }
+    
+    /**
+     * Column types by position: inferred from the first typeSampleRows records unless inferTypes
+     * is false, then overridden by the columnTypes option. The inference is done once per file
+     * version, so schema, statistics and paged reads of an unchanged file do not sample it again.
+     * @return null for an empty file
+     */
+    ColumnType[] resolveColumnTypes(Path path) throws IOException {
+        Object inferTypes = config.get("inferTypes");
+        boolean infer = inferTypes == null || Boolean.parseBoolean(inferTypes.toString());
+        int sampleRows = typeSampleRows();
+        String key = path.toAbsolutePath() + "|" + CsvParser.delimiterOf(config) + CsvParser.quoteOf(config)
+                + CsvParser.trimOf(config) + "|" + hasHeaders() + "|" + (infer ? sampleRows : 0);
+        long fileBytes = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
         
-        for (int i = 0; i < line.length(); i++) {
-            char ch = line.charAt(i);
+        InferredTypes inferred = INFERRED_TYPES.get(key);
+        if (inferred == null || inferred.fileBytes != fileBytes || inferred.lastModified != lastModified) {
+            inferred = inferColumnTypes(path, infer, sampleRows, fileBytes, lastModified);
+            INFERRED_TYPES.put(key, inferred);
+        }
+        if (inferred.headers == null) {
+            return null;
+        }
+        ColumnType[] types = inferred.types.clone();
+        applyTypeOverrides(inferred.headers, types);
+        return types;
+    }
+    
+    private InferredTypes inferColumnTypes(Path path, boolean infer, int sampleRows,
+                                           long fileBytes, long lastModified) throws IOException {
+        try (CsvParser parser = CsvParser.open(path, config)) {
+            String[] headers = readHeaders(parser);
+            if (headers == null) {
+                return new InferredTypes(fileBytes, lastModified, null, null);
+            }
             
-            if (ch == '"' && (i == 0 || line.charAt(i-1) != '\\')) {
-                inQuotes = !inQuotes;
-            } else if (ch == ',' && !inQuotes) {
-                fields.add(currentField.toString());
-                currentField = new StringBuilder();
-            } else {
-                currentField.append(ch);
+            ColumnType[] types = new ColumnType[headers.length];
+            Arrays.fill(types, ColumnType.STRING);
+            
+            if (infer) {
+                ColumnType.Inference[] inferences = new ColumnType.Inference[headers.length];
+                for (int i = 0; i < inferences.length; i++) {
+                    inferences[i] = new ColumnType.Inference();
+                }
+                boolean onRecord = !hasHeaders() || parser.next();
+                for (int sampled = 0; onRecord && sampled < sampleRows; sampled++) {
+                    int columns = Math.min(headers.length, parser.getFieldCount());
+                    for (int i = 0; i < columns; i++) {
+                        inferences[i].observe(parser.getField(i));
+                    }
+                    onRecord = parser.next();
+                }
+                for (int i = 0; i < types.length; i++) {
+                    types[i] = inferences[i].result();
+                }
+                logger.info("CSV column types for {}: {}", path, Arrays.toString(types));
             }
+            return new InferredTypes(fileBytes, lastModified, headers, types);
         }
+    }
+    
+    private void applyTypeOverrides(String[] headers, ColumnType[] types) {
+        Object overrides = config.get("columnTypes");
+        if (!(overrides instanceof Map)) {
+            return;
+        }
+        for (Map.Entry<?, ?> override : ((Map<?, ?>) overrides).entrySet()) {
+            int index = Arrays.asList(headers).indexOf(String.valueOf(override.getKey()));
+            if (index < 0) {
+                logger.warn("Type override for unknown CSV column '{}' ignored", override.getKey());
+                continue;
+            }
+            types[index] = ColumnType.fromName(String.valueOf(override.getValue()));
+        }
+    }
+    
+    private int typeSampleRows() {
+        Object sampleRows = config.get("typeSampleRows");
+        return sampleRows != null ? Integer.parseInt(sampleRows.toString()) : DEFAULT_TYPE_SAMPLE_ROWS;
+    }
+    
+    /**
+     * Build a row from the parser's current record, parsing each value into its column type
+     * @param types column types by position, or null to keep every value as text
+     */
+    static Map<String, Object> toRow(CsvParser parser, String[] headers, ColumnType[] types) {
+        int columns = Math.min(headers.length, parser.getFieldCount());
+        Map<String, Object> row = new HashMap<>((int) (headers.length / 0.75f) + 1);
+        for (int i = 0; i < columns; i++) {
+            String value = parser.getField(i);
+            row.put(headers[i], types != null ? types[i].parseOrKeep(value) : value);
+        }
+        return row;
+    }
+    
+    private void logThroughput(long records, long chars, long startNanos) {
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+        double megabytes = chars / (1024.0 * 1024.0);
+        logger.info("Successfully read {} records from CSV file ({} MB in {} ms, {} MB/s)",
+                records, String.format("%.1f", megabytes), (long) (seconds * 1000), String.format("%.1f", megabytes / seconds));
+    }
+    
+    private static class InferredTypes {
+        final long fileBytes;
+        final long lastModified;
+        final String[] headers;
+        final ColumnType[] types;
         
-        fields.add(currentField.toString());
-        return fields.toArray(new String[0]);
+        InferredTypes(long fileBytes, long lastModified, String[] headers, ColumnType[] types) {
+            this.fileBytes = fileBytes;
+            this.lastModified = lastModified;
+            this.headers = headers;
+            this.types = types;
+        }
     }
 }
@@ -0,0 +1,331 @@
+package com.etl.pipeline.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * RFC 4180 CSV parser shared by every CSV reader in the backend.
+ *
+ * A state machine over a reusable char buffer: quoted fields may contain delimiters, newlines
+ * and doubled quotes (""), the delimiter and quote characters are configurable and unquoted
+ * values can optionally be trimmed. Runs of plain characters are bulk-copied into a single
+ * reusable field buffer, so the only per-field allocation is the resulting String and records
+ * are exposed through {@link #getField(int)} without building a List per line.
+ *
+ * Throughput target: at least 100 MB/s per core on narrow, mostly unquoted data (CsvFileSource
+ * logs the achieved rate for every read). Blank lines are skipped.
+ */
+public class CsvParser implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char quote;
+    private final boolean trim;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long charsBeforeBuffer;
+    private boolean started;
+
+    private char[] fieldBuffer = new char[256];
+    private int fieldLength;
+    private String[] fields = new String[16];
+    private int fieldCount;
+    private long lineNumber = 1;
+    private long recordLineNumber;
+    private boolean recordQuoted;
+
+    public CsvParser(Reader reader, char delimiter, char quote, boolean trim) {
+        if (delimiter == quote || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Invalid CSV delimiter: '" + delimiter + "'");
+        }
+        this.reader = reader;
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.trim = trim;
+    }
+
+    /**
+     * Open a file using the CSV options of a node config: delimiter (default ","),
+     * quoteChar (default '"') and trimValues (default true). Gzip files are decompressed on the fly.
+     */
+    public static CsvParser open(Path path, Map<String, Object> config) throws IOException {
+        // A decoder (rather than a charset) reports malformed input instead of replacing it
+        return new CsvParser(new InputStreamReader(GzipSupport.newInputStream(path), StandardCharsets.UTF_8.newDecoder()),
+                delimiterOf(config), quoteOf(config), trimOf(config));
+    }
+
+    /**
+     * Open an uncompressed file part-way through, at a byte offset where a record starts
+     */
+    public static CsvParser openAt(Path path, long offset, Map<String, Object> config) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new CsvParser(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8.newDecoder()),
+                delimiterOf(config), quoteOf(config), trimOf(config));
+    }
+
+    public static char delimiterOf(Map<String, Object> config) {
+        return charOption(config, "delimiter", ',');
+    }
+
+    public static char quoteOf(Map<String, Object> config) {
+        return charOption(config, "quoteChar", '"');
+    }
+
+    public static boolean trimOf(Map<String, Object> config) {
+        Object value = config != null ? config.get("trimValues") : null;
+        return value == null || Boolean.parseBoolean(value.toString());
+    }
+
+    private static char charOption(Map<String, Object> config, String key, char defaultValue) {
+        Object value = config != null ? config.get(key) : null;
+        if (value == null || value.toString().isEmpty()) {
+            return defaultValue;
+        }
+        String text = value.toString();
+        if ("\\t".equals(text) || "tab".equalsIgnoreCase(text)) {
+            return '\t';
+        }
+        if (text.length() != 1) {
+            throw new IllegalArgumentException("CSV option '" + key + "' must be a single character: " + text);
+        }
+        return text.charAt(0);
+    }
+
+    /**
+     * Advance to the next non-blank record. A blank record is an empty line (or, when trimming, a
+     * line of whitespace); a line holding just "" is a record with one empty value.
+     * @return false at end of input
+     */
+    public boolean next() throws IOException {
+        while (parseRecord()) {
+            if (fieldCount > 1 || !fields[0].isEmpty() || recordQuoted) {
+                return true;
+            }
+        }
+        fieldCount = 0;
+        return false;
+    }
+
+    /**
+     * Convenience for header lines and small reads: the next record as a new array, or null at end of input
+     */
+    public String[] nextRecord() throws IOException {
+        return next() ? Arrays.copyOf(fields, fieldCount) : null;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public String getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Line on which the current record starts (1-based)
+     */
+    public long getRecordLineNumber() {
+        return recordLineNumber;
+    }
+
+    /**
+     * Characters consumed so far, including line terminators
+     */
+    public long getCharsConsumed() {
+        return charsBeforeBuffer + position;
+    }
+
+    private boolean parseRecord() throws IOException {
+        fieldCount = 0;
+        fieldLength = 0;
+        recordLineNumber = lineNumber;
+        recordQuoted = false;
+        boolean quoted = false;
+        boolean inQuotes = false;
+        boolean sawAny = false;
+
+        while (true) {
+            if (position >= limit && !fill()) {
+                if (inQuotes) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLineNumber);
+                }
+                if (!sawAny) {
+                    return false;
+                }
+                endField(quoted);
+                return true;
+            }
+            sawAny = true;
+
+            if (inQuotes) {
+                // Copy everything up to the next quote in one go
+                int start = position;
+                while (position < limit && buffer[position] != quote) {
+                    if (buffer[position] == '\n') {
+                        lineNumber++;
+                    }
+                    position++;
+                }
+                append(buffer, start, position - start);
+                if (position < limit) {
+                    position++;
+                    if (position >= limit && !fill()) {
+                        inQuotes = false;
+                    } else if (buffer[position] == quote) {
+                        // Escaped quote ("")
+                        append(quote);
+                        position++;
+                    } else {
+                        inQuotes = false;
+                    }
+                }
+                continue;
+            }
+
+            char ch = buffer[position];
+            if (ch == delimiter) {
+                position++;
+                endField(quoted);
+                quoted = false;
+            } else if (ch == '\n' || ch == '\r') {
+                position++;
+                lineNumber++;
+                if (ch == '\r' && (position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                endField(quoted);
+                return true;
+            } else if (ch == quote && !quoted && isBlankSoFar()) {
+                position++;
+                fieldLength = 0;
+                quoted = true;
+                inQuotes = true;
+                recordQuoted = true;
+            } else if (quoted) {
+                // Text after a closing quote: drop padding when trimming, otherwise keep it verbatim
+                position++;
+                if (!(trim && Character.isWhitespace(ch))) {
+                    append(ch);
+                }
+            } else {
+                int start = position;
+                while (position < limit) {
+                    char c = buffer[position];
+                    if (c == delimiter || c == '\n' || c == '\r' || c == quote) {
+                        break;
+                    }
+                    position++;
+                }
+                if (position == start) {
+                    // A quote in the middle of an unquoted field is kept as a literal
+                    position++;
+                    append(ch);
+                } else {
+                    append(buffer, start, position - start);
+                }
+            }
+        }
+    }
+
+    private boolean isBlankSoFar() {
+        if (fieldLength == 0) {
+            return true;
+        }
+        if (!trim) {
+            return false;
+        }
+        for (int i = 0; i < fieldLength; i++) {
+            if (!Character.isWhitespace(fieldBuffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void endField(boolean quoted) {
+        int start = 0;
+        int end = fieldLength;
+        if (trim && !quoted) {
+            while (start < end && Character.isWhitespace(fieldBuffer[start])) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(fieldBuffer[end - 1])) {
+                end--;
+            }
+        }
+
+        if (fieldCount == fields.length) {
+            fields = Arrays.copyOf(fields, fields.length * 2);
+        }
+        fields[fieldCount++] = end == start ? "" : new String(fieldBuffer, start, end - start);
+        fieldLength = 0;
+    }
+
+    private void append(char ch) {
+        if (fieldLength == fieldBuffer.length) {
+            fieldBuffer = Arrays.copyOf(fieldBuffer, fieldBuffer.length * 2);
+        }
+        fieldBuffer[fieldLength++] = ch;
+    }
+
+    private void append(char[] source, int offset, int length) {
+        if (length <= 0) {
+            return;
+        }
+        if (fieldLength + length > fieldBuffer.length) {
+            fieldBuffer = Arrays.copyOf(fieldBuffer, Math.max(fieldBuffer.length * 2, fieldLength + length));
+        }
+        System.arraycopy(source, offset, fieldBuffer, fieldLength, length);
+        fieldLength += length;
+    }
+
+    private boolean fill() throws IOException {
+        charsBeforeBuffer += limit;
+        position = 0;
+        limit = 0;
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+
+        // Skip a UTF-8 byte order mark at the start of the input
+        if (!started) {
+            started = true;
+            if (buffer[0] == '\uFEFF') {
+                position = 1;
+                if (position >= limit) {
+                    return fill();
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,164 @@
+package com.etl.pipeline.datasource;
+
+import com.etl.pipeline.model.DatasetProfile;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes a {@link DatasetProfile} in one pass over a CSV file.
+ *
+ * Per column: the type inferred from every value (not just a sample), the null count (empty or
+ * missing values), min and max in that type and a HyperLogLog estimate of the distinct values.
+ * Uses the same CSV options as a CSV source node: delimiter, quoteChar, trimValues and hasHeaders.
+ */
+public final class CsvProfiler {
+
+    private final Map<String, Object> config;
+
+    public CsvProfiler(Map<String, Object> config) {
+        this.config = config;
+    }
+
+    /**
+     * Profile every record the parser yields; the caller fills in the file attributes
+     */
+    public DatasetProfile profile(CsvParser parser) throws IOException {
+        long startNanos = System.nanoTime();
+        boolean hasHeaders = config.get("hasHeaders") == null || Boolean.parseBoolean(config.get("hasHeaders").toString());
+        DatasetProfile profile = new DatasetProfile();
+        profile.setDelimiter(String.valueOf(CsvParser.delimiterOf(config)));
+        profile.setQuote(String.valueOf(CsvParser.quoteOf(config)));
+        profile.setHasHeaders(hasHeaders);
+
+        if (!parser.next()) {
+            profile.setProfiledAt(System.currentTimeMillis());
+            return profile;
+        }
+        String[] headers = new String[parser.getFieldCount()];
+        ColumnStats[] stats = new ColumnStats[headers.length];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = hasHeaders ? parser.getField(i) : "column_" + (i + 1);
+            stats[i] = new ColumnStats();
+        }
+
+        long rows = 0;
+        boolean onRecord = !hasHeaders || parser.next();
+        while (onRecord) {
+            rows++;
+            int fields = parser.getFieldCount();
+            for (int i = 0; i < stats.length; i++) {
+                stats[i].observe(i < fields ? parser.getField(i) : "");
+            }
+            onRecord = parser.next();
+        }
+
+        List<DatasetProfile.ColumnProfile> columns = new ArrayList<>(headers.length);
+        for (int i = 0; i < headers.length; i++) {
+            columns.add(stats[i].toProfile(headers[i]));
+        }
+        profile.setRowCount(rows);
+        profile.setColumns(columns);
+        profile.setProfiledAt(System.currentTimeMillis());
+        profile.setProfileTimeMs((System.nanoTime() - startNanos) / 1_000_000);
+        return profile;
+    }
+
+    /**
+     * Running statistics of one column. Min and max are kept for every representation the column
+     * may still turn out to have, since its type is only known once the last value has been seen.
+     */
+    private static class ColumnStats {
+        private final ColumnType.Inference inference = new ColumnType.Inference();
+        private final HyperLogLog distinct = new HyperLogLog();
+        private long nullCount;
+        private long minLong = Long.MAX_VALUE;
+        private long maxLong = Long.MIN_VALUE;
+        private double minDouble = Double.POSITIVE_INFINITY;
+        private double maxDouble = Double.NEGATIVE_INFINITY;
+        private boolean sawTrue;
+        private boolean sawFalse;
+        private LocalDateTime minTimestamp;
+        private LocalDateTime maxTimestamp;
+        private String minText;
+        private String maxText;
+
+        void observe(String value) {
+            if (value.isEmpty()) {
+                nullCount++;
+                return;
+            }
+            inference.observe(value);
+            distinct.add(value);
+
+            if (inference.allows(ColumnType.LONG)) {
+                long number = Long.parseLong(value);
+                minLong = Math.min(minLong, number);
+                maxLong = Math.max(maxLong, number);
+            }
+            if (inference.allows(ColumnType.DOUBLE) || inference.allows(ColumnType.DECIMAL)) {
+                double number = Double.parseDouble(value);
+                minDouble = Math.min(minDouble, number);
+                maxDouble = Math.max(maxDouble, number);
+            }
+            if (inference.allows(ColumnType.BOOLEAN)) {
+                boolean flag = "true".equalsIgnoreCase(value);
+                sawTrue |= flag;
+                sawFalse |= !flag;
+            }
+            if (inference.allows(ColumnType.TIMESTAMP)) {
+                // Timestamps may mix 'T' and ' ' separators, so their text does not sort chronologically
+                LocalDateTime timestamp = (LocalDateTime) ColumnType.TIMESTAMP.parse(value);
+                if (minTimestamp == null || timestamp.isBefore(minTimestamp)) {
+                    minTimestamp = timestamp;
+                }
+                if (maxTimestamp == null || timestamp.isAfter(maxTimestamp)) {
+                    maxTimestamp = timestamp;
+                }
+            }
+            if (minText == null || value.compareTo(minText) < 0) {
+                minText = value;
+            }
+            if (maxText == null || value.compareTo(maxText) > 0) {
+                maxText = value;
+            }
+        }
+
+        DatasetProfile.ColumnProfile toProfile(String name) {
+            ColumnType type = inference.result();
+            DatasetProfile.ColumnProfile column = new DatasetProfile.ColumnProfile(name, type.name());
+            column.setNullCount(nullCount);
+            column.setDistinctCount(minText == null ? 0 : Math.max(1, distinct.estimate()));
+            if (minText == null) {
+                return column;
+            }
+            switch (type) {
+                case LONG:
+                    column.setMin(minLong);
+                    column.setMax(maxLong);
+                    break;
+                case DOUBLE:
+                case DECIMAL:
+                    column.setMin(minDouble);
+                    column.setMax(maxDouble);
+                    break;
+                case BOOLEAN:
+                    column.setMin(!sawFalse);
+                    column.setMax(sawTrue);
+                    break;
+                case TIMESTAMP:
+                    column.setMin(ColumnType.format(minTimestamp));
+                    column.setMax(ColumnType.format(maxTimestamp));
+                    break;
+                default:
+                    // ISO dates sort chronologically as text
+                    column.setMin(minText);
+                    column.setMax(maxText);
+            }
+            return column;
+        }
+    }
+}
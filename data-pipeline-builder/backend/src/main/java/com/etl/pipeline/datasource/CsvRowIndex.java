@@ -0,0 +1,377 @@
+package com.etl.pipeline.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sidecar row-offset index for a CSV file ("&lt;file&gt;.rowidx").
+ *
+ * Holds the first record (the header), the record count and the byte offset of every
+ * stride-th record, so row ranges, previews and parallel splits seek straight to a nearby record
+ * instead of scanning the file from the start. Record boundaries are found the same way as in
+ * {@link ParallelCsvReader}: a newline outside quotes, where a quote only opens a quoted field at
+ * the start of a field, as in {@link CsvParser}. Blank lines are not counted, as the parser skips them.
+ *
+ * The index is bound to the quote and delimiter it was built with and to the file's size and
+ * modification time; a stale or mismatching index is ignored. Gzip files are not indexed.
+ */
+public final class CsvRowIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvRowIndex.class);
+
+    public static final String SUFFIX = ".rowidx";
+    public static final int DEFAULT_STRIDE = 1024;
+
+    private static final int MAGIC = 0x45544C49; // "ETLI"
+    private static final int VERSION = 3;
+    private static final int SCAN_BUFFER_BYTES = 1024 * 1024;
+
+    private final char delimiter;
+    private final char quote;
+    private final int stride;
+    private final long fileBytes;
+    private final long lastModified;
+    private final long recordCount;
+    private final long dataStart;
+    private final String[] header;
+    // offsets[k] is the byte offset of record k * stride (record 0 is the header line)
+    private final long[] offsets;
+
+    private CsvRowIndex(char delimiter, char quote, int stride, long fileBytes, long lastModified,
+                        long recordCount, long dataStart, String[] header, long[] offsets) {
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.stride = stride;
+        this.fileBytes = fileBytes;
+        this.lastModified = lastModified;
+        this.recordCount = recordCount;
+        this.dataStart = dataStart;
+        this.header = header;
+        this.offsets = offsets;
+    }
+
+    public static Path sidecarOf(Path csvFile) {
+        return csvFile.resolveSibling(csvFile.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Index an existing file in one sequential pass
+     * @return null if the file cannot be indexed
+     */
+    public static CsvRowIndex build(Path csvFile, Map<String, Object> config, int stride) throws IOException {
+        Builder builder = new Builder(config, stride);
+        try (InputStream in = Files.newInputStream(csvFile)) {
+            byte[] buffer = new byte[SCAN_BUFFER_BYTES];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                builder.update(buffer, 0, read);
+            }
+        }
+        return builder.finish(csvFile);
+    }
+
+    /**
+     * Load the index of a file if there is one that is current and was built with the same quote
+     * and delimiter as the given options
+     * @return null otherwise
+     */
+    public static CsvRowIndex loadFor(Path csvFile, Map<String, Object> config) {
+        Path sidecar = sidecarOf(csvFile);
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        try {
+            CsvRowIndex index = read(sidecar);
+            if (index.fileBytes != Files.size(csvFile)
+                    || index.lastModified != Files.getLastModifiedTime(csvFile).toMillis()) {
+                logger.debug("Ignoring stale row index {}", sidecar);
+                return null;
+            }
+            if (index.quote != CsvParser.quoteOf(config) || index.delimiter != CsvParser.delimiterOf(config)) {
+                return null;
+            }
+            return index;
+        } catch (IOException e) {
+            logger.warn("Could not read row index {}: {}", sidecar, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write the sidecar next to the CSV file, replacing any previous index
+     */
+    public void save(Path csvFile) throws IOException {
+        Path sidecar = sidecarOf(csvFile);
+        Path tempFile = sidecar.resolveSibling("." + sidecar.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeChar(delimiter);
+            out.writeChar(quote);
+            out.writeInt(stride);
+            out.writeLong(fileBytes);
+            out.writeLong(lastModified);
+            out.writeLong(recordCount);
+            out.writeLong(dataStart);
+            out.writeInt(header.length);
+            for (String field : header) {
+                out.writeUTF(field);
+            }
+            out.writeInt(offsets.length);
+            long previous = 0;
+            for (long offset : offsets) {
+                writeVarLong(out, offset - previous);
+                previous = offset;
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        try {
+            Files.move(tempFile, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, sidecar, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static CsvRowIndex read(Path sidecar) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a row index: " + sidecar);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported row index version " + version + ": " + sidecar);
+            }
+            char delimiter = in.readChar();
+            char quote = in.readChar();
+            int stride = in.readInt();
+            long fileBytes = in.readLong();
+            long lastModified = in.readLong();
+            long recordCount = in.readLong();
+            long dataStart = in.readLong();
+            String[] header = new String[in.readInt()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = in.readUTF();
+            }
+            long[] offsets = new long[in.readInt()];
+            long previous = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                previous += readVarLong(in);
+                offsets[i] = previous;
+            }
+            return new CsvRowIndex(delimiter, quote, stride, fileBytes, lastModified, recordCount, dataStart, header, offsets);
+        }
+    }
+
+    /**
+     * Non-blank records in the file, including the header line
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Fields of the first record, parsed with the index's delimiter and quote
+     */
+    public String[] getHeader() {
+        return header.clone();
+    }
+
+    /**
+     * Offset just after the first record, i.e. where the data starts when the file has a header
+     */
+    public long getDataStart() {
+        return dataStart;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Byte offset of the nearest indexed record at or before the given record
+     * @param record 0-based record number, counting the header line
+     * @return that offset, with the number of records to skip from it to reach the requested one
+     */
+    public long[] seek(long record) {
+        if (record >= recordCount) {
+            return new long[] {fileBytes, 0};
+        }
+        int checkpoint = (int) (record / stride);
+        return new long[] {offsets[checkpoint], record - (long) checkpoint * stride};
+    }
+
+    /**
+     * First indexed record start at or after the given byte offset (the file size if there is none)
+     */
+    public long recordStartAtOrAfter(long offset) {
+        int position = Arrays.binarySearch(offsets, offset);
+        if (position < 0) {
+            position = -position - 1;
+        }
+        return position < offsets.length ? offsets[position] : fileBytes;
+    }
+
+    /**
+     * Finds record starts in a byte stream; feed it the file from the start, then {@link #finish}
+     */
+    public static final class Builder {
+        // Where the scan is within the current field, as in ParallelCsvReader
+        private static final int FIELD_START = 0;
+        private static final int UNQUOTED = 1;
+        private static final int IN_QUOTES = 2;
+        private static final int QUOTE_IN_QUOTES = 3;
+        private static final int AFTER_QUOTES = 4;
+
+        private final Map<String, Object> config;
+        private final byte quote;
+        private final byte delimiter;
+        private final boolean trim;
+        private final int stride;
+        private long[] offsets = new long[64];
+        private int offsetCount;
+        private long position;
+        private long recordStart;
+        // Whether the current record is more than blank to the parser: any value or quoted field
+        private boolean recordContent;
+        private int field = FIELD_START;
+        private boolean afterCarriageReturn;
+        private boolean bareCarriageReturn;
+        private long recordCount;
+        private long dataStart = -1;
+
+        public Builder(Map<String, Object> config, int stride) {
+            char quoteChar = CsvParser.quoteOf(config);
+            if (quoteChar >= 0x80 || CsvParser.delimiterOf(config) >= 0x80) {
+                // Boundaries are found on raw bytes, as in the parallel reader
+                throw new IllegalArgumentException("Row index needs a single-byte quote and delimiter");
+            }
+            this.config = config;
+            this.quote = (byte) quoteChar;
+            this.delimiter = (byte) CsvParser.delimiterOf(config);
+            this.trim = CsvParser.trimOf(config);
+            this.stride = Math.max(1, stride);
+        }
+
+        public void update(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                byte b = bytes[i];
+                if (afterCarriageReturn) {
+                    // The parser ends a record on a lone \r too, which the newline scan would miss
+                    bareCarriageReturn |= b != '\n';
+                    afterCarriageReturn = false;
+                }
+                if (field == IN_QUOTES) {
+                    if (b == quote) {
+                        field = QUOTE_IN_QUOTES;
+                    }
+                    continue;
+                }
+                if (b == quote && (field == FIELD_START || field == QUOTE_IN_QUOTES)) {
+                    // Opens a quoted field, or is the second half of an escaped quote ("")
+                    recordContent = true;
+                    field = IN_QUOTES;
+                } else if (b == '\n') {
+                    field = FIELD_START;
+                    endRecord(position + (i - offset) + 1);
+                } else if (b == '\r') {
+                    field = FIELD_START;
+                    afterCarriageReturn = true;
+                } else if (b == delimiter) {
+                    field = FIELD_START;
+                    recordContent = true;
+                } else {
+                    boolean blank = trim && b >= 0 && Character.isWhitespace((char) b);
+                    if (field == FIELD_START) {
+                        field = blank ? FIELD_START : UNQUOTED;
+                    } else if (field == QUOTE_IN_QUOTES) {
+                        field = AFTER_QUOTES;
+                    }
+                    // A quote anywhere else is a literal
+                    recordContent |= !blank;
+                }
+            }
+            position += length;
+        }
+
+        private void endRecord(long nextRecordStart) {
+            if (recordContent) {
+                if (recordCount % stride == 0) {
+                    if (offsetCount == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    }
+                    offsets[offsetCount++] = recordStart;
+                }
+                if (recordCount == 0) {
+                    dataStart = nextRecordStart;
+                }
+                recordCount++;
+            }
+            recordStart = nextRecordStart;
+            recordContent = false;
+        }
+
+        /**
+         * Complete the index once the whole file has been fed and written
+         * @param csvFile the file, to read the header from and bind the index to
+         * @return null if the file cannot be indexed (it has bare carriage-return line endings)
+         */
+        public CsvRowIndex finish(Path csvFile) throws IOException {
+            if (bareCarriageReturn) {
+                logger.debug("Not indexing {}: it has bare carriage-return line endings", csvFile);
+                return null;
+            }
+            if (recordContent) {
+                // Last record without a trailing newline
+                endRecord(position);
+            }
+            String[] header = new String[0];
+            if (recordCount > 0) {
+                try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ);
+                     CsvParser parser = new CsvParser(
+                             new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8),
+                             CsvParser.delimiterOf(config), CsvParser.quoteOf(config), trim)) {
+                    String[] first = parser.nextRecord();
+                    header = first != null ? first : header;
+                }
+            }
+            long fileBytes = Files.size(csvFile);
+            if (fileBytes != position) {
+                throw new IOException("File changed while it was indexed: " + csvFile);
+            }
+            return new CsvRowIndex(CsvParser.delimiterOf(config), CsvParser.quoteOf(config), stride, fileBytes,
+                    Files.getLastModifiedTime(csvFile).toMillis(), recordCount, dataStart < 0 ? fileBytes : dataStart,
+                    header, Arrays.copyOf(offsets, offsetCount));
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in row index");
+    }
+}
@@ -0,0 +1,142 @@
+package com.etl.pipeline.datasource;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * RFC 4180 CSV writer, the counterpart of {@link CsvParser}.
+ *
+ * Fields are escaped straight into one reusable char buffer: each value is scanned once to see
+ * whether it needs quoting (delimiter, quote, line breaks, or leading/trailing whitespace that a
+ * trimming reader would drop) and then bulk-copied, with quotes doubled where needed. Nothing is
+ * allocated per field or per record.
+ */
+public class CsvWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer out;
+    private final char delimiter;
+    private final char quote;
+    private final String lineSeparator;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private boolean firstField = true;
+
+    public CsvWriter(Writer out, char delimiter, char quote, String lineSeparator) {
+        if (delimiter == quote || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Invalid CSV delimiter: '" + delimiter + "'");
+        }
+        this.out = out;
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * Append a value to the current record, formatted with {@link ColumnType#format(Object)}
+     */
+    public void writeValue(Object value) throws IOException {
+        writeField(value instanceof String ? (String) value : ColumnType.format(value));
+    }
+
+    public void writeField(String value) throws IOException {
+        if (!needsQuotes(value)) {
+            if (!firstField) {
+                append(delimiter);
+            }
+            firstField = false;
+            append(value, 0, value.length());
+            return;
+        }
+        writeQuoted(value);
+    }
+
+    /**
+     * Append a field quoted even where {@link #writeField} would leave it bare, for readers that
+     * give bare fields a meaning of their own (PostgreSQL COPY reads a bare empty field as NULL)
+     */
+    public void writeQuoted(String value) throws IOException {
+        if (!firstField) {
+            append(delimiter);
+        }
+        firstField = false;
+
+        append(quote);
+        int from = 0;
+        int next;
+        while ((next = value.indexOf(quote, from)) >= 0) {
+            append(value, from, next + 1);
+            append(quote);
+            from = next + 1;
+        }
+        append(value, from, value.length());
+        append(quote);
+    }
+
+    public void endRecord() throws IOException {
+        append(lineSeparator, 0, lineSeparator.length());
+        firstField = true;
+    }
+
+    private boolean needsQuotes(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+        if (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(length - 1))) {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch == delimiter || ch == quote || ch == '\n' || ch == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void append(char ch) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = ch;
+    }
+
+    private void append(String value, int from, int to) throws IOException {
+        while (from < to) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(to - from, buffer.length - position);
+            value.getChars(from, from + count, buffer, position);
+            position += count;
+            from += count;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.etl.pipeline.datasource;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -8,6 +9,11 @@ import java.util.Map;
  */
 public interface DataSource {
     
+    /**
+     * Rows per batch when callers do not choose a batch size
+     */
+    int DEFAULT_BATCH_SIZE = 1024;
+    
     /**
      * Read data from the source
      * @return List of data records as Map<String, Object>
@@ -37,4 +43,57 @@ public interface DataSource {
      * @return List of column names and types
      */
     List<Map<String, Object>> getSchema() throws Exception;
+    
+    /**
+     * Open a streaming reader over the source.
+     * The default reads everything with {@link #read()}; sources that can stream override it.
+     * @param batchSize maximum rows per batch
+     */
+    default RecordBatchReader openReader(int batchSize) throws Exception {
+        return RecordBatchReader.of(read(), batchSize);
+    }
+    
+    /**
+     * Open a streaming reader that returns at most {@code limit} rows, for previews.
+     * The default stops pulling from {@link #openReader(int)} once the limit is reached;
+     * sources that can avoid producing the remaining rows at all override it.
+     * @param limit maximum rows; Long.MAX_VALUE when the count is unknown but the caller may stop early
+     */
+    default RecordBatchReader openReader(int batchSize, long limit) throws Exception {
+        return RecordBatchReader.limit(openReader(batchSize), limit);
+    }
+    
+    /**
+     * Open a streaming writer to the destination.
+     * The default buffers every batch and hands them to {@link #write(List)} on commit;
+     * sinks that can stream override it.
+     */
+    default RecordBatchWriter openWriter() throws Exception {
+        List<Map<String, Object>> buffered = new ArrayList<>();
+        return new RecordBatchWriter() {
+            @Override
+            public void writeBatch(List<Map<String, Object>> batch) {
+                buffered.addAll(batch);
+            }
+            
+            @Override
+            public void commit() throws Exception {
+                write(buffered);
+            }
+            
+            @Override
+            public void close() {
+                buffered.clear();
+            }
+        };
+    }
+    
+    /**
+     * Open a streaming writer that lays out columns in the given order, as known from the upstream
+     * schema. The default ignores the order; sinks with positional columns override it.
+     * @param columns column order, or null when the schema is unknown until data arrives
+     */
+    default RecordBatchWriter openWriter(List<String> columns) throws Exception {
+        return openWriter();
+    }
 }
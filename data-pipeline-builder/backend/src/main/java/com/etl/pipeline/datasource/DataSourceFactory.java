@@ -1,5 +1,8 @@
 package com.etl.pipeline.datasource;
 
+import com.etl.pipeline.service.ConnectionProfileRegistry;
+import com.etl.pipeline.service.ExecutionThreads;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import java.util.Map;
 
@@ -9,21 +12,31 @@ import java.util.Map;
 @Component
 public class DataSourceFactory {
     
+    @Autowired
+    private ExecutionThreads threads;
+    
+    @Autowired
+    private ConnectionProfileRegistry connections;
+    
     public DataSource createDataSource(DataSourceType type, Map<String, Object> config) {
         switch (type) {
             case CSV_FILE:
-                return new CsvFileSource(config);
+                return new CsvFileSource(config, threads.getCpuPool(), threads.getCpuParallelism());
             case CSV_OUTPUT:
-                return new CsvFileOutput(config);
+                return new CsvFileOutput(config, threads.getCpuPool(), threads.getCpuParallelism());
+            case COLUMNAR_FILE:
+                return new ColumnarFileSource(config, threads.getCpuPool());
+            case COLUMNAR_OUTPUT:
+                return new ColumnarFileOutput(config, threads.getCpuPool());
             case SQL_DATABASE:
             case MYSQL:
             case POSTGRESQL:
             case SQLITE:
             case MSSQL:
             case ORACLE:
-                return new SqlDatabaseSource(type, config);
+                return new SqlDatabaseSource(type, config, connections, threads.getIoExecutor());
             case SQL_OUTPUT:
-                return new SqlDatabaseOutput(type, config);
+                return new SqlDatabaseOutput(type, config, connections);
             case JSON_FILE:
                 return new JsonFileSource(config);
             case JSON_OUTPUT:
@@ -41,6 +54,8 @@ public class DataSourceFactory {
         switch (type) {
             case CSV_FILE:
             case CSV_OUTPUT:
+            case COLUMNAR_FILE:
+            case COLUMNAR_OUTPUT:
             case SQL_DATABASE:
             case MYSQL:
             case POSTGRESQL:
@@ -16,6 +16,7 @@ public enum DataSourceType {
     ORACLE("Oracle Database", true, false),
     REST_API("REST API", true, false),
     MONGODB("MongoDB", true, false),
+    COLUMNAR_FILE("Columnar File", true, false),
     
     // Output Destinations
     CSV_OUTPUT("CSV Output", false, true),
@@ -24,6 +25,7 @@ public enum DataSourceType {
     SQL_OUTPUT("SQL Database Output", false, true),
     REST_POST("REST API Post", false, true),
     EMAIL_REPORT("Email Report", false, true),
+    COLUMNAR_OUTPUT("Columnar Output", false, true),
     
     // Both (can be input or output)
     DATABASE_TABLE("Database Table", true, true),
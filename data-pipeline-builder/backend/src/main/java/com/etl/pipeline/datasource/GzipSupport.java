@@ -0,0 +1,106 @@
+package com.etl.pipeline.datasource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transparent gzip handling for file sources and outputs.
+ *
+ * Compressed input is recognised by its magic bytes rather than its extension, so a renamed
+ * upload still reads. GZIPInputStream also reads multi-member files, including the ones written
+ * by {@link ParallelGzipOutputStream}.
+ */
+public final class GzipSupport {
+
+    private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private GzipSupport() {
+    }
+
+    public static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    /**
+     * Open a file for reading, decompressing it if it is gzip
+     */
+    public static InputStream newInputStream(Path path) throws IOException {
+        InputStream in = Files.newInputStream(path);
+        try {
+            return isGzip(path) ? new GZIPInputStream(in, INFLATE_BUFFER_SIZE) : in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Estimate the uncompressed size of a gzip file from the compression ratio of its first
+     * sampleBytes of content; exact when the whole file fits in the sample
+     */
+    public static long estimateUncompressedSize(Path path, int sampleBytes) throws IOException {
+        long fileBytes = Files.size(path);
+        try (CountingInputStream compressed = new CountingInputStream(Files.newInputStream(path));
+             // The default (small) inflater buffer keeps the compressed count in step with the output
+             GZIPInputStream in = new GZIPInputStream(compressed)) {
+            byte[] buffer = new byte[8192];
+            long produced = 0;
+            int read;
+            while (produced < sampleBytes && (read = in.read(buffer)) > 0) {
+                produced += read;
+            }
+            if (in.read() < 0) {
+                return produced;
+            }
+            return (long) (fileBytes * ((double) produced / Math.max(1, compressed.count)));
+        }
+    }
+
+    /**
+     * Whether an output node asks for gzip: compression "gzip", or no compression option and a .gz path
+     */
+    public static boolean isRequested(Map<String, Object> config, String filePath) {
+        Object compression = config.get("compression");
+        if (compression != null && !compression.toString().isEmpty()) {
+            String value = compression.toString().trim().toLowerCase();
+            if (!value.equals("gzip") && !value.equals("none")) {
+                throw new IllegalArgumentException("Unsupported compression: " + compression);
+            }
+            return value.equals("gzip");
+        }
+        return filePath != null && filePath.toLowerCase().endsWith(".gz");
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
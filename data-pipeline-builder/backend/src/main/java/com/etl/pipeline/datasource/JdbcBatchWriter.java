@@ -0,0 +1,259 @@
+package com.etl.pipeline.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched INSERT into an existing table over one connection.
+ *
+ * Rows are bound to a single prepared statement and sent with executeBatch. Autocommit is off and
+ * the transaction is committed every commitEvery batches, so a load costs one round trip per batch
+ * and one commit per commitEvery batches instead of one of each per row. Batches committed before
+ * a failure stay in the table; the open transaction is rolled back.
+ *
+ * With auto-tuning (batchSize 0) the batch size starts small and doubles while each doubling still
+ * raises the rows per second by at least 10%, then stays at the best size found. Each size is
+ * measured over whole transactions (binding, batches and commits) covering at least 50,000 rows.
+ */
+public class JdbcBatchWriter implements SqlTableWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcBatchWriter.class);
+    public static final int MAX_BATCH_SIZE = 50_000;
+    private static final int AUTO_START_BATCH_SIZE = 100;
+    private static final double AUTO_MIN_GAIN = 1.1;
+    private static final long AUTO_STEP_MIN_ROWS = 50_000;
+
+    private final Connection conn;
+    private final List<String> columns;
+    private final int[] sqlTypes;
+    private final PreparedStatement pstmt;
+    private final int commitEvery;
+    private final boolean autoCommit;
+    private final long startNanos = System.nanoTime();
+
+    private int batchSize;
+    private boolean tuning;
+    private double bestRowsPerNano;
+    private long stepStartNanos;
+    private long stepRows;
+    private int pending;
+    private int batchesSinceCommit;
+    private long rows;
+    private long batches;
+    private long commits;
+    private long elapsedNanos = -1;
+
+    /**
+     * @param batchSize rows per executeBatch, or 0 to tune it while writing
+     * @param commitEvery batches per transaction
+     */
+    public JdbcBatchWriter(Connection conn, String tableName, List<String> columns,
+                           int batchSize, int commitEvery) throws SQLException {
+        this(conn, tableName, columns, insertSql(tableName, columns), batchSize, commitEvery);
+    }
+
+    /**
+     * @param statementSql statement run per row, binding each column once in the given order
+     *                     (an upsert, for instance)
+     */
+    public JdbcBatchWriter(Connection conn, String tableName, List<String> columns, String statementSql,
+                           int batchSize, int commitEvery) throws SQLException {
+        this.conn = conn;
+        this.columns = columns;
+        this.commitEvery = Math.max(1, commitEvery);
+        this.tuning = batchSize <= 0;
+        this.batchSize = tuning ? AUTO_START_BATCH_SIZE : Math.min(batchSize, MAX_BATCH_SIZE);
+        this.sqlTypes = columnSqlTypes(conn, tableName, columns);
+
+        // Prepared before the transaction starts, so a statement that fails to prepare leaves the
+        // pooled connection as it was
+        this.pstmt = conn.prepareStatement(statementSql);
+        try {
+            this.autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+        } catch (SQLException e) {
+            pstmt.close();
+            throw e;
+        }
+        this.stepStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void write(List<Map<String, Object>> data) throws SQLException {
+        for (Map<String, Object> row : data) {
+            for (int i = 0; i < sqlTypes.length; i++) {
+                bindValue(pstmt, i + 1, sqlTypes[i], row.get(columns.get(i)));
+            }
+            pstmt.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Send the last partial batch and commit
+     */
+    @Override
+    public void finish() throws SQLException {
+        if (pending > 0) {
+            flush();
+        }
+        if (batchesSinceCommit > 0) {
+            commit();
+        }
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Rows, batches, commits, final batch size and rows per second of the load
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("method", "batch");
+        metrics.put("rows", rows);
+        metrics.put("batches", batches);
+        metrics.put("commits", commits);
+        metrics.put("batchSize", batchSize);
+        metrics.put("commitEvery", commitEvery);
+        metrics.put("writeMs", nanos / 1_000_000);
+        metrics.put("rowsPerSecond", nanos > 0 ? Math.round(rows * 1e9 / nanos) : 0);
+        return metrics;
+    }
+
+    private void flush() throws SQLException {
+        pstmt.executeBatch();
+        rows += pending;
+        stepRows += pending;
+        batches++;
+        pending = 0;
+        if (++batchesSinceCommit >= commitEvery) {
+            commit();
+        }
+    }
+
+    private void tune(double rowsPerNano) {
+        if (rowsPerNano >= bestRowsPerNano * AUTO_MIN_GAIN && batchSize < MAX_BATCH_SIZE) {
+            bestRowsPerNano = rowsPerNano;
+            batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+            return;
+        }
+        if (rowsPerNano < bestRowsPerNano) {
+            // The last doubling made things worse
+            batchSize = Math.max(AUTO_START_BATCH_SIZE, batchSize / 2);
+        }
+        tuning = false;
+        logger.debug("Batch size tuned to {} rows", batchSize);
+    }
+
+    private void commit() throws SQLException {
+        conn.commit();
+        commits++;
+        batchesSinceCommit = 0;
+
+        if (tuning && stepRows >= AUTO_STEP_MIN_ROWS) {
+            long now = System.nanoTime();
+            tune(stepRows / (double) Math.max(1, now - stepStartNanos));
+            stepStartNanos = now;
+            stepRows = 0;
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (pstmt) {
+            if (elapsedNanos < 0) {
+                conn.rollback();
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String insertSql(String tableName, List<String> columns) {
+        return "INSERT INTO " + tableName + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+    }
+
+    private static int[] columnSqlTypes(Connection conn, String tableName, List<String> columns) throws SQLException {
+        String query = "SELECT " + String.join(", ", columns) + " FROM " + tableName + " WHERE 1 = 0";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int[] sqlTypes = new int[columns.size()];
+            for (int i = 0; i < sqlTypes.length; i++) {
+                sqlTypes[i] = metaData.getColumnType(i + 1);
+            }
+            return sqlTypes;
+        }
+    }
+
+    /**
+     * Bind a value with the setter for its type when the column holds that kind of value (numbers
+     * into numeric columns, booleans into boolean or numeric columns, dates and timestamps into
+     * temporal columns); anything else, and every value bound to a text column, goes in as text
+     */
+    private static void bindValue(PreparedStatement pstmt, int index, int sqlType, Object value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, sqlType);
+            return;
+        }
+        switch (sqlType) {
+            case Types.TINYINT: case Types.SMALLINT: case Types.INTEGER: case Types.BIGINT:
+            case Types.REAL: case Types.FLOAT: case Types.DOUBLE: case Types.NUMERIC: case Types.DECIMAL:
+                if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                    pstmt.setLong(index, ((Number) value).longValue());
+                    return;
+                }
+                if (value instanceof Double || value instanceof Float) {
+                    pstmt.setDouble(index, ((Number) value).doubleValue());
+                    return;
+                }
+                if (value instanceof BigDecimal) {
+                    pstmt.setBigDecimal(index, (BigDecimal) value);
+                    return;
+                }
+                if (value instanceof Boolean) {
+                    pstmt.setInt(index, (Boolean) value ? 1 : 0);
+                    return;
+                }
+                break;
+            case Types.BIT: case Types.BOOLEAN:
+                if (value instanceof Boolean) {
+                    pstmt.setBoolean(index, (Boolean) value);
+                    return;
+                }
+                break;
+            case Types.DATE:
+                if (value instanceof LocalDate) {
+                    pstmt.setDate(index, Date.valueOf((LocalDate) value));
+                    return;
+                }
+                break;
+            case Types.TIMESTAMP:
+                // Oracle reports its DATE columns (which carry a time) as TIMESTAMP
+                if (value instanceof LocalDateTime) {
+                    pstmt.setTimestamp(index, Timestamp.valueOf((LocalDateTime) value));
+                    return;
+                }
+                if (value instanceof LocalDate) {
+                    pstmt.setTimestamp(index, Timestamp.valueOf(((LocalDate) value).atStartOfDay()));
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        pstmt.setString(index, value instanceof String ? (String) value : ColumnType.format(value));
+    }
+}
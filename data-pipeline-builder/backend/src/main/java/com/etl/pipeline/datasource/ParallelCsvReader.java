@@ -0,0 +1,516 @@
+package com.etl.pipeline.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads a large CSV file on several cores.
+ *
+ * The file is memory-mapped and cut into byte ranges. Every range is moved forward to the next
+ * record boundary: a newline outside a quoted field, with quotes read by {@link CsvParser}'s rule
+ * (a quote opens a quoted field only at the start of a field; elsewhere it is a literal). Whether
+ * a range starts inside quotes depends on everything before it, so each range is first scanned in
+ * parallel from every possible scanner state at once, giving the state it ends in for each state
+ * it may start in; chaining these from the start of the file gives each range's true start state.
+ * The ranges are then parsed concurrently with {@link CsvParser} and concatenated in file order,
+ * so rows are the same, in the same order, as a sequential read.
+ *
+ * Splitting on bytes is safe for UTF-8 because newline and quote bytes never occur inside
+ * multi-byte sequences.
+ */
+public class ParallelCsvReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelCsvReader.class);
+
+    /** Files smaller than this are read sequentially */
+    public static final long PARALLEL_THRESHOLD_BYTES = 32L * 1024 * 1024;
+    private static final long MIN_SPLIT_BYTES = 8L * 1024 * 1024;
+    private static final long MAX_SPLIT_BYTES = 256L * 1024 * 1024;
+    private static final int SCAN_WINDOW_BYTES = 1024 * 1024;
+    /** Range size when streaming, which bounds memory to roughly (parallelism + 1) ranges of rows */
+    public static final long STREAMING_RANGE_BYTES = 16L * 1024 * 1024;
+
+    private final Path path;
+    private final Map<String, Object> config;
+    private final ExecutorService executor;
+    private final int parallelism;
+    private final char delimiter;
+    private final char quote;
+    private final boolean trim;
+    private final ColumnType[] types;
+
+    public ParallelCsvReader(Path path, Map<String, Object> config, ExecutorService executor, int parallelism) {
+        this(path, config, executor, parallelism, null);
+    }
+
+    /**
+     * @param types column types by position, as resolved by {@link CsvFileSource} (null to keep every value as text)
+     */
+    public ParallelCsvReader(Path path, Map<String, Object> config, ExecutorService executor, int parallelism, ColumnType[] types) {
+        this.path = path;
+        this.config = config;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.delimiter = CsvParser.delimiterOf(config);
+        this.quote = CsvParser.quoteOf(config);
+        this.trim = CsvParser.trimOf(config);
+        this.types = types;
+    }
+
+    /**
+     * Whether a file of this size, read with these options, benefits from (and supports) a parallel read
+     */
+    public static boolean isApplicable(long fileBytes, Map<String, Object> config, int parallelism) {
+        if (parallelism < 2 || fileBytes < PARALLEL_THRESHOLD_BYTES) {
+            return false;
+        }
+        Object parallelRead = config.get("parallelRead");
+        if (parallelRead != null && !Boolean.parseBoolean(parallelRead.toString())) {
+            return false;
+        }
+        // Boundaries are found on raw bytes, so the quote and delimiter must be single-byte characters
+        return CsvParser.quoteOf(config) < 0x80 && CsvParser.delimiterOf(config) < 0x80;
+    }
+
+    /**
+     * Number of ranges a file of this size is cut into
+     */
+    public static int splitCount(long fileBytes, int parallelism) {
+        long bySize = (fileBytes + MIN_SPLIT_BYTES - 1) / MIN_SPLIT_BYTES;
+        long byMaxSplit = (fileBytes + MAX_SPLIT_BYTES - 1) / MAX_SPLIT_BYTES;
+        return (int) Math.max(1, Math.min(bySize, Math.max(parallelism, byMaxSplit)));
+    }
+
+    /**
+     * Parse every range at once and return all rows in file order
+     * @param hasHeaders whether the first record holds the column names (otherwise column_1..column_n)
+     */
+    public List<Map<String, Object>> read(boolean hasHeaders) throws Exception {
+        return read(hasHeaders, splitCount(Files.size(path), parallelism));
+    }
+
+    /**
+     * Parse the file cut into the given number of ranges, regardless of its size
+     */
+    List<Map<String, Object>> read(boolean hasHeaders, int splits) throws Exception {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return RecordBatchReader.readAll(open(channel, hasHeaders, Math.max(1, splits), Integer.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Stream the file: ranges of about {@link #STREAMING_RANGE_BYTES} are parsed ahead on the executor,
+     * at most parallelism + 1 at a time, and handed out in file order as batches
+     */
+    public RecordBatchReader openReader(boolean hasHeaders, int batchSize) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        int splits = (int) Math.max(splitCount(size, parallelism), (size + STREAMING_RANGE_BYTES - 1) / STREAMING_RANGE_BYTES);
+        return open(channel, hasHeaders, splits, parallelism + 1, batchSize);
+    }
+
+    private RecordBatchReader open(FileChannel channel, boolean hasHeaders, int splits, int maxInFlight, int batchSize) throws IOException {
+        try {
+            long size = channel.size();
+            // A current row index gives record starts without scanning for quotes
+            CsvRowIndex index = size == 0 ? null : CsvRowIndex.loadFor(path, config);
+            long[] boundaries = size == 0 ? new long[] {0}
+                    : index != null ? indexedBoundaries(index, size, splits) : findBoundaries(channel, size, splits);
+            String[] headers = null;
+
+            if (size > 0) {
+                // The header is the first non-blank record, found line by line as the parser skips blank lines
+                long recordStart = 0;
+                long firstRecordEnd = 0;
+                String[] firstRecord = null;
+                while (firstRecord == null && recordStart < size) {
+                    firstRecordEnd = index != null && recordStart == 0 ? index.getDataStart()
+                            : findRecordStart(channel, recordStart, FIELD_START, size);
+                    try (CsvParser parser = parserFor(channel, recordStart, firstRecordEnd)) {
+                        firstRecord = parser.nextRecord();
+                    }
+                    recordStart = firstRecordEnd;
+                }
+                if (firstRecord != null) {
+                    headers = new String[firstRecord.length];
+                    for (int i = 0; i < headers.length; i++) {
+                        headers[i] = hasHeaders ? firstRecord[i] : "column_" + (i + 1);
+                    }
+                    if (hasHeaders) {
+                        boundaries = startingAt(boundaries, firstRecordEnd);
+                    }
+                }
+            }
+            if (headers == null) {
+                boundaries = new long[] {0};
+            }
+            return new RangeReader(channel, boundaries, headers, maxInFlight, batchSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Submits range parses ahead of the consumer and returns their rows in range order
+     */
+    private class RangeReader implements RecordBatchReader {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final String[] headers;
+        private final int maxInFlight;
+        private final int batchSize;
+        private final Deque<Future<List<Map<String, Object>>>> inFlight = new ArrayDeque<>();
+        private final long startNanos = System.nanoTime();
+        private int nextRange;
+        private List<Map<String, Object>> current = Collections.emptyList();
+        private int currentPosition;
+        private long records;
+
+        RangeReader(FileChannel channel, long[] boundaries, String[] headers, int maxInFlight, int batchSize) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.headers = headers;
+            this.maxInFlight = Math.max(1, maxInFlight);
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        @Override
+        public List<Map<String, Object>> nextBatch() throws IOException {
+            while (currentPosition >= current.size()) {
+                submitAhead();
+                Future<List<Map<String, Object>>> next = inFlight.pollFirst();
+                if (next == null) {
+                    return null;
+                }
+                current = await(next);
+                currentPosition = 0;
+            }
+            int end = (int) Math.min(current.size(), (long) currentPosition + batchSize);
+            List<Map<String, Object>> batch = current.subList(currentPosition, end);
+            currentPosition = end;
+            records += batch.size();
+            return batch;
+        }
+
+        private void submitAhead() {
+            while (inFlight.size() < maxInFlight && nextRange < boundaries.length - 1) {
+                long start = boundaries[nextRange];
+                long end = boundaries[nextRange + 1];
+                nextRange++;
+                inFlight.addLast(executor.submit(() -> parseRange(channel, start, end, headers)));
+            }
+        }
+
+        private List<Map<String, Object>> await(Future<List<Map<String, Object>>> future) throws IOException {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while reading " + path, e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Failed to read " + path + ": " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Future<List<Map<String, Object>>> future : inFlight) {
+                future.cancel(true);
+            }
+            inFlight.clear();
+            long size = channel.size();
+            channel.close();
+
+            double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+            logger.info("Read {} records from {} in {} ranges ({} MB in {} ms, {} MB/s)",
+                    records, path, Math.max(0, boundaries.length - 1), String.format("%.1f", size / (1024.0 * 1024.0)),
+                    (long) (seconds * 1000), String.format("%.1f", size / (1024.0 * 1024.0) / seconds));
+        }
+    }
+
+    /**
+     * The boundaries with the first one moved to start, dropping any that fall before it
+     */
+    private static long[] startingAt(long[] boundaries, long start) {
+        int first = 1;
+        while (first < boundaries.length - 1 && boundaries[first] <= start) {
+            first++;
+        }
+        long[] moved = new long[boundaries.length - first + 1];
+        moved[0] = start;
+        System.arraycopy(boundaries, first, moved, 1, boundaries.length - first);
+        return moved;
+    }
+
+    /**
+     * Record-aligned range boundaries, starting with 0 and ending with the file size
+     */
+    private long[] findBoundaries(FileChannel channel, long size, int splits) throws IOException {
+        long[] rawStarts = new long[splits + 1];
+        for (int i = 0; i <= splits; i++) {
+            rawStarts[i] = size * i / splits;
+        }
+
+        // Scanner state at the start of each raw range, from each range's state transitions
+        List<Callable<byte[]>> transitions = new ArrayList<>();
+        for (int i = 0; i < splits; i++) {
+            long from = rawStarts[i];
+            long to = rawStarts[i + 1];
+            transitions.add(() -> scanTransitions(channel, from, to));
+        }
+        List<byte[]> endStates = awaitAll(submitAll(transitions));
+
+        List<Callable<Long>> starts = new ArrayList<>();
+        byte state = FIELD_START;
+        for (int i = 1; i < splits; i++) {
+            state = endStates.get(i - 1)[state];
+            long from = rawStarts[i];
+            byte startState = state;
+            starts.add(() -> findRecordStart(channel, from, startState, size));
+        }
+        List<Long> alignedStarts = awaitAll(submitAll(starts));
+
+        // Long records can push several ranges onto the same boundary
+        TreeSet<Long> boundaries = new TreeSet<>(alignedStarts);
+        boundaries.add(0L);
+        boundaries.add(size);
+        long[] result = new long[boundaries.size()];
+        int i = 0;
+        for (long boundary : boundaries) {
+            result[i++] = boundary;
+        }
+        return result;
+    }
+
+    /**
+     * Record-aligned range boundaries taken from the row index: the first indexed record at or after each raw split
+     */
+    private long[] indexedBoundaries(CsvRowIndex index, long size, int splits) {
+        TreeSet<Long> boundaries = new TreeSet<>();
+        boundaries.add(0L);
+        for (int i = 1; i < splits; i++) {
+            boundaries.add(index.recordStartAtOrAfter(size * i / splits));
+        }
+        boundaries.add(size);
+        long[] result = new long[boundaries.size()];
+        int i = 0;
+        for (long boundary : boundaries) {
+            result[i++] = boundary;
+        }
+        return result;
+    }
+
+    // Scanner states, mirroring CsvParser: at the start of a field (only blanks so far when
+    // trimming), inside an unquoted field, inside quotes, just after a quote inside quotes (an
+    // escaped quote or the closing one), and after a closing quote
+    private static final byte FIELD_START = 0;
+    private static final byte UNQUOTED = 1;
+    private static final byte IN_QUOTES = 2;
+    private static final byte QUOTE_IN_QUOTES = 3;
+    private static final byte AFTER_QUOTES = 4;
+    private static final int STATES = 5;
+
+    // Byte classes
+    private static final int QUOTE = 0;
+    private static final int DELIMITER = 1;
+    private static final int LINE_END = 2;
+    private static final int BLANK = 3;
+    private static final int OTHER = 4;
+
+    private int byteClass(byte b) {
+        if (b == (byte) quote) {
+            return QUOTE;
+        }
+        if (b == (byte) delimiter) {
+            return DELIMITER;
+        }
+        if (b == '\n' || b == '\r') {
+            return LINE_END;
+        }
+        return trim && b >= 0 && Character.isWhitespace((char) b) ? BLANK : OTHER;
+    }
+
+    private static byte next(byte state, int byteClass) {
+        switch (state) {
+            case FIELD_START:
+                switch (byteClass) {
+                    case QUOTE: return IN_QUOTES;
+                    case OTHER: return UNQUOTED;
+                    default: return FIELD_START;
+                }
+            case UNQUOTED:
+                return byteClass == DELIMITER || byteClass == LINE_END ? FIELD_START : UNQUOTED;
+            case IN_QUOTES:
+                return byteClass == QUOTE ? QUOTE_IN_QUOTES : IN_QUOTES;
+            case QUOTE_IN_QUOTES:
+                switch (byteClass) {
+                    case QUOTE: return IN_QUOTES;
+                    case DELIMITER: case LINE_END: return FIELD_START;
+                    default: return AFTER_QUOTES;
+                }
+            default:
+                return byteClass == DELIMITER || byteClass == LINE_END ? FIELD_START : AFTER_QUOTES;
+        }
+    }
+
+    /**
+     * Scan a range from every scanner state at once
+     * @return the state the range ends in, indexed by the state it starts in
+     */
+    private byte[] scanTransitions(FileChannel channel, long from, long to) throws IOException {
+        byte[] states = new byte[STATES];
+        for (byte s = 0; s < STATES; s++) {
+            states[s] = s;
+        }
+        boolean converged = false;
+        for (long windowStart = from; windowStart < to; windowStart += SCAN_WINDOW_BYTES) {
+            int length = (int) Math.min(SCAN_WINDOW_BYTES, to - windowStart);
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            int i = 0;
+            while (!converged && i < length) {
+                int byteClass = byteClass(window.get(i++));
+                converged = true;
+                for (int s = 0; s < STATES; s++) {
+                    states[s] = next(states[s], byteClass);
+                    converged &= states[s] == states[0];
+                }
+            }
+            if (converged) {
+                // Every start state has led to the same state, so one track is enough from here
+                byte state = states[0];
+                for (; i < length; i++) {
+                    state = next(state, byteClass(window.get(i)));
+                }
+                Arrays.fill(states, state);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Offset just after the first newline at or after {@code from} that ends a record
+     * @param state scanner state at {@code from}
+     * @return the file size if there is no further record boundary
+     */
+    private long findRecordStart(FileChannel channel, long from, byte state, long size) throws IOException {
+        for (long windowStart = from; windowStart < size; windowStart += SCAN_WINDOW_BYTES) {
+            int length = (int) Math.min(SCAN_WINDOW_BYTES, size - windowStart);
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == '\n' && state != IN_QUOTES) {
+                    return windowStart + i + 1;
+                }
+                state = next(state, byteClass(b));
+            }
+        }
+        return size;
+    }
+
+    private List<Map<String, Object>> parseRange(FileChannel channel, long start, long end, String[] headers) throws IOException {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (end <= start) {
+            return rows;
+        }
+        try (CsvParser parser = parserFor(channel, start, end)) {
+            while (parser.next()) {
+                rows.add(CsvFileSource.toRow(parser, headers, types));
+            }
+        }
+        return rows;
+    }
+
+    private CsvParser parserFor(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        return new CsvParser(new ByteBufferReader(bytes), delimiter, quote, trim);
+    }
+
+    private <T> List<Future<T>> submitAll(List<Callable<T>> tasks) {
+        List<Future<T>> futures = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            futures.add(executor.submit(task));
+        }
+        return futures;
+    }
+
+    private <T> List<T> awaitAll(List<Future<T>> futures) throws IOException {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + path, e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to read " + path + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Decodes a UTF-8 byte range for the parser without copying it to the heap first
+     */
+    private static class ByteBufferReader extends Reader {
+        private final ByteBuffer input;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private boolean flushed;
+
+        ByteBufferReader(ByteBuffer input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read(char[] target, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            CharBuffer output = CharBuffer.wrap(target, offset, length);
+            if (input.hasRemaining()) {
+                CoderResult result = decoder.decode(input, output, true);
+                if (result.isError()) {
+                    result.throwException();
+                }
+            }
+            if (!input.hasRemaining() && !flushed && output.hasRemaining()) {
+                decoder.flush(output);
+                flushed = true;
+            }
+            int read = output.position() - offset;
+            return read == 0 && flushed ? -1 : read;
+        }
+
+        @Override
+        public void close() {
+            // Mapped buffers are released by the garbage collector
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.etl.pipeline.datasource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output compressed on several cores.
+ *
+ * Written bytes are cut into blocks of {@link #BLOCK_SIZE}; each block is deflated on the executor
+ * as a complete gzip member (header, deflate data, CRC32 and size trailer), and the members are
+ * written in order. Concatenated members form a valid gzip file (RFC 1952) that gzip, zcat and
+ * GZIPInputStream read as one stream. At most parallelism * 2 blocks are in flight, which bounds
+ * memory to a few MB regardless of the output size. Deflaters are pooled and released on close.
+ *
+ * {@link #flush()} only flushes completed members: emitting a member per flush would hurt the
+ * compression ratio, so buffered data is compressed when a block fills up or on close.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final int level;
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int length;
+    private boolean wroteMember;
+    private volatile boolean closed;
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    private final ConcurrentLinkedQueue<byte[]> freeBlocks = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param executor pool the blocks are compressed on; null to compress on the calling thread
+     * @param parallelism number of threads in that pool
+     * @param level deflate level (0-9, or -1 for the default)
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int parallelism, int level) {
+        this.out = out;
+        this.executor = executor;
+        this.maxInFlight = executor != null ? Math.max(1, parallelism) * 2 : 0;
+        this.level = level;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (length == BLOCK_SIZE) {
+            submitBlock();
+        }
+        block[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int count) throws IOException {
+        while (count > 0) {
+            if (length == BLOCK_SIZE) {
+                submitBlock();
+            }
+            int copied = Math.min(count, BLOCK_SIZE - length);
+            System.arraycopy(bytes, offset, block, length, copied);
+            length += copied;
+            offset += copied;
+            count -= copied;
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] data = block;
+        int size = length;
+        byte[] free = freeBlocks.poll();
+        block = free != null ? free : new byte[BLOCK_SIZE];
+        length = 0;
+        wroteMember = true;
+
+        if (executor == null) {
+            out.write(compress(data, size));
+            return;
+        }
+        pending.add(executor.submit(() -> compress(data, size)));
+        while (pending.size() > maxInFlight) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        Future<byte[]> member = pending.poll();
+        try {
+            out.write(member.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Compression failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private byte[] compress(byte[] data, int size) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level, true);
+        }
+        try {
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, size);
+
+            byte[] member = new byte[HEADER.length + size + size / 1000 + 64 + 8];
+            System.arraycopy(HEADER, 0, member, 0, HEADER.length);
+            int position = HEADER.length;
+
+            deflater.setInput(data, 0, size);
+            deflater.finish();
+            while (!deflater.finished()) {
+                if (position == member.length - 8) {
+                    member = Arrays.copyOf(member, member.length * 2);
+                }
+                position += deflater.deflate(member, position, member.length - 8 - position);
+            }
+
+            writeIntLE(member, position, (int) crc.getValue());
+            writeIntLE(member, position + 4, size);
+            return position + 8 == member.length ? member : Arrays.copyOf(member, position + 8);
+        } finally {
+            deflater.reset();
+            deflaters.add(deflater);
+            if (closed) {
+                // Finished after close() released the pool, e.g. a cancelled task that was already running
+                endDeflaters();
+            }
+            if (data.length == BLOCK_SIZE) {
+                freeBlocks.add(data);
+            }
+        }
+    }
+
+    private static void writeIntLE(byte[] target, int offset, int value) {
+        target[offset] = (byte) value;
+        target[offset + 1] = (byte) (value >>> 8);
+        target[offset + 2] = (byte) (value >>> 16);
+        target[offset + 3] = (byte) (value >>> 24);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Compress the remaining data, write all members in order and close the underlying stream.
+     * An empty stream still produces one (empty) member so the file is valid gzip.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (length > 0 || !wroteMember) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+        } finally {
+            for (Future<byte[]> member : pending) {
+                member.cancel(true);
+            }
+            endDeflaters();
+            out.close();
+        }
+    }
+
+    private void endDeflaters() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
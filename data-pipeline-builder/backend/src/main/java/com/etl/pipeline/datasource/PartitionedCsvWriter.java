@@ -0,0 +1,481 @@
+package com.etl.pipeline.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes a csvOutput node's rows into one file per distinct value of its partitionBy columns.
+ *
+ * Layouts (option partitionLayout):
+ * - "hive" (default): filePath names a directory (a .csv / .csv.gz suffix is dropped) holding
+ *   col=value/.../part-00000.csv; the partition columns are encoded in the path and left out of the files.
+ * - "files": one file per partition next to filePath, named stem_value1_value2.csv, keeping every column;
+ *   '_' inside a value is percent-encoded like any other reserved character, so values never run together.
+ *
+ * Each batch is grouped by partition and the groups are written concurrently on the output's pool,
+ * one buffered writer per partition. At most maxOpenPartitions (default 64) files are open at a time;
+ * the least recently used one is closed when another partition needs a handle, and reopened for
+ * appending if its partition shows up again. Files are written to a staging directory and moved into
+ * place on commit, so an aborted run leaves the previous output untouched; with append the rows go
+ * straight to the partition files and are truncated away again if the run is aborted.
+ *
+ * A run without append replaces the whole dataset: after its files are moved into place, partition
+ * files of earlier runs that this run did not write are deleted. The hive directory belongs to the
+ * dataset, so every partition file and emptied col=value directory in it goes; the "files" layout
+ * shares its directory with other files, so it keeps a manifest (.stem.csv.partitions) of the files
+ * it wrote and only ever deletes files listed there.
+ */
+class PartitionedCsvWriter implements RecordBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedCsvWriter.class);
+    private static final int DEFAULT_MAX_OPEN_PARTITIONS = 64;
+    private static final String HIVE_DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+
+    private final CsvFileOutput output;
+    private final List<String> partitionBy;
+    private final List<String> upstreamColumns;
+    private final boolean hive;
+    private final int maxOpenPartitions;
+
+    private final Path baseDir;
+    private final String stem;
+    private final String extension;
+    private Path stagingDir;
+
+    private String[] columnOrder;
+    private final Map<String, Partition> partitions = new HashMap<>();
+    private final LinkedHashMap<String, Partition> open = new LinkedHashMap<>(16, 0.75f, true);
+    private long records;
+    private long reopened;
+    private long startNanos;
+    private boolean committed;
+
+    PartitionedCsvWriter(CsvFileOutput output, List<String> partitionBy, List<String> upstreamColumns) {
+        this.output = output;
+        this.partitionBy = partitionBy;
+        this.upstreamColumns = upstreamColumns;
+
+        Map<String, Object> config = output.getConfig();
+        String layout = String.valueOf(config.getOrDefault("partitionLayout", "hive")).trim().toLowerCase();
+        if (!layout.equals("hive") && !layout.equals("files")) {
+            throw new IllegalArgumentException("Unsupported partitionLayout: " + layout);
+        }
+        this.hive = layout.equals("hive");
+        Object maxOpen = config.get("maxOpenPartitions");
+        this.maxOpenPartitions = Math.max(1, maxOpen != null ? Integer.parseInt(maxOpen.toString()) : DEFAULT_MAX_OPEN_PARTITIONS);
+
+        Path path = Paths.get(output.getFilePath()).toAbsolutePath();
+        String name = path.getFileName().toString();
+        String suffix = output.isGzip() ? ".csv.gz" : ".csv";
+        String lowerName = name.toLowerCase();
+        String base = lowerName.endsWith(".csv.gz") ? name.substring(0, name.length() - 7)
+                : lowerName.endsWith(".csv") ? name.substring(0, name.length() - 4)
+                : name;
+        this.extension = suffix;
+        if (hive) {
+            this.baseDir = path.resolveSibling(base);
+            this.stem = "part-00000";
+        } else {
+            this.baseDir = path.getParent();
+            this.stem = base;
+        }
+    }
+
+    @Override
+    public void writeBatch(List<Map<String, Object>> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (columnOrder == null) {
+            start(batch);
+        }
+
+        // Group by partition, keeping the row order within each partition
+        Map<String, List<Map<String, Object>>> groups = new LinkedHashMap<>();
+        for (Map<String, Object> row : batch) {
+            groups.computeIfAbsent(relativePath(row), k -> new ArrayList<>()).add(row);
+        }
+
+        // Write at most maxOpenPartitions groups at a time, each on its own writer
+        List<Map.Entry<String, List<Map<String, Object>>>> pending = new ArrayList<>(groups.entrySet());
+        for (int from = 0; from < pending.size(); from += maxOpenPartitions) {
+            List<Map.Entry<String, List<Map<String, Object>>>> wave = pending.subList(from, Math.min(pending.size(), from + maxOpenPartitions));
+            List<Callable<Void>> tasks = new ArrayList<>(wave.size());
+            for (Map.Entry<String, List<Map<String, Object>>> group : wave) {
+                Partition partition = openPartition(group.getKey());
+                List<Map<String, Object>> rows = group.getValue();
+                tasks.add(() -> {
+                    partition.write(rows);
+                    return null;
+                });
+            }
+            runAll(tasks);
+        }
+        records += batch.size();
+    }
+
+    private void start(List<Map<String, Object>> firstBatch) throws IOException {
+        Set<String> columns = new LinkedHashSet<>();
+        if (upstreamColumns != null && !upstreamColumns.isEmpty()) {
+            columns.addAll(upstreamColumns);
+        } else {
+            for (Map<String, Object> row : firstBatch) {
+                columns.addAll(row.keySet());
+            }
+        }
+        if (hive) {
+            // Hive layouts carry the partition values in the directory names only
+            columns.removeAll(partitionBy);
+        }
+        columnOrder = columns.toArray(new String[0]);
+
+        Files.createDirectories(baseDir);
+        if (!output.isAppend()) {
+            stagingDir = Files.createDirectory(baseDir.resolve(".staging-" + UUID.randomUUID()));
+        }
+        startNanos = System.nanoTime();
+        logger.info("Writing partitioned CSV output by {} to {}", partitionBy, baseDir);
+    }
+
+    private String relativePath(Map<String, Object> row) {
+        StringBuilder path = new StringBuilder();
+        if (hive) {
+            for (String column : partitionBy) {
+                String value = ColumnType.format(row.get(column));
+                path.append(escape(column)).append('=')
+                        .append(value.isEmpty() ? HIVE_DEFAULT_PARTITION : escape(value)).append('/');
+            }
+            return path.append(stem).append(extension).toString();
+        }
+        path.append(stem);
+        for (String column : partitionBy) {
+            String value = ColumnType.format(row.get(column));
+            // '_' separates the values here, so it is encoded inside them
+            path.append('_').append(value.isEmpty() ? "null" : escape(value).replace("_", "%5F"));
+        }
+        return path.append(extension).toString();
+    }
+
+    /**
+     * Keep path components to [A-Za-z0-9._-], percent-encoding every other UTF-8 byte (and leading
+     * dots, so a value can never name a hidden file or a parent directory)
+     */
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            boolean safe = (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9')
+                    || b == '_' || b == '-' || (b == '.' && i > 0);
+            if (safe) {
+                escaped.append((char) b);
+            } else {
+                escaped.append('%').append(Character.toUpperCase(Character.forDigit(b >> 4, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(b & 0xf, 16)));
+            }
+        }
+        return escaped.toString();
+    }
+
+    private Partition openPartition(String relativePath) throws IOException {
+        Partition partition = open.get(relativePath);
+        if (partition != null) {
+            return partition;
+        }
+
+        // Close the least recently used partitions to stay within the handle cap
+        Iterator<Partition> eldest = open.values().iterator();
+        while (open.size() >= maxOpenPartitions && eldest.hasNext()) {
+            eldest.next().closeWriter();
+            eldest.remove();
+        }
+
+        partition = partitions.get(relativePath);
+        if (partition == null) {
+            partition = new Partition(baseDir.resolve(relativePath),
+                    stagingDir != null ? stagingDir.resolve(relativePath) : baseDir.resolve(relativePath));
+            partitions.put(relativePath, partition);
+        } else {
+            reopened++;
+        }
+        partition.openWriter();
+        open.put(relativePath, partition);
+        return partition;
+    }
+
+    private void runAll(List<Callable<Void>> tasks) throws IOException {
+        if (output.getExecutor() == null || tasks.size() == 1) {
+            for (Callable<Void> task : tasks) {
+                call(task);
+            }
+            return;
+        }
+        try {
+            for (Future<Void> future : output.getExecutor().invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing partitions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static void call(Callable<Void> task) throws IOException {
+        try {
+            task.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void commit() throws IOException {
+        if (columnOrder == null) {
+            logger.warn("No data to write to CSV file: {}", output.getFilePath());
+            committed = true;
+            return;
+        }
+        closeOpenWriters();
+
+        long bytes = 0;
+        for (Partition partition : partitions.values()) {
+            if (stagingDir != null) {
+                Files.createDirectories(partition.target.getParent());
+                try {
+                    Files.move(partition.file, partition.target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(partition.file, partition.target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            bytes += Files.size(partition.target) - Math.max(partition.appendOffset, 0);
+        }
+        deleteStaging();
+        if (hive) {
+            if (stagingDir != null) {
+                removeStaleHivePartitions();
+            }
+        } else {
+            updateManifest();
+        }
+        committed = true;
+
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+        double megabytes = bytes / (1024.0 * 1024.0);
+        logger.info("Successfully wrote {} records to {} partitions under {} ({} MB in {} ms, {} MB/s, {} partition files reopened)",
+                records, partitions.size(), baseDir, String.format("%.1f", megabytes), (long) (seconds * 1000),
+                String.format("%.1f", megabytes / seconds), reopened);
+    }
+
+    /**
+     * Delete partition files under the hive directory that this run did not write, then the
+     * partition directories left empty; hidden entries (other runs' staging) are left alone
+     */
+    private void removeStaleHivePartitions() throws IOException {
+        Set<Path> written = new HashSet<>();
+        for (Partition partition : partitions.values()) {
+            written.add(partition.target);
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(baseDir)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        int removed = 0;
+        for (Path path : paths) {
+            if (path.equals(baseDir) || isHidden(baseDir.relativize(path))) {
+                continue;
+            }
+            String name = path.getFileName().toString();
+            if (Files.isDirectory(path)) {
+                if (name.contains("=")) {
+                    try (Stream<Path> entries = Files.list(path)) {
+                        if (entries.findAny().isEmpty()) {
+                            Files.delete(path);
+                        }
+                    }
+                }
+            } else if (name.toLowerCase().endsWith(extension) && !written.contains(path)) {
+                Files.delete(path);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} partition files of earlier runs from {}", removed, baseDir);
+        }
+    }
+
+    private static boolean isHidden(Path relative) {
+        for (Path part : relative) {
+            if (part.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Record the partition files of the "files" layout; a replacing run first deletes the files
+     * listed by earlier runs that it did not write itself
+     */
+    private void updateManifest() throws IOException {
+        Path manifest = baseDir.resolve("." + stem + extension + ".partitions");
+        Set<String> previous = new LinkedHashSet<>();
+        if (Files.exists(manifest)) {
+            for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    previous.add(line.trim());
+                }
+            }
+        }
+        Set<String> current = new TreeSet<>(partitions.keySet());
+        if (stagingDir != null) {
+            int removed = 0;
+            for (String name : previous) {
+                // Names come from our own manifest, but never follow one out of the directory
+                Path stale = baseDir.resolve(name).normalize();
+                if (!current.contains(name) && stale.getParent().equals(baseDir) && Files.deleteIfExists(stale)) {
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                logger.info("Removed {} partition files of earlier runs next to {}", removed, output.getFilePath());
+            }
+        } else {
+            current.addAll(previous);
+        }
+        Path temp = baseDir.resolve(manifest.getFileName() + ".tmp-" + UUID.randomUUID());
+        Files.write(temp, current, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (committed || columnOrder == null) {
+            return;
+        }
+        try {
+            closeOpenWriters();
+        } finally {
+            if (stagingDir != null) {
+                deleteStaging();
+                logger.warn("Discarded partially written partitioned CSV output: {}", baseDir);
+            } else {
+                for (Partition partition : partitions.values()) {
+                    partition.rollBack();
+                }
+                logger.warn("Rolled back rows appended to partitioned CSV output: {}", baseDir);
+            }
+        }
+    }
+
+    private void closeOpenWriters() throws IOException {
+        IOException failure = null;
+        for (Partition partition : open.values()) {
+            try {
+                partition.closeWriter();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        open.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void deleteStaging() throws IOException {
+        if (stagingDir == null || !Files.exists(stagingDir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(stagingDir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * One partition's file; its writer is only open while the partition holds a handle
+     */
+    private class Partition {
+        private final Path target;
+        private final Path file;
+        private CsvWriter writer;
+        // Size of the target before an append run (-1 when writing to staging), 0 for a new file
+        private long appendOffset = -1;
+        private boolean existed;
+
+        Partition(Path target, Path file) {
+            this.target = target;
+            this.file = file;
+        }
+
+        void openWriter() throws IOException {
+            Files.createDirectories(file.getParent());
+            boolean empty = !Files.exists(file) || Files.size(file) == 0;
+            if (stagingDir == null && appendOffset < 0) {
+                existed = Files.exists(file);
+                appendOffset = existed ? Files.size(file) : 0;
+            }
+            OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            // Partitions are already written in parallel, so each one compresses on its own thread
+            writer = output.newCsvWriter(out, null);
+            if (empty && output.isIncludeHeaders()) {
+                for (String column : columnOrder) {
+                    writer.writeField(column);
+                }
+                writer.endRecord();
+            }
+        }
+
+        void write(List<Map<String, Object>> rows) throws IOException {
+            for (Map<String, Object> row : rows) {
+                for (String column : columnOrder) {
+                    writer.writeValue(row.get(column));
+                }
+                writer.endRecord();
+            }
+        }
+
+        void closeWriter() throws IOException {
+            if (writer != null) {
+                CsvWriter closing = writer;
+                writer = null;
+                closing.close();
+            }
+        }
+
+        void rollBack() throws IOException {
+            if (appendOffset < 0 || !Files.exists(file)) {
+                return;
+            }
+            if (!existed) {
+                Files.delete(file);
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(appendOffset);
+            }
+        }
+    }
+}
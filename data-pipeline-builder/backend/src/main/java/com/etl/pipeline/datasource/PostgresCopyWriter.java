@@ -0,0 +1,122 @@
+package com.etl.pipeline.datasource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk load into a PostgreSQL table with COPY ... FROM STDIN.
+ *
+ * Rows are CSV-encoded straight into the driver's copy stream, so the server parses one continuous
+ * stream in a single statement instead of executing an INSERT per row. The whole load is one
+ * transaction. In COPY's CSV format a bare empty field is NULL, so empty strings (and a lone "\."
+ * which would end the data) are always written quoted.
+ */
+public class PostgresCopyWriter implements SqlTableWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Connection conn;
+    private final List<String> columns;
+    private final boolean autoCommit;
+    private final CopyIn copyIn;
+    private final CsvWriter csv;
+    private final long startNanos = System.nanoTime();
+
+    private long rows;
+    private long elapsedNanos = -1;
+
+    public PostgresCopyWriter(Connection conn, String tableName, List<String> columns) throws SQLException {
+        this.conn = conn;
+        this.columns = columns;
+        PGConnection pg = conn.unwrap(PGConnection.class);
+
+        String sql = "COPY " + tableName + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        this.autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            this.copyIn = pg.getCopyAPI().copyIn(sql);
+        } catch (SQLException e) {
+            // close() never runs for a writer that failed to open, and a caller falling back to
+            // batched inserts reuses the connection, which must not be left in an aborted transaction
+            try {
+                conn.rollback();
+                conn.setAutoCommit(autoCommit);
+            } catch (SQLException restoreError) {
+                e.addSuppressed(restoreError);
+            }
+            throw e;
+        }
+        this.csv = new CsvWriter(new OutputStreamWriter(new PGCopyOutputStream(copyIn, BUFFER_SIZE),
+                StandardCharsets.UTF_8), ',', '"', "\n");
+    }
+
+    @Override
+    public void write(List<Map<String, Object>> data) throws SQLException {
+        try {
+            for (Map<String, Object> row : data) {
+                for (String column : columns) {
+                    Object value = row.get(column);
+                    if (value == null) {
+                        csv.writeField("");
+                    } else if (value instanceof String && (((String) value).isEmpty() || value.equals("\\."))) {
+                        csv.writeQuoted((String) value);
+                    } else {
+                        csv.writeValue(value);
+                    }
+                }
+                csv.endRecord();
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new SQLException("COPY into PostgreSQL failed: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void finish() throws SQLException {
+        try {
+            csv.flush();
+        } catch (IOException e) {
+            throw new SQLException("COPY into PostgreSQL failed: " + e.getMessage(), e);
+        }
+        copyIn.endCopy();
+        conn.commit();
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long nanos = elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("method", "copy");
+        metrics.put("rows", rows);
+        metrics.put("commits", elapsedNanos >= 0 ? 1 : 0);
+        metrics.put("writeMs", nanos / 1_000_000);
+        metrics.put("rowsPerSecond", nanos > 0 ? Math.round(rows * 1e9 / nanos) : 0);
+        return metrics;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (elapsedNanos < 0) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                conn.rollback();
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+}
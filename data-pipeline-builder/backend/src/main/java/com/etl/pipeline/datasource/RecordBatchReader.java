@@ -0,0 +1,88 @@
+package com.etl.pipeline.datasource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming read side of a {@link DataSource}: rows are pulled in batches so a source never has
+ * to hold its whole dataset in memory. Readers own open files/connections and must be closed.
+ */
+public interface RecordBatchReader extends AutoCloseable {
+
+    /**
+     * @return the next non-empty batch, or null when the source is exhausted
+     */
+    List<Map<String, Object>> nextBatch() throws Exception;
+
+    @Override
+    void close() throws Exception;
+
+    /**
+     * Reader over rows that are already in memory
+     */
+    static RecordBatchReader of(List<Map<String, Object>> rows, int batchSize) {
+        return new RecordBatchReader() {
+            private int position;
+
+            @Override
+            public List<Map<String, Object>> nextBatch() {
+                if (position >= rows.size()) {
+                    return null;
+                }
+                int end = Math.min(rows.size(), position + Math.max(1, batchSize));
+                List<Map<String, Object>> batch = rows.subList(position, end);
+                position = end;
+                return batch;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Reader that ends after the first {@code limit} rows of another; closing it closes the other
+     */
+    static RecordBatchReader limit(RecordBatchReader reader, long limit) {
+        return new RecordBatchReader() {
+            private long remaining = limit;
+
+            @Override
+            public List<Map<String, Object>> nextBatch() throws Exception {
+                if (remaining <= 0) {
+                    return null;
+                }
+                List<Map<String, Object>> batch = reader.nextBatch();
+                if (batch == null) {
+                    return null;
+                }
+                if (batch.size() > remaining) {
+                    batch = batch.subList(0, (int) remaining);
+                }
+                remaining -= batch.size();
+                return batch;
+            }
+
+            @Override
+            public void close() throws Exception {
+                reader.close();
+            }
+        };
+    }
+
+    /**
+     * Drain and close the reader
+     */
+    static List<Map<String, Object>> readAll(RecordBatchReader reader) throws Exception {
+        try (reader) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            List<Map<String, Object>> batch;
+            while ((batch = reader.nextBatch()) != null) {
+                rows.addAll(batch);
+            }
+            return rows;
+        }
+    }
+}
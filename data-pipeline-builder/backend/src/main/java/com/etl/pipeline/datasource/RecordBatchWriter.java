@@ -0,0 +1,21 @@
+package com.etl.pipeline.datasource;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming write side of a {@link DataSource}: open, write any number of batches, then commit.
+ * Closing a writer that was not committed discards what it wrote where the sink supports it.
+ */
+public interface RecordBatchWriter extends AutoCloseable {
+
+    void writeBatch(List<Map<String, Object>> batch) throws Exception;
+
+    /**
+     * Make all written batches durable/visible; called once after the last batch
+     */
+    void commit() throws Exception;
+
+    @Override
+    void close() throws Exception;
+}
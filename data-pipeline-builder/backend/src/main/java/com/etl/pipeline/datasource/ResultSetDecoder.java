@@ -0,0 +1,151 @@
+package com.etl.pipeline.datasource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes JDBC result sets into batches of rows typed like every other source.
+ *
+ * Column metadata is read once: each column gets a decoder chosen by its SQL type that reads the
+ * value with the matching typed getter (getLong, getDouble, getBigDecimal, ...) and yields the
+ * pipeline's value types (Long, Double, BigDecimal, Boolean, LocalDate, LocalDateTime, String)
+ * rather than whatever the driver's getObject returns (Integer, Timestamp, java.sql.Date, ...).
+ * Values are decoded straight into the row maps, with no intermediate copy.
+ *
+ * SQLite columns are typed per value rather than per column (an INTEGER column may hold text,
+ * which getLong would silently read as 0), so for SQLite every column is read with getObject and
+ * only the value classes are normalized.
+ */
+public class ResultSetDecoder {
+
+    @FunctionalInterface
+    private interface ColumnDecoder {
+        Object decode(ResultSet rs, int column) throws SQLException;
+    }
+
+    private final String[] columnLabels;
+    private final ColumnDecoder[] decoders;
+
+    public ResultSetDecoder(ResultSetMetaData metaData, SqlDialect dialect) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        this.columnLabels = new String[columnCount];
+        this.decoders = new ColumnDecoder[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columnLabels[i] = metaData.getColumnLabel(i + 1);
+            decoders[i] = dialect == SqlDialect.SQLITE ? ResultSetDecoder::normalized : decoderFor(metaData, i + 1);
+        }
+    }
+
+    public String[] getColumnLabels() {
+        return columnLabels;
+    }
+
+    /**
+     * Decode up to batchSize rows from the cursor's current position
+     * @return the rows, fewer than batchSize (possibly none) once the result set is exhausted
+     */
+    public List<Map<String, Object>> readBatch(ResultSet rs, int batchSize) throws SQLException {
+        int capacity = (int) (columnLabels.length / 0.75f) + 1;
+        List<Map<String, Object>> rows = new ArrayList<>(Math.min(batchSize, 1024));
+        while (rows.size() < batchSize && rs.next()) {
+            Map<String, Object> row = new HashMap<>(capacity);
+            for (int c = 0; c < decoders.length; c++) {
+                row.put(columnLabels[c], decoders[c].decode(rs, c + 1));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static ColumnDecoder decoderFor(ResultSetMetaData metaData, int column) throws SQLException {
+        switch (metaData.getColumnType(column)) {
+            case Types.TINYINT: case Types.SMALLINT: case Types.INTEGER:
+                return ResultSetDecoder::longValue;
+            case Types.BIGINT:
+                // An unsigned BIGINT (MySQL) can exceed a long
+                return metaData.isSigned(column) ? ResultSetDecoder::longValue : ResultSetDecoder::decimalValue;
+            case Types.REAL: case Types.FLOAT: case Types.DOUBLE:
+                return ResultSetDecoder::doubleValue;
+            case Types.NUMERIC: case Types.DECIMAL: {
+                int precision = metaData.getPrecision(column);
+                int scale = metaData.getScale(column);
+                return scale == 0 && precision > 0 && precision <= 18 ? ResultSetDecoder::longValue : ResultSetDecoder::decimalValue;
+            }
+            case Types.BOOLEAN:
+                return ResultSetDecoder::booleanValue;
+            case Types.BIT:
+                // BIT(n > 1) is a bit string, not a flag
+                return metaData.getPrecision(column) <= 1 ? ResultSetDecoder::booleanValue : ResultSetDecoder::normalized;
+            case Types.DATE:
+                return ResultSetDecoder::dateValue;
+            case Types.TIMESTAMP:
+                return ResultSetDecoder::timestampValue;
+            case Types.CHAR: case Types.VARCHAR: case Types.LONGVARCHAR:
+            case Types.NCHAR: case Types.NVARCHAR: case Types.LONGNVARCHAR:
+            case Types.CLOB: case Types.NCLOB: case Types.TIME:
+                return ResultSet::getString;
+            default:
+                return ResultSetDecoder::normalized;
+        }
+    }
+
+    private static Object longValue(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object doubleValue(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object decimalValue(ResultSet rs, int column) throws SQLException {
+        return rs.getBigDecimal(column);
+    }
+
+    private static Object booleanValue(ResultSet rs, int column) throws SQLException {
+        boolean value = rs.getBoolean(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Object dateValue(ResultSet rs, int column) throws SQLException {
+        Date value = rs.getDate(column);
+        return value != null ? value.toLocalDate() : null;
+    }
+
+    private static Object timestampValue(ResultSet rs, int column) throws SQLException {
+        Timestamp value = rs.getTimestamp(column);
+        return value != null ? value.toLocalDateTime() : null;
+    }
+
+    /**
+     * getObject, with the driver's value classes mapped onto the pipeline's
+     */
+    private static Object normalized(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float) {
+            return ((Float) value).doubleValue();
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).toLocalDate();
+        }
+        if (value instanceof Time) {
+            return value.toString();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,226 @@
+package com.etl.pipeline.datasource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Column types for a SQL sink table, derived from one pass over every row it will receive.
+ *
+ * Rows arrive typed (sources parse values at ingest), so each column's type is the narrowest type
+ * that holds every non-null value: LONG, DOUBLE, DECIMAL (with the precision and scale seen),
+ * BOOLEAN, DATE, TIMESTAMP, or STRING with its longest length. Integers mixed with doubles widen
+ * to DOUBLE, integers mixed with decimals to DECIMAL, dates mixed with timestamps to TIMESTAMP;
+ * any other mix, and text, is STRING. A column with no values at all is STRING.
+ */
+public class SinkSchema {
+
+    /** Widest decimal every supported database can declare */
+    public static final int MAX_DECIMAL_PRECISION = 38;
+
+    private final List<Column> columns;
+
+    private SinkSchema(List<Column> columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * Scan the rows; columns are ordered by first appearance
+     */
+    public static SinkSchema scan(List<Map<String, Object>> rows) {
+        Map<String, Column> columns = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                Column column = columns.get(entry.getKey());
+                if (column == null) {
+                    column = new Column(entry.getKey());
+                    columns.put(entry.getKey(), column);
+                }
+                column.observe(entry.getValue());
+            }
+        }
+        for (Column column : columns.values()) {
+            column.finish(rows.size());
+        }
+        return new SinkSchema(new ArrayList<>(columns.values()));
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            names.add(column.name);
+        }
+        return names;
+    }
+
+    /**
+     * CREATE TABLE statement with each column's type in the dialect
+     */
+    public String createTableSql(SqlDialect dialect, String tableName) {
+        return createTableSql(dialect, tableName, Collections.emptyList(), false);
+    }
+
+    /**
+     * CREATE TABLE statement for a table later runs append or upsert to: column types hold any
+     * text length and decimals with room to spare (see {@link SqlDialect#columnType(Column, boolean)}),
+     * with a primary key on the key columns, if any
+     */
+    public String createGrowableTableSql(SqlDialect dialect, String tableName, List<String> keyColumns) {
+        return createTableSql(dialect, tableName, keyColumns, true);
+    }
+
+    private String createTableSql(SqlDialect dialect, String tableName, List<String> keyColumns, boolean growable) {
+        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(tableName).append(" (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            Column column = columns.get(i);
+            String type = keyColumns.contains(column.name) ? dialect.keyColumnType(column)
+                    : growable ? dialect.columnType(column, true) : dialect.columnType(column);
+            sql.append(dialect.quoteIdentifier(column.name)).append(' ').append(type);
+        }
+        if (!keyColumns.isEmpty()) {
+            sql.append(", PRIMARY KEY (");
+            for (int i = 0; i < keyColumns.size(); i++) {
+                sql.append(i > 0 ? ", " : "").append(dialect.quoteIdentifier(keyColumns.get(i)));
+            }
+            sql.append(')');
+        }
+        return sql.append(')').toString();
+    }
+
+    public static class Column {
+        private final String name;
+        private ColumnType type;
+        private boolean mixed;
+        private long values;
+        private boolean nullable;
+        private int maxLength;
+        private int integerDigits;
+        private int scale;
+
+        Column(String name) {
+            this.name = name;
+        }
+
+        void observe(Object value) {
+            if (value == null) {
+                return;
+            }
+            values++;
+            ColumnType valueType = typeOf(value);
+            if (valueType == ColumnType.STRING) {
+                maxLength = Math.max(maxLength, value instanceof String ? ((String) value).length() : ColumnType.format(value).length());
+            } else if (valueType == ColumnType.DECIMAL) {
+                BigDecimal decimal = value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal((BigInteger) value);
+                scale = Math.max(scale, Math.max(0, decimal.scale()));
+                integerDigits = Math.max(integerDigits, decimal.precision() - decimal.scale());
+            } else if (valueType == ColumnType.LONG) {
+                integerDigits = Math.max(integerDigits, digits(((Number) value).longValue()));
+            }
+            ColumnType widened = type == null ? valueType : widen(type, valueType);
+            if (widened == ColumnType.STRING && (valueType != ColumnType.STRING || type != null && type != ColumnType.STRING)) {
+                // Lengths are only tracked for text, so a column mixing in other values gets unbounded text
+                mixed = true;
+            }
+            type = widened;
+        }
+
+        void finish(long rows) {
+            nullable = values < rows;
+            if (type == null) {
+                type = ColumnType.STRING;
+            }
+            if (type == ColumnType.DECIMAL && integerDigits + scale > MAX_DECIMAL_PRECISION) {
+                type = ColumnType.DOUBLE;
+            }
+        }
+
+        private static ColumnType typeOf(Object value) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return ColumnType.LONG;
+            }
+            if (value instanceof Double || value instanceof Float) {
+                return ColumnType.DOUBLE;
+            }
+            if (value instanceof BigDecimal || value instanceof BigInteger) {
+                return ColumnType.DECIMAL;
+            }
+            if (value instanceof Boolean) {
+                return ColumnType.BOOLEAN;
+            }
+            if (value instanceof LocalDate) {
+                return ColumnType.DATE;
+            }
+            if (value instanceof LocalDateTime) {
+                return ColumnType.TIMESTAMP;
+            }
+            return ColumnType.STRING;
+        }
+
+        private static ColumnType widen(ColumnType current, ColumnType next) {
+            if (current == next) {
+                return current;
+            }
+            EnumSet<ColumnType> pair = EnumSet.of(current, next);
+            if (pair.equals(EnumSet.of(ColumnType.LONG, ColumnType.DOUBLE))
+                    || pair.equals(EnumSet.of(ColumnType.DECIMAL, ColumnType.DOUBLE))) {
+                return ColumnType.DOUBLE;
+            }
+            if (pair.equals(EnumSet.of(ColumnType.LONG, ColumnType.DECIMAL))) {
+                return ColumnType.DECIMAL;
+            }
+            if (pair.equals(EnumSet.of(ColumnType.DATE, ColumnType.TIMESTAMP))) {
+                return ColumnType.TIMESTAMP;
+            }
+            return ColumnType.STRING;
+        }
+
+        private static int digits(long value) {
+            int digits = 1;
+            while (value >= 10 || value <= -10) {
+                value /= 10;
+                digits++;
+            }
+            return digits;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ColumnType getType() {
+            return type;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+
+        /**
+         * Longest text of a STRING column in characters, Integer.MAX_VALUE if the column mixes
+         * text with other values
+         */
+        public int getMaxLength() {
+            return mixed ? Integer.MAX_VALUE : maxLength;
+        }
+
+        /**
+         * Most digits before the decimal point of a LONG or DECIMAL column
+         */
+        public int getIntegerDigits() {
+            return integerDigits;
+        }
+
+        public int getScale() {
+            return scale;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.etl.pipeline.datasource;
 
 import java.util.*;
 import java.sql.*;
+import com.etl.pipeline.service.ConnectionProfileRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,11 +15,13 @@ public class SqlDatabaseOutput implements DataSource {
     
     private final DataSourceType type;
     private final Map<String, Object> config;
+    private final ConnectionProfileRegistry connections;
     private Connection connection;
     
-    public SqlDatabaseOutput(DataSourceType type, Map<String, Object> config) {
+    public SqlDatabaseOutput(DataSourceType type, Map<String, Object> config, ConnectionProfileRegistry connections) {
         this.type = type;
         this.config = config;
+        this.connections = connections;
     }
     
     @Override
@@ -56,7 +59,7 @@ public class SqlDatabaseOutput implements DataSource {
                 return false;
             }
             
-            try (Connection testConn = DriverManager.getConnection(connectionString, username, password)) {
+            try (Connection testConn = connections.getConnection(connectionString, username, password)) {
                 return testConn.isValid(5); // 5 second timeout
             }
         } catch (Exception e) {
@@ -1,18 +1,32 @@
 package com.etl.pipeline.datasource;
 
+import com.etl.pipeline.service.ConnectionProfileRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * SQL Database source implementation
  * Supports MySQL, PostgreSQL, SQLite, SQL Server, Oracle
+ *
+ * With a "partitionColumn" the query is split into "numPartitions" (default 4) partitions read
+ * concurrently over pooled connections. Numeric columns are split into ranges between
+ * "lowerBound" and "upperBound" (looked up with MIN/MAX when not given; the bounds only set the
+ * stride, the first and last ranges are open-ended). Other columns, or "partitionMode": "hash",
+ * are split by a hash of the value modulo the partition count. Rows with a null key go to the
+ * first partition. Batches of different partitions arrive interleaved.
  */
 public class SqlDatabaseSource implements DataSource {
     
     private static final Logger logger = LoggerFactory.getLogger(SqlDatabaseSource.class);
+    private static final int DEFAULT_PARTITIONS = 4;
     private final Map<String, Object> config;
     private final DataSourceType databaseType;
     private final String connectionString;
@@ -20,8 +34,13 @@ public class SqlDatabaseSource implements DataSource {
     private final String password;
     private final String query;
     private final String tableName;
+    private final String connectionProfile;
+    private final String partitionColumn;
+    private final ConnectionProfileRegistry connections;
+    private final ExecutorService ioExecutor;
     
-    public SqlDatabaseSource(DataSourceType type, Map<String, Object> config) {
+    public SqlDatabaseSource(DataSourceType type, Map<String, Object> config, ConnectionProfileRegistry connections,
+                             ExecutorService ioExecutor) {
         this.config = config;
         this.databaseType = type;
         this.connectionString = (String) config.get("connectionString");
@@ -29,41 +48,291 @@ public class SqlDatabaseSource implements DataSource {
         this.password = (String) config.get("password");
         this.query = (String) config.get("query");
         this.tableName = (String) config.get("tableName");
+        this.connectionProfile = (String) config.get("connectionProfile");
+        this.partitionColumn = (String) config.get("partitionColumn");
+        this.connections = connections;
+        this.ioExecutor = ioExecutor;
     }
     
     @Override
     public List<Map<String, Object>> read() throws Exception {
-        String sqlQuery = buildQuery();
-        logger.info("Executing SQL query: {}", sqlQuery);
-        
-        List<Map<String, Object>> data = new ArrayList<>();
+        List<Map<String, Object>> data = RecordBatchReader.readAll(openReader(DEFAULT_BATCH_SIZE));
+        logger.info("Successfully read {} records from database", data.size());
+        return data;
+    }
+    
+    /**
+     * Stream the query result, partitioned if the node has a partition column; connections stay
+     * open until the reader is closed
+     */
+    @Override
+    public RecordBatchReader openReader(int batchSize) throws Exception {
+        if (partitionColumn != null && !partitionColumn.isBlank()) {
+            return openPartitioned(batchSize);
+        }
+        return stream(buildQuery(), batchSize, 0);
+    }
+    
+    /**
+     * Stream at most {@code limit} rows: the limit goes to the driver as the statement's max rows
+     * (which the MySQL, PostgreSQL and SQL Server drivers pass on to the server), and a reader
+     * closed before the end cancels the statement instead of draining the rest of the result
+     */
+    @Override
+    public RecordBatchReader openReader(int batchSize, long limit) throws Exception {
+        if (limit <= 0) {
+            return RecordBatchReader.of(new ArrayList<>(), batchSize);
+        }
+        // Partitions would each run up to the limit, so a limited read stays sequential
+        return stream(buildQuery(), batchSize, limit);
+    }
+    
+    /**
+     * @param limit maximum rows, or 0 for the whole result
+     */
+    private RecordBatchReader stream(String sqlQuery, int batchSize, long limit) throws SQLException {
+        logger.info("Executing SQL query: {}{}", sqlQuery, limit > 0 && limit < Integer.MAX_VALUE ? " (max rows " + limit + ")" : "");
         
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sqlQuery);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            ResultSetMetaData metaData = rs.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            while (rs.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnLabel(i);
-                    Object value = rs.getObject(i);
-                    row.put(columnName, value);
-                }
-                data.add(row);
+        Connection conn = getConnection();
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            SqlDialect dialect = SqlDialect.fromUrl(conn.getMetaData().getURL());
+            if (dialect != null && dialect.cursorNeedsTransaction()) {
+                conn.setAutoCommit(false);
             }
-            
-            logger.info("Successfully read {} records from database", data.size());
-            return data;
-            
+            PreparedStatement stmt = conn.prepareStatement(sqlQuery, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (limit > 0 && limit < Integer.MAX_VALUE) {
+                stmt.setMaxRows((int) limit);
+            }
+            int fetchSize = (int) Math.max(1, limit > 0 ? Math.min(fetchSize(batchSize), limit) : fetchSize(batchSize));
+            stmt.setFetchSize(dialect != null ? dialect.streamingFetchSize(fetchSize) : fetchSize);
+            ResultSet rs = stmt.executeQuery();
+            return new ResultSetBatchReader(conn, autoCommit, stmt, rs, new ResultSetDecoder(rs.getMetaData(), dialect), batchSize);
         } catch (SQLException e) {
             logger.error("Error reading from database", e);
+            try (conn) {
+                conn.setAutoCommit(autoCommit);
+            }
             throw e;
         }
     }
     
+    /**
+     * Rows per round trip: the node's "fetchSize", otherwise one batch
+     */
+    private int fetchSize(int batchSize) {
+        Number configured = numberConfig("fetchSize");
+        return configured != null ? Math.max(1, configured.intValue()) : batchSize;
+    }
+    
+    /**
+     * Split the query on the partition column and read the partitions concurrently, at most as
+     * many at once as the connection pool allows
+     */
+    private RecordBatchReader openPartitioned(int batchSize) throws Exception {
+        String baseQuery = buildQuery();
+        Number configuredPartitions = numberConfig("numPartitions");
+        int partitions = Math.max(1, configuredPartitions != null ? configuredPartitions.intValue() : DEFAULT_PARTITIONS);
+        String mode = config.get("partitionMode") != null ? config.get("partitionMode").toString().trim().toLowerCase() : "auto";
+        if (!mode.equals("auto") && !mode.equals("range") && !mode.equals("hash")) {
+            throw new IllegalArgumentException("Unknown partition mode: " + mode + " (expected auto, range or hash)");
+        }
+        
+        List<String> predicates;
+        try (Connection conn = getConnection()) {
+            SqlDialect dialect = SqlDialect.fromUrl(conn.getMetaData().getURL());
+            Object lower = null;
+            Object upper = null;
+            if (!mode.equals("hash")) {
+                lower = numberConfig("lowerBound");
+                upper = numberConfig("upperBound");
+                if (lower == null || upper == null) {
+                    Object[] bounds = columnBounds(conn, baseQuery);
+                    lower = lower != null ? lower : bounds[0];
+                    upper = upper != null ? upper : bounds[1];
+                    if (lower == null || upper == null) {
+                        // No non-null keys: nothing to split
+                        partitions = 1;
+                    }
+                }
+            }
+            
+            if (partitions == 1) {
+                predicates = Collections.singletonList(null);
+            } else if (lower instanceof Number && upper instanceof Number) {
+                predicates = rangePredicates((Number) lower, (Number) upper, partitions);
+            } else if (mode.equals("range")) {
+                throw new IllegalArgumentException("Partition column " + partitionColumn
+                        + " is not numeric; use partitionMode \"hash\" or give numeric bounds");
+            } else if (dialect == null) {
+                throw new IllegalArgumentException("Hash partitioning is not supported for " + conn.getMetaData().getURL());
+            } else if (dialect.hashesOnlyIntegers() && !isIntegralColumn(conn, baseQuery, lower, upper, mode)) {
+                // Every non-integer key would hash to the first partition and leave the others empty
+                logger.warn("{} can only hash integer keys and partition column {} is not integral, reading one partition",
+                        dialect.getName(), partitionColumn);
+                predicates = Collections.singletonList(null);
+            } else {
+                predicates = hashPredicates(dialect, partitions);
+            }
+        }
+        
+        List<Callable<RecordBatchReader>> parts = new ArrayList<>();
+        for (String predicate : predicates) {
+            String partitionQuery = predicate == null ? baseQuery
+                    : "SELECT * FROM (" + baseQuery + ") p WHERE " + predicate;
+            parts.add(() -> stream(partitionQuery, batchSize, 0));
+        }
+        int concurrency = Math.min(parts.size(), connections.getMaxPoolSize());
+        logger.info("Reading {} partitions on {} of {} concurrently", parts.size(), partitionColumn, concurrency);
+        return new ConcurrentBatchReader(parts, ioExecutor, concurrency);
+    }
+    
+    /**
+     * Whether the partition column holds only integers, judged by its bounds: in SQLite text sorts
+     * after every number, so a text value shows up as a non-integral maximum
+     */
+    private boolean isIntegralColumn(Connection conn, String baseQuery, Object lower, Object upper,
+                                     String mode) throws SQLException {
+        if (mode.equals("hash")) {
+            Object[] bounds = columnBounds(conn, baseQuery);
+            lower = bounds[0];
+            upper = bounds[1];
+        }
+        return lower instanceof Number && upper instanceof Number
+                && isIntegral((Number) lower) && isIntegral((Number) upper);
+    }
+    
+    private Object[] columnBounds(Connection conn, String baseQuery) throws SQLException {
+        String sql = "SELECT MIN(" + partitionColumn + "), MAX(" + partitionColumn + ") FROM (" + baseQuery + ") p";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            Object[] bounds = {rs.getObject(1), rs.getObject(2)};
+            logger.info("Partition column {} ranges from {} to {}", partitionColumn, bounds[0], bounds[1]);
+            return bounds;
+        }
+    }
+    
+    /**
+     * Equal-width ranges over [lower, upper]; integral bounds give integral range limits
+     */
+    private List<String> rangePredicates(Number lower, Number upper, int partitions) {
+        boolean integral = isIntegral(lower) && isIntegral(upper);
+        BigDecimal low = new BigDecimal(lower.toString());
+        BigDecimal width = new BigDecimal(upper.toString()).subtract(low);
+        if (integral) {
+            // No more partitions than distinct keys
+            partitions = (int) Math.max(1, Math.min(partitions, width.longValue() + 1));
+        }
+        if (partitions == 1 || width.signum() <= 0) {
+            return Collections.singletonList(null);
+        }
+        
+        String[] limits = new String[partitions];
+        for (int i = 1; i < partitions; i++) {
+            BigDecimal limit = low.add(width.multiply(BigDecimal.valueOf(i)).divide(BigDecimal.valueOf(partitions), 10, RoundingMode.HALF_UP));
+            limits[i] = integral ? limit.setScale(0, RoundingMode.CEILING).toPlainString() : limit.stripTrailingZeros().toPlainString();
+        }
+        List<String> predicates = new ArrayList<>();
+        predicates.add("(" + partitionColumn + " < " + limits[1] + " OR " + partitionColumn + " IS NULL)");
+        for (int i = 1; i < partitions - 1; i++) {
+            predicates.add(partitionColumn + " >= " + limits[i] + " AND " + partitionColumn + " < " + limits[i + 1]);
+        }
+        predicates.add(partitionColumn + " >= " + limits[partitions - 1]);
+        return predicates;
+    }
+    
+    private List<String> hashPredicates(SqlDialect dialect, int partitions) {
+        String bucket = dialect.hashBucket(partitionColumn, partitions);
+        List<String> predicates = new ArrayList<>();
+        predicates.add("(" + bucket + " = 0 OR " + partitionColumn + " IS NULL)");
+        for (int i = 1; i < partitions; i++) {
+            predicates.add(bucket + " = " + i);
+        }
+        return predicates;
+    }
+    
+    private static boolean isIntegral(Number value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().scale() <= 0;
+        }
+        return value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte || value instanceof BigInteger;
+    }
+    
+    /**
+     * A numeric config value given as a number or as text
+     */
+    private Number numberConfig(String key) {
+        Object configured = config.get(key);
+        if (configured instanceof Number) {
+            return (Number) configured;
+        }
+        if (configured instanceof String && !((String) configured).isBlank()) {
+            return new BigDecimal(((String) configured).trim());
+        }
+        return null;
+    }
+    
+    private static class ResultSetBatchReader implements RecordBatchReader {
+        private final Connection conn;
+        private final boolean autoCommit;
+        private final PreparedStatement stmt;
+        private final ResultSet rs;
+        private final ResultSetDecoder decoder;
+        private final int batchSize;
+        private boolean exhausted;
+        
+        ResultSetBatchReader(Connection conn, boolean autoCommit, PreparedStatement stmt, ResultSet rs,
+                             ResultSetDecoder decoder, int batchSize) {
+            this.conn = conn;
+            this.autoCommit = autoCommit;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.decoder = decoder;
+            this.batchSize = Math.max(1, batchSize);
+        }
+        
+        @Override
+        public List<Map<String, Object>> nextBatch() throws SQLException {
+            if (exhausted) {
+                return null;
+            }
+            List<Map<String, Object>> batch;
+            try {
+                batch = decoder.readBatch(rs, batchSize);
+            } catch (SQLException e) {
+                logger.error("Error reading from database", e);
+                throw e;
+            }
+            if (batch.size() < batchSize) {
+                exhausted = true;
+            }
+            return batch.isEmpty() ? null : batch;
+        }
+        
+        @Override
+        public void close() throws SQLException {
+            if (!exhausted) {
+                // Stop the server producing rows nobody will read
+                try {
+                    stmt.cancel();
+                } catch (SQLException e) {
+                    logger.debug("Could not cancel query: {}", e.getMessage());
+                }
+            }
+            try (conn) {
+                try (stmt; rs) {
+                    // Closed in reverse order: result set, statement
+                }
+                if (conn.getAutoCommit() != autoCommit) {
+                    // End the cursor's read-only transaction before the connection goes back to the pool
+                    conn.rollback();
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }
+    }
+    
     @Override
     public void write(List<Map<String, Object>> data) throws Exception {
         throw new UnsupportedOperationException("SQL source is read-only. Use SqlDatabaseOutput for writing.");
@@ -108,15 +377,18 @@ public class SqlDatabaseSource implements DataSource {
         }
     }
     
+    /**
+     * Borrow a pooled connection, from the node's named connection profile if it has one
+     */
     private Connection getConnection() throws SQLException {
+        if (connectionProfile != null && !connectionProfile.isBlank()) {
+            logger.info("Connecting to database with profile: {}", connectionProfile);
+            return connections.getConnection(connectionProfile);
+        }
+        
         String url = buildConnectionUrl();
         logger.info("Connecting to database: {}", url);
-        
-        if (username != null && password != null) {
-            return DriverManager.getConnection(url, username, password);
-        } else {
-            return DriverManager.getConnection(url);
-        }
+        return connections.getConnection(url, username, password);
     }
     
     private String buildConnectionUrl() {
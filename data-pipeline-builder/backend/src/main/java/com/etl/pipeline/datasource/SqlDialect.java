@@ -0,0 +1,456 @@
+package com.etl.pipeline.datasource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-database settings for writing to SQL sinks.
+ *
+ * Each dialect names the driver URL property that turns a JDBC batch into fewer network round
+ * trips (the MySQL and PostgreSQL drivers otherwise send every batched row as its own statement)
+ * and the batch size to start from when a node does not choose one, and whether the sink has a
+ * native bulk-load path (COPY for PostgreSQL, a relaxed-durability single transaction for SQLite).
+ */
+public enum SqlDialect {
+    SQLITE("sqlite", null, 5000, true),
+    MYSQL("mysql", "rewriteBatchedStatements", 1000, false),
+    POSTGRESQL("postgresql", "reWriteBatchedInserts", 1000, true),
+    SQLSERVER("sqlserver", "useBulkCopyForBatchInsert", 1000, false),
+    ORACLE("oracle", null, 1000, false);
+
+    private final String name;
+    private final String batchUrlProperty;
+    private final int defaultBatchSize;
+    private final boolean bulkLoad;
+
+    SqlDialect(String name, String batchUrlProperty, int defaultBatchSize, boolean bulkLoad) {
+        this.name = name;
+        this.batchUrlProperty = batchUrlProperty;
+        this.defaultBatchSize = defaultBatchSize;
+        this.bulkLoad = bulkLoad;
+    }
+
+    /**
+     * @param databaseType the databaseType of a SQL node ("mssql" is accepted for SQL Server)
+     */
+    public static SqlDialect of(String databaseType) {
+        if (databaseType != null) {
+            String type = databaseType.trim().toLowerCase();
+            if (type.equals("mssql")) {
+                return SQLSERVER;
+            }
+            for (SqlDialect dialect : values()) {
+                if (dialect.name.equals(type)) {
+                    return dialect;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported database type: " + databaseType);
+    }
+
+    /**
+     * The dialect of a JDBC URL, or null for a driver without dialect settings
+     */
+    public static SqlDialect fromUrl(String url) {
+        if (url != null) {
+            String lower = url.trim().toLowerCase();
+            for (SqlDialect dialect : values()) {
+                if (lower.startsWith("jdbc:" + dialect.name + ":")) {
+                    return dialect;
+                }
+            }
+        }
+        return null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getDefaultBatchSize() {
+        return defaultBatchSize;
+    }
+
+    public boolean supportsBulkLoad() {
+        return bulkLoad;
+    }
+
+    /**
+     * Add the dialect's batch rewriting property to a connection URL, unless the URL already sets it
+     */
+    public String withBatchOptions(String url) {
+        if (batchUrlProperty == null || url.toLowerCase().contains(batchUrlProperty.toLowerCase() + "=")) {
+            return url;
+        }
+        if (this == SQLSERVER) {
+            // SQL Server URLs separate properties with ';'
+            return url + (url.endsWith(";") ? "" : ";") + batchUrlProperty + "=true";
+        }
+        return url + (url.contains("?") ? "&" : "?") + batchUrlProperty + "=true";
+    }
+
+    /**
+     * Fetch size that makes the driver stream a result in round trips of about {@code rows} rows.
+     * MySQL's driver buffers the whole result for any positive fetch size unless cursor fetch is
+     * enabled on the URL; Integer.MIN_VALUE makes it stream row by row instead.
+     */
+    public int streamingFetchSize(int rows) {
+        return this == MYSQL ? Integer.MIN_VALUE : rows;
+    }
+
+    /**
+     * Whether the driver only honours the fetch size inside a transaction (PostgreSQL runs a
+     * server-side cursor only with autocommit off, and otherwise buffers the whole result)
+     */
+    public boolean cursorNeedsTransaction() {
+        return this == POSTGRESQL;
+    }
+
+    /**
+     * Whether concurrent connections can load one table at the same time (SQLite locks the whole
+     * database for each writer)
+     */
+    public boolean supportsConcurrentWriters() {
+        return this != SQLITE;
+    }
+
+    /**
+     * Column name as written in DDL (SQL Server names are bracketed, others are used as given)
+     */
+    public String quoteIdentifier(String name) {
+        return this == SQLSERVER ? "[" + name + "]" : name;
+    }
+
+    /**
+     * Statement dropping a table if it exists
+     */
+    public String dropTableSql(String tableName) {
+        switch (this) {
+            case SQLSERVER:
+                return "IF OBJECT_ID('" + tableName + "', 'U') IS NOT NULL DROP TABLE " + tableName;
+            case ORACLE:
+                return "BEGIN EXECUTE IMMEDIATE 'DROP TABLE " + tableName + "'; EXCEPTION WHEN OTHERS THEN NULL; END;";
+            default:
+                return "DROP TABLE IF EXISTS " + tableName;
+        }
+    }
+
+    /**
+     * Turn a CREATE TABLE statement into one that does nothing if the table already exists
+     */
+    public String createTableIfMissingSql(String createTableSql, String tableName) {
+        switch (this) {
+            case SQLSERVER:
+                return "IF OBJECT_ID('" + tableName + "', 'U') IS NULL " + createTableSql;
+            case ORACLE:
+                // ORA-00955: name is already used by an existing object
+                return "BEGIN EXECUTE IMMEDIATE '" + createTableSql.replace("'", "''")
+                        + "'; EXCEPTION WHEN OTHERS THEN IF SQLCODE != -955 THEN RAISE; END IF; END;";
+            default:
+                return createTableSql.replaceFirst("^CREATE TABLE ", "CREATE TABLE IF NOT EXISTS ");
+        }
+    }
+
+    /**
+     * Statement inserting a row, or updating the row with the same key if there is one. Each column
+     * is bound once, in the given order. The table needs a primary key or unique constraint on the
+     * key columns (SQL Server and Oracle MERGE match on the key columns without one).
+     */
+    public String upsertSql(String tableName, List<String> columns, List<String> keyColumns) {
+        return upsertSql(tableName, columns, keyColumns, null);
+    }
+
+    /**
+     * Statement upserting every row of sourceTable into the table, as {@link #upsertSql} does for
+     * one row. The source must hold at most one row per key.
+     */
+    public String upsertFromTableSql(String tableName, String sourceTable, List<String> columns, List<String> keyColumns) {
+        return upsertSql(tableName, columns, keyColumns, sourceTable);
+    }
+
+    /**
+     * Statement inserting every row of sourceTable into the table
+     */
+    public String insertFromTableSql(String tableName, String sourceTable, List<String> columns) {
+        String columnList = String.join(", ", columns);
+        return "INSERT INTO " + tableName + " (" + columnList + ") SELECT " + columnList + " FROM " + sourceTable;
+    }
+
+    /**
+     * @param sourceTable table to read the rows from, or null to bind one row's values
+     */
+    private String upsertSql(String tableName, List<String> columns, List<String> keyColumns, String sourceTable) {
+        List<String> updated = new ArrayList<>(columns);
+        updated.removeAll(keyColumns);
+        String columnList = String.join(", ", columns);
+        // SQLite needs a WHERE clause to tell ON CONFLICT from a join constraint after a SELECT
+        String rows = sourceTable == null
+                ? "VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")"
+                : "SELECT " + columnList + " FROM " + sourceTable + (this == MYSQL ? "" : " WHERE 1 = 1");
+        StringBuilder sql = new StringBuilder();
+        switch (this) {
+            case SQLITE:
+            case POSTGRESQL:
+                sql.append("INSERT INTO ").append(tableName).append(" (").append(columnList).append(") ")
+                        .append(rows).append(" ON CONFLICT (").append(String.join(", ", keyColumns)).append(") ");
+                if (updated.isEmpty()) {
+                    return sql.append("DO NOTHING").toString();
+                }
+                sql.append("DO UPDATE SET ");
+                appendAssignments(sql, updated, "excluded.", "");
+                return sql.toString();
+            case MYSQL:
+                sql.append("INSERT INTO ").append(tableName).append(" (").append(columnList).append(") ")
+                        .append(rows).append(" ON DUPLICATE KEY UPDATE ");
+                if (updated.isEmpty()) {
+                    String key = keyColumns.get(0);
+                    return sql.append(key).append(" = ").append(key).toString();
+                }
+                appendAssignments(sql, updated, "VALUES(", ")");
+                return sql.toString();
+            case SQLSERVER:
+            case ORACLE: {
+                sql.append("MERGE INTO ").append(tableName).append(this == ORACLE ? " target" : " AS target")
+                        .append(" USING ");
+                if (sourceTable != null) {
+                    sql.append(sourceTable);
+                } else {
+                    sql.append("(SELECT ");
+                    for (int i = 0; i < columns.size(); i++) {
+                        sql.append(i > 0 ? ", " : "").append("? ").append(this == ORACLE ? "" : "AS ").append(columns.get(i));
+                    }
+                    sql.append(this == ORACLE ? " FROM dual)" : ")");
+                }
+                sql.append(this == ORACLE ? " source ON (" : " AS source ON (");
+                for (int i = 0; i < keyColumns.size(); i++) {
+                    sql.append(i > 0 ? " AND " : "").append("target.").append(keyColumns.get(i))
+                            .append(" = source.").append(keyColumns.get(i));
+                }
+                sql.append(")");
+                if (!updated.isEmpty()) {
+                    sql.append(" WHEN MATCHED THEN UPDATE SET ");
+                    for (int i = 0; i < updated.size(); i++) {
+                        sql.append(i > 0 ? ", " : "").append("target.").append(updated.get(i))
+                                .append(" = source.").append(updated.get(i));
+                    }
+                }
+                sql.append(" WHEN NOT MATCHED THEN INSERT (").append(columnList).append(") VALUES (");
+                for (int i = 0; i < columns.size(); i++) {
+                    sql.append(i > 0 ? ", " : "").append("source.").append(columns.get(i));
+                }
+                sql.append(")");
+                // SQL Server requires MERGE to be terminated
+                return this == SQLSERVER ? sql.append(";").toString() : sql.toString();
+            }
+            default:
+                throw new IllegalStateException("No upsert statement for " + this);
+        }
+    }
+
+    private static void appendAssignments(StringBuilder sql, List<String> columns, String prefix, String suffix) {
+        for (int i = 0; i < columns.size(); i++) {
+            String column = columns.get(i);
+            sql.append(i > 0 ? ", " : "").append(column).append(" = ").append(prefix).append(column).append(suffix);
+        }
+    }
+
+    /**
+     * Statements renaming the table to {@code retired} and the staging table to the table's name,
+     * to be run in one transaction. PostgreSQL, SQLite and SQL Server roll DDL back with the
+     * transaction, so readers see either the old table or the new one; MySQL renames both in one
+     * atomic statement. Oracle commits each rename on its own, leaving a moment without the table.
+     */
+    public List<String> swapTablesSql(String tableName, String stagingTable, String retiredTable) {
+        switch (this) {
+            case MYSQL:
+                return List.of("RENAME TABLE " + tableName + " TO " + retiredTable + ", " + stagingTable + " TO " + tableName);
+            case SQLSERVER:
+                return List.of("EXEC sp_rename '" + tableName + "', '" + unqualified(retiredTable) + "'",
+                        "EXEC sp_rename '" + stagingTable + "', '" + unqualified(tableName) + "'");
+            default:
+                return List.of("ALTER TABLE " + tableName + " RENAME TO " + unqualified(retiredTable),
+                        "ALTER TABLE " + stagingTable + " RENAME TO " + unqualified(tableName));
+        }
+    }
+
+    /**
+     * Renames take the new name without its schema
+     */
+    private static String unqualified(String tableName) {
+        return tableName.substring(tableName.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Declared type of a sink column. SQLite stores dates and timestamps as ISO text and booleans
+     * as 0/1. Elsewhere text gets a generous fixed length (VARCHAR(255), NVARCHAR(4000),
+     * VARCHAR2(4000 CHAR)) and the unbounded type only when a value is longer, and decimals are
+     * DECIMAL(38, scale) with the widest scale seen, so the declared types do not depend on the
+     * exact lengths and digits of one run's rows.
+     */
+    public String columnType(SinkSchema.Column column) {
+        int length = column.getMaxLength();
+        String decimal = "(" + SinkSchema.MAX_DECIMAL_PRECISION + ", " + column.getScale() + ")";
+        switch (this) {
+            case SQLITE:
+                switch (column.getType()) {
+                    case LONG: case BOOLEAN: return "INTEGER";
+                    case DOUBLE: return "REAL";
+                    case DECIMAL: return "NUMERIC";
+                    default: return "TEXT";
+                }
+            case MYSQL:
+                switch (column.getType()) {
+                    case LONG: return "BIGINT";
+                    case DOUBLE: return "DOUBLE";
+                    case DECIMAL: return "DECIMAL" + decimal;
+                    case BOOLEAN: return "BOOLEAN";
+                    case DATE: return "DATE";
+                    case TIMESTAMP: return "DATETIME(6)";
+                    default: return length <= 255 ? "VARCHAR(255)" : length <= 16_000 ? "TEXT" : "LONGTEXT";
+                }
+            case POSTGRESQL:
+                switch (column.getType()) {
+                    case LONG: return "BIGINT";
+                    case DOUBLE: return "DOUBLE PRECISION";
+                    case DECIMAL: return "NUMERIC" + decimal;
+                    case BOOLEAN: return "BOOLEAN";
+                    case DATE: return "DATE";
+                    case TIMESTAMP: return "TIMESTAMP";
+                    default: return "TEXT";
+                }
+            case SQLSERVER:
+                switch (column.getType()) {
+                    case LONG: return "BIGINT";
+                    case DOUBLE: return "FLOAT";
+                    case DECIMAL: return "DECIMAL" + decimal;
+                    case BOOLEAN: return "BIT";
+                    case DATE: return "DATE";
+                    case TIMESTAMP: return "DATETIME2";
+                    default: return length <= 4000 ? "NVARCHAR(4000)" : "NVARCHAR(MAX)";
+                }
+            case ORACLE:
+                switch (column.getType()) {
+                    case LONG: return "NUMBER(19)";
+                    case DOUBLE: return "BINARY_DOUBLE";
+                    case DECIMAL: return "NUMBER" + decimal;
+                    case BOOLEAN: return "NUMBER(1)";
+                    case DATE: return "DATE";
+                    case TIMESTAMP: return "TIMESTAMP";
+                    default: return length <= 4000 ? "VARCHAR2(4000 CHAR)" : "CLOB";
+                }
+            default:
+                throw new IllegalStateException("No column types for " + this);
+        }
+    }
+
+    /**
+     * Declared type of a column in a table that later runs append or upsert to, whose values may
+     * be longer or have more digits than this run's: text is unbounded (TEXT, LONGTEXT,
+     * NVARCHAR(MAX), CLOB) and decimals keep at least 10 places of scale where the integer digits
+     * seen leave room
+     */
+    public String columnType(SinkSchema.Column column, boolean growable) {
+        if (!growable) {
+            return columnType(column);
+        }
+        switch (column.getType()) {
+            case STRING:
+                switch (this) {
+                    case MYSQL: return "LONGTEXT";
+                    case SQLSERVER: return "NVARCHAR(MAX)";
+                    case ORACLE: return "CLOB";
+                    default: return "TEXT";
+                }
+            case DECIMAL: {
+                int precision = SinkSchema.MAX_DECIMAL_PRECISION;
+                int scale = Math.max(column.getScale(), Math.min(10, precision - column.getIntegerDigits()));
+                return this == SQLITE ? "NUMERIC" : (this == ORACLE ? "NUMBER(" : this == POSTGRESQL ? "NUMERIC(" : "DECIMAL(")
+                        + precision + ", " + scale + ")";
+            }
+            default:
+                return columnType(column);
+        }
+    }
+
+    /**
+     * Declared type of a primary key column. Text keys need a length the database can index
+     * (MySQL 768 characters, SQL Server 450, Oracle 1000); longer values are rejected.
+     */
+    public String keyColumnType(SinkSchema.Column column) {
+        if (column.getType() != ColumnType.STRING) {
+            return columnType(column, true);
+        }
+        int limit;
+        String type;
+        switch (this) {
+            case MYSQL: limit = 768; type = "VARCHAR(768)"; break;
+            case SQLSERVER: limit = 450; type = "NVARCHAR(450)"; break;
+            case ORACLE: limit = 1000; type = "VARCHAR2(1000 CHAR)"; break;
+            default: return "TEXT";
+        }
+        if (column.getMaxLength() > limit) {
+            throw new IllegalArgumentException("Key column " + column.getName() + " has values longer than the "
+                    + limit + " characters " + name + " can index");
+        }
+        return type;
+    }
+
+    /**
+     * SQL expression putting each non-null value of a column into one of {@code buckets} buckets
+     * numbered from 0, for hash-partitioned reads. SQLite has no hash function, so its buckets are
+     * the integer value modulo the bucket count and only spread integer columns (see
+     * {@link #hashesOnlyIntegers()}).
+     */
+    public String hashBucket(String column, int buckets) {
+        switch (this) {
+            case MYSQL:
+                return "MOD(CRC32(" + column + "), " + buckets + ")";
+            case POSTGRESQL:
+                return "MOD(CAST(HASHTEXT(CAST(" + column + " AS TEXT)) AS BIGINT) + 2147483648, " + buckets + ")";
+            case SQLSERVER:
+                return "ABS(CAST(CHECKSUM(" + column + ") AS BIGINT)) % " + buckets;
+            case ORACLE:
+                return "ORA_HASH(" + column + ", " + (buckets - 1) + ")";
+            default:
+                return "((CAST(" + column + " AS INTEGER) % " + buckets + ") + " + buckets + ") % " + buckets;
+        }
+    }
+
+    /**
+     * Whether {@link #hashBucket} spreads only integer values; any other value lands in bucket 0
+     */
+    public boolean hashesOnlyIntegers() {
+        return this == SQLITE;
+    }
+
+    /**
+     * Driver properties that keep up to {@code size} prepared statements per connection, so a
+     * pooled connection parses a repeated statement once instead of on every prepare
+     */
+    public Map<String, String> statementCacheProperties(int size) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        switch (this) {
+            case MYSQL:
+                properties.put("cachePrepStmts", "true");
+                properties.put("prepStmtCacheSize", String.valueOf(size));
+                properties.put("prepStmtCacheSqlLimit", "2048");
+                break;
+            case POSTGRESQL:
+                properties.put("preparedStatementCacheQueries", String.valueOf(size));
+                break;
+            case SQLSERVER:
+                properties.put("disableStatementPooling", "false");
+                properties.put("statementPoolingCacheSize", String.valueOf(size));
+                break;
+            case ORACLE:
+                properties.put("oracle.jdbc.implicitStatementCacheSize", String.valueOf(size));
+                break;
+            default:
+                break;
+        }
+        return properties;
+    }
+}
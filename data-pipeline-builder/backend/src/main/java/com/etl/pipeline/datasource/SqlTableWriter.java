@@ -0,0 +1,28 @@
+package com.etl.pipeline.datasource;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads rows into an existing table over one connection. Nothing is visible to other sessions
+ * until finish() has committed; closing a writer that has not finished rolls back what is still
+ * open, so a failed load can be retried with another writer.
+ */
+public interface SqlTableWriter extends AutoCloseable {
+
+    void write(List<Map<String, Object>> data) throws SQLException;
+
+    /**
+     * Send whatever is still buffered and commit
+     */
+    void finish() throws SQLException;
+
+    /**
+     * How the rows were loaded ("method"), rows and rows per second
+     */
+    Map<String, Object> getMetrics();
+
+    @Override
+    void close() throws SQLException;
+}
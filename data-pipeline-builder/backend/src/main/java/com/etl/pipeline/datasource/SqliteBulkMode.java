@@ -0,0 +1,49 @@
+package com.etl.pipeline.datasource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Relaxed durability for one bulk load into SQLite.
+ *
+ * While open, the connection runs with synchronous=OFF and the rollback journal kept in memory, so
+ * the load does not wait on fsync or write a journal file. Pair it with a single transaction: a
+ * crash mid-load can then lose the load but not corrupt what was committed before. The previous
+ * settings are restored on close.
+ */
+public class SqliteBulkMode implements AutoCloseable {
+
+    private final Connection conn;
+    private final String journalMode;
+    private final String synchronous;
+
+    public SqliteBulkMode(Connection conn) throws SQLException {
+        this.conn = conn;
+        this.journalMode = pragma(conn, "journal_mode");
+        this.synchronous = pragma(conn, "synchronous");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA synchronous = OFF");
+            stmt.execute("PRAGMA journal_mode = MEMORY");
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (journalMode != null) {
+                stmt.execute("PRAGMA journal_mode = " + journalMode);
+            }
+            if (synchronous != null) {
+                stmt.execute("PRAGMA synchronous = " + synchronous);
+            }
+        }
+    }
+
+    private static String pragma(Connection conn, String name) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.etl.pipeline.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statistics of an uploaded dataset, computed while the upload was saved.
+ * Bound to the file's size and modification time: a profile that no longer matches them is stale.
+ * Distinct counts are HyperLogLog estimates; everything else is exact.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DatasetProfile {
+
+    private String filePath;
+    private long fileBytes;
+    private long lastModified;
+    private boolean compressed;
+    private String delimiter;
+    private String quote;
+    private boolean hasHeaders;
+    private long rowCount;
+    private List<ColumnProfile> columns = new ArrayList<>();
+    private long profiledAt;
+    private long profileTimeMs;
+
+    // Constructors
+    public DatasetProfile() {}
+
+    public DatasetProfile(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * @return the column's statistics, or null if the dataset has no such column
+     */
+    public ColumnProfile findColumn(String name) {
+        for (ColumnProfile column : columns) {
+            if (column.getName().equals(name)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    // Getters and Setters
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    public void setFileBytes(long fileBytes) {
+        this.fileBytes = fileBytes;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    public String getQuote() {
+        return quote;
+    }
+
+    public void setQuote(String quote) {
+        this.quote = quote;
+    }
+
+    public boolean isHasHeaders() {
+        return hasHeaders;
+    }
+
+    public void setHasHeaders(boolean hasHeaders) {
+        this.hasHeaders = hasHeaders;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public List<ColumnProfile> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<ColumnProfile> columns) {
+        this.columns = columns;
+    }
+
+    public long getProfiledAt() {
+        return profiledAt;
+    }
+
+    public void setProfiledAt(long profiledAt) {
+        this.profiledAt = profiledAt;
+    }
+
+    public long getProfileTimeMs() {
+        return profileTimeMs;
+    }
+
+    public void setProfileTimeMs(long profileTimeMs) {
+        this.profileTimeMs = profileTimeMs;
+    }
+
+    /**
+     * Statistics of one column. min and max are numbers for numeric and boolean columns and
+     * text otherwise (dates and timestamps in ISO form); they are absent when every value is null.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class ColumnProfile {
+        private String name;
+        private String type;
+        private long nullCount;
+        private long distinctCount;
+        private Object min;
+        private Object max;
+
+        public ColumnProfile() {}
+
+        public ColumnProfile(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public long getNullCount() {
+            return nullCount;
+        }
+
+        public void setNullCount(long nullCount) {
+            this.nullCount = nullCount;
+        }
+
+        public long getDistinctCount() {
+            return distinctCount;
+        }
+
+        public void setDistinctCount(long distinctCount) {
+            this.distinctCount = distinctCount;
+        }
+
+        public Object getMin() {
+            return min;
+        }
+
+        public void setMin(Object min) {
+            this.min = min;
+        }
+
+        public Object getMax() {
+            return max;
+        }
+
+        public void setMax(Object max) {
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.etl.pipeline.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Physical execution plan for a pipeline, as returned by EXPLAIN.
+ * Nodes are grouped into stages; the nodes of a fused stage run in a single pass over the rows.
+ * Estimates come from source statistics; the actual* fields are only filled in by EXPLAIN ANALYZE.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExecutionPlan {
+
+    private String pipelineId;
+    private boolean analyzed;
+    private String executionId;
+    private String status;
+    private List<PlanStage> stages = new ArrayList<>();
+    private Long estimatedPeakMemoryBytes;
+    private Long actualPeakMemoryBytes;
+    private List<String> warnings = new ArrayList<>();
+
+    // Constructors
+    public ExecutionPlan() {}
+
+    public ExecutionPlan(String pipelineId) {
+        this.pipelineId = pipelineId;
+    }
+
+    // Getters and Setters
+    public String getPipelineId() {
+        return pipelineId;
+    }
+
+    public void setPipelineId(String pipelineId) {
+        this.pipelineId = pipelineId;
+    }
+
+    public boolean isAnalyzed() {
+        return analyzed;
+    }
+
+    public void setAnalyzed(boolean analyzed) {
+        this.analyzed = analyzed;
+    }
+
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    public void setExecutionId(String executionId) {
+        this.executionId = executionId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<PlanStage> getStages() {
+        return stages;
+    }
+
+    public void setStages(List<PlanStage> stages) {
+        this.stages = stages;
+    }
+
+    public Long getEstimatedPeakMemoryBytes() {
+        return estimatedPeakMemoryBytes;
+    }
+
+    public void setEstimatedPeakMemoryBytes(Long estimatedPeakMemoryBytes) {
+        this.estimatedPeakMemoryBytes = estimatedPeakMemoryBytes;
+    }
+
+    public Long getActualPeakMemoryBytes() {
+        return actualPeakMemoryBytes;
+    }
+
+    public void setActualPeakMemoryBytes(Long actualPeakMemoryBytes) {
+        this.actualPeakMemoryBytes = actualPeakMemoryBytes;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public void setWarnings(List<String> warnings) {
+        this.warnings = warnings;
+    }
+
+    // Helper methods
+    public void addWarning(String warning) {
+        warnings.add(warning);
+    }
+
+    public PlanNode findNode(String nodeId) {
+        for (PlanStage stage : stages) {
+            for (PlanNode node : stage.getNodes()) {
+                if (node.getNodeId().equals(nodeId)) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A group of nodes executed together. Stages run in list order.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class PlanStage {
+        private int id;
+        private boolean fused;
+        private int parallelism = 1;
+        private List<PlanNode> nodes = new ArrayList<>();
+        private Long actualTimeMs;
+        private Long allocatedBytes;
+        private Long spilledBytes;
+
+        public PlanStage() {}
+
+        public PlanStage(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public boolean isFused() {
+            return fused;
+        }
+
+        public void setFused(boolean fused) {
+            this.fused = fused;
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        public List<PlanNode> getNodes() {
+            return nodes;
+        }
+
+        public void setNodes(List<PlanNode> nodes) {
+            this.nodes = nodes;
+        }
+
+        public Long getActualTimeMs() {
+            return actualTimeMs;
+        }
+
+        public void setActualTimeMs(Long actualTimeMs) {
+            this.actualTimeMs = actualTimeMs;
+        }
+
+        public Long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public void setAllocatedBytes(Long allocatedBytes) {
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public Long getSpilledBytes() {
+            return spilledBytes;
+        }
+
+        public void setSpilledBytes(Long spilledBytes) {
+            this.spilledBytes = spilledBytes;
+        }
+
+        @JsonIgnore
+        public PlanNode getTail() {
+            return nodes.get(nodes.size() - 1);
+        }
+    }
+
+    /**
+     * One pipeline node and the physical operator chosen for it
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class PlanNode {
+        private String nodeId;
+        private String type;
+        private String operator;
+        private List<String> inputs = new ArrayList<>();
+        private Long estimatedRows;
+        private Long estimatedBytes;
+        private Map<String, Object> details = new LinkedHashMap<>();
+        private Long actualRows;
+
+        public PlanNode() {}
+
+        public PlanNode(String nodeId, String type, String operator) {
+            this.nodeId = nodeId;
+            this.type = type;
+            this.operator = operator;
+        }
+
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public void setNodeId(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public void setOperator(String operator) {
+            this.operator = operator;
+        }
+
+        public List<String> getInputs() {
+            return inputs;
+        }
+
+        public void setInputs(List<String> inputs) {
+            this.inputs = inputs;
+        }
+
+        public Long getEstimatedRows() {
+            return estimatedRows;
+        }
+
+        public void setEstimatedRows(Long estimatedRows) {
+            this.estimatedRows = estimatedRows;
+        }
+
+        public Long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        public void setEstimatedBytes(Long estimatedBytes) {
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public Map<String, Object> getDetails() {
+            return details;
+        }
+
+        public void setDetails(Map<String, Object> details) {
+            this.details = details;
+        }
+
+        public Long getActualRows() {
+            return actualRows;
+        }
+
+        public void setActualRows(Long actualRows) {
+            this.actualRows = actualRows;
+        }
+    }
+}
@@ -16,6 +16,8 @@ public class ExecutionResult {
     private Map<String, Object> statistics;
     private String errorMessage;
     private String stackTrace;
+    private String lane;
+    private Integer queuePosition;
     
     // Constructors
     public ExecutionResult() {
@@ -127,7 +129,34 @@ public class ExecutionResult {
         this.stackTrace = stackTrace;
     }
     
+    public String getLane() {
+        return lane;
+    }
+    
+    public void setLane(String lane) {
+        this.lane = lane;
+    }
+    
+    public Integer getQueuePosition() {
+        return queuePosition;
+    }
+    
+    public void setQueuePosition(Integer queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+    
     // Helper methods
+    public void markAsQueued(String lane) {
+        this.status = ExecutionStatus.PENDING;
+        this.lane = lane;
+    }
+    
+    public void markAsRunning() {
+        this.status = ExecutionStatus.RUNNING;
+        this.queuePosition = null;
+        this.startTime = LocalDateTime.now();
+    }
+    
     public void markAsCompleted(String message) {
         this.status = ExecutionStatus.SUCCESS;
         this.message = message;
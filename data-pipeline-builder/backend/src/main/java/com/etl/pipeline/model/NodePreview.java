@@ -0,0 +1,111 @@
+package com.etl.pipeline.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * First rows of a node's output, as returned by the preview endpoint.
+ * limitPushedTo lists the sources that were asked for a bounded number of rows; blockingNodes
+ * lists the operators that had to read their inputs in full to produce the preview.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class NodePreview {
+
+    private String nodeId;
+    private String nodeType;
+    private int limit;
+    private List<String> columns;
+    private List<Map<String, Object>> rows = new ArrayList<>();
+    private boolean hasMore;
+    private List<String> limitPushedTo = new ArrayList<>();
+    private List<String> blockingNodes = new ArrayList<>();
+    private long previewTimeMs;
+
+    // Constructors
+    public NodePreview() {}
+
+    public NodePreview(String nodeId, String nodeType, int limit) {
+        this.nodeId = nodeId;
+        this.nodeType = nodeType;
+        this.limit = limit;
+    }
+
+    // Getters and Setters
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getNodeType() {
+        return nodeType;
+    }
+
+    public void setNodeType(String nodeType) {
+        this.nodeType = nodeType;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Whether the node produces more rows than were returned
+     */
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+
+    public List<String> getLimitPushedTo() {
+        return limitPushedTo;
+    }
+
+    public void setLimitPushedTo(List<String> limitPushedTo) {
+        this.limitPushedTo = limitPushedTo;
+    }
+
+    public List<String> getBlockingNodes() {
+        return blockingNodes;
+    }
+
+    public void setBlockingNodes(List<String> blockingNodes) {
+        this.blockingNodes = blockingNodes;
+    }
+
+    public long getPreviewTimeMs() {
+        return previewTimeMs;
+    }
+
+    public void setPreviewTimeMs(long previewTimeMs) {
+        this.previewTimeMs = previewTimeMs;
+    }
+}
@@ -0,0 +1,140 @@
+package com.etl.pipeline.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * State of a chunked upload. The file is split into chunkCount chunks of chunkBytes each (the
+ * last one may be shorter); chunks can arrive in any order and in parallel, and a client that
+ * lost its connection asks for the session to learn which chunks are still missing.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonIgnoreProperties(value = {"receivedChunks", "missingChunks", "complete"}, allowGetters = true)
+public class UploadSession {
+
+    private String uploadId;
+    private String originalName;
+    private long totalBytes;
+    private int chunkBytes;
+    private int chunkCount;
+    private long createdAt;
+    private String filename;
+
+    @JsonIgnore
+    private final BitSet received = new BitSet();
+
+    // Constructors
+    public UploadSession() {}
+
+    public UploadSession(String uploadId, String originalName, long totalBytes, int chunkBytes) {
+        this.uploadId = uploadId;
+        this.originalName = originalName;
+        this.totalBytes = totalBytes;
+        this.chunkBytes = chunkBytes;
+        this.chunkCount = (int) ((totalBytes + chunkBytes - 1) / chunkBytes);
+        this.createdAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Byte offset of a chunk in the assembled file
+     */
+    public long chunkOffset(int index) {
+        return (long) index * chunkBytes;
+    }
+
+    /**
+     * Exact length a chunk must have: chunkBytes, except for the last chunk
+     */
+    public int chunkLength(int index) {
+        return (int) Math.min(chunkBytes, totalBytes - chunkOffset(index));
+    }
+
+    public synchronized void markReceived(int index) {
+        received.set(index);
+    }
+
+    public synchronized boolean isReceived(int index) {
+        return received.get(index);
+    }
+
+    public synchronized boolean isComplete() {
+        return received.cardinality() == chunkCount;
+    }
+
+    public synchronized int getReceivedChunks() {
+        return received.cardinality();
+    }
+
+    public synchronized List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = received.nextClearBit(0); i < chunkCount; i = received.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        return missing;
+    }
+
+    // Getters and Setters
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public void setOriginalName(String originalName) {
+        this.originalName = originalName;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    public void setChunkBytes(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Name of the uploaded file once the session has been completed
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+}
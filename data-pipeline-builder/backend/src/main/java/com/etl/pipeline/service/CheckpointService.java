@@ -0,0 +1,154 @@
+package com.etl.pipeline.service;
+
+import com.etl.pipeline.datasource.ColumnarFile;
+import com.etl.pipeline.model.Pipeline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Service for persisting completed node outputs so a failed execution can be resumed.
+ *
+ * Layout per execution: checkpoints/{executionId}/pipeline.json, one columnar spill file per
+ * completed node that produced data, and a "completed" log listing finished node IDs in order.
+ */
+@Service
+public class CheckpointService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointService.class);
+    private static final String PIPELINE_FILE = "pipeline.json";
+    private static final String COMPLETED_FILE = "completed";
+    private static final String SPILL_EXTENSION = ".spill";
+
+    @Value("${pipeline.checkpoint.enabled:false}")
+    private boolean enabledByDefault;
+
+    @Value("${pipeline.checkpoint.dir:checkpoints}")
+    private String checkpointDir;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Checkpointing is on when the pipeline metadata asks for it ("checkpoint": true),
+     * otherwise the application-wide default applies
+     */
+    public boolean isEnabled(Pipeline pipeline) {
+        Map<String, Object> metadata = pipeline.getMetadata();
+        if (metadata != null && metadata.get("checkpoint") != null) {
+            return Boolean.parseBoolean(metadata.get("checkpoint").toString());
+        }
+        return enabledByDefault;
+    }
+
+    public void begin(String executionId, Pipeline pipeline) throws IOException {
+        Path dir = executionDir(executionId);
+        Files.createDirectories(dir);
+        objectMapper.writeValue(dir.resolve(PIPELINE_FILE).toFile(), pipeline);
+        Files.deleteIfExists(dir.resolve(COMPLETED_FILE));
+        logger.info("Checkpointing enabled for execution {} at {}", executionId, dir.toAbsolutePath());
+    }
+
+    /**
+     * Persist a completed node. The spill file is written to a temp file and moved into place
+     * before the node is appended to the completed log, so a crash never leaves a partial checkpoint.
+     */
+    public void recordNode(String executionId, String nodeId, List<Map<String, Object>> output) throws IOException {
+        Path dir = executionDir(executionId);
+
+        if (output != null) {
+            Path spillPath = spillPath(executionId, nodeId);
+            Path tempPath = dir.resolve(spillPath.getFileName() + ".tmp");
+            long bytes = ColumnarFile.write(tempPath, output);
+            Files.move(tempPath, spillPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Checkpointed node {} ({} records, {} bytes)", nodeId, output.size(), bytes);
+        }
+
+        Files.write(dir.resolve(COMPLETED_FILE),
+                (nodeId + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    public boolean exists(String executionId) {
+        return Files.exists(executionDir(executionId).resolve(PIPELINE_FILE));
+    }
+
+    public Pipeline loadPipeline(String executionId) throws IOException {
+        return objectMapper.readValue(executionDir(executionId).resolve(PIPELINE_FILE).toFile(), Pipeline.class);
+    }
+
+    public Set<String> getCompletedNodes(String executionId) throws IOException {
+        Path completedPath = executionDir(executionId).resolve(COMPLETED_FILE);
+        Set<String> completed = new LinkedHashSet<>();
+        if (Files.exists(completedPath)) {
+            for (String line : Files.readAllLines(completedPath, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    completed.add(line.trim());
+                }
+            }
+        }
+        return completed;
+    }
+
+    public boolean hasNodeOutput(String executionId, String nodeId) {
+        return Files.exists(spillPath(executionId, nodeId));
+    }
+
+    public List<Map<String, Object>> loadNodeOutput(String executionId, String nodeId) throws IOException {
+        List<Map<String, Object>> data = ColumnarFile.read(spillPath(executionId, nodeId));
+        logger.info("Restored {} records for node {} from checkpoint", data.size(), nodeId);
+        return data;
+    }
+
+    public void discard(String executionId) {
+        Path dir = executionDir(executionId);
+        if (!Files.exists(dir)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    logger.warn("Could not delete checkpoint file: {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not discard checkpoint for execution {}", executionId, e);
+        }
+    }
+
+    private Path executionDir(String executionId) {
+        return Paths.get(checkpointDir, sanitize(executionId));
+    }
+
+    private Path spillPath(String executionId, String nodeId) {
+        return executionDir(executionId).resolve(sanitize(nodeId) + SPILL_EXTENSION);
+    }
+
+    /**
+     * File name for an ID: letters, digits and '-' are kept and every other UTF-8 byte, '_'
+     * included, becomes '_' and two hex digits, so distinct IDs ("a.b", "a_b", "a/b") never share a file
+     */
+    private String sanitize(String id) {
+        StringBuilder name = new StringBuilder(id.length());
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-') {
+                name.append((char) b);
+            } else {
+                name.append('_').append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+        }
+        return name.toString();
+    }
+}
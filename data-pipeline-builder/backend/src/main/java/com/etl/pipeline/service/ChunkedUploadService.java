@@ -0,0 +1,380 @@
+package com.etl.pipeline.service;
+
+import com.etl.pipeline.model.UploadSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Service for uploads too large for a single multipart request.
+ *
+ * A session preallocates the file and receives it in fixed-size chunks, each streamed from the
+ * request body straight to its offset with positional writes, so chunks can arrive in parallel and
+ * nothing is buffered in memory. Every chunk carries a SHA-256 checksum; only a verified chunk is
+ * recorded as received. Completing the session moves the file into place (a rename, not a copy).
+ *
+ * Layout per session: {sessionDir}/{uploadId}/session.json, data.part, and a "received" log of
+ * verified chunk indexes, synced after the chunk's bytes, so sessions resume after a restart.
+ * Sessions with no chunk activity for the session TTL are deleted, at startup and by a periodic
+ * sweep, so abandoned uploads do not keep their preallocated files.
+ */
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+    private static final String SESSION_FILE = "session.json";
+    private static final String DATA_FILE = "data.part";
+    private static final String RECEIVED_FILE = "received";
+    private static final int MIN_CHUNK_BYTES = 256 * 1024;
+    private static final int MAX_CHUNK_BYTES = 64 * 1024 * 1024;
+    private static final int COPY_BUFFER_BYTES = 256 * 1024;
+
+    @Value("${pipeline.upload.session-dir:uploads/.sessions}")
+    private String sessionDir;
+
+    @Value("${pipeline.upload.chunk-bytes:8388608}")
+    private int defaultChunkBytes;
+
+    @Value("${pipeline.upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, ActiveUpload> uploads = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * Reload the sessions left by a previous run; expired ones are discarded
+     */
+    @PostConstruct
+    public void init() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "upload-session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(60, TimeUnit.HOURS.toSeconds(sessionTtlHours) / 4);
+        sweeper.scheduleWithFixedDelay(this::deleteExpiredSessions, period, period, TimeUnit.SECONDS);
+
+        Path root = Paths.get(sessionDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(sessionTtlHours);
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.filter(Files::isDirectory).forEach(dir -> {
+                try {
+                    UploadSession session = objectMapper.readValue(dir.resolve(SESSION_FILE).toFile(), UploadSession.class);
+                    ActiveUpload upload = new ActiveUpload(session, dir);
+                    Path log = dir.resolve(RECEIVED_FILE);
+                    if (Files.exists(log)) {
+                        upload.lastActivity = Math.max(upload.lastActivity, Files.getLastModifiedTime(log).toMillis());
+                    }
+                    if (upload.lastActivity < expiry) {
+                        deleteSessionDir(dir);
+                        return;
+                    }
+                    for (int index : readReceivedLog(dir)) {
+                        session.markReceived(index);
+                    }
+                    uploads.put(session.getUploadId(), upload);
+                } catch (IOException e) {
+                    logger.warn("Discarding unreadable upload session {}: {}", dir, e.getMessage());
+                    deleteSessionDir(dir);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not list upload sessions in {}: {}", root, e.getMessage());
+        }
+        if (!uploads.isEmpty()) {
+            logger.info("Resumable upload sessions: {}", uploads.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        uploads.values().forEach(ActiveUpload::closeChannel);
+    }
+
+    /**
+     * Delete sessions that have received no chunk for the session TTL. Sessions with a chunk
+     * being written are left for the next sweep.
+     */
+    void deleteExpiredSessions() {
+        long expiry = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(sessionTtlHours);
+        for (ActiveUpload upload : uploads.values()) {
+            if (upload.lastActivity >= expiry || !upload.lock.writeLock().tryLock()) {
+                continue;
+            }
+            try {
+                if (upload.lastActivity < expiry && uploads.remove(upload.session.getUploadId(), upload)) {
+                    upload.closeChannel();
+                    deleteSessionDir(upload.dir);
+                    logger.info("Upload session {} expired after {} hours without activity",
+                            upload.session.getUploadId(), sessionTtlHours);
+                }
+            } finally {
+                upload.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Start a session for a file of totalBytes. The file is preallocated, so a disk that cannot
+     * hold it is reported now rather than after most of it has been sent.
+     * @param chunkBytes requested chunk size, or 0 for the default
+     */
+    public UploadSession create(String originalName, long totalBytes, int chunkBytes) throws IOException {
+        if (totalBytes <= 0) {
+            throw new IllegalArgumentException("totalBytes must be positive");
+        }
+        int size = chunkBytes > 0 ? chunkBytes : defaultChunkBytes;
+        if (size < MIN_CHUNK_BYTES || size > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("chunkBytes must be between " + MIN_CHUNK_BYTES + " and " + MAX_CHUNK_BYTES);
+        }
+        if ((totalBytes + size - 1) / size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many chunks; use a larger chunkBytes");
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), originalName, totalBytes, size);
+        Path dir = Paths.get(sessionDir, session.getUploadId());
+        Files.createDirectories(dir);
+        long usable = Files.getFileStore(dir).getUsableSpace();
+        if (usable < totalBytes) {
+            deleteSessionDir(dir);
+            throw new IOException("Not enough disk space for " + totalBytes + " bytes (" + usable + " available)");
+        }
+        try (RandomAccessFile data = new RandomAccessFile(dir.resolve(DATA_FILE).toFile(), "rw")) {
+            data.setLength(totalBytes);
+        }
+        objectMapper.writeValue(dir.resolve(SESSION_FILE).toFile(), session);
+        uploads.put(session.getUploadId(), new ActiveUpload(session, dir));
+
+        logger.info("Upload session {} started: {} ({} bytes in {} chunks)", session.getUploadId(),
+                originalName, totalBytes, session.getChunkCount());
+        return session;
+    }
+
+    /**
+     * @return the session, or null if there is no such upload
+     */
+    public UploadSession find(String uploadId) {
+        ActiveUpload upload = uploads.get(uploadId);
+        return upload != null ? upload.session : null;
+    }
+
+    /**
+     * Stream one chunk to its place in the file, verifying it against its SHA-256 checksum.
+     * Different chunks may be written concurrently; a chunk that fails verification stays missing
+     * and can be sent again.
+     */
+    public UploadSession writeChunk(String uploadId, int index, InputStream body, String sha256) throws IOException {
+        ActiveUpload upload = require(uploadId);
+        UploadSession session = upload.session;
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index " + index + " is outside 0.." + (session.getChunkCount() - 1));
+        }
+        if (sha256 == null || sha256.isBlank()) {
+            throw new IllegalArgumentException("Missing chunk checksum");
+        }
+
+        if (session.isReceived(index)) {
+            // Verified chunks are never rewritten, so a retry after a lost response is a no-op
+            return session;
+        }
+        if (!upload.inFlight.add(index)) {
+            throw new IllegalStateException("Chunk " + index + " is already being written");
+        }
+
+        upload.lock.readLock().lock();
+        upload.lastActivity = System.currentTimeMillis();
+        try {
+            FileChannel channel = upload.channel();
+            long position = session.chunkOffset(index);
+            int expected = session.chunkLength(index);
+            MessageDigest digest = sha256();
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            long written = 0;
+            int read;
+            while ((read = body.read(buffer, 0, (int) Math.min(buffer.length, expected - written + 1))) > 0) {
+                if (written + read > expected) {
+                    throw new IllegalArgumentException("Chunk " + index + " is longer than " + expected + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes, position + written + bytes.position());
+                }
+                written += read;
+            }
+            if (written != expected) {
+                throw new IllegalArgumentException("Chunk " + index + " has " + written + " bytes, expected " + expected);
+            }
+            if (!HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(sha256.trim())) {
+                throw new IllegalArgumentException("Checksum mismatch for chunk " + index);
+            }
+
+            // The chunk's bytes reach the disk before it is logged as received
+            channel.force(false);
+            Files.write(upload.dir.resolve(RECEIVED_FILE),
+                    (index + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+            session.markReceived(index);
+            return session;
+        } finally {
+            upload.lock.readLock().unlock();
+            upload.inFlight.remove(index);
+        }
+    }
+
+    /**
+     * Move the assembled file to target once every chunk has been received
+     */
+    public UploadSession complete(String uploadId, Path target) throws IOException {
+        ActiveUpload upload = require(uploadId);
+        UploadSession session = upload.session;
+        upload.lock.writeLock().lock();
+        try {
+            if (!session.isComplete()) {
+                throw new IllegalStateException("Upload " + uploadId + " is missing "
+                        + (session.getChunkCount() - session.getReceivedChunks()) + " chunks");
+            }
+            upload.closeChannel();
+            Files.move(upload.dir.resolve(DATA_FILE), target, StandardCopyOption.ATOMIC_MOVE);
+            uploads.remove(uploadId);
+            deleteSessionDir(upload.dir);
+            session.setFilename(target.getFileName().toString());
+            logger.info("Upload session {} completed: {}", uploadId, target);
+            return session;
+        } finally {
+            upload.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cancel an upload and delete what was received
+     * @return false if there is no such upload
+     */
+    public boolean abort(String uploadId) {
+        ActiveUpload upload = uploads.remove(uploadId);
+        if (upload == null) {
+            return false;
+        }
+        upload.lock.writeLock().lock();
+        try {
+            upload.closeChannel();
+            deleteSessionDir(upload.dir);
+        } finally {
+            upload.lock.writeLock().unlock();
+        }
+        logger.info("Upload session {} aborted", uploadId);
+        return true;
+    }
+
+    private ActiveUpload require(String uploadId) {
+        ActiveUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw new NoSuchElementException("No upload session " + uploadId);
+        }
+        return upload;
+    }
+
+    private static List<Integer> readReceivedLog(Path dir) throws IOException {
+        Path log = dir.resolve(RECEIVED_FILE);
+        List<Integer> received = new ArrayList<>();
+        if (Files.exists(log)) {
+            for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                // A torn last line only means that chunk is sent again
+                try {
+                    received.add(Integer.parseInt(line.trim()));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return received;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private void deleteSessionDir(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Could not delete {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Could not delete upload session {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * A session with its directory and the channel shared by the chunk writers. Chunk writes hold
+     * the read lock, so they run concurrently; completing or aborting takes the write lock.
+     */
+    private static class ActiveUpload {
+        final UploadSession session;
+        final Path dir;
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+        volatile long lastActivity;
+        private FileChannel channel;
+
+        ActiveUpload(UploadSession session, Path dir) {
+            this.session = session;
+            this.dir = dir;
+            this.lastActivity = session.getCreatedAt();
+        }
+
+        synchronized FileChannel channel() throws IOException {
+            if (channel == null || !channel.isOpen()) {
+                channel = FileChannel.open(dir.resolve(DATA_FILE), StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+
+        synchronized void closeChannel() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close {}: {}", dir.resolve(DATA_FILE), e.getMessage());
+                }
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.etl.pipeline.service;
+
+import com.etl.pipeline.datasource.SqlDialect;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.pool.HikariPool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Pooled JDBC connections, one pool per connection profile, shared by all nodes and executions.
+ *
+ * A profile is a URL plus credentials. Named profiles are defined once and referenced from nodes
+ * with "connectionProfile"; nodes and connection tests that give their connection details inline
+ * get an unnamed profile keyed by a digest of URL and credentials, so identical details share one
+ * pool. Each pool keeps the driver's prepared statement cache enabled, validates connections that
+ * have been idle before handing them out, and retires idle connections; a profile whose pool has
+ * had no borrowers for the profile idle time is closed altogether (a named profile keeps its
+ * definition and reopens its pool on next use).
+ *
+ * Pools are opened on first use and fail fast: a profile that cannot connect does not keep a pool.
+ * Profiles live in memory only, so named profiles must be defined again after a restart.
+ */
+@Service
+public class ConnectionProfileRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionProfileRegistry.class);
+    private static final String UNNAMED_PREFIX = "inline-";
+
+    @Value("${pipeline.jdbc.pool.max-size:8}")
+    private int maxPoolSize;
+
+    @Value("${pipeline.jdbc.pool.connection-timeout-ms:10000}")
+    private long connectionTimeoutMs;
+
+    @Value("${pipeline.jdbc.pool.idle-timeout-ms:120000}")
+    private long idleTimeoutMs;
+
+    @Value("${pipeline.jdbc.pool.max-lifetime-ms:1800000}")
+    private long maxLifetimeMs;
+
+    @Value("${pipeline.jdbc.pool.statement-cache-size:256}")
+    private int statementCacheSize;
+
+    @Value("${pipeline.jdbc.pool.profile-idle-minutes:15}")
+    private long profileIdleMinutes;
+
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void init() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-profile-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, TimeUnit.MINUTES.toSeconds(profileIdleMinutes) / 4);
+        sweeper.scheduleWithFixedDelay(this::closeIdlePools, period, period, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+        profiles.values().forEach(Profile::retire);
+        profiles.clear();
+    }
+
+    /**
+     * Define or replace a named profile; a replaced profile's pool is closed
+     */
+    public void define(String name, String url, String username, String password) {
+        if (name == null || name.isBlank() || name.startsWith(UNNAMED_PREFIX)) {
+            throw new IllegalArgumentException("Invalid connection profile name: " + name);
+        }
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("Connection profile " + name + " needs a JDBC URL");
+        }
+        Profile previous = profiles.put(name, new Profile(name, url.trim(), username, password, true));
+        if (previous != null) {
+            previous.retire();
+        }
+        logger.info("Connection profile '{}' defined for {}", name, maskPassword(url));
+    }
+
+    /**
+     * Remove a profile and close its pool; connections still borrowed are closed when returned
+     */
+    public boolean remove(String name) {
+        Profile profile = profiles.remove(name);
+        if (profile == null) {
+            return false;
+        }
+        profile.retire();
+        return true;
+    }
+
+    /**
+     * Connections one profile's pool can hand out at once
+     */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public boolean contains(String name) {
+        return profiles.containsKey(name);
+    }
+
+    /**
+     * Borrow a connection from a named profile's pool; closing it returns it to the pool
+     */
+    public Connection getConnection(String profileName) throws SQLException {
+        Profile profile = profiles.get(profileName);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown connection profile: " + profileName);
+        }
+        Connection conn = profile.getConnection();
+        if (conn == null) {
+            throw new IllegalArgumentException("Connection profile was removed: " + profileName);
+        }
+        return conn;
+    }
+
+    /**
+     * Borrow a connection from the pool of the unnamed profile for these details
+     */
+    public Connection getConnection(String url, String username, String password) throws SQLException {
+        String name = UNNAMED_PREFIX + digest(url, username, password);
+        while (true) {
+            Profile profile = profiles.computeIfAbsent(name, key -> new Profile(key, url, username, password, false));
+            Connection conn = profile.getConnection();
+            if (conn != null) {
+                return conn;
+            }
+            profiles.remove(name, profile);
+        }
+    }
+
+    /**
+     * Profiles with their pool state (credentials omitted)
+     */
+    public List<Map<String, Object>> describe() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Profile profile : profiles.values()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("name", profile.name);
+            info.put("named", profile.named);
+            info.put("url", maskPassword(profile.url));
+            info.put("username", profile.username);
+            HikariDataSource pool = profile.pool;
+            info.put("open", pool != null);
+            if (pool != null) {
+                HikariPoolMXBean stats = pool.getHikariPoolMXBean();
+                info.put("activeConnections", stats.getActiveConnections());
+                info.put("idleConnections", stats.getIdleConnections());
+                info.put("totalConnections", stats.getTotalConnections());
+                info.put("threadsAwaitingConnection", stats.getThreadsAwaitingConnection());
+            }
+            info.put("lastUsed", profile.lastUsed);
+            result.add(info);
+        }
+        result.sort(Comparator.comparing(info -> (String) info.get("name")));
+        return result;
+    }
+
+    /**
+     * Close pools nobody has borrowed from for the profile idle time; unnamed profiles are dropped
+     */
+    void closeIdlePools() {
+        long cutoff = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(profileIdleMinutes);
+        for (Profile profile : profiles.values()) {
+            if (profile.lastUsed < cutoff && profile.closeIfIdle(cutoff)) {
+                logger.info("Closed idle connection pool for profile '{}'", profile.name);
+            }
+            if (profile.retired) {
+                profiles.remove(profile.name, profile);
+            }
+        }
+    }
+
+    private HikariDataSource openPool(Profile profile) throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("etl-" + profile.name);
+        SqlDialect dialect = SqlDialect.fromUrl(profile.url);
+        config.setJdbcUrl(dialect != null ? dialect.withBatchOptions(profile.url) : profile.url);
+        config.setUsername(profile.username);
+        config.setPassword(profile.password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setMinimumIdle(0);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setMaxLifetime(maxLifetimeMs);
+        // Connect once while opening, so bad details fail here with the driver's error
+        config.setInitializationFailTimeout(1);
+        if (dialect != null) {
+            dialect.statementCacheProperties(statementCacheSize).forEach(config::addDataSourceProperty);
+        }
+        try {
+            HikariDataSource pool = new HikariDataSource(config);
+            logger.info("Opened connection pool for profile '{}' ({})", profile.name, maskPassword(profile.url));
+            return pool;
+        } catch (HikariPool.PoolInitializationException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private static String digest(String url, String username, String password) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] hash = sha.digest((url + '\0' + username + '\0' + password).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String maskPassword(String url) {
+        return url.replaceAll("(?i)(password=)[^;&]*", "$1***");
+    }
+
+    private class Profile {
+        private final String name;
+        private final String url;
+        private final String username;
+        private final String password;
+        private final boolean named;
+        // Borrowers hold the read lock while borrowing, so a pool is never closed under them
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile HikariDataSource pool;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile boolean retired;
+
+        Profile(String name, String url, String username, String password, boolean named) {
+            this.name = name;
+            this.url = url;
+            this.username = username;
+            this.password = password;
+            this.named = named;
+        }
+
+        /**
+         * @return a connection, or null if the profile was dropped and must be looked up again
+         */
+        Connection getConnection() throws SQLException {
+            lock.readLock().lock();
+            try {
+                if (retired) {
+                    return null;
+                }
+                lastUsed = System.currentTimeMillis();
+                HikariDataSource current = pool;
+                if (current == null) {
+                    synchronized (this) {
+                        current = pool;
+                        if (current == null) {
+                            current = openPool(this);
+                            pool = current;
+                        }
+                    }
+                }
+                return current.getConnection();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        boolean isIdle() {
+            HikariDataSource current = pool;
+            return current == null || current.getHikariPoolMXBean() == null
+                    || current.getHikariPoolMXBean().getActiveConnections() == 0;
+        }
+
+        /**
+         * Close the pool if nobody is borrowing from it and it has been idle since the cutoff
+         */
+        boolean closeIfIdle(long cutoff) {
+            if (!lock.writeLock().tryLock()) {
+                return false;
+            }
+            try {
+                if (lastUsed >= cutoff || !isIdle()) {
+                    return false;
+                }
+                retired = !named;
+                return closePool();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        boolean closePool() {
+            lock.writeLock().lock();
+            try {
+                HikariDataSource current = pool;
+                pool = null;
+                if (current == null) {
+                    return false;
+                }
+                current.close();
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void retire() {
+            lock.writeLock().lock();
+            try {
+                retired = true;
+                closePool();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
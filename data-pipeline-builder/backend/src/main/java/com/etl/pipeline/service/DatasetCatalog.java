@@ -0,0 +1,241 @@
+package com.etl.pipeline.service;
+
+import com.etl.pipeline.datasource.CsvParser;
+import com.etl.pipeline.datasource.CsvProfiler;
+import com.etl.pipeline.datasource.CsvRowIndex;
+import com.etl.pipeline.model.DatasetProfile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Catalog of uploaded datasets and their profiles.
+ *
+ * An upload is saved, indexed (see {@link CsvRowIndex}) and profiled (see {@link CsvProfiler}) in
+ * a single pass over the incoming bytes. The profile is kept next to the file as
+ * "&lt;file&gt;.profile.json" and cached in memory, so the planner and the UI read it without
+ * touching the data; a profile whose file has since changed is ignored.
+ */
+@Service
+public class DatasetCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatasetCatalog.class);
+    private static final String PROFILE_SUFFIX = ".profile.json";
+    private static final int COPY_BUFFER_BYTES = 1024 * 1024;
+
+    private final Map<Path, DatasetProfile> profiles = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Save an uploaded CSV file, building its row index and profile from the same bytes
+     * @return the profile, or null if the file could not be profiled (it is saved regardless)
+     */
+    public DatasetProfile ingest(InputStream upload, Path target) throws IOException {
+        return scan(upload, new BufferedOutputStream(Files.newOutputStream(target), COPY_BUFFER_BYTES), target);
+    }
+
+    /**
+     * Index and profile a file that is already in place, such as an assembled chunked upload
+     * @return the profile, or null if the file could not be profiled
+     */
+    public DatasetProfile register(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return scan(in, OutputStream.nullOutputStream(), file);
+        }
+    }
+
+    /**
+     * Read a CSV stream once, copying it to out (closed before the file's attributes are read)
+     */
+    private DatasetProfile scan(InputStream upload, OutputStream out, Path target) throws IOException {
+        // Uploads are profiled and indexed with the CSV source defaults
+        Map<String, Object> options = new HashMap<>();
+        long startNanos = System.nanoTime();
+        DatasetProfile profile = null;
+        boolean compressed;
+        CsvRowIndex.Builder index = new CsvRowIndex.Builder(options, CsvRowIndex.DEFAULT_STRIDE);
+
+        try (OutputStream copy = out;
+             TeeInputStream tee = new TeeInputStream(upload, copy, index)) {
+            PushbackInputStream content = new PushbackInputStream(tee, 2);
+            compressed = startsWithGzipMagic(content);
+            InputStream text = compressed ? new GZIPInputStream(content, 1 << 16) : content;
+            try {
+                CsvParser parser = new CsvParser(new InputStreamReader(text, StandardCharsets.UTF_8.newDecoder()),
+                        CsvParser.delimiterOf(options), CsvParser.quoteOf(options), CsvParser.trimOf(options));
+                profile = new CsvProfiler(options).profile(parser);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not profile upload {}: {}", target, e.getMessage());
+            }
+            // Whatever the parser did not need still has to reach the file
+            tee.drain();
+        }
+
+        if (!compressed) {
+            saveRowIndex(index, target);
+        }
+        if (profile != null) {
+            profile.setFilePath(target.toString());
+            profile.setCompressed(compressed);
+            profile.setFileBytes(Files.size(target));
+            profile.setLastModified(Files.getLastModifiedTime(target).toMillis());
+            save(target, profile);
+            logger.info("Indexed and profiled {}: {} rows, {} columns in {} ms", target, profile.getRowCount(),
+                    profile.getColumns().size(), (System.nanoTime() - startNanos) / 1_000_000);
+        }
+        return profile;
+    }
+
+    /**
+     * The current profile of a file
+     * @return null if the file was not profiled or has changed since
+     */
+    public DatasetProfile find(Path file) {
+        Path key = file.toAbsolutePath().normalize();
+        try {
+            if (!Files.exists(key)) {
+                profiles.remove(key);
+                return null;
+            }
+            long fileBytes = Files.size(key);
+            long lastModified = Files.getLastModifiedTime(key).toMillis();
+            DatasetProfile profile = profiles.get(key);
+            if (profile == null) {
+                Path sidecar = sidecarOf(key);
+                if (!Files.exists(sidecar)) {
+                    return null;
+                }
+                profile = objectMapper.readValue(sidecar.toFile(), DatasetProfile.class);
+                profiles.put(key, profile);
+            }
+            return profile.getFileBytes() == fileBytes && profile.getLastModified() == lastModified ? profile : null;
+        } catch (IOException e) {
+            logger.warn("Could not read profile of {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The current profile of a file, if it was computed with the same CSV options as the given node config
+     */
+    public DatasetProfile find(Path file, Map<String, Object> config) {
+        DatasetProfile profile = find(file);
+        if (profile == null) {
+            return null;
+        }
+        Object hasHeaders = config.get("hasHeaders");
+        boolean headers = hasHeaders == null || Boolean.parseBoolean(hasHeaders.toString());
+        boolean sameOptions = String.valueOf(CsvParser.delimiterOf(config)).equals(profile.getDelimiter())
+                && String.valueOf(CsvParser.quoteOf(config)).equals(profile.getQuote())
+                && headers == profile.isHasHeaders();
+        return sameOptions ? profile : null;
+    }
+
+    /**
+     * Forget a file that is being deleted, along with its sidecars
+     */
+    public void remove(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        profiles.remove(key);
+        Files.deleteIfExists(sidecarOf(key));
+        Files.deleteIfExists(CsvRowIndex.sidecarOf(key));
+    }
+
+    private void save(Path file, DatasetProfile profile) {
+        Path key = file.toAbsolutePath().normalize();
+        try {
+            objectMapper.writeValue(sidecarOf(key).toFile(), profile);
+        } catch (IOException e) {
+            logger.warn("Could not save profile of {}: {}", key, e.getMessage());
+        }
+        profiles.put(key, profile);
+    }
+
+    /**
+     * The upload itself succeeds without an index
+     */
+    private void saveRowIndex(CsvRowIndex.Builder builder, Path file) {
+        try {
+            CsvRowIndex index = builder.finish(file);
+            if (index != null) {
+                index.save(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not index {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static Path sidecarOf(Path file) {
+        return file.resolveSibling(file.getFileName() + PROFILE_SUFFIX);
+    }
+
+    private static boolean startsWithGzipMagic(PushbackInputStream in) throws IOException {
+        byte[] magic = new byte[2];
+        int read = in.readNBytes(magic, 0, 2);
+        in.unread(magic, 0, read);
+        return read == 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b;
+    }
+
+    /**
+     * Copies every byte read through it to the target file and the row index
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private final CsvRowIndex.Builder index;
+
+        TeeInputStream(InputStream in, OutputStream copy, CsvRowIndex.Builder index) {
+            super(in);
+            this.copy = copy;
+            this.index = index;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                copy.write(buffer, offset, read);
+                index.update(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // A reset would copy the replayed bytes twice
+            return false;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still be copied
+            byte[] buffer = new byte[(int) Math.min(n, COPY_BUFFER_BYTES)];
+            int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        void drain() throws IOException {
+            byte[] buffer = new byte[COPY_BUFFER_BYTES];
+            while (read(buffer, 0, buffer.length) >= 0) {
+                // Copied as it is read
+            }
+        }
+    }
+}
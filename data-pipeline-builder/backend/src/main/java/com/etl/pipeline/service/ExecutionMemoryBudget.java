@@ -0,0 +1,181 @@
+package com.etl.pipeline.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memory budget for a single pipeline execution.
+ *
+ * Operators reserve estimated bytes before materialising data. When a reservation does not fit,
+ * the budget first asks its spiller to move data to disk, then waits for the shared pool, and
+ * finally fails the execution with {@link MemoryBudgetExceededException}.
+ *
+ * Guarded by a ReentrantLock rather than synchronized: reserve can block on the shared pool, and a
+ * virtual thread blocking inside a synchronized block would pin its carrier thread.
+ */
+public class ExecutionMemoryBudget implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionMemoryBudget.class);
+
+    /**
+     * Something that can free memory by writing data to disk
+     */
+    public interface Spiller {
+        /**
+         * @param bytesNeeded how many bytes the caller is trying to reserve
+         * @return bytes released (already returned to the budget)
+         */
+        long spill(long bytesNeeded);
+    }
+
+    private final String executionId;
+    private final long limitBytes;
+    private final MemoryManager memoryManager;
+    private final ReentrantLock lock = new ReentrantLock();
+    private Spiller spiller;
+    private long reservedBytes;
+    private long peakBytes;
+    private long spilledBytes;
+
+    ExecutionMemoryBudget(String executionId, long limitBytes, MemoryManager memoryManager) {
+        this.executionId = executionId;
+        this.limitBytes = limitBytes;
+        this.memoryManager = memoryManager;
+    }
+
+    public void setSpiller(Spiller spiller) {
+        this.spiller = spiller;
+    }
+
+    /**
+     * Reserve memory for the named consumer (e.g. "sort", "join build"), spilling or waiting as needed
+     */
+    public void reserve(String consumer, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            reserveLocked(consumer, bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reserveLocked(String consumer, long bytes) {
+        if (bytes > limitBytes) {
+            throw new MemoryBudgetExceededException(String.format(
+                    "%s needs ~%d MB but the execution budget is %d MB",
+                    consumer, bytes / (1024 * 1024), limitBytes / (1024 * 1024)));
+        }
+
+        // Stay within this execution's own budget first
+        if (reservedBytes + bytes > limitBytes) {
+            spill(reservedBytes + bytes - limitBytes);
+            if (reservedBytes + bytes > limitBytes) {
+                throw new MemoryBudgetExceededException(String.format(
+                        "Execution %s exceeded its memory budget of %d MB while reserving for %s",
+                        executionId, limitBytes / (1024 * 1024), consumer));
+            }
+        }
+
+        // Then take it from the shared pool, spilling before blocking on other executions
+        if (!memoryManager.tryAcquire(bytes)) {
+            spill(bytes);
+            try {
+                if (!memoryManager.acquire(bytes)) {
+                    throw new MemoryBudgetExceededException(String.format(
+                            "Timed out waiting for %d MB of shared execution memory for %s",
+                            bytes / (1024 * 1024), consumer));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MemoryBudgetExceededException("Interrupted while waiting for execution memory");
+            }
+        }
+
+        reservedBytes += bytes;
+        peakBytes = Math.max(peakBytes, reservedBytes);
+    }
+
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            long toRelease = Math.min(bytes, reservedBytes);
+            if (toRelease <= 0) {
+                return;
+            }
+            reservedBytes -= toRelease;
+            memoryManager.release(toRelease);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record bytes written to disk by a spiller
+     */
+    public void recordSpill(long bytes) {
+        lock.lock();
+        try {
+            spilledBytes += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void spill(long bytesNeeded) {
+        if (spiller == null) {
+            return;
+        }
+        long freed = spiller.spill(bytesNeeded);
+        if (freed > 0) {
+            logger.info("Execution {} spilled {} KB to make room for {} KB", executionId, freed / 1024, bytesNeeded / 1024);
+        }
+    }
+
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    public long getReservedBytes() {
+        lock.lock();
+        try {
+            return reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPeakBytes() {
+        lock.lock();
+        try {
+            return peakBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSpilledBytes() {
+        lock.lock();
+        try {
+            return spilledBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            memoryManager.release(reservedBytes);
+            reservedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.etl.pipeline.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.*;
+
+/**
+ * Thread pools used by pipeline executions.
+ *
+ * Pipeline drivers, source reads, sink writes and connection tests block on JDBC and file I/O,
+ * so they run on virtual threads (one per task) when the JVM supports them. CPU-bound operators
+ * (filter, map, aggregation, sort, join) are handed to a ForkJoin pool sized to the available
+ * cores, so a large number of I/O-bound pipelines cannot oversubscribe the CPU.
+ */
+@Service
+public class ExecutionThreads {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionThreads.class);
+
+    @Value("${pipeline.threads.cpu-parallelism:0}")
+    private int cpuParallelism;
+
+    private ExecutorService ioExecutor;
+    private ForkJoinPool cpuPool;
+    private boolean virtualThreads;
+
+    // Bytes allocated on the CPU pool on behalf of the calling thread (see allocatedBytes())
+    private final ThreadLocal<long[]> offloadedAllocation = ThreadLocal.withInitial(() -> new long[1]);
+
+    @PostConstruct
+    public void init() {
+        int parallelism = cpuParallelism > 0 ? cpuParallelism : Runtime.getRuntime().availableProcessors();
+        cpuPool = new ForkJoinPool(parallelism);
+
+        try {
+            // Java 21+; resolved reflectively so the backend still runs on older JVMs
+            ioExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            virtualThreads = true;
+        } catch (ReflectiveOperationException e) {
+            ioExecutor = Executors.newCachedThreadPool();
+            virtualThreads = false;
+        }
+
+        logger.info("Execution threads: I/O on {}, CPU pool parallelism {}",
+                virtualThreads ? "virtual threads" : "a cached platform thread pool", parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdownNow();
+        cpuPool.shutdownNow();
+    }
+
+    public ExecutorService getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * The CPU pool itself, for operators that split their own work (e.g. parallel CSV parsing)
+     */
+    public ForkJoinPool getCpuPool() {
+        return cpuPool;
+    }
+
+    public int getCpuParallelism() {
+        return cpuPool.getParallelism();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Run blocking work on an I/O thread and wait for its result
+     */
+    public <T> T io(Callable<T> task) {
+        return await(ioExecutor.submit(task));
+    }
+
+    /**
+     * Run blocking work on an I/O thread, giving up after the timeout
+     */
+    public <T> T io(Callable<T> task, long timeoutMs) throws TimeoutException {
+        Future<T> future = ioExecutor.submit(task);
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for I/O task", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Run a CPU-bound operator on the ForkJoin pool; the calling (virtual) thread parks meanwhile
+     */
+    public <T> T cpu(Callable<T> task) {
+        long[] offloaded = offloadedAllocation.get();
+        return await(cpuPool.submit(() -> {
+            long start = threadAllocatedBytes();
+            try {
+                return task.call();
+            } finally {
+                if (start >= 0) {
+                    offloaded[0] += threadAllocatedBytes() - start;
+                }
+            }
+        }));
+    }
+
+    /**
+     * Bytes allocated by the current thread plus the CPU work it offloaded, or -1 if the JVM
+     * cannot measure allocation
+     */
+    public long allocatedBytes() {
+        if (!allocationSupported()) {
+            return -1;
+        }
+        long own = threadAllocatedBytes();
+        return Math.max(own, 0) + offloadedAllocation.get()[0];
+    }
+
+    private boolean allocationSupported() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        return threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled();
+    }
+
+    private long threadAllocatedBytes() {
+        if (!allocationSupported()) {
+            return -1;
+        }
+        // Returns -1 for virtual threads
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for pipeline task", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause != null ? cause.getMessage() : e.getMessage(), cause);
+    }
+}
@@ -0,0 +1,12 @@
+package com.etl.pipeline.service;
+
+/**
+ * Thrown when an execution cannot obtain the memory it needs, even after spilling and waiting.
+ * Failing the single execution keeps the rest of the JVM (and other users' runs) alive.
+ */
+public class MemoryBudgetExceededException extends RuntimeException {
+
+    public MemoryBudgetExceededException(String message) {
+        super(message);
+    }
+}
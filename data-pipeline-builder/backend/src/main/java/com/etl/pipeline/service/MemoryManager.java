@@ -0,0 +1,139 @@
+package com.etl.pipeline.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Service that owns the shared execution memory pool and hands out per-execution budgets.
+ *
+ * The pool is a fraction of the max heap. Each execution may reserve up to its own budget,
+ * and reservations against the shared pool block (backpressure) until other executions release
+ * memory or the wait timeout expires.
+ */
+@Service
+public class MemoryManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(MemoryManager.class);
+    private static final long MB = 1024L * 1024L;
+
+    @Value("${pipeline.memory.pool-fraction:0.6}")
+    private double poolFraction;
+
+    @Value("${pipeline.memory.execution-budget-mb:0}")
+    private long executionBudgetMb;
+
+    @Value("${pipeline.memory.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    @Value("${pipeline.memory.spill-dir:spill}")
+    private String spillDir;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long poolBytes;
+    private long reservedBytes;
+
+    @PostConstruct
+    public void init() {
+        poolBytes = (long) (Runtime.getRuntime().maxMemory() * poolFraction);
+        logger.info("Execution memory pool: {} MB, per-execution budget: {} MB",
+                poolBytes / MB, getExecutionBudgetBytes() / MB);
+    }
+
+    public ExecutionMemoryBudget openBudget(String executionId) {
+        return new ExecutionMemoryBudget(executionId, getExecutionBudgetBytes(), this);
+    }
+
+    /**
+     * Per-execution limit; defaults to half the pool so one run can never starve every other run
+     */
+    public long getExecutionBudgetBytes() {
+        return executionBudgetMb > 0 ? Math.min(executionBudgetMb * MB, poolBytes) : poolBytes / 2;
+    }
+
+    public long getPoolBytes() {
+        return poolBytes;
+    }
+
+    public long getAvailableBytes() {
+        lock.lock();
+        try {
+            return poolBytes - reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public String getSpillDir() {
+        return spillDir;
+    }
+
+    boolean tryAcquire(long bytes) {
+        lock.lock();
+        try {
+            if (reservedBytes + bytes > poolBytes) {
+                return false;
+            }
+            reservedBytes += bytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Block until the pool can satisfy the request or the wait timeout expires
+     */
+    boolean acquire(long bytes) throws InterruptedException {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(waitTimeoutMs);
+        lock.lock();
+        try {
+            while (reservedBytes + bytes > poolBytes) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = released.awaitNanos(remainingNanos);
+            }
+            reservedBytes += bytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            reservedBytes = Math.max(0, reservedBytes - bytes);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        lock.lock();
+        try {
+            status.put("poolBytes", poolBytes);
+            status.put("reservedBytes", reservedBytes);
+            status.put("availableBytes", poolBytes - reservedBytes);
+        } finally {
+            lock.unlock();
+        }
+        status.put("executionBudgetBytes", getExecutionBudgetBytes());
+        return status;
+    }
+}
@@ -0,0 +1,193 @@
+package com.etl.pipeline.service;
+
+import com.etl.pipeline.datasource.ColumnarFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Node output cache for a single execution, accounted against its memory budget.
+ *
+ * Every cached output reserves its estimated size. Under memory pressure the largest outputs
+ * that the running node does not need are spilled to disk and transparently reloaded by {@link #get}.
+ */
+public class NodeDataCache implements ExecutionMemoryBudget.Spiller, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeDataCache.class);
+
+    private final ExecutionMemoryBudget budget;
+    private final Path spillDir;
+    private final Map<String, List<Map<String, Object>>> inMemory = new HashMap<>();
+    private final Map<String, Long> reservedBytes = new HashMap<>();
+    private final Map<String, Path> spilled = new HashMap<>();
+    private final Map<String, Long> recordCounts = new HashMap<>();
+    private final Map<String, Map<String, Object>> metrics = new HashMap<>();
+    private final Set<String> pinned = new HashSet<>();
+    private long maxRecordCount;
+
+    public NodeDataCache(ExecutionMemoryBudget budget, String spillRoot) {
+        this.budget = budget;
+        this.spillDir = Paths.get(spillRoot, budget.getExecutionId().replaceAll("[^a-zA-Z0-9_-]", "_"));
+        budget.setSpiller(this);
+    }
+
+    public ExecutionMemoryBudget getMemoryBudget() {
+        return budget;
+    }
+
+    public void put(String nodeId, List<Map<String, Object>> data) {
+        remove(nodeId);
+
+        long bytes = RowSizeEstimator.estimate(data);
+        budget.reserve("output of node " + nodeId, bytes);
+        inMemory.put(nodeId, data);
+        reservedBytes.put(nodeId, bytes);
+        recordCounts.put(nodeId, (long) data.size());
+        maxRecordCount = Math.max(maxRecordCount, data.size());
+    }
+
+    public List<Map<String, Object>> get(String nodeId) {
+        List<Map<String, Object>> data = inMemory.get(nodeId);
+        if (data != null || !spilled.containsKey(nodeId)) {
+            return data;
+        }
+
+        Path spillPath = spilled.remove(nodeId);
+        try {
+            data = ColumnarFile.read(spillPath);
+            Files.deleteIfExists(spillPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to reload spilled output of node " + nodeId + ": " + e.getMessage(), e);
+        }
+
+        logger.info("Reloaded {} spilled records for node {}", data.size(), nodeId);
+        pinned.add(nodeId);
+        try {
+            put(nodeId, data);
+        } finally {
+            pinned.remove(nodeId);
+        }
+        return data;
+    }
+
+    public boolean containsKey(String nodeId) {
+        return inMemory.containsKey(nodeId) || spilled.containsKey(nodeId);
+    }
+
+    public void remove(String nodeId) {
+        if (inMemory.remove(nodeId) != null) {
+            budget.release(reservedBytes.remove(nodeId));
+        }
+        Path spillPath = spilled.remove(nodeId);
+        if (spillPath != null) {
+            try {
+                Files.deleteIfExists(spillPath);
+            } catch (IOException e) {
+                logger.warn("Could not delete spill file: {}", spillPath, e);
+            }
+        }
+    }
+
+    /**
+     * Keep the given outputs in memory (they are inputs of the node being executed)
+     */
+    public void pin(Collection<String> nodeIds) {
+        pinned.addAll(nodeIds);
+    }
+
+    public void unpinAll() {
+        pinned.clear();
+    }
+
+    /**
+     * Number of records a node produced, even if its output has since been spilled or dropped
+     */
+    public Long getRecordCount(String nodeId) {
+        return recordCounts.get(nodeId);
+    }
+
+    /**
+     * Record the row count of a node whose output was streamed rather than cached
+     */
+    public void recordCount(String nodeId, long count) {
+        recordCounts.put(nodeId, count);
+        maxRecordCount = Math.max(maxRecordCount, count);
+    }
+
+    /**
+     * Record what a node measured about its own work, e.g. a sink's write throughput
+     */
+    public void recordMetrics(String nodeId, Map<String, Object> nodeMetrics) {
+        metrics.put(nodeId, nodeMetrics);
+    }
+
+    public Map<String, Object> getMetrics(String nodeId) {
+        return metrics.get(nodeId);
+    }
+
+    public long getMaxRecordCount() {
+        return maxRecordCount;
+    }
+
+    @Override
+    public long spill(long bytesNeeded) {
+        List<String> candidates = new ArrayList<>();
+        for (String nodeId : inMemory.keySet()) {
+            if (!pinned.contains(nodeId)) {
+                candidates.add(nodeId);
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(reservedBytes.get(b), reservedBytes.get(a)));
+
+        long freed = 0;
+        for (String nodeId : candidates) {
+            if (freed >= bytesNeeded) {
+                break;
+            }
+            try {
+                Files.createDirectories(spillDir);
+                Path spillPath = spillDir.resolve(nodeId.replaceAll("[^a-zA-Z0-9_-]", "_") + ".spill");
+                long fileBytes = ColumnarFile.write(spillPath, inMemory.get(nodeId));
+                inMemory.remove(nodeId);
+                spilled.put(nodeId, spillPath);
+
+                long bytes = reservedBytes.remove(nodeId);
+                budget.release(bytes);
+                budget.recordSpill(fileBytes);
+                freed += bytes;
+                logger.info("Spilled output of node {} to {} ({} bytes on disk)", nodeId, spillPath, fileBytes);
+            } catch (IOException e) {
+                logger.warn("Could not spill output of node {}", nodeId, e);
+            }
+        }
+        return freed;
+    }
+
+    @Override
+    public void close() {
+        inMemory.clear();
+        reservedBytes.clear();
+        spilled.clear();
+        budget.close();
+
+        if (Files.exists(spillDir)) {
+            try (Stream<Path> files = Files.walk(spillDir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                    try {
+                        Files.delete(path);
+                    } catch (IOException e) {
+                        logger.warn("Could not delete spill file: {}", path, e);
+                    }
+                });
+            } catch (IOException e) {
+                logger.warn("Could not clean up spill directory: {}", spillDir, e);
+            }
+        }
+    }
+}
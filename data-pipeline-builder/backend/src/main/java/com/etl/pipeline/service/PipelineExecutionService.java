@@ -1,56 +1,409 @@
 package com.etl.pipeline.service;
 
+import com.etl.pipeline.model.ExecutionPlan;
 import com.etl.pipeline.model.ExecutionResult;
+import com.etl.pipeline.model.NodePreview;
 import com.etl.pipeline.model.Pipeline;
 import com.etl.pipeline.model.PipelineNode;
 import com.etl.pipeline.datasource.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 @Service
 public class PipelineExecutionService {
     
     private static final Logger logger = LoggerFactory.getLogger(PipelineExecutionService.class);
+    private static final long GROUP_BYTES_PER_ROW = 96;
+    private static final long JOIN_BUILD_BYTES_PER_ROW = 96;
+    // Loads smaller than this per writer are not worth another connection
+    private static final int MIN_ROWS_PER_SQL_WRITER = 10_000;
     private final Map<String, ExecutionResult> executionResults = new ConcurrentHashMap<>();
     
     @Autowired
     private DataSourceFactory dataSourceFactory;
     
+    @Autowired
+    private CheckpointService checkpointService;
+    
+    @Autowired
+    private MemoryManager memoryManager;
+    
+    @Autowired
+    private PipelinePlanner planner;
+    
+    @Autowired
+    private WorkloadManager workloadManager;
+    
+    @Autowired
+    private ExecutionThreads threads;
+    
+    @Autowired
+    private ConnectionProfileRegistry connections;
+    
+    @Value("${pipeline.sql.commit-every-batches:10}")
+    private int sqlCommitEveryBatches;
+    
     public ExecutionResult executePipeline(Pipeline pipeline) {
+        ExecutionPlan plan = planner.plan(pipeline, true);
+        ExecutionResult result = registerExecution(pipeline);
+        runOnDriverThread(() -> runAdmitted(result, pipeline, plan, Collections.emptySet(), checkpointService.isEnabled(pipeline), true));
+        return result;
+    }
+    
+    /**
+     * Queue the pipeline and return immediately; progress and queue position are available
+     * from {@link #getExecutionStatus(String)}.
+     */
+    public ExecutionResult submitPipeline(Pipeline pipeline) {
+        ExecutionPlan plan = planner.plan(pipeline, true);
+        ExecutionResult result = registerExecution(pipeline);
+        result.markAsQueued(workloadManager.classify(pipeline, plan).name().toLowerCase());
+        threads.getIoExecutor().execute(() ->
+                runAdmitted(result, pipeline, plan, Collections.emptySet(), checkpointService.isEnabled(pipeline), true));
+        return result;
+    }
+    
+    /**
+     * EXPLAIN ANALYZE: run the pipeline and annotate its plan with actual rows, time,
+     * allocated bytes and spill volume per stage.
+     */
+    public ExecutionPlan analyzePipeline(Pipeline pipeline) {
+        ExecutionPlan plan = planner.plan(pipeline, true);
+        ExecutionResult result = registerExecution(pipeline);
+        runOnDriverThread(() -> runAdmitted(result, pipeline, plan, Collections.emptySet(), checkpointService.isEnabled(pipeline), true));
+        
+        plan.setAnalyzed(true);
+        plan.setExecutionId(result.getExecutionId());
+        plan.setStatus(result.getStatus().name());
+        if (result.getStatistics() != null) {
+            plan.setActualPeakMemoryBytes((Long) result.getStatistics().get("peakMemoryBytes"));
+        }
+        if (result.getStatus() == ExecutionResult.ExecutionStatus.FAILED) {
+            plan.addWarning("Execution failed: " + result.getErrorMessage());
+        }
+        return plan;
+    }
+    
+    public ExecutionPlan explainPipeline(Pipeline pipeline) {
+        return planner.plan(pipeline, true);
+    }
+    
+    /**
+     * Preview a node: run only the part of the DAG it depends on and return its first rows.
+     * Filters and maps are pulled lazily, so sources stop being read as soon as enough rows have
+     * come through, and when only maps lie between a source and the node the row limit itself is
+     * pushed into the source (see {@link DataSource#openReader(int, long)}). Blocking operators
+     * (groupBy, sort, join) still read their inputs in full, so previews are admitted through the
+     * interactive lane with the planner's memory estimate like any other run. Nothing is written:
+     * previewing an output node shows the rows it would receive.
+     */
+    public NodePreview previewNode(Pipeline pipeline, String nodeId, int limit) {
+        PipelineNode node = findNodeById(pipeline, nodeId);
+        if (node == null) {
+            throw new IllegalArgumentException("Node not found: " + nodeId);
+        }
+        PipelineNode target = node;
+        if (PipelinePlanner.isSinkType(node.getType())) {
+            String inputNodeId = findSourceNode(nodeId, pipeline);
+            target = inputNodeId != null ? findNodeById(pipeline, inputNodeId) : null;
+            if (target == null) {
+                throw new IllegalArgumentException("Output node has no input: " + nodeId);
+            }
+        }
+        
+        NodePreview preview = new NodePreview(nodeId, node.getType(), limit);
+        preview.setColumns(planner.outputColumns(pipeline, target.getId()));
+        long startNanos = System.nanoTime();
+        PipelineNode previewed = target;
+        String previewId = "preview-" + UUID.randomUUID();
+        Long estimatedPeak = planner.plan(pipeline, true).getEstimatedPeakMemoryBytes();
+        try (WorkloadManager.Ticket ticket = workloadManager.admit(previewId, WorkloadManager.Lane.INTERACTIVE,
+                     estimatedPeak != null ? estimatedPeak : 0);
+             NodeDataCache dataCache = new NodeDataCache(memoryManager.openBudget(previewId),
+                     memoryManager.getSpillDir())) {
+            // One row past the limit tells whether there are more
+            long rowsWanted = limit + 1L;
+            List<Map<String, Object>> rows = threads.io(() -> RecordBatchReader.readAll(RecordBatchReader.limit(
+                    openPreviewReader(previewed, rowsWanted, pipeline, dataCache, preview), rowsWanted)));
+            preview.setHasMore(rows.size() > limit);
+            preview.setRows(new ArrayList<>(rows.subList(0, Math.min(limit, rows.size()))));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for admission of preview of node " + nodeId, e);
+        }
+        preview.setPreviewTimeMs((System.nanoTime() - startNanos) / 1_000_000);
+        
+        logger.info("Previewed node {} ({}): {} rows in {} ms, limit pushed to {}, blocking nodes {}",
+                nodeId, node.getType(), preview.getRows().size(), preview.getPreviewTimeMs(),
+                preview.getLimitPushedTo(), preview.getBlockingNodes());
+        return preview;
+    }
+    
+    /**
+     * Reader over a node's output for a preview
+     * @param limit most rows the caller will read: Long.MAX_VALUE when unknown but it may stop
+     *              early (sources are then read sequentially, without parsing ahead), -1 when it
+     *              reads them all
+     */
+    private RecordBatchReader openPreviewReader(PipelineNode node, long limit, Pipeline pipeline,
+                                                NodeDataCache dataCache, NodePreview preview) throws Exception {
+        String type = node.getType();
+        if (PipelinePlanner.isSourceType(type)) {
+            DataSource source = dataSourceFactory.createDataSource(sourceTypeOf(type), node.getData());
+            if (limit < 0) {
+                return source.openReader(DataSource.DEFAULT_BATCH_SIZE);
+            }
+            if (limit < Long.MAX_VALUE) {
+                preview.getLimitPushedTo().add(node.getId());
+            }
+            return source.openReader(DataSource.DEFAULT_BATCH_SIZE, limit);
+        }
+        if (PipelinePlanner.isSinkType(type)) {
+            throw new IllegalArgumentException("Cannot preview through output node: " + node.getId());
+        }
+        
+        if (PipelinePlanner.isStreamingType(type)) {
+            String inputNodeId = findSourceNode(node.getId(), pipeline);
+            PipelineNode input = inputNodeId != null ? findNodeById(pipeline, inputNodeId) : null;
+            if (input == null) {
+                return RecordBatchReader.of(new ArrayList<>(), DataSource.DEFAULT_BATCH_SIZE);
+            }
+            // A map keeps every row, so the same limit holds upstream; a filter may drop any number of them
+            long inputLimit = "map".equals(type) || limit < 0 ? limit : Long.MAX_VALUE;
+            return operatorReader(openPreviewReader(input, inputLimit, pipeline, dataCache, preview), rowOperator(node));
+        }
+        
+        // Blocking operator: materialise its inputs, then run it as a full execution would
+        for (String inputNodeId : getInputNodeIds(node, pipeline)) {
+            PipelineNode input = findNodeById(pipeline, inputNodeId);
+            if (input != null && !dataCache.containsKey(inputNodeId)) {
+                dataCache.put(inputNodeId, RecordBatchReader.readAll(openPreviewReader(input, -1, pipeline, dataCache, preview)));
+            }
+        }
+        preview.getBlockingNodes().add(node.getId());
+        threads.cpu(() -> {
+            executeNode(node, dataCache, pipeline);
+            return null;
+        });
+        List<Map<String, Object>> output = dataCache.get(node.getId());
+        return RecordBatchReader.of(output != null ? output : new ArrayList<>(), DataSource.DEFAULT_BATCH_SIZE);
+    }
+    
+    /**
+     * Reader that applies a row operator to the batches of another, dropping the rows it rejects
+     */
+    private RecordBatchReader operatorReader(RecordBatchReader input, UnaryOperator<Map<String, Object>> operator) {
+        return new RecordBatchReader() {
+            @Override
+            public List<Map<String, Object>> nextBatch() throws Exception {
+                List<Map<String, Object>> batch;
+                while ((batch = input.nextBatch()) != null) {
+                    List<Map<String, Object>> rows = batch;
+                    List<Map<String, Object>> output = threads.cpu(() -> {
+                        List<Map<String, Object>> transformed = new ArrayList<>(rows.size());
+                        for (Map<String, Object> row : rows) {
+                            Map<String, Object> result = operator.apply(row);
+                            if (result != null) {
+                                transformed.add(result);
+                            }
+                        }
+                        return transformed;
+                    });
+                    if (!output.isEmpty()) {
+                        return output;
+                    }
+                }
+                return null;
+            }
+            
+            @Override
+            public void close() throws Exception {
+                input.close();
+            }
+        };
+    }
+    
+    /**
+     * Pipeline drivers spend most of their time blocked on sources and sinks, so they run on
+     * I/O (virtual) threads rather than on the request thread
+     */
+    private void runOnDriverThread(Runnable driver) {
+        threads.io(() -> {
+            driver.run();
+            return null;
+        });
+    }
+    
+    private ExecutionResult registerExecution(Pipeline pipeline) {
         String executionId = UUID.randomUUID().toString();
         ExecutionResult result = new ExecutionResult(executionId, pipeline.getId());
-        
+        result.setStatus(ExecutionResult.ExecutionStatus.PENDING);
         executionResults.put(executionId, result);
+        return result;
+    }
+    
+    /**
+     * Wait for the workload manager to admit the execution, then run it
+     */
+    private void runAdmitted(ExecutionResult result, Pipeline pipeline, ExecutionPlan plan,
+                             Set<String> completedNodes, boolean checkpointing, boolean beginCheckpoint) {
+        String executionId = result.getExecutionId();
+        WorkloadManager.Lane lane = workloadManager.classify(pipeline, plan);
+        long estimatedBytes = plan.getEstimatedPeakMemoryBytes() != null ? plan.getEstimatedPeakMemoryBytes() : 0;
+        result.markAsQueued(lane.name().toLowerCase());
+        
+        try (WorkloadManager.Ticket ticket = workloadManager.admit(executionId, lane, estimatedBytes)) {
+            result.markAsRunning();
+            
+            if (checkpointing && beginCheckpoint) {
+                try {
+                    checkpointService.begin(executionId, pipeline);
+                } catch (IOException e) {
+                    logger.warn("Could not initialise checkpoint for execution {}, continuing without it", executionId, e);
+                    checkpointing = false;
+                }
+            }
+            
+            runPipeline(result, pipeline, plan, completedNodes, checkpointing);
+            result.getStatistics().put("queuedMs", ticket.getQueuedMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.markAsFailed("Interrupted while waiting for admission");
+        }
+    }
+    
+    /**
+     * Resume a failed checkpointed execution, skipping every node that already completed
+     * and restoring their outputs from the checkpoint instead of re-reading the sources.
+     */
+    public ExecutionResult resumePipeline(String executionId) {
+        if (!checkpointService.exists(executionId)) {
+            throw new IllegalArgumentException("No checkpoint found for execution: " + executionId);
+        }
+        
+        Pipeline pipeline;
+        Set<String> completedNodes;
+        try {
+            pipeline = checkpointService.loadPipeline(executionId);
+            completedNodes = checkpointService.getCompletedNodes(executionId);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load checkpoint for execution " + executionId + ": " + e.getMessage(), e);
+        }
+        
+        // Check and register in one step, so concurrent resumes cannot both run the checkpoint
+        ExecutionResult result = new ExecutionResult(executionId, pipeline.getId());
+        result.setStatus(ExecutionResult.ExecutionStatus.PENDING);
+        ExecutionResult registered = executionResults.compute(executionId, (id, previous) ->
+                previous != null && (previous.getStatus() == ExecutionResult.ExecutionStatus.RUNNING
+                        || previous.getStatus() == ExecutionResult.ExecutionStatus.PENDING) ? previous : result);
+        if (registered != result) {
+            throw new IllegalStateException("Execution is still running: " + executionId);
+        }
+        
+        logger.info("Resuming execution {} with {} completed nodes", executionId, completedNodes.size());
+        runOnDriverThread(() -> runAdmitted(result, pipeline, planner.plan(pipeline, true), completedNodes, true, false));
+        return result;
+    }
+    
+    private void runPipeline(ExecutionResult result, Pipeline pipeline, ExecutionPlan plan,
+                             Set<String> completedNodes, boolean checkpointing) {
+        String executionId = result.getExecutionId();
+        NodeDataCache dataCache = new NodeDataCache(memoryManager.openBudget(executionId), memoryManager.getSpillDir());
+        Map<String, Object> statistics = new HashMap<>();
+        Map<String, Object> sinkStatistics = new LinkedHashMap<>();
         
         try {
             logger.info("Starting pipeline execution: {}", executionId);
             
-            // Execute nodes in order
-            List<String> executionOrder = pipeline.getExecutionOrder();
-            if (executionOrder == null || executionOrder.isEmpty()) {
-                executionOrder = determineExecutionOrder(pipeline);
-            }
-            
-            Map<String, List<Map<String, Object>>> dataCache = new HashMap<>();
+            Map<String, Integer> remainingConsumers = countConsumers(pipeline);
             
-            for (String nodeId : executionOrder) {
-                PipelineNode node = findNodeById(pipeline, nodeId);
-                if (node == null) {
-                    throw new RuntimeException("Node not found: " + nodeId);
+            // Execute stages in plan order
+            for (ExecutionPlan.PlanStage stage : plan.getStages()) {
+                List<PipelineNode> members = new ArrayList<>();
+                for (ExecutionPlan.PlanNode planNode : stage.getNodes()) {
+                    PipelineNode node = findNodeById(pipeline, planNode.getNodeId());
+                    if (node == null) {
+                        throw new RuntimeException("Node not found: " + planNode.getNodeId());
+                    }
+                    members.add(node);
+                }
+                PipelineNode head = members.get(0);
+                PipelineNode tail = members.get(members.size() - 1);
+                
+                // The tail of a stage is checkpointed first, so its presence means the whole stage finished
+                if (completedNodes.contains(tail.getId())) {
+                    logger.info("Skipping stage ending at node {} ({}): already completed in checkpoint", tail.getId(), tail.getType());
+                    continue;
+                }
+                
+                restoreCheckpointedInputs(executionId, head, pipeline, dataCache, completedNodes);
+                
+                List<String> inputNodeIds = getInputNodeIds(head, pipeline);
+                dataCache.pin(inputNodeIds);
+                
+                long startNanos = System.nanoTime();
+                long startAllocated = threads.allocatedBytes();
+                long startSpilled = dataCache.getMemoryBudget().getSpilledBytes();
+                
+                if (members.size() == 1) {
+                    logger.info("Executing node: {} ({})", head.getId(), head.getType());
+                    if (PipelinePlanner.isSourceType(head.getType()) || PipelinePlanner.isSinkType(head.getType())) {
+                        executeNode(head, dataCache, pipeline);
+                    } else {
+                        threads.cpu(() -> {
+                            executeNode(head, dataCache, pipeline);
+                            return null;
+                        });
+                    }
+                    Long outputRows = PipelinePlanner.isSinkType(tail.getType()) && !inputNodeIds.isEmpty()
+                            ? dataCache.getRecordCount(inputNodeIds.get(0))
+                            : dataCache.getRecordCount(tail.getId());
+                    stage.getTail().setActualRows(outputRows);
+                } else {
+                    logger.info("Executing fused stage: {}", members.stream().map(PipelineNode::getId).collect(Collectors.toList()));
+                    executeFusedStage(stage, members, dataCache, pipeline);
+                }
+                dataCache.unpinAll();
+                
+                stage.setActualTimeMs((System.nanoTime() - startNanos) / 1_000_000);
+                stage.setSpilledBytes(dataCache.getMemoryBudget().getSpilledBytes() - startSpilled);
+                if (startAllocated >= 0) {
+                    stage.setAllocatedBytes(threads.allocatedBytes() - startAllocated);
+                }
+                if (PipelinePlanner.isSinkType(tail.getType())) {
+                    sinkStatistics.put(tail.getId(), sinkStatistics(stage, tail, dataCache));
                 }
                 
-                logger.info("Executing node: {} ({})", nodeId, node.getType());
-                executeNode(node, dataCache, pipeline);
+                if (checkpointing) {
+                    checkpointService.recordNode(executionId, tail.getId(), dataCache.get(tail.getId()));
+                    for (PipelineNode member : members) {
+                        if (member != tail) {
+                            checkpointService.recordNode(executionId, member.getId(), null);
+                        }
+                    }
+                }
+                
+                // Drop outputs that no remaining node will read
+                for (String inputNodeId : inputNodeIds) {
+                    if (remainingConsumers.merge(inputNodeId, -1, Integer::sum) <= 0) {
+                        dataCache.remove(inputNodeId);
+                    }
+                }
             }
             
             // Find the output location from SQL output nodes
@@ -58,25 +411,87 @@ public class PipelineExecutionService {
             result.setOutputLocation(outputLocation);
             
             // Calculate records processed (simplified)
-            long recordsProcessed = dataCache.values().stream()
-                    .mapToLong(List::size)
-                    .max()
-                    .orElse(0L);
+            long recordsProcessed = dataCache.getMaxRecordCount();
             
             result.setRecordsProcessed(recordsProcessed);
             result.markAsCompleted("Pipeline executed successfully");
             
+            if (checkpointing) {
+                checkpointService.discard(executionId);
+            }
+            
             logger.info("Pipeline execution completed: {}", result);
             
         } catch (Exception e) {
             logger.error("Pipeline execution failed", e);
             result.markAsFailed(e.getMessage(), getStackTrace(e));
+            
+            if (checkpointing) {
+                statistics.put("resumable", true);
+                statistics.put("resumePath", "/api/pipeline/resume/" + executionId);
+            }
+        } finally {
+            statistics.put("peakMemoryBytes", dataCache.getMemoryBudget().getPeakBytes());
+            statistics.put("spilledBytes", dataCache.getMemoryBudget().getSpilledBytes());
+            if (!sinkStatistics.isEmpty()) {
+                statistics.put("sinks", sinkStatistics);
+            }
+            result.setStatistics(statistics);
+            dataCache.close();
+        }
+    }
+    
+    /**
+     * Rows written and rows per second of a sink's stage, plus whatever the sink measured itself
+     * (SQL sinks report their batching and commits)
+     */
+    private Map<String, Object> sinkStatistics(ExecutionPlan.PlanStage stage, PipelineNode sink, NodeDataCache dataCache) {
+        Map<String, Object> sinkStats = new LinkedHashMap<>();
+        Long rows = stage.getTail().getActualRows();
+        long timeMs = stage.getActualTimeMs();
+        sinkStats.put("type", sink.getType());
+        sinkStats.put("rows", rows);
+        sinkStats.put("stageTimeMs", timeMs);
+        if (rows != null) {
+            sinkStats.put("rowsPerSecond", timeMs > 0 ? rows * 1000 / timeMs : rows * 1000);
+        }
+        Map<String, Object> measured = dataCache.getMetrics(sink.getId());
+        if (measured != null) {
+            sinkStats.put("write", measured);
+        }
+        stage.getTail().getDetails().put("rowsPerSecond", sinkStats.get("rowsPerSecond"));
+        return sinkStats;
+    }
+    
+    private Map<String, Integer> countConsumers(Pipeline pipeline) {
+        Map<String, Integer> consumers = new HashMap<>();
+        if (pipeline.getEdges() != null) {
+            for (var edge : pipeline.getEdges()) {
+                consumers.merge(edge.getSource(), 1, Integer::sum);
+            }
+        }
+        return consumers;
+    }
+    
+    /**
+     * Load the outputs of checkpointed upstream nodes that the given node depends on
+     */
+    private void restoreCheckpointedInputs(String executionId, PipelineNode node, Pipeline pipeline,
+                                           NodeDataCache dataCache,
+                                           Set<String> completedNodes) throws IOException {
+        if (completedNodes.isEmpty()) {
+            return;
         }
         
-        return result;
+        for (String inputNodeId : getInputNodeIds(node, pipeline)) {
+            if (completedNodes.contains(inputNodeId) && !dataCache.containsKey(inputNodeId)
+                    && checkpointService.hasNodeOutput(executionId, inputNodeId)) {
+                dataCache.put(inputNodeId, checkpointService.loadNodeOutput(executionId, inputNodeId));
+            }
+        }
     }
     
-    private void executeNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    private void executeNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         switch (node.getType()) {
             case "csvSource":
                 executeDataSourceNode(node, dataCache, DataSourceType.CSV_FILE);
@@ -93,6 +508,9 @@ public class PipelineExecutionService {
             case "sqliteSource":
                 executeDataSourceNode(node, dataCache, DataSourceType.SQLITE);
                 break;
+            case "columnarSource":
+                executeDataSourceNode(node, dataCache, DataSourceType.COLUMNAR_FILE);
+                break;
             case "filter":
                 executeFilterNode(node, dataCache, pipeline);
                 break;
@@ -114,66 +532,198 @@ public class PipelineExecutionService {
             case "csvOutput":
                 executeDataOutputNode(node, dataCache, pipeline, DataSourceType.CSV_OUTPUT);
                 break;
+            case "columnarOutput":
+                executeDataOutputNode(node, dataCache, pipeline, DataSourceType.COLUMNAR_OUTPUT);
+                break;
             default:
                 logger.warn("Unknown node type: {}", node.getType());
         }
     }
     
-    private void executeDataSourceNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, DataSourceType sourceType) {
+    private void executeDataSourceNode(PipelineNode node, NodeDataCache dataCache, DataSourceType sourceType) {
+        dataCache.put(node.getId(), readSourceNode(node, sourceType));
+    }
+    
+    private List<Map<String, Object>> readSourceNode(PipelineNode node, DataSourceType sourceType) {
         try {
             Map<String, Object> config = node.getData();
             DataSource dataSource = dataSourceFactory.createDataSource(sourceType, config);
             
             List<Map<String, Object>> data = dataSource.read();
-            dataCache.put(node.getId(), data);
             logger.info("Loaded {} records from {}: {}", data.size(), sourceType.getDisplayName(), config.get("filePath"));
+            return data;
         } catch (Exception e) {
             throw new RuntimeException("Failed to read from " + sourceType.getDisplayName() + ": " + e.getMessage(), e);
         }
     }
     
-    private void executeDataOutputNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline, DataSourceType outputType) {
+    private DataSourceType sourceTypeOf(String nodeType) {
+        switch (nodeType) {
+            case "csvSource": return DataSourceType.CSV_FILE;
+            case "sqlSource": return DataSourceType.SQL_DATABASE;
+            case "mysqlSource": return DataSourceType.MYSQL;
+            case "postgresqlSource": return DataSourceType.POSTGRESQL;
+            case "sqliteSource": return DataSourceType.SQLITE;
+            case "columnarSource": return DataSourceType.COLUMNAR_FILE;
+            default: throw new IllegalArgumentException("Not a source node type: " + nodeType);
+        }
+    }
+    
+    private DataSourceType sinkTypeOf(String nodeType) {
+        switch (nodeType) {
+            case "csvOutput": return DataSourceType.CSV_OUTPUT;
+            case "columnarOutput": return DataSourceType.COLUMNAR_OUTPUT;
+            default: throw new IllegalArgumentException("Not a streaming sink node type: " + nodeType);
+        }
+    }
+    
+    /**
+     * Run a fused stage in a single pass: rows are pulled from the head in batches and every
+     * batch flows through all streaming operators without materialising the intermediate node
+     * outputs. When the stage starts with a source its filters are evaluated while the source is
+     * scanned, and when it ends with a file output each batch is written as soon as it is produced,
+     * so only one batch of the source is held in memory at a time.
+     */
+    private void executeFusedStage(ExecutionPlan.PlanStage stage, List<PipelineNode> members,
+                                   NodeDataCache dataCache, Pipeline pipeline) throws Exception {
+        PipelineNode head = members.get(0);
+        PipelineNode tail = members.get(members.size() - 1);
+        boolean fromSource = PipelinePlanner.isSourceType(head.getType());
+        boolean toSink = PipelinePlanner.isSinkType(tail.getType());
+        int firstOperator = fromSource ? 1 : 0;
+        int lastOperator = toSink ? members.size() - 1 : members.size();
+        
+        List<UnaryOperator<Map<String, Object>>> operators = new ArrayList<>();
+        for (int i = firstOperator; i < lastOperator; i++) {
+            operators.add(rowOperator(members.get(i)));
+        }
+        long[] rowCounts = new long[operators.size()];
+        long scannedRows = 0;
+        List<Map<String, Object>> outputData = toSink ? null : new ArrayList<>();
+        
+        RecordBatchReader reader = fromSource
+                ? openSourceReader(head)
+                : RecordBatchReader.of(getInputData(head, dataCache, pipeline), DataSource.DEFAULT_BATCH_SIZE);
+        RecordBatchWriter writer = null;
+        try (reader) {
+            if (toSink) {
+                List<String> columns = planner.outputColumns(pipeline, members.get(members.size() - 2).getId());
+                writer = dataSourceFactory.createDataSource(sinkTypeOf(tail.getType()), tail.getData()).openWriter(columns);
+            }
+            
+            List<Map<String, Object>> batch;
+            while ((batch = reader.nextBatch()) != null) {
+                scannedRows += batch.size();
+                long batchBytes = fromSource ? RowSizeEstimator.estimate(batch) : 0;
+                dataCache.getMemoryBudget().reserve("batch of " + head.getId(), batchBytes);
+                try {
+                    // Reading ran on the driver's I/O thread; the row transformations are CPU work
+                    List<Map<String, Object>> rows = batch;
+                    List<Map<String, Object>> transformed = threads.cpu(() -> {
+                        List<Map<String, Object>> output = new ArrayList<>(rows.size());
+                        for (Map<String, Object> row : rows) {
+                            Map<String, Object> current = row;
+                            for (int i = 0; i < operators.size() && current != null; i++) {
+                                current = operators.get(i).apply(current);
+                                if (current != null) {
+                                    rowCounts[i]++;
+                                }
+                            }
+                            if (current != null) {
+                                output.add(current);
+                            }
+                        }
+                        return output;
+                    });
+                    
+                    if (writer != null) {
+                        writer.writeBatch(transformed);
+                    } else {
+                        outputData.addAll(transformed);
+                    }
+                } finally {
+                    dataCache.getMemoryBudget().release(batchBytes);
+                }
+            }
+            
+            if (writer != null) {
+                writer.commit();
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+        
+        if (fromSource) {
+            stage.getNodes().get(0).setActualRows(scannedRows);
+            dataCache.recordCount(head.getId(), scannedRows);
+        }
+        for (int i = 0; i < rowCounts.length; i++) {
+            stage.getNodes().get(firstOperator + i).setActualRows(rowCounts[i]);
+            dataCache.recordCount(members.get(firstOperator + i).getId(), rowCounts[i]);
+        }
+        long outputRows = rowCounts.length > 0 ? rowCounts[rowCounts.length - 1] : scannedRows;
+        
+        if (toSink) {
+            stage.getTail().setActualRows(outputRows);
+            logger.info("Fused stage {} -> {}: wrote {} records to {}", head.getId(), tail.getId(), outputRows, tail.getData().get("filePath"));
+        } else {
+            dataCache.put(tail.getId(), outputData);
+            logger.info("Fused stage {} -> {}: {} records", head.getId(), tail.getId(), outputData.size());
+        }
+    }
+    
+    private RecordBatchReader openSourceReader(PipelineNode node) {
+        DataSourceType sourceType = sourceTypeOf(node.getType());
+        try {
+            return dataSourceFactory.createDataSource(sourceType, node.getData()).openReader(DataSource.DEFAULT_BATCH_SIZE);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read from " + sourceType.getDisplayName() + ": " + e.getMessage(), e);
+        }
+    }
+    
+    private UnaryOperator<Map<String, Object>> rowOperator(PipelineNode node) {
+        switch (node.getType()) {
+            case "filter": return filterOperator(node);
+            case "map": return mapOperator(node);
+            default: throw new IllegalArgumentException("Node type cannot be fused: " + node.getType());
+        }
+    }
+    
+    private void executeDataOutputNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline, DataSourceType outputType) {
         try {
             // Get input data from previous node
             List<Map<String, Object>> inputData = getInputData(node, dataCache, pipeline);
             
             Map<String, Object> config = node.getData();
-            logger.info("CSV Output node config: {}", config);
-            logger.info("CSV Output node filePath: {}", config.get("filePath"));
+            logger.info("{} node config: {}", outputType.getDisplayName(), config);
             
             DataSource dataOutput = dataSourceFactory.createDataSource(outputType, config);
             
-            dataOutput.write(inputData);
+            // Lay the columns out in upstream schema order rather than whatever order the rows hold them in
+            List<String> columns = planner.outputColumns(pipeline, findSourceNode(node.getId(), pipeline));
+            try (RecordBatchWriter writer = dataOutput.openWriter(columns)) {
+                writer.writeBatch(inputData);
+                writer.commit();
+            }
             logger.info("Wrote {} records to {}: {}", inputData.size(), outputType.getDisplayName(), config.get("filePath"));
         } catch (Exception e) {
             throw new RuntimeException("Failed to write to " + outputType.getDisplayName() + ": " + e.getMessage(), e);
         }
     }
     
-    private void executeCsvSourceNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache) {
-        try {
-            String filePath = node.getDataString("filePath");
-            List<Map<String, Object>> data = readCsvFile(filePath);
-            dataCache.put(node.getId(), data);
-            logger.info("Loaded {} records from CSV: {}", data.size(), filePath);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to read CSV file: " + e.getMessage(), e);
-        }
-    }
-    
-    private void executeFilterNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    private void executeFilterNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         // Get input data from previous node
         List<Map<String, Object>> inputData = getInputData(node, dataCache, pipeline);
-        
-        String column = node.getDataString("column");
-        String operator = node.getDataString("operator");
-        String value = node.getDataString("value");
+        UnaryOperator<Map<String, Object>> filter = filterOperator(node);
         
         List<Map<String, Object>> filteredData = new ArrayList<>();
         
         for (Map<String, Object> row : inputData) {
-            if (matchesFilter(row, column, operator, value)) {
-                filteredData.add(new HashMap<>(row));
+            Map<String, Object> filteredRow = filter.apply(row);
+            if (filteredRow != null) {
+                filteredData.add(filteredRow);
             }
         }
         
@@ -181,15 +731,46 @@ public class PipelineExecutionService {
         logger.info("Filtered {} -> {} records", inputData.size(), filteredData.size());
     }
     
-    private void executeMapNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    /**
+     * Row-level filter: returns a copy of matching rows and null for rejected ones
+     */
+    private UnaryOperator<Map<String, Object>> filterOperator(PipelineNode node) {
+        String column = node.getDataString("column");
+        String operator = node.getDataString("operator");
+        String value = node.getDataString("value");
+        Double number = parseNumber(value);
+        
+        return row -> matchesFilter(row, column, operator, value, number) ? new HashMap<>(row) : null;
+    }
+    
+    private void executeMapNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         List<Map<String, Object>> inputData = getInputData(node, dataCache, pipeline);
+        UnaryOperator<Map<String, Object>> mapper = mapOperator(node);
         List<Map<String, Object>> mappedData = new ArrayList<>();
         
+        for (Map<String, Object> row : inputData) {
+            mappedData.add(mapper.apply(row));
+        }
+        
+        dataCache.put(node.getId(), mappedData);
+        logger.info("Mapped {} records", mappedData.size());
+    }
+    
+    private UnaryOperator<Map<String, Object>> mapOperator(PipelineNode node) {
         // Get mappings from node data
         @SuppressWarnings("unchecked")
         List<Map<String, Object>> mappings = (List<Map<String, Object>>) node.getData().get("mappings");
         
-        for (Map<String, Object> row : inputData) {
+        // Numeric operands are parsed once per node rather than per row
+        Map<Map<String, Object>, Double> operands = new IdentityHashMap<>();
+        if (mappings != null) {
+            for (Map<String, Object> mapping : mappings) {
+                Object operand = mapping.get("value");
+                operands.put(mapping, operand != null ? parseNumber(operand.toString()) : null);
+            }
+        }
+        
+        return row -> {
             Map<String, Object> newRow = new HashMap<>(row);
             
             if (mappings != null) {
@@ -199,7 +780,7 @@ public class PipelineExecutionService {
                     String operation = (String) mapping.get("operation");
                     
                     if (sourceCol != null && targetCol != null && row.containsKey(sourceCol)) {
-                        Object value = applyMapping(row.get(sourceCol), operation, mapping);
+                        Object value = applyMapping(row.get(sourceCol), operation, operands.get(mapping));
                         newRow.put(targetCol, value);
                         
                         // Remove source column if different from target
@@ -210,14 +791,11 @@ public class PipelineExecutionService {
                 }
             }
             
-            mappedData.add(newRow);
-        }
-        
-        dataCache.put(node.getId(), mappedData);
-        logger.info("Mapped {} records", mappedData.size());
+            return newRow;
+        };
     }
     
-    private void executeGroupByNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    private void executeGroupByNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         List<Map<String, Object>> inputData = getInputData(node, dataCache, pipeline);
         
         // Get groupBy configuration
@@ -238,54 +816,60 @@ public class PipelineExecutionService {
             return;
         }
         
-        // Group data by specified columns
-        Map<String, List<Map<String, Object>>> groups = new HashMap<>();
-        
-        for (Map<String, Object> row : inputData) {
-            // Create group key from specified columns
-            StringBuilder keyBuilder = new StringBuilder();
-            for (String column : groupByColumns) {
-                Object value = row.get(column);
-                keyBuilder.append(value != null ? value.toString() : "null").append("|");
-            }
-            String groupKey = keyBuilder.toString();
+        // Group data by specified columns; worst case every row gets its own key and group list
+        long workingBytes = inputData.size() * GROUP_BYTES_PER_ROW;
+        dataCache.getMemoryBudget().reserve("groupBy", workingBytes);
+        List<Map<String, Object>> groupedData;
+        try {
+            Map<String, List<Map<String, Object>>> groups = new HashMap<>();
             
-            groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(row);
-        }
-        
-        // Apply aggregations to each group
-        List<Map<String, Object>> groupedData = new ArrayList<>();
-        
-        for (Map.Entry<String, List<Map<String, Object>>> groupEntry : groups.entrySet()) {
-            List<Map<String, Object>> groupRows = groupEntry.getValue();
-            Map<String, Object> aggregatedRow = new HashMap<>();
+            for (Map<String, Object> row : inputData) {
+                // Create group key from specified columns
+                StringBuilder keyBuilder = new StringBuilder();
+                for (String column : groupByColumns) {
+                    Object value = row.get(column);
+                    keyBuilder.append(value != null ? joinKey(value) : "null").append("|");
+                }
+                String groupKey = keyBuilder.toString();
             
-            // Add group by columns
-            Map<String, Object> firstRow = groupRows.get(0);
-            for (String column : groupByColumns) {
-                aggregatedRow.put(column, firstRow.get(column));
+                groups.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(row);
             }
             
-            // Apply aggregations
-            if (aggregations != null) {
-                for (Map<String, Object> aggregation : aggregations) {
-                    String function = (String) aggregation.get("function"); // count, sum, avg, min, max
-                    String column = (String) aggregation.get("column");
-                    String alias = (String) aggregation.get("alias");
-                    
-                    if (alias == null) alias = function + "_" + column;
-                    
-                    Object aggregatedValue = applyAggregation(groupRows, function, column);
-                    aggregatedRow.put(alias, aggregatedValue);
+            // Apply aggregations to each group
+            groupedData = new ArrayList<>();
+            
+            for (Map.Entry<String, List<Map<String, Object>>> groupEntry : groups.entrySet()) {
+                List<Map<String, Object>> groupRows = groupEntry.getValue();
+                Map<String, Object> aggregatedRow = new HashMap<>();
+            
+                // Add group by columns
+                Map<String, Object> firstRow = groupRows.get(0);
+                for (String column : groupByColumns) {
+                    aggregatedRow.put(column, firstRow.get(column));
                 }
-            } else {
-                // Default: just count the records in each group
-                aggregatedRow.put("count", groupRows.size());
-            }
             
-            groupedData.add(aggregatedRow);
+                // Apply aggregations
+                if (aggregations != null) {
+                    for (Map<String, Object> aggregation : aggregations) {
+                        String function = (String) aggregation.get("function"); // count, sum, avg, min, max
+                        String column = (String) aggregation.get("column");
+                        String alias = (String) aggregation.get("alias");
+            
+                        if (alias == null) alias = function + "_" + column;
+            
+                        Object aggregatedValue = applyAggregation(groupRows, function, column);
+                        aggregatedRow.put(alias, aggregatedValue);
+                    }
+                } else {
+                    // Default: just count the records in each group
+                    aggregatedRow.put("count", groupRows.size());
+                }
+            
+                groupedData.add(aggregatedRow);
+            }
+        } finally {
+            dataCache.getMemoryBudget().release(workingBytes);
         }
-        
         dataCache.put(node.getId(), groupedData);
         logger.info("Grouped {} records into {} groups", inputData.size(), groupedData.size());
     }
@@ -327,13 +911,13 @@ public class PipelineExecutionService {
                 return groupRows.stream()
                     .map(row -> row.get(column))
                     .filter(Objects::nonNull)
-                    .min((a, b) -> a.toString().compareTo(b.toString()))
+                    .min(this::compareValues)
                     .orElse(null);
             case "max":
                 return groupRows.stream()
                     .map(row -> row.get(column))
                     .filter(Objects::nonNull)
-                    .max((a, b) -> a.toString().compareTo(b.toString()))
+                    .max(this::compareValues)
                     .orElse(null);
             default:
                 logger.warn("Unknown aggregation function: {}", function);
@@ -341,36 +925,44 @@ public class PipelineExecutionService {
         }
     }
     
-    private void executeSortNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    private void executeSortNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         List<Map<String, Object>> inputData = getInputData(node, dataCache, pipeline);
-        List<Map<String, Object>> sortedData = new ArrayList<>(inputData);
         
-        // Simple sort implementation (full implementation would handle multiple columns)
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> sortColumns = (List<Map<String, Object>>) node.getData().get("sortColumns");
-        
-        if (sortColumns != null && !sortColumns.isEmpty()) {
-            String column = (String) sortColumns.get(0).get("column");
-            String direction = (String) sortColumns.get(0).get("direction");
+        // The sorted copy only holds row references
+        long workingBytes = inputData.size() * RowSizeEstimator.REFERENCE_BYTES;
+        dataCache.getMemoryBudget().reserve("sort", workingBytes);
+        List<Map<String, Object>> sortedData;
+        try {
+            sortedData = new ArrayList<>(inputData);
             
-            sortedData.sort((a, b) -> {
-                Object valA = a.get(column);
-                Object valB = b.get(column);
-                
-                if (valA == null && valB == null) return 0;
-                if (valA == null) return -1;
-                if (valB == null) return 1;
-                
-                int comparison = valA.toString().compareTo(valB.toString());
-                return "desc".equals(direction) ? -comparison : comparison;
-            });
+            // Simple sort implementation (full implementation would handle multiple columns)
+            @SuppressWarnings("unchecked")
+            List<Map<String, Object>> sortColumns = (List<Map<String, Object>>) node.getData().get("sortColumns");
+            
+            if (sortColumns != null && !sortColumns.isEmpty()) {
+                String column = (String) sortColumns.get(0).get("column");
+                String direction = (String) sortColumns.get(0).get("direction");
+            
+                sortedData.sort((a, b) -> {
+                    Object valA = a.get(column);
+                    Object valB = b.get(column);
+            
+                    if (valA == null && valB == null) return 0;
+                    if (valA == null) return -1;
+                    if (valB == null) return 1;
+            
+                    int comparison = compareValues(valA, valB);
+                    return "desc".equals(direction) ? -comparison : comparison;
+                });
+            }
+        } finally {
+            dataCache.getMemoryBudget().release(workingBytes);
         }
-        
         dataCache.put(node.getId(), sortedData);
         logger.info("Sorted {} records", sortedData.size());
     }
     
-    private void executeJoinNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    private void executeJoinNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         // Get join configuration
         Map<String, Object> nodeData = node.getData();
         String joinType = (String) nodeData.get("joinType"); // "inner", "left", "right", "full"
@@ -409,7 +1001,21 @@ public class PipelineExecutionService {
         logger.info("Left data sample: {}", leftData.isEmpty() ? "empty" : leftData.get(0).keySet());
         logger.info("Right data sample: {}", rightData.isEmpty() ? "empty" : rightData.get(0).keySet());
         
-        List<Map<String, Object>> joinedData = performJoin(leftData, rightData, leftKey, rightKey, joinType);
+        // Hash table over the build side (the smaller input for inner joins, otherwise the non-preserved side)
+        List<Map<String, Object>> buildSide;
+        if ("inner".equalsIgnoreCase(joinType)) {
+            buildSide = leftData.size() < rightData.size() ? leftData : rightData;
+        } else {
+            buildSide = "right".equalsIgnoreCase(joinType) ? leftData : rightData;
+        }
+        long workingBytes = buildSide.size() * JOIN_BUILD_BYTES_PER_ROW;
+        dataCache.getMemoryBudget().reserve("join build", workingBytes);
+        List<Map<String, Object>> joinedData;
+        try {
+            joinedData = performJoin(leftData, rightData, leftKey, rightKey, joinType);
+        } finally {
+            dataCache.getMemoryBudget().release(workingBytes);
+        }
         
         dataCache.put(node.getId(), joinedData);
         logger.info("Joined {} + {} records -> {} records using {} join", 
@@ -441,24 +1047,33 @@ public class PipelineExecutionService {
                                                        String leftKey, String rightKey) {
         List<Map<String, Object>> result = new ArrayList<>();
         
+        // Build the hash table on the smaller input and probe with the larger one
+        if (leftData.size() < rightData.size()) {
+            Map<String, List<Map<String, Object>>> leftIndex = buildJoinIndex(leftData, leftKey);
+            for (Map<String, Object> rightRow : rightData) {
+                Object rightValue = rightRow.get(rightKey);
+                if (rightValue == null) continue;
+                
+                List<Map<String, Object>> matches = leftIndex.get(joinKey(rightValue));
+                if (matches != null) {
+                    for (Map<String, Object> leftRow : matches) {
+                        result.add(mergeJoinedRow(leftRow, rightRow));
+                    }
+                }
+            }
+            return result;
+        }
+        
+        Map<String, List<Map<String, Object>>> rightIndex = buildJoinIndex(rightData, rightKey);
+        
         for (Map<String, Object> leftRow : leftData) {
             Object leftValue = leftRow.get(leftKey);
             if (leftValue == null) continue;
             
-            for (Map<String, Object> rightRow : rightData) {
-                Object rightValue = rightRow.get(rightKey);
-                if (rightValue != null && leftValue.toString().equals(rightValue.toString())) {
-                    Map<String, Object> joinedRow = new HashMap<>(leftRow);
-                    // Add right row data with prefix to avoid column name conflicts
-                    for (Map.Entry<String, Object> entry : rightRow.entrySet()) {
-                        String key = entry.getKey();
-                        if (!joinedRow.containsKey(key)) {
-                            joinedRow.put(key, entry.getValue());
-                        } else {
-                            joinedRow.put("right_" + key, entry.getValue());
-                        }
-                    }
-                    result.add(joinedRow);
+            List<Map<String, Object>> matches = rightIndex.get(joinKey(leftValue));
+            if (matches != null) {
+                for (Map<String, Object> rightRow : matches) {
+                    result.add(mergeJoinedRow(leftRow, rightRow));
                 }
             }
         }
@@ -470,32 +1085,18 @@ public class PipelineExecutionService {
                                                       List<Map<String, Object>> rightData,
                                                       String leftKey, String rightKey) {
         List<Map<String, Object>> result = new ArrayList<>();
+        Map<String, List<Map<String, Object>>> rightIndex = buildJoinIndex(rightData, rightKey);
         
         for (Map<String, Object> leftRow : leftData) {
             Object leftValue = leftRow.get(leftKey);
-            boolean foundMatch = false;
+            List<Map<String, Object>> matches = leftValue != null ? rightIndex.get(joinKey(leftValue)) : null;
             
-            if (leftValue != null) {
-                for (Map<String, Object> rightRow : rightData) {
-                    Object rightValue = rightRow.get(rightKey);
-                    if (rightValue != null && leftValue.toString().equals(rightValue.toString())) {
-                        Map<String, Object> joinedRow = new HashMap<>(leftRow);
-                        for (Map.Entry<String, Object> entry : rightRow.entrySet()) {
-                            String key = entry.getKey();
-                            if (!joinedRow.containsKey(key)) {
-                                joinedRow.put(key, entry.getValue());
-                            } else {
-                                joinedRow.put("right_" + key, entry.getValue());
-                            }
-                        }
-                        result.add(joinedRow);
-                        foundMatch = true;
-                    }
+            if (matches != null) {
+                for (Map<String, Object> rightRow : matches) {
+                    result.add(mergeJoinedRow(leftRow, rightRow));
                 }
-            }
-            
-            // If no match found, add left row with null values for right columns
-            if (!foundMatch) {
+            } else {
+                // If no match found, add left row with null values for right columns
                 Map<String, Object> joinedRow = new HashMap<>(leftRow);
                 // Add null values for right table columns
                 if (!rightData.isEmpty()) {
@@ -515,6 +1116,49 @@ public class PipelineExecutionService {
         return result;
     }
     
+    /**
+     * Hash the build side by join key so each probe row is matched in O(1)
+     * instead of scanning the whole other input. Rows keep their input order within a key.
+     */
+    private Map<String, List<Map<String, Object>>> buildJoinIndex(List<Map<String, Object>> rows, String key) {
+        Map<String, List<Map<String, Object>>> index = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            Object value = row.get(key);
+            if (value != null) {
+                index.computeIfAbsent(joinKey(value), k -> new ArrayList<>(1)).add(row);
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Text a join or group key is matched on. Numbers are compared by value, so 100 from a long
+     * column, 100.0 from a double column and 1.00E2 from a SQL decimal all match.
+     */
+    private static String joinKey(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros().toPlainString();
+        }
+        if ((value instanceof Double || value instanceof Float) && Double.isFinite(((Number) value).doubleValue())) {
+            return BigDecimal.valueOf(((Number) value).doubleValue()).stripTrailingZeros().toPlainString();
+        }
+        return value.toString();
+    }
+    
+    private Map<String, Object> mergeJoinedRow(Map<String, Object> leftRow, Map<String, Object> rightRow) {
+        Map<String, Object> joinedRow = new HashMap<>(leftRow);
+        // Add right row data with prefix to avoid column name conflicts
+        for (Map.Entry<String, Object> entry : rightRow.entrySet()) {
+            String key = entry.getKey();
+            if (!joinedRow.containsKey(key)) {
+                joinedRow.put(key, entry.getValue());
+            } else {
+                joinedRow.put("right_" + key, entry.getValue());
+            }
+        }
+        return joinedRow;
+    }
+    
     private List<Map<String, Object>> performRightJoin(List<Map<String, Object>> leftData,
                                                        List<Map<String, Object>> rightData,
                                                        String leftKey, String rightKey) {
@@ -532,22 +1176,18 @@ public class PipelineExecutionService {
         result.addAll(performLeftJoin(leftData, rightData, leftKey, rightKey));
         
         // Track which right rows were matched
+        Set<String> rightKeys = buildJoinIndex(rightData, rightKey).keySet();
         for (Map<String, Object> leftRow : leftData) {
             Object leftValue = leftRow.get(leftKey);
-            if (leftValue != null) {
-                for (Map<String, Object> rightRow : rightData) {
-                    Object rightValue = rightRow.get(rightKey);
-                    if (rightValue != null && leftValue.toString().equals(rightValue.toString())) {
-                        rightMatchedKeys.add(rightValue.toString());
-                    }
-                }
+            if (leftValue != null && rightKeys.contains(joinKey(leftValue))) {
+                rightMatchedKeys.add(joinKey(leftValue));
             }
         }
         
         // Add unmatched right rows
         for (Map<String, Object> rightRow : rightData) {
             Object rightValue = rightRow.get(rightKey);
-            if (rightValue != null && !rightMatchedKeys.contains(rightValue.toString())) {
+            if (rightValue != null && !rightMatchedKeys.contains(joinKey(rightValue))) {
                 Map<String, Object> joinedRow = new HashMap<>(rightRow);
                 // Add null values for left table columns
                 if (!leftData.isEmpty()) {
@@ -565,7 +1205,7 @@ public class PipelineExecutionService {
         return result;
     }
 
-    private void executeSqlOutputNode(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    private void executeSqlOutputNode(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         try {
             List<Map<String, Object>> inputData = getInputData(node, dataCache, pipeline);
             
@@ -580,28 +1220,34 @@ public class PipelineExecutionService {
                 throw new IllegalArgumentException("Table name must be specified for SQL output node");
             }
             
-            switch (databaseType.toLowerCase()) {
-                case "sqlite":
-                    writeSqliteTable(tableName, inputData);
+            SqlDialect dialect = SqlDialect.of(databaseType);
+            Map<String, Object> metrics;
+            switch (dialect) {
+                case SQLITE:
+                    metrics = writeSqliteTable(node, tableName, inputData);
                     break;
-                case "mysql":
-                    writeMySqlTable(node, tableName, inputData);
+                case MYSQL:
+                    metrics = writeMySqlTable(node, tableName, inputData);
                     break;
-                case "postgresql":
-                    writePostgreSqlTable(node, tableName, inputData);
+                case POSTGRESQL:
+                    metrics = writePostgreSqlTable(node, tableName, inputData);
                     break;
-                case "mssql":
-                case "sqlserver":
-                    writeSqlServerTable(node, tableName, inputData);
+                case SQLSERVER:
+                    metrics = writeSqlServerTable(node, tableName, inputData);
                     break;
-                case "oracle":
-                    writeOracleTable(node, tableName, inputData);
+                case ORACLE:
+                    metrics = writeOracleTable(node, tableName, inputData);
                     break;
                 default:
                     throw new IllegalArgumentException("Unsupported database type: " + databaseType);
             }
             
-            logger.info("Written {} records to table: {} ({})", inputData.size(), tableName, databaseType);
+            if (metrics != null) {
+                dataCache.recordMetrics(node.getId(), metrics);
+                logger.info("Written {} records to table: {} ({}) in {} ms, {} rows/s ({} {}, {} commits)",
+                        inputData.size(), tableName, databaseType, metrics.get("writeMs"), metrics.get("rowsPerSecond"),
+                        metrics.get("writeMode"), metrics.get("method"), metrics.get("commits"));
+            }
             
         } catch (Exception e) {
             throw new RuntimeException("Failed to write to SQL output: " + e.getMessage(), e);
@@ -609,93 +1255,94 @@ public class PipelineExecutionService {
     }
     
     // MySQL Output Implementation
-    private void writeMySqlTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
+    private Map<String, Object> writeMySqlTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
         if (data.isEmpty()) {
             logger.warn("No data to write to MySQL table: {}", tableName);
-            return;
+            return null;
         }
         
-        String connectionUrl = buildConnectionUrl(node, "mysql", 3306);
-        String username = node.getDataString("username");
-        String password = node.getDataString("password");
+        SqlDialect dialect = SqlDialect.MYSQL;
         
-        try (Connection conn = DriverManager.getConnection(connectionUrl, username, password)) {
-            // Create table with auto-detection of column types
-            createTableWithTypes(conn, tableName, data);
-            
-            // Insert data
-            insertData(conn, tableName, data);
+        try (Connection conn = openSinkConnection(node, "mysql", 3306)) {
+            // Write in the node's write mode (replace, append, upsert or swap)
+            Map<String, Object> metrics = writeTable(conn, () -> openSinkConnection(node, "mysql", 3306),
+                    dialect, node, tableName, data);
             
             logger.info("MySQL table '{}' created/updated with {} records", tableName, data.size());
+            return metrics;
         }
     }
     
     // PostgreSQL Output Implementation
-    private void writePostgreSqlTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
+    private Map<String, Object> writePostgreSqlTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
         if (data.isEmpty()) {
             logger.warn("No data to write to PostgreSQL table: {}", tableName);
-            return;
+            return null;
         }
         
-        String connectionUrl = buildConnectionUrl(node, "postgresql", 5432);
-        String username = node.getDataString("username");
-        String password = node.getDataString("password");
+        SqlDialect dialect = SqlDialect.POSTGRESQL;
         
-        try (Connection conn = DriverManager.getConnection(connectionUrl, username, password)) {
-            // Create table with auto-detection of column types
-            createTableWithTypesPostgreSQL(conn, tableName, data);
-            
-            // Insert data
-            insertData(conn, tableName, data);
+        try (Connection conn = openSinkConnection(node, "postgresql", 5432)) {
+            // Write in the node's write mode (replace, append, upsert or swap)
+            Map<String, Object> metrics = writeTable(conn, () -> openSinkConnection(node, "postgresql", 5432),
+                    dialect, node, tableName, data);
             
             logger.info("PostgreSQL table '{}' created/updated with {} records", tableName, data.size());
+            return metrics;
         }
     }
     
     // SQL Server Output Implementation
-    private void writeSqlServerTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
+    private Map<String, Object> writeSqlServerTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
         if (data.isEmpty()) {
             logger.warn("No data to write to SQL Server table: {}", tableName);
-            return;
+            return null;
         }
         
-        String connectionUrl = buildConnectionUrl(node, "sqlserver", 1433);
-        String username = node.getDataString("username");
-        String password = node.getDataString("password");
+        SqlDialect dialect = SqlDialect.SQLSERVER;
         
-        try (Connection conn = DriverManager.getConnection(connectionUrl, username, password)) {
-            // Create table with auto-detection of column types
-            createTableWithTypesSqlServer(conn, tableName, data);
-            
-            // Insert data
-            insertData(conn, tableName, data);
+        try (Connection conn = openSinkConnection(node, "sqlserver", 1433)) {
+            // Write in the node's write mode (replace, append, upsert or swap)
+            Map<String, Object> metrics = writeTable(conn, () -> openSinkConnection(node, "sqlserver", 1433),
+                    dialect, node, tableName, data);
             
             logger.info("SQL Server table '{}' created/updated with {} records", tableName, data.size());
+            return metrics;
         }
     }
     
     // Oracle Output Implementation
-    private void writeOracleTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
+    private Map<String, Object> writeOracleTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
         if (data.isEmpty()) {
             logger.warn("No data to write to Oracle table: {}", tableName);
-            return;
+            return null;
         }
         
-        String connectionUrl = buildConnectionUrl(node, "oracle", 1521);
-        String username = node.getDataString("username");
-        String password = node.getDataString("password");
+        SqlDialect dialect = SqlDialect.ORACLE;
         
-        try (Connection conn = DriverManager.getConnection(connectionUrl, username, password)) {
-            // Create table with auto-detection of column types
-            createTableWithTypesOracle(conn, tableName, data);
-            
-            // Insert data
-            insertData(conn, tableName, data);
+        try (Connection conn = openSinkConnection(node, "oracle", 1521)) {
+            // Write in the node's write mode (replace, append, upsert or swap)
+            Map<String, Object> metrics = writeTable(conn, () -> openSinkConnection(node, "oracle", 1521),
+                    dialect, node, tableName, data);
             
             logger.info("Oracle table '{}' created/updated with {} records", tableName, data.size());
+            return metrics;
         }
     }
     
+    /**
+     * Borrow a pooled connection for a SQL sink: from the node's named connection profile if it has
+     * one, otherwise from the pool shared by every node with the same connection details
+     */
+    private Connection openSinkConnection(PipelineNode node, String dbType, int defaultPort) throws SQLException {
+        String profile = node.getDataString("connectionProfile");
+        if (profile != null && !profile.isBlank()) {
+            return connections.getConnection(profile);
+        }
+        return connections.getConnection(buildConnectionUrl(node, dbType, defaultPort),
+                node.getDataString("username"), node.getDataString("password"));
+    }
+    
     // Helper method to build connection URL for different database types
     private String buildConnectionUrl(PipelineNode node, String dbType, int defaultPort) {
         String connectionString = node.getDataString("connectionString");
@@ -735,318 +1382,479 @@ public class PipelineExecutionService {
         }
     }
     
-    // PostgreSQL-specific table creation (handles different data types)
-    private void createTableWithTypesPostgreSQL(Connection conn, String tableName, List<Map<String, Object>> data) throws SQLException {
-        if (data.isEmpty()) return;
+    private Map<String, Object> writeSqliteTable(PipelineNode node, String tableName, List<Map<String, Object>> data) throws SQLException {
+        if (data.isEmpty()) {
+            logger.warn("No data to write to table: {}", tableName);
+            return null;
+        }
+        SqlDialect dialect = SqlDialect.SQLITE;
         
-        // Drop table if exists and recreate (for demo purposes)
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute("DROP TABLE IF EXISTS " + tableName);
+        // Create output directory if it doesn't exist
+        try {
+            Files.createDirectories(Paths.get("output"));
+        } catch (IOException e) {
+            logger.warn("Could not create output directory: {}", e.getMessage());
         }
         
-        Map<String, Object> firstRow = data.get(0);
-        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(tableName).append(" (");
+        String dbPath = "output/pipeline_results.db";
+        String url = "jdbc:sqlite:" + dbPath;
         
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : firstRow.entrySet()) {
-            if (!first) sql.append(", ");
-            sql.append(entry.getKey()).append(" ");
-            
-            // PostgreSQL-specific type mapping
-            Object value = entry.getValue();
-            if (value instanceof Integer || value instanceof Long) {
-                sql.append("BIGINT");
-            } else if (value instanceof Double || value instanceof Float) {
-                sql.append("DOUBLE PRECISION");
-            } else if (value instanceof Boolean) {
-                sql.append("BOOLEAN");
-            } else {
-                sql.append("TEXT");
+        try (Connection conn = connections.getConnection(url, null, null)) {
+            // Enable foreign keys and other SQLite features
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA foreign_keys = ON");
+                stmt.execute("PRAGMA journal_mode = WAL");
             }
-            first = false;
+            
+            // Write in the node's write mode (replace, append, upsert or swap)
+            Map<String, Object> metrics = writeTable(conn, () -> connections.getConnection(url, null, null),
+                    dialect, node, tableName, data);
+            
+            logger.info("SQLite database created/updated at: {}", new File(dbPath).getAbsolutePath());
+            logger.info("Table '{}' contains {} records", tableName, data.size());
+            return metrics;
         }
-        sql.append(")");
-        
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql.toString());
-            logger.info("PostgreSQL table created: {}", sql.toString());
+    }
+    
+    /**
+     * Write rows to a SQL sink table with the node's "writeMode":
+     * "replace" (the default) drops the table and recreates it with the rows.
+     * "append" creates the table if it does not exist and inserts the rows.
+     * "upsert" creates the table with a primary key on the node's "keyColumns" if it does not
+     * exist, then inserts each row or updates the row with the same key; when several rows share a
+     * key the last one wins.
+     * "swap" loads the rows into a staging table and then replaces the table with it, so readers
+     * see the complete old table until the new one is complete.
+     * Append and upsert leave existing rows alone, so a delta costs time in proportion to its rows.
+     * 
+     * With "writers" above 1 the rows are split into that many partitions written concurrently,
+     * each over its own pooled connection (see {@link #loadRows}), into a staging table: a replace
+     * then swaps it in, and an append or upsert applies it to the table in one transaction, so the
+     * table is never seen half loaded and a failed load leaves it untouched.
+     * @param conn connection for the DDL and single-writer loads
+     * @param opener borrows another connection to the same database for each concurrent writer
+     * @return the load's metrics, including the write mode
+     */
+    private Map<String, Object> writeTable(Connection conn, Callable<Connection> opener, SqlDialect dialect,
+                                           PipelineNode node, String tableName,
+                                           List<Map<String, Object>> data) throws SQLException {
+        String mode = node.getDataString("writeMode");
+        mode = mode == null || mode.isBlank() ? "replace" : mode.trim().toLowerCase();
+        SinkSchema schema = SinkSchema.scan(data);
+        List<String> columns = schema.getColumnNames();
+        int writers = sinkWriters(node, dialect, data.size());
+        
+        Map<String, Object> metrics;
+        switch (mode) {
+            case "replace":
+                if (writers > 1) {
+                    metrics = swapInData(conn, opener, dialect, node, tableName, schema, data, writers);
+                    break;
+                }
+                createTable(conn, dialect, tableName, schema);
+                metrics = insertData(conn, dialect, node, tableName, columns, data);
+                break;
+            case "append":
+                createTableIfMissing(conn, dialect, tableName, schema, Collections.emptyList());
+                metrics = writers > 1
+                        ? stageAndApply(conn, opener, dialect, node, tableName, schema, Collections.emptyList(), data, writers)
+                        : insertData(conn, dialect, node, tableName, columns, data);
+                break;
+            case "upsert": {
+                List<String> keyColumns = getKeyColumns(node);
+                if (keyColumns.isEmpty()) {
+                    throw new IllegalArgumentException("Upsert into " + tableName + " needs keyColumns");
+                }
+                for (String key : keyColumns) {
+                    if (!columns.contains(key)) {
+                        throw new IllegalArgumentException("Key column not found in the rows: " + key);
+                    }
+                }
+                createTableIfMissing(conn, dialect, tableName, schema, keyColumns);
+                List<Map<String, Object>> rows = lastRowPerKey(data, keyColumns);
+                metrics = writers > 1
+                        ? stageAndApply(conn, opener, dialect, node, tableName, schema, keyColumns, rows, writers)
+                        : batchInsertData(conn, dialect, node, tableName, columns,
+                                dialect.upsertSql(tableName, columns, keyColumns), rows);
+                metrics.put("keyColumns", keyColumns);
+                break;
+            }
+            case "swap":
+                metrics = swapInData(conn, opener, dialect, node, tableName, schema, data, writers);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown write mode: " + mode + " (expected replace, append, upsert or swap)");
         }
+        metrics.put("writeMode", mode);
+        return metrics;
     }
     
-    // SQL Server-specific table creation
-    private void createTableWithTypesSqlServer(Connection conn, String tableName, List<Map<String, Object>> data) throws SQLException {
-        if (data.isEmpty()) return;
-        
-        // Drop table if exists and recreate (for demo purposes)
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute("IF OBJECT_ID('" + tableName + "', 'U') IS NOT NULL DROP TABLE " + tableName);
+    /**
+     * Key columns of an upsert, given as a list or a comma-separated string
+     */
+    private List<String> getKeyColumns(PipelineNode node) {
+        Object keys = node.getData().get("keyColumns");
+        List<String> keyColumns = new ArrayList<>();
+        if (keys instanceof List) {
+            for (Object key : (List<?>) keys) {
+                keyColumns.add(String.valueOf(key).trim());
+            }
+        } else if (keys != null) {
+            for (String key : keys.toString().split(",")) {
+                if (!key.isBlank()) {
+                    keyColumns.add(key.trim());
+                }
+            }
         }
-        
-        Map<String, Object> firstRow = data.get(0);
-        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(tableName).append(" (");
-        
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : firstRow.entrySet()) {
-            if (!first) sql.append(", ");
-            sql.append("[").append(entry.getKey()).append("] ");
-            
-            // SQL Server-specific type mapping
-            Object value = entry.getValue();
-            if (value instanceof Integer) {
-                sql.append("INT");
-            } else if (value instanceof Long) {
-                sql.append("BIGINT");
-            } else if (value instanceof Double || value instanceof Float) {
-                sql.append("FLOAT");
-            } else if (value instanceof Boolean) {
-                sql.append("BIT");
-            } else {
-                sql.append("NVARCHAR(MAX)");
+        return keyColumns;
+    }
+    
+    /**
+     * The last row for each key, in order of the keys' first appearance; one statement batch may
+     * not touch the same key twice (PostgreSQL rejects that), and the last row is the one that
+     * would win anyway
+     */
+    private List<Map<String, Object>> lastRowPerKey(List<Map<String, Object>> data, List<String> keyColumns) {
+        Map<List<Object>, Map<String, Object>> rowsByKey = new LinkedHashMap<>();
+        for (Map<String, Object> row : data) {
+            List<Object> key = new ArrayList<>(keyColumns.size());
+            for (String column : keyColumns) {
+                Object value = row.get(column);
+                if (value == null) {
+                    throw new IllegalArgumentException("Upsert key column " + column + " is null in row " + row);
+                }
+                key.add(value);
             }
-            first = false;
+            rowsByKey.put(key, row);
         }
-        sql.append(")");
-        
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql.toString());
-            logger.info("SQL Server table created: {}", sql.toString());
+        if (rowsByKey.size() == data.size()) {
+            return data;
         }
+        logger.info("Upsert collapsed {} rows to {} distinct keys", data.size(), rowsByKey.size());
+        return new ArrayList<>(rowsByKey.values());
     }
     
-    // Oracle-specific table creation
-    private void createTableWithTypesOracle(Connection conn, String tableName, List<Map<String, Object>> data) throws SQLException {
-        if (data.isEmpty()) return;
-        
-        // Drop table if exists and recreate (for demo purposes)
+    /**
+     * Load the rows into a staging table next to the table, then swap the two in one transaction
+     * and drop the old table. The staging and retired tables get names unique to this run, are
+     * created (or renamed to) without dropping anything already there, so an existing table of
+     * that name makes the run fail rather than be lost, and concurrent runs never share them.
+     * A failed load or swap drops the staging table and leaves the table untouched.
+     */
+    private Map<String, Object> swapInData(Connection conn, Callable<Connection> opener, SqlDialect dialect,
+                                           PipelineNode node, String tableName, SinkSchema schema,
+                                           List<Map<String, Object>> data, int writers) throws SQLException {
+        String runSuffix = UUID.randomUUID().toString().substring(0, 8);
+        String stagingTable = tableName + "_stg_" + runSuffix;
+        String retiredTable = tableName + "_old_" + runSuffix;
+        String createStaging = schema.createTableSql(dialect, stagingTable);
         try (Statement stmt = conn.createStatement()) {
-            stmt.execute("BEGIN EXECUTE IMMEDIATE 'DROP TABLE " + tableName + "'; EXCEPTION WHEN OTHERS THEN NULL; END;");
+            stmt.execute(createStaging);
         }
+        logger.info("Created {} staging table: {}", dialect.getName(), createStaging);
         
-        Map<String, Object> firstRow = data.get(0);
-        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(tableName).append(" (");
-        
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : firstRow.entrySet()) {
-            if (!first) sql.append(", ");
-            sql.append(entry.getKey()).append(" ");
-            
-            // Oracle-specific type mapping
-            Object value = entry.getValue();
-            if (value instanceof Integer || value instanceof Long) {
-                sql.append("NUMBER");
-            } else if (value instanceof Double || value instanceof Float) {
-                sql.append("NUMBER(38,2)");
-            } else if (value instanceof Boolean) {
-                sql.append("NUMBER(1)"); // Oracle doesn't have BOOLEAN, use NUMBER(1)
-            } else {
-                sql.append("VARCHAR2(4000)");
+        Map<String, Object> metrics;
+        try {
+            metrics = loadRows(conn, opener, dialect, node, stagingTable, schema.getColumnNames(), data, writers);
+            try (Statement stmt = conn.createStatement()) {
+                // The swap renames the table away, so it has to exist on the first run
+                stmt.execute(dialect.createTableIfMissingSql(schema.createTableSql(dialect, tableName), tableName));
+            }
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : dialect.swapTablesSql(tableName, stagingTable, retiredTable)) {
+                    stmt.execute(sql);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException | RuntimeException e) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(dialect.dropTableSql(stagingTable));
+            } catch (SQLException dropError) {
+                e.addSuppressed(dropError);
             }
-            first = false;
+            throw e;
         }
-        sql.append(")");
         
+        // Only this run's rename created the retired table
         try (Statement stmt = conn.createStatement()) {
-            stmt.execute(sql.toString());
-            logger.info("Oracle table created: {}", sql.toString());
+            stmt.execute(dialect.dropTableSql(retiredTable));
         }
+        logger.info("Swapped staging table {} in as {}", stagingTable, tableName);
+        return metrics;
     }
     
-    private List<Map<String, Object>> readCsvFile(String filePath) throws IOException {
-        List<Map<String, Object>> data = new ArrayList<>();
-        
-        // Handle different path formats
-        String resolvedPath = filePath;
-        
-        if (filePath.startsWith("/sample-data/")) {
-            resolvedPath = "../sample-data/" + filePath.substring("/sample-data/".length());
-        } else if (filePath.startsWith("sample-data/")) {
-            resolvedPath = "../" + filePath;
-        } else if (filePath.startsWith("/uploads/")) {
-            resolvedPath = "../sample-data/" + filePath.substring("/uploads/".length());
-        } else if (filePath.startsWith("\\uploads\\")) {
-            resolvedPath = "../sample-data/" + filePath.substring("\\uploads\\".length());
-        } else if (!Paths.get(filePath).isAbsolute()) {
-            // Try relative to project root (backend runs from backend/ directory)
-            resolvedPath = "../sample-data/" + filePath;
+    /**
+     * Load the rows with several writers into a staging table unique to this run, then insert it
+     * into the table (or upsert it on the key columns) with one statement in one transaction, so a
+     * failed writer leaves the table untouched and the load can simply be retried. The staging
+     * table is dropped either way.
+     */
+    private Map<String, Object> stageAndApply(Connection conn, Callable<Connection> opener, SqlDialect dialect,
+                                              PipelineNode node, String tableName, SinkSchema schema,
+                                              List<String> keyColumns, List<Map<String, Object>> rows,
+                                              int writers) throws SQLException {
+        List<String> columns = schema.getColumnNames();
+        String stagingTable = tableName + "_stg_" + UUID.randomUUID().toString().substring(0, 8);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(schema.createTableSql(dialect, stagingTable));
         }
         
-        logger.info("Attempting to read CSV file: {} -> resolved to: {}", filePath, resolvedPath);
-        
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(resolvedPath))) {
-            String headerLine = reader.readLine();
-            if (headerLine == null) {
-                logger.warn("CSV file is empty: {}", resolvedPath);
-                return data;
+        Map<String, Object> metrics;
+        try {
+            metrics = loadRows(conn, opener, dialect, node, stagingTable, columns, rows, writers);
+            String applySql = keyColumns.isEmpty()
+                    ? dialect.insertFromTableSql(tableName, stagingTable, columns)
+                    : dialect.upsertFromTableSql(tableName, stagingTable, columns, keyColumns);
+            long applyStart = System.nanoTime();
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(applySql);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
             }
-            
-            String[] headers = parseCsvLine(headerLine);
-            logger.info("CSV headers: {}", Arrays.toString(headers));
-            String line;
-            int lineNumber = 1;
-            
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                if (line.trim().isEmpty()) {
-                    continue; // Skip empty lines
-                }
-                
-                String[] values = parseCsvLine(line);
-                Map<String, Object> row = new HashMap<>();
-                
-                for (int i = 0; i < headers.length && i < values.length; i++) {
-                    row.put(headers[i].trim(), values[i].trim());
-                }
-                
-                data.add(row);
+            metrics.put("applyMs", (System.nanoTime() - applyStart) / 1_000_000);
+        } catch (SQLException | RuntimeException e) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(dialect.dropTableSql(stagingTable));
+            } catch (SQLException dropError) {
+                e.addSuppressed(dropError);
             }
-            
-            logger.info("Successfully read {} records from CSV file: {}", data.size(), resolvedPath);
-        } catch (IOException e) {
-            logger.error("Error reading CSV file: {}", resolvedPath, e);
             throw e;
         }
         
-        return data;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(dialect.dropTableSql(stagingTable));
+        }
+        logger.info("Applied staging table {} to {}", stagingTable, tableName);
+        return metrics;
     }
     
-    private String[] parseCsvLine(String line) {
-        // Simple CSV parser that handles basic quoted fields
-        List<String> fields = new ArrayList<>();
-        boolean inQuotes = false;
-        StringBuilder currentField = new StringBuilder();
-        
-        for (int i = 0; i < line.length(); i++) {
-            char ch = line.charAt(i);
-            
-            if (ch == '"' && (i == 0 || line.charAt(i-1) != '\\')) {
-                inQuotes = !inQuotes;
-            } else if (ch == ',' && !inQuotes) {
-                fields.add(currentField.toString());
-                currentField = new StringBuilder();
-            } else {
-                currentField.append(ch);
-            }
+    /**
+     * Concurrent writers for a SQL sink: the node's "writers" (default 1), capped so the writers
+     * fit in the connection pool next to the connection already held, so each writer gets at least
+     * MIN_ROWS_PER_SQL_WRITER rows, and to 1 where the database takes one writer at a time
+     */
+    private int sinkWriters(PipelineNode node, SqlDialect dialect, int rows) {
+        Integer requested = node.getDataInteger("writers");
+        if (requested == null || requested <= 1) {
+            return 1;
         }
-        
-        fields.add(currentField.toString());
-        return fields.toArray(new String[0]);
+        if (!dialect.supportsConcurrentWriters()) {
+            logger.warn("{} takes one writer at a time, ignoring writers = {}", dialect.getName(), requested);
+            return 1;
+        }
+        int writers = Math.min(requested, Math.max(1, connections.getMaxPoolSize() - 1));
+        return Math.max(1, Math.min(writers, rows / MIN_ROWS_PER_SQL_WRITER));
     }
     
-    private void writeSqliteTable(String tableName, List<Map<String, Object>> data) throws SQLException {
-        if (data.isEmpty()) {
-            logger.warn("No data to write to table: {}", tableName);
-            return;
+    /**
+     * Load rows into a table. With one writer the rows go over the given connection; with more,
+     * they are split into one partition per writer and each partition is loaded on an I/O thread
+     * over its own pooled connection, in its own transactions, with the node's load strategy.
+     * 
+     * If a writer fails the others are cancelled (each rolls back its open transaction) and the
+     * failure is thrown; what they had committed stays in the table, so concurrent loads go into
+     * staging tables (see {@link #swapInData} and {@link #stageAndApply}).
+     */
+    private Map<String, Object> loadRows(Connection conn, Callable<Connection> opener, SqlDialect dialect,
+                                         PipelineNode node, String tableName, List<String> columns,
+                                         List<Map<String, Object>> data, int writers) throws SQLException {
+        if (writers <= 1) {
+            return insertData(conn, dialect, node, tableName, columns, data);
         }
         
-        // Create output directory if it doesn't exist
-        try {
-            Files.createDirectories(Paths.get("output"));
-        } catch (IOException e) {
-            logger.warn("Could not create output directory: {}", e.getMessage());
+        List<List<Map<String, Object>>> partitions = sliceRows(data, writers);
+        long startNanos = System.nanoTime();
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        for (List<Map<String, Object>> partition : partitions) {
+            futures.add(threads.getIoExecutor().submit(() -> {
+                try (Connection writerConn = opener.call()) {
+                    return insertData(writerConn, dialect, node, tableName, columns, partition);
+                }
+            }));
         }
         
-        String dbPath = "output/pipeline_results.db";
-        String url = "jdbc:sqlite:" + dbPath;
+        List<Map<String, Object>> writerMetrics = new ArrayList<>();
+        Throwable failure = null;
+        for (Future<Map<String, Object>> future : futures) {
+            try {
+                writerMetrics.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = failure != null ? failure : e;
+                futures.forEach(f -> f.cancel(true));
+            } catch (CancellationException e) {
+                // Cancelled after another writer failed
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                    futures.forEach(f -> f.cancel(true));
+                }
+            }
+        }
+        if (failure != null) {
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new SQLException("Concurrent load into " + tableName + " failed: " + failure.getMessage(), failure);
+        }
         
-        try (Connection conn = DriverManager.getConnection(url)) {
-            // Enable foreign keys and other SQLite features
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute("PRAGMA foreign_keys = ON");
-                stmt.execute("PRAGMA journal_mode = WAL");
+        long nanos = System.nanoTime() - startNanos;
+        long rows = 0, batches = 0, commits = 0;
+        for (Map<String, Object> metrics : writerMetrics) {
+            rows += ((Number) metrics.getOrDefault("rows", 0L)).longValue();
+            batches += ((Number) metrics.getOrDefault("batches", 0L)).longValue();
+            commits += ((Number) metrics.getOrDefault("commits", 0L)).longValue();
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("method", writerMetrics.get(0).get("method"));
+        metrics.put("writers", partitions.size());
+        metrics.put("rows", rows);
+        metrics.put("batches", batches);
+        metrics.put("commits", commits);
+        metrics.put("writeMs", nanos / 1_000_000);
+        metrics.put("rowsPerSecond", nanos > 0 ? Math.round(rows * 1e9 / nanos) : 0);
+        metrics.put("perWriter", writerMetrics);
+        return metrics;
+    }
+    
+    private List<List<Map<String, Object>>> sliceRows(List<Map<String, Object>> data, int parts) {
+        List<List<Map<String, Object>>> slices = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) {
+            List<Map<String, Object>> slice = data.subList((int) ((long) data.size() * i / parts),
+                    (int) ((long) data.size() * (i + 1) / parts));
+            if (!slice.isEmpty()) {
+                slices.add(slice);
             }
-            
-            // Create table with auto-detection of column types
-            createTableWithTypes(conn, tableName, data);
-            
-            // Insert data
-            insertData(conn, tableName, data);
-            
-            logger.info("SQLite database created/updated at: {}", new File(dbPath).getAbsolutePath());
-            logger.info("Table '{}' contains {} records", tableName, data.size());
         }
+        return slices;
     }
     
-    private void createTableWithTypes(Connection conn, String tableName, List<Map<String, Object>> data) throws SQLException {
-        if (data.isEmpty()) return;
-        
-        Map<String, Object> sampleRow = data.get(0);
-        StringBuilder sql = new StringBuilder("CREATE TABLE IF NOT EXISTS " + tableName + " (");
-        
-        boolean first = true;
-        for (Map.Entry<String, Object> entry : sampleRow.entrySet()) {
-            if (!first) sql.append(", ");
-            
-            String columnName = entry.getKey();
-            String columnType = detectColumnType(columnName, data);
-            
-            sql.append(columnName).append(" ").append(columnType);
-            first = false;
+    /**
+     * Create the sink table, with a primary key on the key columns if any, unless it already exists.
+     * Later runs append or upsert to it, so its column types are the growable ones.
+     */
+    private void createTableIfMissing(Connection conn, SqlDialect dialect, String tableName, SinkSchema schema,
+                                      List<String> keyColumns) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(dialect.createTableIfMissingSql(schema.createGrowableTableSql(dialect, tableName, keyColumns), tableName));
         }
-        
-        sql.append(")");
-        
+    }
+    
+    /**
+     * Replace the sink table with one whose columns are typed from the rows to be written
+     */
+    private void createTable(Connection conn, SqlDialect dialect, String tableName, SinkSchema schema) throws SQLException {
+        String sql = schema.createTableSql(dialect, tableName);
         try (Statement stmt = conn.createStatement()) {
             // Drop table if exists to ensure clean structure
-            stmt.execute("DROP TABLE IF EXISTS " + tableName);
-            stmt.execute(sql.toString());
-            logger.info("Created table: {} with schema: {}", tableName, sql.toString());
+            stmt.execute(dialect.dropTableSql(tableName));
+            stmt.execute(sql);
         }
+        logger.info("Created {} table: {}", dialect.getName(), sql);
     }
     
-    private String detectColumnType(String columnName, List<Map<String, Object>> data) {
-        // Sample a few rows to detect type
-        int sampleSize = Math.min(10, data.size());
-        boolean allNumeric = true;
-        boolean allInteger = true;
+    /**
+     * Load rows into the table with the node's "loadStrategy":
+     * "batch" inserts in JDBC batches, committing every commitEvery batches; the node may set
+     * "batchSize" (rows, or "auto" to tune it while loading) and "commitEvery" (batches).
+     * "bulk" uses the database's native bulk path (COPY for PostgreSQL, a single relaxed-durability
+     * transaction for SQLite) and fails if it fails.
+     * "auto" (the default) tries the bulk path where there is one and falls back to batches if it
+     * fails; a failed bulk load is rolled back as a whole, so nothing is written twice.
+     * @return the load's metrics, including the method used and rows per second
+     */
+    private Map<String, Object> insertData(Connection conn, SqlDialect dialect, PipelineNode node, String tableName,
+                                           List<String> columns, List<Map<String, Object>> data) throws SQLException {
+        String strategy = node.getDataString("loadStrategy");
+        strategy = strategy == null || strategy.isBlank() ? "auto" : strategy.trim().toLowerCase();
+        if (!strategy.equals("auto") && !strategy.equals("bulk") && !strategy.equals("batch")) {
+            throw new IllegalArgumentException("Unknown load strategy: " + strategy + " (expected auto, bulk or batch)");
+        }
+        if (strategy.equals("bulk") && !dialect.supportsBulkLoad()) {
+            logger.warn("No bulk load path for {}, inserting into {} in batches", dialect.getName(), tableName);
+            strategy = "batch";
+        }
         
-        for (int i = 0; i < sampleSize; i++) {
-            Object value = data.get(i).get(columnName);
-            if (value == null || value.toString().trim().isEmpty()) continue;
-            
-            String strValue = value.toString().trim();
-            
+        if (!strategy.equals("batch") && dialect.supportsBulkLoad()) {
             try {
-                if (strValue.contains(".")) {
-                    Double.parseDouble(strValue);
-                    allInteger = false;
-                } else {
-                    Long.parseLong(strValue);
+                return bulkInsertData(conn, dialect, tableName, columns, data);
+            } catch (SQLException e) {
+                if (strategy.equals("bulk")) {
+                    throw e;
                 }
-            } catch (NumberFormatException e) {
-                allNumeric = false;
-                break;
+                logger.warn("Bulk load into {} failed, falling back to batched inserts: {}", tableName, e.getMessage());
+                Map<String, Object> metrics = batchInsertData(conn, dialect, node, tableName, columns, data);
+                metrics.put("fallbackFrom", dialect == SqlDialect.POSTGRESQL ? "copy" : "sqliteBulk");
+                return metrics;
             }
         }
-        
-        if (allNumeric) {
-            return allInteger ? "INTEGER" : "REAL";
-        } else {
-            return "TEXT";
+        return batchInsertData(conn, dialect, node, tableName, columns, data);
+    }
+    
+    private Map<String, Object> batchInsertData(Connection conn, SqlDialect dialect, PipelineNode node, String tableName,
+                                                List<String> columns, List<Map<String, Object>> data) throws SQLException {
+        return batchInsertData(conn, dialect, node, tableName, columns, null, data);
+    }
+    
+    /**
+     * @param statementSql statement run per row, or null for a plain INSERT
+     */
+    private Map<String, Object> batchInsertData(Connection conn, SqlDialect dialect, PipelineNode node, String tableName,
+                                                List<String> columns, String statementSql,
+                                                List<Map<String, Object>> data) throws SQLException {
+        Object requestedBatchSize = node.getData().get("batchSize");
+        Integer batchSize = "auto".equalsIgnoreCase(String.valueOf(requestedBatchSize)) ? Integer.valueOf(0) : node.getDataInteger("batchSize");
+        Integer commitEvery = node.getDataInteger("commitEvery");
+        
+        int rowsPerBatch = batchSize != null ? batchSize : dialect.getDefaultBatchSize();
+        int batchesPerCommit = commitEvery != null ? commitEvery : sqlCommitEveryBatches;
+        try (JdbcBatchWriter writer = statementSql == null
+                ? new JdbcBatchWriter(conn, tableName, columns, rowsPerBatch, batchesPerCommit)
+                : new JdbcBatchWriter(conn, tableName, columns, statementSql, rowsPerBatch, batchesPerCommit)) {
+            writer.write(data);
+            writer.finish();
+            return writer.getMetrics();
         }
     }
     
-    private void insertData(Connection conn, String tableName, List<Map<String, Object>> data) throws SQLException {
-        if (data.isEmpty()) return;
-        
-        Set<String> columns = data.get(0).keySet();
-        StringBuilder sql = new StringBuilder("INSERT INTO " + tableName + " (");
-        sql.append(String.join(", ", columns));
-        sql.append(") VALUES (");
-        sql.append(String.join(", ", Collections.nCopies(columns.size(), "?")));
-        sql.append(")");
-        
-        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
-            for (Map<String, Object> row : data) {
-                int index = 1;
-                for (String column : columns) {
-                    pstmt.setString(index++, String.valueOf(row.get(column)));
-                }
-                pstmt.executeUpdate();
+    private Map<String, Object> bulkInsertData(Connection conn, SqlDialect dialect, String tableName,
+                                               List<String> columns, List<Map<String, Object>> data) throws SQLException {
+        if (dialect == SqlDialect.POSTGRESQL) {
+            try (PostgresCopyWriter writer = new PostgresCopyWriter(conn, tableName, columns)) {
+                writer.write(data);
+                writer.finish();
+                return writer.getMetrics();
             }
         }
+        // SQLite: one transaction through one reused statement with fsync and the journal file off
+        try (SqliteBulkMode bulkMode = new SqliteBulkMode(conn);
+             JdbcBatchWriter writer = new JdbcBatchWriter(conn, tableName, columns,
+                     dialect.getDefaultBatchSize(), Integer.MAX_VALUE)) {
+            writer.write(data);
+            writer.finish();
+            Map<String, Object> metrics = writer.getMetrics();
+            metrics.put("method", "sqliteBulk");
+            return metrics;
+        }
     }
     
-    private List<Map<String, Object>> getInputData(PipelineNode node, Map<String, List<Map<String, Object>>> dataCache, Pipeline pipeline) {
+    private List<Map<String, Object>> getInputData(PipelineNode node, NodeDataCache dataCache, Pipeline pipeline) {
         // Find the source node for this node
         String sourceNodeId = findSourceNode(node.getId(), pipeline);
         if (sourceNodeId != null && dataCache.containsKey(sourceNodeId)) {
@@ -1078,46 +1886,13 @@ public class PipelineExecutionService {
                 .orElse(null);
     }
     
-    private List<String> determineExecutionOrder(Pipeline pipeline) {
-        // Simple topological sort implementation
-        List<String> order = new ArrayList<>();
-        Set<String> visited = new HashSet<>();
-        
-        for (PipelineNode node : pipeline.getNodes()) {
-            if ("csvSource".equals(node.getType()) && !visited.contains(node.getId())) {
-                visitNode(node.getId(), pipeline, visited, order);
-            }
-        }
-        
-        // Reverse the order to get correct execution sequence (sources first, outputs last)
-        Collections.reverse(order);
-        
-        return order;
-    }
-    
-    private void visitNode(String nodeId, Pipeline pipeline, Set<String> visited, List<String> order) {
-        if (visited.contains(nodeId)) {
-            return;
-        }
-        
-        visited.add(nodeId);
-        
-        // Visit all target nodes
-        pipeline.getEdges().stream()
-                .filter(edge -> edge.getSource().equals(nodeId))
-                .map(edge -> edge.getTarget())
-                .forEach(targetId -> visitNode(targetId, pipeline, visited, order));
-        
-        order.add(nodeId);
-    }
-    
     private String findOutputLocation(Pipeline pipeline) {
         return pipeline.getNodes().stream()
-                .filter(node -> "sqlOutput".equals(node.getType()) || "csvOutput".equals(node.getType()))
+                .filter(node -> PipelinePlanner.isSinkType(node.getType()))
                 .map(node -> {
                     if ("sqlOutput".equals(node.getType())) {
                         return node.getDataString("tableName");
-                    } else if ("csvOutput".equals(node.getType())) {
+                    } else if (node.getType().endsWith("Output")) {
                         return node.getDataString("filePath");
                     }
                     return null;
@@ -1127,31 +1902,61 @@ public class PipelineExecutionService {
                 .orElse("unknown");
     }
     
-    private boolean matchesFilter(Map<String, Object> row, String column, String operator, String value) {
+    /**
+     * @param number the comparison value parsed once per filter, null if it is not numeric
+     */
+    private boolean matchesFilter(Map<String, Object> row, String column, String operator, String value, Double number) {
         Object cellValue = row.get(column);
         if (cellValue == null) {
             return false;
         }
         
-        String cellStr = cellValue.toString();
+        // Typed numeric cells are compared directly, without formatting and re-parsing them
+        if (cellValue instanceof Number && number != null) {
+            double cellNum = ((Number) cellValue).doubleValue();
+            switch (operator) {
+                case "==": return cellNum == number;
+                case "!=": return cellNum != number;
+                case ">": return cellNum > number;
+                case "<": return cellNum < number;
+                case ">=": return cellNum >= number;
+                case "<=": return cellNum <= number;
+            }
+        }
+        
+        String cellStr = ColumnType.format(cellValue);
         
         switch (operator) {
-            case "==": return cellStr.equals(value);
-            case "!=": return !cellStr.equals(value);
+            case "==": return cellValue instanceof Boolean ? cellStr.equalsIgnoreCase(value) : cellStr.equals(value);
+            case "!=": return cellValue instanceof Boolean ? !cellStr.equalsIgnoreCase(value) : !cellStr.equals(value);
             case "contains": return cellStr.contains(value);
             case "startswith": return cellStr.startsWith(value);
             case "endswith": return cellStr.endsWith(value);
             default:
-                // Numeric comparisons
+                if (cellValue instanceof LocalDate || cellValue instanceof LocalDateTime) {
+                    // ISO dates and timestamps order the same as their text
+                    int comparison = cellStr.compareTo(value.trim().replace('T', ' '));
+                    switch (operator) {
+                        case ">": return comparison > 0;
+                        case "<": return comparison < 0;
+                        case ">=": return comparison >= 0;
+                        case "<=": return comparison <= 0;
+                    }
+                    return false;
+                }
+                
+                // Numeric comparisons on untyped values
                 try {
                     double cellNum = Double.parseDouble(cellStr);
-                    double valueNum = Double.parseDouble(value);
+                    if (number == null) {
+                        return false;
+                    }
                     
                     switch (operator) {
-                        case ">": return cellNum > valueNum;
-                        case "<": return cellNum < valueNum;
-                        case ">=": return cellNum >= valueNum;
-                        case "<=": return cellNum <= valueNum;
+                        case ">": return cellNum > number;
+                        case "<": return cellNum < number;
+                        case ">=": return cellNum >= number;
+                        case "<=": return cellNum <= number;
                     }
                 } catch (NumberFormatException e) {
                     return false;
@@ -1161,30 +1966,48 @@ public class PipelineExecutionService {
         return false;
     }
     
-    private Object applyMapping(Object value, String operation, Map<String, Object> mapping) {
+    private Double parseNumber(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Order two values: numbers numerically, values of the same type by their natural order and
+     * anything else by text
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int compareValues(Object a, Object b) {
+        if (a instanceof Comparable && a.getClass() == b.getClass()) {
+            return ((Comparable) a).compareTo(b);
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        return a.toString().compareTo(b.toString());
+    }
+    
+    /**
+     * @param operand the mapping's numeric value, null if it has none or it is not numeric
+     */
+    private Object applyMapping(Object value, String operation, Double operand) {
         if (value == null) return null;
         
-        String strValue = value.toString();
-        
         switch (operation) {
-            case "uppercase": return strValue.toUpperCase();
-            case "lowercase": return strValue.toLowerCase();
+            case "uppercase": return ColumnType.format(value).toUpperCase();
+            case "lowercase": return ColumnType.format(value).toLowerCase();
             case "multiply":
-                try {
-                    double num = Double.parseDouble(strValue);
-                    double factor = Double.parseDouble(mapping.get("value").toString());
-                    return num * factor;
-                } catch (NumberFormatException e) {
-                    return value;
-                }
             case "add":
-                try {
-                    double num = Double.parseDouble(strValue);
-                    double addValue = Double.parseDouble(mapping.get("value").toString());
-                    return num + addValue;
-                } catch (NumberFormatException e) {
+                Double num = value instanceof Number ? Double.valueOf(((Number) value).doubleValue()) : parseNumber(value.toString());
+                if (num == null || operand == null) {
                     return value;
                 }
+                return "multiply".equals(operation) ? num * operand : num + operand;
             default: return value;
         }
     }
@@ -1197,6 +2020,11 @@ public class PipelineExecutionService {
     }
     
     public ExecutionResult getExecutionStatus(String executionId) {
-        return executionResults.get(executionId);
+        ExecutionResult result = executionResults.get(executionId);
+        if (result != null && result.getStatus() == ExecutionResult.ExecutionStatus.PENDING) {
+            result.setQueuePosition(workloadManager.getQueuePosition(executionId));
+        }
+        return result;
     }
+
 }
@@ -0,0 +1,733 @@
+package com.etl.pipeline.service;
+
+import com.etl.pipeline.datasource.ColumnarFileSource;
+import com.etl.pipeline.datasource.CsvFileSource;
+import com.etl.pipeline.datasource.DataSource;
+import com.etl.pipeline.datasource.ParallelCsvReader;
+import com.etl.pipeline.datasource.RecordBatchReader;
+import com.etl.pipeline.model.DatasetProfile;
+import com.etl.pipeline.model.ExecutionPlan;
+import com.etl.pipeline.model.ExecutionPlan.PlanNode;
+import com.etl.pipeline.model.ExecutionPlan.PlanStage;
+import com.etl.pipeline.model.Pipeline;
+import com.etl.pipeline.model.PipelineEdge;
+import com.etl.pipeline.model.PipelineNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Service that turns a pipeline DAG into a physical execution plan.
+ *
+ * The same plan drives execution, so EXPLAIN always shows what will actually run:
+ * stage boundaries, which streaming operators are fused into one pass, join strategies,
+ * and (when requested) cardinality and memory estimates derived from source statistics.
+ */
+@Service
+public class PipelinePlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelinePlanner.class);
+    private static final int STATISTICS_SAMPLE_ROWS = 200;
+    private static final long SORT_BYTES_PER_ROW = RowSizeEstimator.REFERENCE_BYTES;
+    private static final long GROUP_BYTES_PER_ROW = 96;
+    private static final long JOIN_BUILD_BYTES_PER_ROW = 96;
+
+    private static final Set<String> SOURCE_TYPES = Set.of(
+            "csvSource", "sqlSource", "mysqlSource", "postgresqlSource", "sqliteSource", "columnarSource");
+    private static final Set<String> STREAMING_TYPES = Set.of("filter", "map");
+    private static final Set<String> SINK_TYPES = Set.of("csvOutput", "sqlOutput", "columnarOutput");
+    // Sinks that can take rows batch by batch from a fused stage
+    private static final Set<String> STREAMING_SINK_TYPES = Set.of("csvOutput", "columnarOutput");
+
+    @Autowired
+    private ExecutionThreads threads;
+
+    @Autowired
+    private DatasetCatalog catalog;
+
+    public static boolean isSourceType(String type) {
+        return SOURCE_TYPES.contains(type);
+    }
+
+    public static boolean isStreamingType(String type) {
+        return STREAMING_TYPES.contains(type);
+    }
+
+    public static boolean isSinkType(String type) {
+        return SINK_TYPES.contains(type);
+    }
+
+    /**
+     * Build the plan. Estimates require sampling sources, so they are only computed on request.
+     */
+    public ExecutionPlan plan(Pipeline pipeline, boolean withEstimates) {
+        ExecutionPlan plan = new ExecutionPlan(pipeline.getId());
+        List<String> executionOrder = resolveExecutionOrder(pipeline);
+        Map<String, Integer> consumerCounts = countConsumers(pipeline);
+
+        List<PlanStage> stages = new ArrayList<>();
+        Map<String, PlanStage> stageByTail = new HashMap<>();
+
+        for (String nodeId : executionOrder) {
+            PipelineNode node = findNodeById(pipeline, nodeId);
+            if (node == null) {
+                throw new RuntimeException("Node not found: " + nodeId);
+            }
+
+            List<String> inputs = getInputNodeIds(nodeId, pipeline);
+            PlanNode planNode = describe(node, inputs);
+
+            // A streaming operator or sink is fused into its input's stage when it is that input's only consumer
+            if ((isStreamingType(node.getType()) || STREAMING_SINK_TYPES.contains(node.getType())) && inputs.size() == 1) {
+                String inputId = inputs.get(0);
+                PlanStage inputStage = stageByTail.get(inputId);
+                PipelineNode inputNode = findNodeById(pipeline, inputId);
+
+                if (inputStage != null && inputNode != null
+                        && consumerCounts.getOrDefault(inputId, 0) == 1
+                        && (isStreamingType(inputNode.getType()) || isSourceType(inputNode.getType()))) {
+                    inputStage.getNodes().add(planNode);
+                    inputStage.setFused(true);
+                    stageByTail.remove(inputId);
+                    stageByTail.put(nodeId, inputStage);
+                    // The stage now runs at the position of its last node
+                    stages.remove(inputStage);
+                    stages.add(inputStage);
+                    continue;
+                }
+            }
+
+            PlanStage stage = new PlanStage();
+            stage.getNodes().add(planNode);
+            stages.add(stage);
+            stageByTail.put(nodeId, stage);
+        }
+
+        for (int i = 0; i < stages.size(); i++) {
+            PlanStage stage = stages.get(i);
+            stage.setId(i + 1);
+            annotatePushdown(stage);
+        }
+        plan.setStages(stages);
+
+        if (withEstimates) {
+            estimate(plan, pipeline, consumerCounts);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Column order of a node's output, derived from the source schemas through the operators
+     * @return null when it is only known once data arrives (e.g. SQL sources)
+     */
+    public List<String> outputColumns(Pipeline pipeline, String nodeId) {
+        PipelineNode node = findNodeById(pipeline, nodeId);
+        if (node == null) {
+            return null;
+        }
+        List<String> inputs = getInputNodeIds(nodeId, pipeline);
+        List<String> input = inputs.isEmpty() ? null : outputColumns(pipeline, inputs.get(0));
+
+        switch (node.getType()) {
+            case "csvSource":
+                try {
+                    return new CsvFileSource(node.getData()).getColumnNames();
+                } catch (Exception e) {
+                    logger.warn("Could not read the header of node {}", nodeId, e);
+                    return null;
+                }
+            case "columnarSource":
+                try {
+                    return new ColumnarFileSource(node.getData()).getColumnNames();
+                } catch (Exception e) {
+                    logger.warn("Could not read the footer of node {}", nodeId, e);
+                    return null;
+                }
+            case "filter":
+            case "sort":
+                return input;
+            case "map":
+                return input != null ? mappedColumns(node, input) : null;
+            case "groupBy":
+                return input != null ? groupedColumns(node, input) : null;
+            case "join":
+                List<String> right = inputs.size() == 2 ? outputColumns(pipeline, inputs.get(1)) : null;
+                if (input == null || right == null) {
+                    return null;
+                }
+                // Rows are merged preserved side first; clashing names from the other side get a right_ prefix
+                return "right".equalsIgnoreCase(node.getDataString("joinType"))
+                        ? joinedColumns(right, input)
+                        : joinedColumns(input, right);
+            default:
+                return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> mappedColumns(PipelineNode node, List<String> input) {
+        List<String> columns = new ArrayList<>(input);
+        List<Map<String, Object>> mappings = (List<Map<String, Object>>) node.getData().get("mappings");
+        if (mappings == null) {
+            return columns;
+        }
+        for (Map<String, Object> mapping : mappings) {
+            String sourceCol = (String) mapping.get("sourceColumn");
+            String targetCol = (String) mapping.get("targetColumn");
+            int position = columns.indexOf(sourceCol);
+            if (sourceCol == null || targetCol == null || position < 0 || sourceCol.equals(targetCol)) {
+                continue;
+            }
+            // The target takes the source column's place unless it already exists
+            if (columns.contains(targetCol)) {
+                columns.remove(position);
+            } else {
+                columns.set(position, targetCol);
+            }
+        }
+        return columns;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> groupedColumns(PipelineNode node, List<String> input) {
+        List<String> groupByColumns = (List<String>) node.getData().get("groupByColumns");
+        if (groupByColumns == null) {
+            groupByColumns = (List<String>) node.getData().get("groupColumns");
+        }
+        if (groupByColumns == null || groupByColumns.isEmpty()) {
+            return input;
+        }
+        List<String> columns = new ArrayList<>(groupByColumns);
+        List<Map<String, Object>> aggregations = (List<Map<String, Object>>) node.getData().get("aggregations");
+        if (aggregations == null) {
+            columns.add("count");
+            return columns;
+        }
+        for (Map<String, Object> aggregation : aggregations) {
+            String alias = (String) aggregation.get("alias");
+            columns.add(alias != null ? alias : aggregation.get("function") + "_" + aggregation.get("column"));
+        }
+        return columns;
+    }
+
+    private List<String> joinedColumns(List<String> first, List<String> second) {
+        List<String> columns = new ArrayList<>(first);
+        for (String column : second) {
+            columns.add(first.contains(column) ? "right_" + column : column);
+        }
+        return columns;
+    }
+
+    /**
+     * Use the client-supplied execution order, falling back to a topological sort from the sources
+     */
+    public List<String> resolveExecutionOrder(Pipeline pipeline) {
+        List<String> executionOrder = pipeline.getExecutionOrder();
+        if (executionOrder != null && !executionOrder.isEmpty()) {
+            return executionOrder;
+        }
+
+        // Simple topological sort implementation
+        List<String> order = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+
+        for (PipelineNode node : pipeline.getNodes()) {
+            if (isSourceType(node.getType()) && !visited.contains(node.getId())) {
+                visitNode(node.getId(), pipeline, visited, order);
+            }
+        }
+
+        // Reverse the order to get correct execution sequence (sources first, outputs last)
+        Collections.reverse(order);
+
+        return order;
+    }
+
+    private void visitNode(String nodeId, Pipeline pipeline, Set<String> visited, List<String> order) {
+        if (visited.contains(nodeId)) {
+            return;
+        }
+
+        visited.add(nodeId);
+
+        // Visit all target nodes
+        pipeline.getEdges().stream()
+                .filter(edge -> edge.getSource().equals(nodeId))
+                .map(edge -> edge.getTarget())
+                .forEach(targetId -> visitNode(targetId, pipeline, visited, order));
+
+        order.add(nodeId);
+    }
+
+    private PlanNode describe(PipelineNode node, List<String> inputs) {
+        PlanNode planNode = new PlanNode(node.getId(), node.getType(), operatorName(node.getType()));
+        planNode.setInputs(inputs);
+        Map<String, Object> details = planNode.getDetails();
+        Map<String, Object> data = node.getData() != null ? node.getData() : Collections.emptyMap();
+
+        switch (node.getType()) {
+            case "csvSource":
+                details.put("filePath", data.get("filePath"));
+                break;
+            case "columnarSource":
+                details.put("filePath", data.get("filePath"));
+                if (data.get("columns") != null) {
+                    details.put("columns", data.get("columns"));
+                }
+                break;
+            case "sqlSource":
+            case "mysqlSource":
+            case "postgresqlSource":
+            case "sqliteSource":
+                details.put("databaseType", data.getOrDefault("databaseType", node.getType().replace("Source", "")));
+                details.put("query", data.get("query") != null ? data.get("query") : "SELECT * FROM " + data.get("tableName"));
+                if (data.get("partitionColumn") != null) {
+                    details.put("partitionColumn", data.get("partitionColumn"));
+                    details.put("partitions", data.getOrDefault("numPartitions", 4));
+                    details.put("partitionMode", data.getOrDefault("partitionMode", "auto"));
+                }
+                break;
+            case "filter":
+                details.put("predicate", data.get("column") + " " + data.get("operator") + " " + data.get("value"));
+                break;
+            case "map":
+                Object mappings = data.get("mappings");
+                details.put("mappings", mappings instanceof List ? ((List<?>) mappings).size() : 0);
+                break;
+            case "groupBy":
+                details.put("strategy", "hash");
+                details.put("groupByColumns", data.get("groupByColumns") != null ? data.get("groupByColumns") : data.get("groupColumns"));
+                details.put("aggregations", data.get("aggregations"));
+                break;
+            case "sort":
+                details.put("algorithm", "in-memory merge sort");
+                details.put("sortColumns", data.get("sortColumns"));
+                break;
+            case "join":
+                String joinType = data.get("joinType") != null ? data.get("joinType").toString().toLowerCase() : "inner";
+                details.put("strategy", "hash");
+                details.put("joinType", joinType);
+                details.put("leftKey", data.get("leftKey") != null ? data.get("leftKey") : data.get("leftColumn"));
+                details.put("rightKey", data.get("rightKey") != null ? data.get("rightKey") : data.get("rightColumn"));
+                details.put("buildSide", "right".equals(joinType) ? "left" : "inner".equals(joinType) ? "smaller input" : "right");
+                break;
+            case "csvOutput":
+                details.put("filePath", data.get("filePath"));
+                if (data.get("partitionBy") != null) {
+                    details.put("partitionBy", data.get("partitionBy"));
+                    details.put("partitionLayout", data.getOrDefault("partitionLayout", "hive"));
+                }
+                break;
+            case "columnarOutput":
+                details.put("filePath", data.get("filePath"));
+                details.put("compression", data.getOrDefault("compression", "none"));
+                break;
+            case "sqlOutput":
+                details.put("databaseType", data.get("databaseType"));
+                details.put("tableName", data.get("tableName"));
+                details.put("writeMode", data.getOrDefault("writeMode", "replace"));
+                details.put("writers", data.getOrDefault("writers", 1));
+                if (data.get("keyColumns") != null) {
+                    details.put("keyColumns", data.get("keyColumns"));
+                }
+                break;
+            default:
+                details.put("note", "unknown node type, skipped at execution");
+        }
+
+        return planNode;
+    }
+
+    private String operatorName(String type) {
+        switch (type) {
+            case "csvSource": return "CsvScan";
+            case "sqlSource":
+            case "mysqlSource":
+            case "postgresqlSource":
+            case "sqliteSource": return "JdbcScan";
+            case "columnarSource": return "ColumnarScan";
+            case "filter": return "Filter";
+            case "map": return "Project";
+            case "groupBy": return "HashAggregate";
+            case "sort": return "Sort";
+            case "join": return "HashJoin";
+            case "csvOutput": return "CsvWrite";
+            case "sqlOutput": return "JdbcWrite";
+            case "columnarOutput": return "ColumnarWrite";
+            default: return "Unknown";
+        }
+    }
+
+    /**
+     * Filters fused directly behind a source are evaluated while the source is scanned
+     */
+    private void annotatePushdown(PlanStage stage) {
+        List<PlanNode> nodes = stage.getNodes();
+        if (nodes.size() < 2 || !isSourceType(nodes.get(0).getType())) {
+            return;
+        }
+        for (int i = 1; i < nodes.size(); i++) {
+            if ("filter".equals(nodes.get(i).getType())) {
+                nodes.get(i).getDetails().put("pushedInto", nodes.get(0).getNodeId() + " scan");
+            }
+        }
+    }
+
+    private void estimate(ExecutionPlan plan, Pipeline pipeline, Map<String, Integer> consumerCounts) {
+        Map<String, Long> rowBytes = new HashMap<>();
+        Map<String, Integer> remainingConsumers = new HashMap<>(consumerCounts);
+        Map<String, Long> liveBytes = new HashMap<>();
+        long peakBytes = 0;
+        boolean unknownRows = false;
+
+        for (PlanStage stage : plan.getStages()) {
+            long workingBytes = 0;
+
+            for (PlanNode planNode : stage.getNodes()) {
+                PipelineNode node = findNodeById(pipeline, planNode.getNodeId());
+                List<PlanNode> inputs = new ArrayList<>();
+                for (String inputId : planNode.getInputs()) {
+                    PlanNode input = plan.findNode(inputId);
+                    if (input != null) {
+                        inputs.add(input);
+                    }
+                }
+                Long inputRows = inputs.isEmpty() ? null : inputs.get(0).getEstimatedRows();
+                long inputRowBytes = inputs.isEmpty() ? 0 : rowBytes.getOrDefault(inputs.get(0).getNodeId(), 0L);
+                Long rows = inputRows;
+                long bytesPerRow = inputRowBytes;
+
+                switch (planNode.getType()) {
+                    case "csvSource":
+                        try {
+                            CsvFileSource source = new CsvFileSource(node.getData());
+                            Map<String, Object> statistics = source.getStatistics(STATISTICS_SAMPLE_ROWS);
+                            @SuppressWarnings("unchecked")
+                            List<Map<String, Object>> sample = (List<Map<String, Object>>) statistics.get("sampleRows");
+                            rows = (Long) statistics.get("estimatedRows");
+                            bytesPerRow = sample.isEmpty() ? 0 : RowSizeEstimator.estimate(sample) / sample.size();
+                            planNode.getDetails().put("fileBytes", statistics.get("fileBytes"));
+                            planNode.getDetails().put("rowCountExact", statistics.get("exactRowCount"));
+                            DatasetProfile profile = catalog.find(source.getResolvedPath(), node.getData());
+                            if (profile != null) {
+                                rows = profile.getRowCount();
+                                planNode.getDetails().put("rowCountExact", true);
+                                planNode.getDetails().put("profiled", true);
+                            }
+                            long fileBytes = (Long) statistics.get("fileBytes");
+                            if (Boolean.TRUE.equals(statistics.get("compressed"))) {
+                                planNode.getDetails().put("compression", "gzip");
+                            } else if (ParallelCsvReader.isApplicable(fileBytes, node.getData(), threads.getCpuParallelism())) {
+                                planNode.getDetails().put("scan", "parallel memory-mapped");
+                                stage.setParallelism(ParallelCsvReader.splitCount(fileBytes, threads.getCpuParallelism()));
+                            }
+                        } catch (Exception e) {
+                            logger.warn("Could not collect statistics for node {}", planNode.getNodeId(), e);
+                            plan.addWarning("No statistics for " + planNode.getNodeId() + ": " + e.getMessage());
+                            rows = null;
+                        }
+                        if (stage.getNodes().size() > 1 && rows != null) {
+                            // Fused scans hold one batch at a time, or the ranges a parallel scan parses ahead
+                            long scanRows = DataSource.DEFAULT_BATCH_SIZE;
+                            Object fileBytes = planNode.getDetails().get("fileBytes");
+                            if (stage.getParallelism() > 1 && fileBytes instanceof Long && rows > 0) {
+                                long bytesPerLine = Math.max(1, (Long) fileBytes / rows);
+                                scanRows = (threads.getCpuParallelism() + 1L) * ParallelCsvReader.STREAMING_RANGE_BYTES / bytesPerLine;
+                            }
+                            workingBytes += Math.min(rows, scanRows) * bytesPerRow;
+                        }
+                        break;
+                    case "columnarSource":
+                        try {
+                            ColumnarFileSource source = new ColumnarFileSource(node.getData());
+                            Map<String, Object> statistics = source.getStatistics();
+                            rows = (Long) statistics.get("rows");
+                            // Values are stored decoded, so a few rows sized in memory give the row width
+                            List<Map<String, Object>> sample = new ArrayList<>();
+                            try (RecordBatchReader reader = source.openReader(STATISTICS_SAMPLE_ROWS)) {
+                                List<Map<String, Object>> batch = reader.nextBatch();
+                                if (batch != null) {
+                                    sample.addAll(batch);
+                                }
+                            }
+                            bytesPerRow = sample.isEmpty() ? 0 : RowSizeEstimator.estimate(sample) / sample.size();
+                            planNode.getDetails().put("fileBytes", statistics.get("fileBytes"));
+                            planNode.getDetails().put("rowGroups", statistics.get("rowGroups"));
+                            planNode.getDetails().put("rowCountExact", true);
+                            if (stage.getNodes().size() > 1) {
+                                // Fused scans hold one decoded row group at a time
+                                workingBytes += Math.min(rows, ((Integer) statistics.get("maxRowGroupRows")).longValue()) * bytesPerRow;
+                            }
+                        } catch (Exception e) {
+                            logger.warn("Could not collect statistics for node {}", planNode.getNodeId(), e);
+                            plan.addWarning("No statistics for " + planNode.getNodeId() + ": " + e.getMessage());
+                            rows = null;
+                        }
+                        break;
+                    case "sqlSource":
+                    case "mysqlSource":
+                    case "postgresqlSource":
+                    case "sqliteSource":
+                        rows = null;
+                        plan.addWarning("Row count of SQL source " + planNode.getNodeId() + " is unknown until it runs");
+                        break;
+                    case "filter":
+                        Double profiledSelectivity = profiledSelectivity(pipeline, node);
+                        double selectivity = profiledSelectivity != null ? profiledSelectivity : filterSelectivity(node.getDataString("operator"));
+                        planNode.getDetails().put("selectivity", selectivity);
+                        if (profiledSelectivity != null) {
+                            planNode.getDetails().put("selectivitySource", "profile");
+                        }
+                        rows = inputRows != null ? (long) Math.ceil(inputRows * selectivity) : null;
+                        break;
+                    case "groupBy":
+                        // Distinct counts from upload profiles bound the groups; without them assume one group per ten rows
+                        Long groups = profiledGroupCount(pipeline, node, inputRows);
+                        rows = groups != null ? groups : inputRows != null ? Math.max(1, inputRows / 10) : null;
+                        if (groups != null) {
+                            planNode.getDetails().put("groupsSource", "profile");
+                        }
+                        bytesPerRow = Math.min(inputRowBytes, 256);
+                        workingBytes += inputRows != null ? inputRows * GROUP_BYTES_PER_ROW : 0;
+                        break;
+                    case "sort":
+                        workingBytes += inputRows != null ? inputRows * SORT_BYTES_PER_ROW : 0;
+                        break;
+                    case "join":
+                        rows = estimateJoin(planNode, inputs);
+                        bytesPerRow = 0;
+                        for (PlanNode input : inputs) {
+                            bytesPerRow += rowBytes.getOrDefault(input.getNodeId(), 0L);
+                        }
+                        Long buildRows = joinBuildRows(planNode, inputs);
+                        workingBytes += buildRows != null ? buildRows * JOIN_BUILD_BYTES_PER_ROW : 0;
+                        break;
+                    default:
+                        break;
+                }
+
+                planNode.setEstimatedRows(rows);
+                rowBytes.put(planNode.getNodeId(), bytesPerRow);
+                if (rows == null) {
+                    unknownRows = true;
+                } else if (!isSinkType(planNode.getType())) {
+                    planNode.setEstimatedBytes(rows * bytesPerRow);
+                }
+            }
+
+            // Only the stage's last node output is kept; its inputs are freed once fully consumed
+            PlanNode head = stage.getNodes().get(0);
+            PlanNode tail = stage.getTail();
+            long live = liveBytes.values().stream().mapToLong(Long::longValue).sum();
+            peakBytes = Math.max(peakBytes, live + workingBytes);
+
+            if (tail.getEstimatedBytes() != null) {
+                liveBytes.put(tail.getNodeId(), tail.getEstimatedBytes());
+            }
+            for (String inputId : head.getInputs()) {
+                if (remainingConsumers.merge(inputId, -1, Integer::sum) <= 0) {
+                    liveBytes.remove(inputId);
+                }
+            }
+            peakBytes = Math.max(peakBytes, liveBytes.values().stream().mapToLong(Long::longValue).sum());
+        }
+
+        plan.setEstimatedPeakMemoryBytes(peakBytes);
+        if (unknownRows) {
+            plan.addWarning("Some cardinalities are unknown; memory estimates exclude those nodes");
+        }
+    }
+
+    private double filterSelectivity(String operator) {
+        if (operator == null) {
+            return 1.0;
+        }
+        switch (operator) {
+            case "==": return 0.1;
+            case "!=": return 0.9;
+            case "contains":
+            case "startswith":
+            case "endswith": return 0.25;
+            default: return 0.33; // range comparisons
+        }
+    }
+
+    /**
+     * Selectivity of a filter from the profile of its column: 1/distinct for equality, the
+     * fraction of the [min, max] range for comparisons on numbers, scaled by the non-null share
+     * @return null when the column has no profile or the operator gains nothing from one
+     */
+    private Double profiledSelectivity(Pipeline pipeline, PipelineNode filter) {
+        String column = filter.getDataString("column");
+        String operator = filter.getDataString("operator");
+        if (column == null || operator == null) {
+            return null;
+        }
+        DatasetProfile profile = profiledInput(pipeline, filter, List.of(column));
+        DatasetProfile.ColumnProfile stats = profile != null ? profile.findColumn(column) : null;
+        if (stats == null || profile.getRowCount() == 0) {
+            return null;
+        }
+        double nonNull = 1.0 - (double) stats.getNullCount() / profile.getRowCount();
+        long distinct = Math.max(1, stats.getDistinctCount());
+
+        switch (operator) {
+            case "==": return nonNull / distinct;
+            case "!=": return nonNull * (1.0 - 1.0 / distinct);
+            case ">":
+            case ">=":
+            case "<":
+            case "<=":
+                if (!(stats.getMin() instanceof Number) || !(stats.getMax() instanceof Number)) {
+                    return null;
+                }
+                double value;
+                try {
+                    value = Double.parseDouble(filter.getDataString("value").trim());
+                } catch (RuntimeException e) {
+                    return null;
+                }
+                double min = ((Number) stats.getMin()).doubleValue();
+                double max = ((Number) stats.getMax()).doubleValue();
+                // Share of values below the operand, assuming they are spread evenly over [min, max]
+                double below = max > min ? Math.max(0, Math.min(1, (value - min) / (max - min))) : (value > min ? 1 : 0);
+                return nonNull * (operator.startsWith("<") ? below : 1.0 - below);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Groups a groupBy produces: the product of the distinct counts of its columns (plus a null
+     * group for columns with nulls), capped at its input rows
+     * @return null when a column has no profile
+     */
+    @SuppressWarnings("unchecked")
+    private Long profiledGroupCount(Pipeline pipeline, PipelineNode groupBy, Long inputRows) {
+        List<String> groupByColumns = (List<String>) groupBy.getData().get("groupByColumns");
+        if (groupByColumns == null) {
+            groupByColumns = (List<String>) groupBy.getData().get("groupColumns");
+        }
+        if (groupByColumns == null || groupByColumns.isEmpty()) {
+            return null;
+        }
+        DatasetProfile profile = profiledInput(pipeline, groupBy, groupByColumns);
+        if (profile == null) {
+            return null;
+        }
+        double groups = 1;
+        for (String column : groupByColumns) {
+            DatasetProfile.ColumnProfile stats = profile.findColumn(column);
+            if (stats == null) {
+                return null;
+            }
+            groups *= stats.getDistinctCount() + (stats.getNullCount() > 0 ? 1 : 0);
+        }
+        long inputBound = inputRows != null ? inputRows : profile.getRowCount();
+        return Math.max(1, (long) Math.min(groups, inputBound));
+    }
+
+    /**
+     * Upload profile of the CSV source feeding a node, found by following single inputs up through
+     * filters and maps, as long as no map on the way rewrites or renames one of the given columns
+     */
+    @SuppressWarnings("unchecked")
+    private DatasetProfile profiledInput(Pipeline pipeline, PipelineNode node, Collection<String> columns) {
+        PipelineNode current = node;
+        for (int hops = 0; hops <= pipeline.getNodes().size(); hops++) {
+            List<String> inputs = getInputNodeIds(current.getId(), pipeline);
+            if (inputs.size() != 1) {
+                return null;
+            }
+            current = findNodeById(pipeline, inputs.get(0));
+            if (current == null) {
+                return null;
+            }
+            switch (current.getType()) {
+                case "csvSource":
+                    CsvFileSource source = new CsvFileSource(current.getData());
+                    return catalog.find(source.getResolvedPath(), current.getData());
+                case "filter":
+                    break;
+                case "map":
+                    List<Map<String, Object>> mappings = (List<Map<String, Object>>) current.getData().get("mappings");
+                    if (mappings != null) {
+                        for (Map<String, Object> mapping : mappings) {
+                            if (columns.contains(mapping.get("targetColumn")) || columns.contains(mapping.get("sourceColumn"))) {
+                                return null;
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    private Long estimateJoin(PlanNode join, List<PlanNode> inputs) {
+        if (inputs.size() != 2 || inputs.get(0).getEstimatedRows() == null || inputs.get(1).getEstimatedRows() == null) {
+            return null;
+        }
+        long left = inputs.get(0).getEstimatedRows();
+        long right = inputs.get(1).getEstimatedRows();
+
+        switch ((String) join.getDetails().get("joinType")) {
+            case "left": return left;
+            case "right": return right;
+            case "full": return left + right;
+            default: return Math.max(left, right); // assume a key/foreign-key join
+        }
+    }
+
+    private Long joinBuildRows(PlanNode join, List<PlanNode> inputs) {
+        if (inputs.size() != 2 || inputs.get(0).getEstimatedRows() == null || inputs.get(1).getEstimatedRows() == null) {
+            return null;
+        }
+        long left = inputs.get(0).getEstimatedRows();
+        long right = inputs.get(1).getEstimatedRows();
+
+        switch ((String) join.getDetails().get("joinType")) {
+            case "right": return left;
+            case "left":
+            case "full": return right;
+            default:
+                join.getDetails().put("buildSide", left < right ? "left" : "right");
+                return Math.min(left, right);
+        }
+    }
+
+    private Map<String, Integer> countConsumers(Pipeline pipeline) {
+        Map<String, Integer> consumers = new HashMap<>();
+        if (pipeline.getEdges() != null) {
+            for (PipelineEdge edge : pipeline.getEdges()) {
+                consumers.merge(edge.getSource(), 1, Integer::sum);
+            }
+        }
+        return consumers;
+    }
+
+    private List<String> getInputNodeIds(String nodeId, Pipeline pipeline) {
+        List<String> inputs = new ArrayList<>();
+        if (pipeline.getEdges() != null) {
+            for (PipelineEdge edge : pipeline.getEdges()) {
+                if (edge.getTarget().equals(nodeId)) {
+                    inputs.add(edge.getSource());
+                }
+            }
+        }
+        return inputs;
+    }
+
+    private PipelineNode findNodeById(Pipeline pipeline, String nodeId) {
+        return pipeline.getNodes().stream()
+                .filter(node -> node.getId().equals(nodeId))
+                .findFirst()
+                .orElse(null);
+    }
+}
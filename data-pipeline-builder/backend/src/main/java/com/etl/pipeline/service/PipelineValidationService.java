@@ -2,14 +2,19 @@ package com.etl.pipeline.service;
 
 import com.etl.pipeline.model.Pipeline;
 import com.etl.pipeline.model.PipelineNode;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class PipelineValidationService {
     
+    @Autowired
+    private ConnectionProfileRegistry connections;
+    
     public ValidationResult validatePipeline(Pipeline pipeline) {
         ValidationResult result = new ValidationResult();
         
@@ -53,6 +58,9 @@ public class PipelineValidationService {
                 if ("csvSource".equals(node.getType())) {
                     hasSource = true;
                     validateCsvSourceNode(node, result);
+                } else if ("columnarSource".equals(node.getType())) {
+                    hasSource = true;
+                    validateFilePath(node, "Columnar source", result);
                 } else if (node.getType().endsWith("Source") || 
                           "sqlSource".equals(node.getType()) || 
                           "mysqlSource".equals(node.getType()) || 
@@ -64,6 +72,8 @@ public class PipelineValidationService {
                     validateSqlOutputNode(node, result);
                 } else if ("csvOutput".equals(node.getType())) {
                     validateCsvOutputNode(node, result);
+                } else if ("columnarOutput".equals(node.getType())) {
+                    validateFilePath(node, "Columnar output", result);
                 } else if ("filter".equals(node.getType())) {
                     validateFilterNode(node, result);
                 }
@@ -98,6 +108,27 @@ public class PipelineValidationService {
             result.addError("SQL output node must specify a table name");
         }
         
+        String writeMode = node.getDataString("writeMode");
+        if (writeMode != null && !writeMode.isBlank()) {
+            writeMode = writeMode.trim().toLowerCase();
+            if (!Set.of("replace", "append", "upsert", "swap").contains(writeMode)) {
+                result.addError("SQL output node has an unknown write mode: " + writeMode
+                        + " (expected replace, append, upsert or swap)");
+            } else if (writeMode.equals("upsert")) {
+                Object keyColumns = node.getData().get("keyColumns");
+                if (keyColumns == null || keyColumns.toString().replaceAll("[\\[\\],\\s]", "").isEmpty()) {
+                    result.addError("SQL output node in upsert mode must specify key columns");
+                }
+            }
+        }
+        
+        if (node.getData().get("writers") != null) {
+            Integer writers = node.getDataInteger("writers");
+            if (writers == null || writers < 1) {
+                result.addError("SQL output node writers must be a positive number");
+            }
+        }
+        
         String databaseType = node.getDataString("databaseType");
         if (databaseType == null || databaseType.trim().isEmpty()) {
             result.addError("SQL output node must specify a database type");
@@ -109,6 +140,11 @@ public class PipelineValidationService {
             return;
         }
         
+        // A named connection profile replaces the connection parameters
+        if (validateConnectionProfile(node, "SQL output", result)) {
+            return;
+        }
+        
         // For other databases, validate connection parameters
         String connectionString = node.getDataString("connectionString");
         String host = node.getDataString("host");
@@ -128,6 +164,20 @@ public class PipelineValidationService {
         }
     }
     
+    /**
+     * @return whether the node names a connection profile (an unknown one is an error)
+     */
+    private boolean validateConnectionProfile(PipelineNode node, String label, ValidationResult result) {
+        String profile = node.getDataString("connectionProfile");
+        if (profile == null || profile.trim().isEmpty()) {
+            return false;
+        }
+        if (!connections.contains(profile)) {
+            result.addError(label + " node refers to an unknown connection profile: " + profile);
+        }
+        return true;
+    }
+    
     private void validateCsvOutputNode(PipelineNode node, ValidationResult result) {
         if (node.getData() == null) {
             result.addError("CSV output node must have configuration data");
@@ -140,6 +190,13 @@ public class PipelineValidationService {
         }
     }
     
+    private void validateFilePath(PipelineNode node, String label, ValidationResult result) {
+        String filePath = node.getData() != null ? node.getDataString("filePath") : null;
+        if (filePath == null || filePath.trim().isEmpty()) {
+            result.addError(label + " node must specify a file path");
+        }
+    }
+    
     private void validateFilterNode(PipelineNode node, ValidationResult result) {
         if (node.getData() == null) {
             result.addError("Filter node must have configuration data");
@@ -169,13 +226,14 @@ public class PipelineValidationService {
             return;
         }
         
-        // Check if either connection string or individual connection parameters are provided
+        // Check if either a connection profile, a connection string or individual connection parameters are provided
         String connectionString = node.getDataString("connectionString");
         String host = node.getDataString("host");
         String database = node.getDataString("database");
         
-        if ((connectionString == null || connectionString.trim().isEmpty()) && 
-            (host == null || host.trim().isEmpty() || database == null || database.trim().isEmpty())) {
+        if (!validateConnectionProfile(node, "SQL source", result)
+                && (connectionString == null || connectionString.trim().isEmpty())
+                && (host == null || host.trim().isEmpty() || database == null || database.trim().isEmpty())) {
             result.addError("SQL source node must specify either a connection string or host/database details");
         }
         
@@ -0,0 +1,69 @@
+package com.etl.pipeline.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rough heap size estimates for row data, used for memory budgeting.
+ * Figures assume a 64-bit JVM with compressed oops and compact strings.
+ */
+public final class RowSizeEstimator {
+
+    private static final int SAMPLE_ROWS = 64;
+    private static final long HASHMAP_OVERHEAD = 48;
+    private static final long HASHMAP_ENTRY = 32 + 8; // node + table slot
+    private static final long STRING_OVERHEAD = 40;
+    private static final long BOXED_VALUE = 16;
+    private static final long OBJECT_DEFAULT = 32;
+
+    /** Per-row cost of referencing a row from a list or hash structure */
+    public static final long REFERENCE_BYTES = 8;
+
+    private RowSizeEstimator() {}
+
+    /**
+     * Estimate the retained size of a list of rows by sampling rows spread evenly across it
+     */
+    public static long estimate(List<Map<String, Object>> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+
+        int size = rows.size();
+        int samples = Math.min(SAMPLE_ROWS, size);
+        long step = Math.max(1, size / samples);
+        long sampledBytes = 0;
+        int sampled = 0;
+
+        for (long i = 0; i < size && sampled < samples; i += step) {
+            sampledBytes += estimateRow(rows.get((int) i));
+            sampled++;
+        }
+
+        return (sampledBytes / sampled) * size + size * REFERENCE_BYTES;
+    }
+
+    public static long estimateRow(Map<String, Object> row) {
+        long bytes = HASHMAP_OVERHEAD;
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            // Column name strings are shared across rows, so only the entry and value are counted
+            bytes += HASHMAP_ENTRY + estimateValue(entry.getValue());
+        }
+        return bytes;
+    }
+
+    private static long estimateValue(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return STRING_OVERHEAD + ((String) value).length();
+        } else if (value instanceof Number && !(value instanceof BigDecimal)) {
+            return BOXED_VALUE + 8;
+        } else if (value instanceof Boolean) {
+            return 0; // Boolean.TRUE/FALSE are cached
+        } else {
+            return OBJECT_DEFAULT + value.toString().length();
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.etl.pipeline.service;
+
+import com.etl.pipeline.model.ExecutionPlan;
+import com.etl.pipeline.model.Pipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of the execution service.
+ *
+ * Executions are queued in one of two lanes. Each lane has its own concurrency limit, so small
+ * interactive runs never wait behind long batch jobs. A run is admitted when it is at the head of
+ * its lane, the lane has a free slot and its estimated memory fits in the pool next to the runs
+ * already admitted. Batch runs also yield memory to an interactive run that is waiting for it.
+ */
+@Service
+public class WorkloadManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadManager.class);
+    private static final long MB = 1024L * 1024L;
+
+    public enum Lane {
+        INTERACTIVE,
+        BATCH
+    }
+
+    @Value("${pipeline.workload.interactive.concurrency:4}")
+    private int interactiveConcurrency;
+
+    @Value("${pipeline.workload.batch.concurrency:1}")
+    private int batchConcurrency;
+
+    @Value("${pipeline.workload.interactive.max-rows:100000}")
+    private long interactiveMaxRows;
+
+    @Value("${pipeline.workload.interactive.max-memory-mb:64}")
+    private long interactiveMaxMemoryMb;
+
+    @Autowired
+    private MemoryManager memoryManager;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Lane, LinkedList<Ticket>> queues = new EnumMap<>(Lane.class);
+    private final Map<Lane, Integer> running = new EnumMap<>(Lane.class);
+    private long admittedBytes;
+
+    public WorkloadManager() {
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new LinkedList<>());
+            running.put(lane, 0);
+        }
+    }
+
+    /**
+     * Pick a lane: pipelines can ask for one with metadata.priority, otherwise runs whose
+     * sources and memory estimate are small go to the interactive lane.
+     */
+    public Lane classify(Pipeline pipeline, ExecutionPlan plan) {
+        Map<String, Object> metadata = pipeline.getMetadata();
+        if (metadata != null && metadata.get("priority") != null) {
+            String priority = metadata.get("priority").toString().trim().toUpperCase();
+            try {
+                return Lane.valueOf(priority);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Unknown pipeline priority '{}', classifying by estimate", priority);
+            }
+        }
+
+        long sourceRows = 0;
+        for (ExecutionPlan.PlanStage stage : plan.getStages()) {
+            for (ExecutionPlan.PlanNode node : stage.getNodes()) {
+                if (PipelinePlanner.isSourceType(node.getType())) {
+                    if (node.getEstimatedRows() == null) {
+                        // Unknown size (e.g. SQL sources): do not risk the interactive lane
+                        return Lane.BATCH;
+                    }
+                    sourceRows += node.getEstimatedRows();
+                }
+            }
+        }
+
+        long estimatedBytes = plan.getEstimatedPeakMemoryBytes() != null ? plan.getEstimatedPeakMemoryBytes() : 0;
+        return sourceRows <= interactiveMaxRows && estimatedBytes <= interactiveMaxMemoryMb * MB
+                ? Lane.INTERACTIVE
+                : Lane.BATCH;
+    }
+
+    /**
+     * Queue the execution and block until it is admitted
+     * @param estimatedBytes planner estimate; capped at the per-execution budget since a run spills beyond it
+     */
+    public Ticket admit(String executionId, Lane lane, long estimatedBytes) throws InterruptedException {
+        Ticket ticket = new Ticket(executionId, lane, Math.min(Math.max(estimatedBytes, 0), memoryManager.getExecutionBudgetBytes()));
+
+        lock.lock();
+        try {
+            queues.get(lane).addLast(ticket);
+            try {
+                while (!canAdmit(ticket)) {
+                    changed.await();
+                }
+            } catch (InterruptedException e) {
+                queues.get(lane).remove(ticket);
+                changed.signalAll();
+                throw e;
+            }
+
+            queues.get(lane).removeFirst();
+            running.merge(lane, 1, Integer::sum);
+            admittedBytes += ticket.bytes;
+            ticket.queuedMs = (System.nanoTime() - ticket.queuedAtNanos) / 1_000_000;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        logger.info("Admitted execution {} to {} lane after {} ms ({} bytes estimated)",
+                executionId, lane, ticket.queuedMs, ticket.bytes);
+        return ticket;
+    }
+
+    private boolean canAdmit(Ticket ticket) {
+        if (queues.get(ticket.lane).peekFirst() != ticket || running.get(ticket.lane) >= concurrencyOf(ticket.lane)) {
+            return false;
+        }
+        if (admittedBytes + ticket.bytes > memoryManager.getPoolBytes()) {
+            return false;
+        }
+        if (ticket.lane == Lane.BATCH) {
+            // An interactive run with a free slot is only waiting for memory; let it go first
+            Ticket interactive = queues.get(Lane.INTERACTIVE).peekFirst();
+            return interactive == null
+                    || running.get(Lane.INTERACTIVE) >= concurrencyOf(Lane.INTERACTIVE)
+                    || admittedBytes + ticket.bytes + interactive.bytes <= memoryManager.getPoolBytes();
+        }
+        return true;
+    }
+
+    private int concurrencyOf(Lane lane) {
+        return Math.max(1, lane == Lane.INTERACTIVE ? interactiveConcurrency : batchConcurrency);
+    }
+
+    private void release(Ticket ticket) {
+        lock.lock();
+        try {
+            running.merge(ticket.lane, -1, Integer::sum);
+            admittedBytes = Math.max(0, admittedBytes - ticket.bytes);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 1-based position of a queued execution within its lane, or null if it is not queued
+     */
+    public Integer getQueuePosition(String executionId) {
+        lock.lock();
+        try {
+            for (LinkedList<Ticket> queue : queues.values()) {
+                int position = 1;
+                for (Ticket ticket : queue) {
+                    if (ticket.executionId.equals(executionId)) {
+                        return position;
+                    }
+                    position++;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        lock.lock();
+        try {
+            for (Lane lane : Lane.values()) {
+                Map<String, Object> laneStatus = new HashMap<>();
+                laneStatus.put("concurrency", concurrencyOf(lane));
+                laneStatus.put("running", running.get(lane));
+                laneStatus.put("queued", queues.get(lane).size());
+                status.put(lane.name().toLowerCase(), laneStatus);
+            }
+            status.put("admittedBytes", admittedBytes);
+        } finally {
+            lock.unlock();
+        }
+        status.put("poolBytes", memoryManager.getPoolBytes());
+        return status;
+    }
+
+    /**
+     * An admitted execution; closing it frees the lane slot and its admitted memory
+     */
+    public class Ticket implements AutoCloseable {
+        private final String executionId;
+        private final Lane lane;
+        private final long bytes;
+        private final long queuedAtNanos = System.nanoTime();
+        private long queuedMs;
+        private boolean closed;
+
+        private Ticket(String executionId, Lane lane, long bytes) {
+            this.executionId = executionId;
+            this.lane = lane;
+            this.bytes = bytes;
+        }
+
+        public Lane getLane() {
+            return lane;
+        }
+
+        public long getQueuedMs() {
+            return queuedMs;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release(this);
+            }
+        }
+    }
+}
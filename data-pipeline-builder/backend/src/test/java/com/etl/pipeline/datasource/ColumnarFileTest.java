@@ -0,0 +1,265 @@
+package com.etl.pipeline.datasource;
+
+import com.etl.pipeline.datasource.ColumnarFile.ColumnInfo;
+import com.etl.pipeline.datasource.ColumnarFile.Encoding;
+import com.etl.pipeline.datasource.ColumnarFile.Type;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Round trips through the columnar format: every value type and encoding, with nulls and absent keys
+ */
+class ColumnarFileTest {
+
+    private static final int ROWS = 1000;
+
+    private static ExecutorService executor;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A column's values by row number, with the type and encoding they should be stored as
+     */
+    private static final class Column {
+        final String name;
+        final Type type;
+        final Encoding encoding;
+        final IntFunction<Object> values;
+
+        Column(String name, Type type, Encoding encoding, IntFunction<Object> values) {
+            this.name = name;
+            this.type = type;
+            this.encoding = encoding;
+            this.values = values;
+        }
+    }
+
+    private static List<Column> columns() {
+        Random random = new Random(42);
+        int[] ints = random.ints(ROWS, 0, 1_000_000).toArray();
+        long[] longs = random.longs(ROWS, 0, 1_000_000_000_000L).toArray();
+        int[] days = random.ints(ROWS, 0, 50_000).toArray();
+        double[] doubles = random.doubles(ROWS).toArray();
+        boolean[] booleans = new boolean[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            booleans[i] = random.nextBoolean();
+        }
+        String[] colors = {"red", "", "grün", "a,b"};
+
+        return List.of(
+                new Column("int_rle", Type.INT, Encoding.RLE, i -> i / 100),
+                new Column("int_delta", Type.INT, Encoding.DELTA, i -> 1_000_000 + i * 3),
+                // Alternating small and large values: cheaper as they are than as differences
+                new Column("int_plain", Type.INT, Encoding.PLAIN, i -> i % 2 == 0 ? 0 : ints[i]),
+                new Column("long_rle", Type.LONG, Encoding.RLE, i -> (long) (i / 50) - 10),
+                new Column("long_delta", Type.LONG, Encoding.DELTA, i -> 1_000_000_000_000L + i * 7L),
+                new Column("long_plain", Type.LONG, Encoding.PLAIN, i -> i % 2 == 0 ? -1L : longs[i]),
+                new Column("double_rle", Type.DOUBLE, Encoding.RLE, i -> (i / 100) * 0.5),
+                new Column("double_plain", Type.DOUBLE, Encoding.PLAIN, i -> i == 3 ? Double.NaN : doubles[i] - 0.5),
+                new Column("decimal_dictionary", Type.DECIMAL, Encoding.DICTIONARY, i -> BigDecimal.valueOf(i % 4 * 25, 2)),
+                new Column("decimal_plain", Type.DECIMAL, Encoding.PLAIN, i -> BigDecimal.valueOf(i * 101L - 5000, 3)),
+                new Column("boolean_rle", Type.BOOLEAN, Encoding.RLE, i -> i < 400),
+                new Column("boolean_plain", Type.BOOLEAN, Encoding.PLAIN, i -> booleans[i]),
+                new Column("date_rle", Type.DATE, Encoding.RLE, i -> LocalDate.of(2024, 1, 1).plusDays(i / 100)),
+                new Column("date_delta", Type.DATE, Encoding.DELTA, i -> LocalDate.of(2000, 1, 1).plusDays(i)),
+                new Column("date_plain", Type.DATE, Encoding.PLAIN, i -> LocalDate.ofEpochDay(i % 2 == 0 ? 0 : days[i])),
+                new Column("timestamp_delta", Type.TIMESTAMP, Encoding.DELTA,
+                        i -> LocalDateTime.of(2024, 3, 1, 12, 0).plusSeconds(i).withNano(i * 1000 + 7)),
+                new Column("string_dictionary", Type.STRING, Encoding.DICTIONARY, i -> colors[i % colors.length]),
+                new Column("string_plain", Type.STRING, Encoding.PLAIN, i -> "row-" + i + "-é漢"),
+                new Column("variant", Type.VARIANT, Encoding.PLAIN, i -> {
+                    switch (i % 5) {
+                        case 0: return (long) i;
+                        case 1: return "v" + i;
+                        case 2: return i * 0.25;
+                        case 3: return LocalDate.ofEpochDay(i);
+                        default: return BigDecimal.valueOf(i, 1);
+                    }
+                }));
+    }
+
+    /**
+     * Every column's value, except every 7th row holds null and every 11th row lacks the key
+     */
+    private static List<Map<String, Object>> rows(List<Column> columns) {
+        List<Map<String, Object>> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", i);
+            row.put("always_null", null);
+            for (Column column : columns) {
+                if (i % 11 == 0) {
+                    continue;
+                }
+                row.put(column.name, i % 7 == 0 ? null : column.values.apply(i));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static long missingCount() {
+        long missing = 0;
+        for (int i = 0; i < ROWS; i++) {
+            if (i % 7 == 0 || i % 11 == 0) {
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    @Test
+    void everyTypeAndEncodingRoundTrips() throws Exception {
+        List<Column> columns = columns();
+        List<Map<String, Object>> rows = rows(columns);
+        Path file = dir.resolve("all.col");
+        ColumnarFile.write(file, rows);
+
+        assertEquals(rows, ColumnarFile.read(file));
+
+        try (ColumnarFile.Reader reader = new ColumnarFile.Reader(file)) {
+            assertEquals(ROWS, reader.getRowCount());
+            Map<String, ColumnInfo> infos = new HashMap<>();
+            for (ColumnInfo info : reader.getColumns()) {
+                infos.put(info.getName(), info);
+            }
+            for (Column column : columns) {
+                ColumnInfo info = infos.get(column.name);
+                assertEquals(column.type, info.getType(), column.name);
+                assertEquals(EnumSet.of(column.encoding), info.getEncodings(), column.name);
+                assertEquals(missingCount(), info.getNullCount(), column.name);
+            }
+            assertEquals(Type.NULL, infos.get("always_null").getType());
+            assertEquals(ROWS, infos.get("always_null").getNullCount());
+            assertTrue(infos.get("always_null").getEncodings().isEmpty());
+
+            // Row 0 holds null, the last row a value
+            assertEquals(1_000_003, infos.get("int_delta").getMin());
+            assertEquals(1_000_000 + (ROWS - 1) * 3, infos.get("int_delta").getMax());
+            assertEquals("", infos.get("string_dictionary").getMin());
+            assertNull(infos.get("variant").getMin());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({"false, 1", "false, 64", "true, 1000", "true, 97"})
+    void roundTripsAcrossRowGroupsAndCompression(boolean deflate, int rowGroupRows) throws Exception {
+        List<Map<String, Object>> rows = rows(columns());
+        Path file = dir.resolve("groups.col");
+        try (ColumnarFile.Writer writer = new ColumnarFile.Writer(file, deflate, rowGroupRows, executor)) {
+            writer.write(rows);
+            writer.finish();
+        }
+
+        try (ColumnarFile.Reader reader = new ColumnarFile.Reader(file)) {
+            assertEquals((ROWS + rowGroupRows - 1) / rowGroupRows, reader.getRowGroupCount());
+            assertEquals(rows, reader.readAll(null, executor));
+
+            List<Map<String, Object>> projected = new ArrayList<>();
+            for (int g = 0; g < reader.getRowGroupCount(); g++) {
+                projected.addAll(reader.readRowGroup(g, List.of("string_dictionary", "id"), executor));
+            }
+            for (int i = 0; i < ROWS; i++) {
+                Map<String, Object> expected = new HashMap<>(rows.get(i));
+                expected.keySet().retainAll(Set.of("string_dictionary", "id"));
+                assertEquals(expected, projected.get(i));
+            }
+        }
+    }
+
+    @Test
+    void columnsFirstSeenInLaterRowGroupsAreAbsentBefore() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", (long) i);
+            if (i >= 150) {
+                row.put("late", "x" + (i % 3));
+            }
+            if (i == 299) {
+                row.put("last", null);
+            }
+            rows.add(row);
+        }
+        Path file = dir.resolve("late.col");
+        try (ColumnarFile.Writer writer = new ColumnarFile.Writer(file, false, 100, null)) {
+            writer.declareColumns(List.of("declared", "id"));
+            writer.write(rows);
+            writer.finish();
+        }
+
+        try (ColumnarFile.Reader reader = new ColumnarFile.Reader(file)) {
+            assertEquals(List.of("declared", "id", "late", "last"), reader.getColumnNames());
+            assertEquals(rows, reader.readAll(null, null));
+            ColumnInfo late = reader.getColumns().get(2);
+            assertEquals(Type.STRING, late.getType());
+            assertEquals(150, late.getNullCount());
+            assertEquals(EnumSet.of(Encoding.DICTIONARY), late.getEncodings());
+        }
+    }
+
+    @Test
+    void typesThatDifferBetweenRowGroupsReadBackAsStored() throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            rows.add(Map.of("value", i < 10 ? (Object) (long) i : "s" + i));
+        }
+        Path file = dir.resolve("mixed.col");
+        try (ColumnarFile.Writer writer = new ColumnarFile.Writer(file, false, 10, null)) {
+            writer.write(rows);
+            writer.finish();
+        }
+
+        try (ColumnarFile.Reader reader = new ColumnarFile.Reader(file)) {
+            assertEquals(Type.VARIANT, reader.getColumns().get(0).getType());
+            assertEquals(rows, reader.readAll(null, null));
+        }
+    }
+
+    @Test
+    void otherValueClassesAreStoredAsText() throws Exception {
+        UUID id = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+        Path file = dir.resolve("text.col");
+        ColumnarFile.write(file, List.of(Map.of("id", id, "ratio", 1.5f)));
+
+        assertEquals(List.of(Map.of("id", id.toString(), "ratio", 1.5d)), ColumnarFile.read(file));
+    }
+
+    @Test
+    void emptyFileHasNoRows() throws Exception {
+        Path file = dir.resolve("empty.col");
+        ColumnarFile.write(file, List.of());
+
+        try (ColumnarFile.Reader reader = new ColumnarFile.Reader(file)) {
+            assertEquals(0, reader.getRowCount());
+            assertEquals(0, reader.getRowGroupCount());
+            assertTrue(reader.readAll(null, null).isEmpty());
+        }
+    }
+}
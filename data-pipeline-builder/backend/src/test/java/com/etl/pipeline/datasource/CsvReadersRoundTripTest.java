@@ -0,0 +1,206 @@
+package com.etl.pipeline.datasource;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The sequential parser and the parallel range reader must produce the same rows for any file,
+ * wherever the range boundaries fall and whether or not a row index is present
+ */
+class CsvReadersRoundTripTest {
+
+    private static final int[] SPLITS = {1, 2, 3, 5, 8, 13, 64};
+
+    private static ExecutorService executor;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterAll
+    static void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Name, leading part (up to and including the header line) and body of each file
+     */
+    static Stream<Arguments> files() {
+        String quoted = "1,\"Smith, John\",\"said \"\"hi\"\"\"\n"
+                + "2,  padded  ,\"  kept  \"\n"
+                + "3,,\"\"\n";
+        String multiline = "1,\"first line\nsecond line\",a\r\n"
+                + "2,\"crlf\r\ninside, with \"\"quotes\"\"\",b\r\n"
+                + "3,\"\n\n\",c\r\n"
+                + "4,\"ends with quote \"\"\",d\r\n";
+        return Stream.of(
+                Arguments.of("quoted", "id,name,note\n", quoted),
+                Arguments.of("multiline", "id,text,tail\r\n", multiline),
+                Arguments.of("bom", "\uFEFFid,name,note\n", quoted),
+                Arguments.of("bom_multiline", "\uFEFFid,text,tail\n", multiline.replace("\r\n", "\n")),
+                Arguments.of("blank_lines", "\n  \nid,value\n", "\n1,a\n   \n\r\n2,b\n\n\n"),
+                Arguments.of("empty_quoted", "only\n", "\"\"\n\nx\n\"\"\n"),
+                Arguments.of("no_final_newline", "a,b\n", "1,\"x\ny\"\n2,z"),
+                Arguments.of("unicode", "k,v\n", "1,\"gr\u00fcn, \u6f22\u5b57\"\n2,\u00e9\n"));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("files")
+    void parallelReaderMatchesSequentialParser(String name, String head, String body) throws Exception {
+        // Repeat the records so that range boundaries land inside quotes, line breaks and blank lines
+        Path file = write(name, head, body, 40);
+        Map<String, Object> config = new HashMap<>();
+
+        for (boolean hasHeaders : new boolean[] {true, false}) {
+            List<Map<String, Object>> expected = readSequentially(file, config, hasHeaders);
+            assertFalse(expected.isEmpty());
+            assertParallelMatches(file, config, hasHeaders, expected);
+
+            CsvRowIndex.build(file, config, 3).save(file);
+            try {
+                assertNotNull(CsvRowIndex.loadFor(file, config));
+                assertParallelMatches(file, config, hasHeaders, expected);
+            } finally {
+                Files.delete(CsvRowIndex.sidecarOf(file));
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("files")
+    void rowIndexCountsTheSequentialRecords(String name, String head, String body) throws Exception {
+        Path file = write(name, head, body, 40);
+        Map<String, Object> config = new HashMap<>();
+
+        // The index counts the header line as a record
+        CsvRowIndex index = CsvRowIndex.build(file, config, 3);
+        List<Map<String, Object>> records = readSequentially(file, config, false);
+        assertEquals(records.size(), index.getRecordCount());
+        try (CsvParser parser = CsvParser.open(file, config)) {
+            assertArrayEquals(parser.nextRecord(), index.getHeader());
+        }
+    }
+
+    @Test
+    void quotedFieldsAndBlankLinesParseAsWritten() throws Exception {
+        Path file = write("expected", "\uFEFF\nid,name,note\n", "\n"
+                + "1,\"Smith, John\",\"two\nlines\"\n"
+                + "  \n"
+                + "2, padded ,\"\"\n"
+                + "\"\"\n", 1);
+        Map<String, Object> config = new HashMap<>();
+
+        List<Map<String, Object>> expected = List.of(
+                row("id", "1", "name", "Smith, John", "note", "two\nlines"),
+                row("id", "2", "name", "padded", "note", ""),
+                row("id", ""));
+        assertEquals(expected, readSequentially(file, config, true));
+        assertParallelMatches(file, config, true, expected);
+    }
+
+    @Test
+    void untrimmedAndCustomDelimiterFilesMatch() throws Exception {
+        Path file = write("semicolon", "a;b\n", " x ;\"y;z\"\n\n ;\n", 25);
+        Map<String, Object> config = new HashMap<>();
+        config.put("delimiter", ";");
+        config.put("trimValues", "false");
+
+        List<Map<String, Object>> expected = readSequentially(file, config, true);
+        assertEquals(row("a", " x ", "b", "y;z"), expected.get(0));
+        assertEquals(row("a", " ", "b", ""), expected.get(1));
+        assertParallelMatches(file, config, true, expected);
+    }
+
+    private void assertParallelMatches(Path file, Map<String, Object> config, boolean hasHeaders,
+                                       List<Map<String, Object>> expected) throws Exception {
+        ParallelCsvReader reader = new ParallelCsvReader(file, config, executor, 4);
+        for (int splits : SPLITS) {
+            assertEquals(expected, reader.read(hasHeaders, splits), "splits=" + splits + ", headers=" + hasHeaders);
+        }
+        assertEquals(expected, reader.read(hasHeaders));
+        try (RecordBatchReader batches = reader.openReader(hasHeaders, 7)) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            List<Map<String, Object>> batch;
+            while ((batch = batches.nextBatch()) != null) {
+                rows.addAll(batch);
+            }
+            assertEquals(expected, rows);
+        }
+    }
+
+    /**
+     * Read the file the way {@link CsvFileSource} does, keeping every value as text
+     */
+    private static List<Map<String, Object>> readSequentially(Path file, Map<String, Object> config,
+                                                              boolean hasHeaders) throws Exception {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (CsvParser parser = CsvParser.open(file, config)) {
+            String[] first = parser.nextRecord();
+            if (first == null) {
+                return rows;
+            }
+            String[] headers = new String[first.length];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = hasHeaders ? first[i] : "column_" + (i + 1);
+            }
+            if (!hasHeaders) {
+                rows.add(toRow(headers, first));
+            }
+            while (parser.next()) {
+                rows.add(CsvFileSource.toRow(parser, headers, null));
+            }
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> toRow(String[] headers, String[] values) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < Math.min(headers.length, values.length); i++) {
+            row.put(headers[i], values[i]);
+        }
+        return row;
+    }
+
+    private static Map<String, Object> row(Object... keysAndValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            row.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return row;
+    }
+
+    /**
+     * The head followed by the body repeated, separated by a line break if the body lacks a final one
+     */
+    private Path write(String name, String head, String body, int repeats) throws Exception {
+        StringBuilder text = new StringBuilder(head);
+        for (int i = 0; i < repeats; i++) {
+            text.append(body);
+            if (i < repeats - 1 && !body.endsWith("\n")) {
+                text.append('\n');
+            }
+        }
+        Path file = dir.resolve(name + ".csv");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}